@@ -0,0 +1,96 @@
+package com.assignment.personalized_app.bulkhead;
+
+import com.assignment.personalized_app.logging.AccessLogContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Admits the requests of one bulkhead through its {@link ConcurrencyLimiter}, answering
+ * 429 Too Many Requests with a Retry-After header when no slot frees up in time.
+ * Requests to exempt paths, which enforce their own limits, pass straight through.
+ * <p>
+ * The limiter is fed each request's database time, as recorded in its {@link AccessLogContext},
+ * rather than its whole latency, which also counts queueing, caches and serialization.
+ */
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadFilter.class);
+    private static final UrlPathHelper PATH_HELPER = new UrlPathHelper();
+
+    private final String name;
+    private final ConcurrencyLimiter limiter;
+    private final Set<String> exemptPaths;
+    private final String retryAfterSeconds;
+    private final byte[] rejectionBody;
+
+    public BulkheadFilter(String name,
+                          ConcurrencyLimiter limiter,
+                          Set<String> exemptPaths,
+                          Duration retryAfter,
+                          ObjectMapper objectMapper) throws IOException {
+        this.name = name;
+        this.limiter = limiter;
+        this.exemptPaths = exemptPaths;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+        this.rejectionBody = objectMapper.writeValueAsBytes(
+                Map.of("message", "Too many " + name + " requests in progress, retry later"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return exemptPaths.contains(PATH_HELPER.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean admitted;
+        try {
+            admitted = limiter.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            logger.debug("Rejected {} request {} {}", name, request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(rejectionBody);
+            return;
+        }
+
+        AccessLogContext context = AccessLogContext.current();
+        boolean opened = context == null;
+        if (opened) {
+            context = AccessLogContext.open();
+        }
+        long dbNanosBefore = context.dbNanos();
+        int statementsBefore = context.statements();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            if (opened) {
+                AccessLogContext.close();
+            }
+            // Requests that never reached the database say nothing about its load
+            limiter.release(context.statements() > statementsBefore ? context.dbNanos() - dbNanosBefore : -1);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.assignment.personalized_app.bulkhead;
+
+import com.assignment.personalized_app.config.BulkheadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds the requests of one bulkhead that run at once, with a bounded, time-limited wait for
+ * a slot.
+ * <p>
+ * With {@code adaptive}, the limit follows the database time of completed requests. After every
+ * {@code sample-window} requests the window's median is compared with the baseline, a moving
+ * average of earlier medians: the limit is cut by a tenth when the median exceeds the baseline by
+ * {@code latency-tolerance}, or raised by one when it does not and the limit was reached. The
+ * median keeps a few large requests in a window of small ones from looking like congestion, and
+ * the moving baseline lets a lasting change in database speed become the new normal instead of
+ * pinning the limit at its minimum.
+ * Metrics: {@code bulkhead.limit}, {@code bulkhead.inflight}, {@code bulkhead.queued} and
+ * {@code bulkhead.rejected}, tagged with the bulkhead name.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final double BASELINE_SMOOTHING = 0.1;
+
+    private final BulkheadProperties.Bulkhead settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final Counter rejected;
+
+    private volatile int limit;
+    private volatile int inFlight;
+    private volatile int waiting;
+
+    // Adaptive state, guarded by lock
+    private final long[] window;
+    private double baselineNanos;
+    private int windowSamples;
+    private int windowPeak;
+
+    public ConcurrencyLimiter(String name, BulkheadProperties.Bulkhead settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.limit = Math.max(1, settings.getLimit());
+        this.window = new long[Math.max(1, settings.getSampleWindow())];
+        this.rejected = meterRegistry.counter("bulkhead.rejected", "bulkhead", name);
+        Gauge.builder("bulkhead.limit", this, l -> l.limit).tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("bulkhead.inflight", this, l -> l.inFlight).tag("bulkhead", name).register(meterRegistry);
+        Gauge.builder("bulkhead.queued", this, l -> l.waiting).tag("bulkhead", name).register(meterRegistry);
+    }
+
+    /**
+     * Takes a slot, waiting up to {@code max-wait} if the queue has room.
+     *
+     * @return false if the request must be rejected
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        long remaining = settings.getMaxWait().toNanos();
+        lock.lockInterruptibly();
+        try {
+            if (inFlight < limit) {
+                admit();
+                return true;
+            }
+            if (waiting >= settings.getQueueLimit() || remaining <= 0) {
+                rejected.increment();
+                return false;
+            }
+            waiting++;
+            try {
+                while (inFlight >= limit) {
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        return false;
+                    }
+                    remaining = slotFreed.awaitNanos(remaining);
+                }
+                admit();
+                return true;
+            } finally {
+                waiting--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Frees a slot taken by {@link #tryAcquire()}.
+     *
+     * @param latencyNanos database time of the request, or a negative value to skip sampling
+     */
+    public void release(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (settings.isAdaptive() && latencyNanos >= 0) {
+                sample(latencyNanos);
+            }
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void admit() {
+        inFlight++;
+        windowPeak = Math.max(windowPeak, inFlight);
+    }
+
+    private void sample(long latencyNanos) {
+        window[windowSamples++] = latencyNanos;
+        if (windowSamples < window.length) {
+            return;
+        }
+
+        Arrays.sort(window);
+        long median = window[window.length / 2];
+        if (baselineNanos == 0) {
+            baselineNanos = median;
+        }
+        if (median > baselineNanos * settings.getLatencyTolerance()) {
+            limit = Math.max(settings.getMinLimit(), Math.max(1, (int) (limit * BACKOFF_RATIO)));
+        } else if (windowPeak >= limit && limit < settings.getMaxLimit()) {
+            limit++;
+            slotFreed.signal();
+        }
+        baselineNanos += BASELINE_SMOOTHING * (median - baselineNanos);
+        windowSamples = 0;
+        windowPeak = inFlight;
+    }
+}
@@ -0,0 +1,105 @@
+package com.assignment.personalized_app.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate access counts of recent keys: a count-min sketch of 4-bit counters (TinyLFU).
+ * <p>
+ * Each key maps to four counters in one 64-bit word of the table; its frequency is the smallest
+ * of them, at most 15. After {@code 10 * capacity} increments every counter is halved, so counts
+ * reflect recent traffic and a key that was hot yesterday cannot hold its place forever.
+ * Increments are lock-free; an increment racing with the halving may be lost, which only makes
+ * the estimate slightly lower.
+ */
+public final class FrequencySketch {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final AtomicLongArray table;
+    private final int tableMask;
+    private final int sampleSize;
+    private final AtomicInteger additions = new AtomicInteger();
+
+    /**
+     * @param capacity number of distinct keys expected to be tracked; sizes the table
+     */
+    public FrequencySketch(int capacity) {
+        int length = Integer.highestOneBit(Math.max(16, Math.min(capacity, 1 << 30)) - 1) << 1;
+        this.table = new AtomicLongArray(length);
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10L * Math.max(capacity, 1), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimated recent accesses of the key, between 0 and 15.
+     */
+    public int frequency(String key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+        for (int i = 0; i < 4; i++) {
+            long word = table.get(indexOf(hash, i));
+            frequency = Math.min(frequency, (int) ((word >>> ((start + i) << 2)) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records one access of the key.
+     */
+    public void increment(String key) {
+        int hash = spread(key.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+        if (added && additions.incrementAndGet() >= sampleSize) {
+            reset();
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xFL << offset;
+        while (true) {
+            long word = table.get(index);
+            if ((word & mask) == mask) {
+                return false;
+            }
+            if (table.compareAndSet(index, word, word + (1L << offset))) {
+                return true;
+            }
+        }
+    }
+
+    private synchronized void reset() {
+        // Another thread halved the counters while this one waited
+        if (additions.get() < sampleSize) {
+            return;
+        }
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, (table.get(i) >>> 1) & RESET_MASK);
+        }
+        additions.set(sampleSize / 2);
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
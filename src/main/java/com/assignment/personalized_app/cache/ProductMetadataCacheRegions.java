@@ -0,0 +1,50 @@
+package com.assignment.personalized_app.cache;
+
+import com.assignment.personalized_app.config.ProductMetadataCacheProperties;
+import com.assignment.personalized_app.entity.ProductMetadata;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+
+/**
+ * The second-level cache regions holding product metadata.
+ * <p>
+ * Writes through JPA keep them current on their own: Hibernate writes a saved ProductMetadata
+ * through to its region on commit and invalidates cached query results over product_metadata.
+ * Writes made with plain JDBC, such as the CSV catalog import, bypass Hibernate and must
+ * {@link #evict} what they changed.
+ */
+@Component
+public class ProductMetadataCacheRegions {
+
+    public static final String ENTITY_REGION = "product-metadata";
+    public static final String EXISTING_IDS_REGION = "product-metadata-ids";
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ProductMetadataCacheProperties properties;
+
+    public ProductMetadataCacheRegions(EntityManagerFactory entityManagerFactory,
+                                       ProductMetadataCacheProperties properties) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.properties = properties;
+    }
+
+    /**
+     * Drops the cached entities of the given products and every cached existing-id result,
+     * after a write that Hibernate did not see has committed.
+     */
+    public void evict(Collection<String> productIds) {
+        if (!properties.isEnabled() || productIds.isEmpty()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        for (String productId : productIds) {
+            cache.evictEntityData(ProductMetadata.class, productId);
+        }
+        // Results are keyed by id list, so any of them may mention an inserted product
+        cache.evictQueryRegion(EXISTING_IDS_REGION);
+    }
+}
@@ -0,0 +1,83 @@
+package com.assignment.personalized_app.cache;
+
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a ranked shelf held by the warm tier of {@link TieredShelfCache}: the item
+ * count, then per item the product id, the score (scale and unscaled bytes) and the optional
+ * category and brand.
+ */
+final class ShelfCodec {
+
+    private ShelfCodec() {
+    }
+
+    static byte[] encode(List<ShopperProductDTO> shelf) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + shelf.size() * 48);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(shelf.size());
+            for (ShopperProductDTO item : shelf) {
+                out.writeUTF(item.getProductId());
+                BigDecimal score = item.getRelevancyScore();
+                if (score == null) {
+                    out.writeByte(-1);
+                } else {
+                    byte[] unscaled = score.unscaledValue().toByteArray();
+                    out.writeByte(unscaled.length);
+                    out.write(unscaled);
+                    out.writeInt(score.scale());
+                }
+                writeOptional(out, item.getCategory());
+                writeOptional(out, item.getBrand());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<ShopperProductDTO> decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int size = in.readInt();
+            List<ShopperProductDTO> shelf = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String productId = in.readUTF();
+                BigDecimal score = null;
+                int length = in.readByte();
+                if (length >= 0) {
+                    byte[] unscaled = new byte[length];
+                    in.readFully(unscaled);
+                    score = new BigDecimal(new BigInteger(unscaled), in.readInt());
+                }
+                shelf.add(new ShopperProductDTO(productId, score, readOptional(in), readOptional(in)));
+            }
+            return List.copyOf(shelf);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private static void writeOptional(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readOptional(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,320 @@
+package com.assignment.personalized_app.cache;
+
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Ranked shelves per shopper in two tiers: a small hot tier of decoded shelves and a larger warm
+ * tier of serialized shelves. Both are on the heap; a warm shelf is one compact byte array instead
+ * of a few objects per item, so the warm tier holds many more shoppers for the same memory.
+ * <p>
+ * Every lookup is counted in a {@link FrequencySketch}. Admission follows TinyLFU: when a tier
+ * is full, a clock cursor samples a few of its shoppers and the least frequently read one is the
+ * victim; a candidate only replaces it if the candidate has been read more often recently. A scan
+ * of one-off shoppers therefore never displaces hot ones, from either tier. A warm hit that is
+ * read more often than the hot tier's victim is promoted, and the victim is demoted to the warm
+ * tier; a loaded shelf that the hot tier does not admit is offered to the warm tier.
+ * <p>
+ * Lookups are lock-free; admission, eviction and moves between tiers run under one lock. A load
+ * is identified by the stamp taken before it read the database: {@link #put} drops it if the
+ * shopper was invalidated since, so a load can never overwrite a newer write's invalidation.
+ * Stamps are kept per stripe of shoppers, so an invalidation occasionally drops an unrelated load.
+ * <p>
+ * Metrics: {@code shelf.cache.hits} and {@code .hit.ratio} per tier, {@code .misses},
+ * {@code .shoppers}, {@code .bytes} (estimated for the hot tier), {@code .evictions} and
+ * {@code .rejections} per tier, {@code .promotions} and {@code .demotions}.
+ */
+public class TieredShelfCache {
+
+    private static final int EVICTION_SAMPLE = 8;
+    private static final int STRIPES = 4096;
+    // Rough per-shopper overhead (map entry, key, array header) added to the byte counts
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+    private static final int ITEM_OVERHEAD_BYTES = 120;
+
+    private final Map<String, HotEntry> hot = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> warm = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    private final FrequencySketch sketch;
+    private final int hotMaxShoppers;
+    private final long warmMaxBytes;
+
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong warmBytes = new AtomicLong();
+    private final Counter hotHits;
+    private final Counter warmHits;
+    private final Counter misses;
+    private final Counter hotEvictions;
+    private final Counter warmEvictions;
+    private final Counter hotRejections;
+    private final Counter warmRejections;
+    private final Counter promotions;
+    private final Counter demotions;
+
+    private Iterator<String> hotCursor;
+    private Iterator<String> warmCursor;
+
+    public TieredShelfCache(int hotMaxShoppers, long warmMaxBytes, int sketchCapacity, MeterRegistry meterRegistry) {
+        this.hotMaxShoppers = hotMaxShoppers;
+        this.warmMaxBytes = warmMaxBytes;
+        this.sketch = new FrequencySketch(sketchCapacity);
+
+        this.hotHits = meterRegistry.counter("shelf.cache.hits", "tier", "hot");
+        this.warmHits = meterRegistry.counter("shelf.cache.hits", "tier", "warm");
+        this.misses = meterRegistry.counter("shelf.cache.misses");
+        this.hotEvictions = meterRegistry.counter("shelf.cache.evictions", "tier", "hot");
+        this.warmEvictions = meterRegistry.counter("shelf.cache.evictions", "tier", "warm");
+        this.hotRejections = meterRegistry.counter("shelf.cache.rejections", "tier", "hot");
+        this.warmRejections = meterRegistry.counter("shelf.cache.rejections", "tier", "warm");
+        this.promotions = meterRegistry.counter("shelf.cache.promotions");
+        this.demotions = meterRegistry.counter("shelf.cache.demotions");
+        Gauge.builder("shelf.cache.shoppers", hot, Map::size).tag("tier", "hot").register(meterRegistry);
+        Gauge.builder("shelf.cache.shoppers", warm, Map::size).tag("tier", "warm").register(meterRegistry);
+        Gauge.builder("shelf.cache.bytes", hotBytes, AtomicLong::get).tag("tier", "hot").register(meterRegistry);
+        Gauge.builder("shelf.cache.bytes", warmBytes, AtomicLong::get).tag("tier", "warm").register(meterRegistry);
+        Gauge.builder("shelf.cache.hit.ratio", this, c -> c.hitRatio(hotHits)).tag("tier", "hot").register(meterRegistry);
+        Gauge.builder("shelf.cache.hit.ratio", this, c -> c.hitRatio(warmHits)).tag("tier", "warm").register(meterRegistry);
+    }
+
+    /**
+     * Cached ranked shelf of the shopper, or null on a miss. The returned list is shared and
+     * must not be modified.
+     */
+    public List<ShopperProductDTO> get(String shopperId) {
+        sketch.increment(shopperId);
+        HotEntry entry = hot.get(shopperId);
+        if (entry != null) {
+            hotHits.increment();
+            return entry.shelf();
+        }
+        byte[] encoded = warm.get(shopperId);
+        if (encoded != null) {
+            List<ShopperProductDTO> shelf = ShelfCodec.decode(ByteBuffer.wrap(encoded));
+            warmHits.increment();
+            promote(shopperId, encoded, shelf);
+            return shelf;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stamp to take before loading the shopper's shelf and pass to {@link #put}.
+     */
+    public long stamp(String shopperId) {
+        return generations.get(stripe(shopperId));
+    }
+
+    /**
+     * Offers a loaded shelf to the cache.
+     *
+     * @return false if the shopper was invalidated since the stamp was taken, or neither tier
+     * admitted the shelf
+     */
+    public boolean put(String shopperId, long stamp, List<ShopperProductDTO> shelf) {
+        List<ShopperProductDTO> copy = List.copyOf(shelf);
+        synchronized (this) {
+            if (generations.get(stripe(shopperId)) != stamp) {
+                return false;
+            }
+            removeLocked(shopperId);
+            if (admitHot(shopperId, copy)) {
+                return true;
+            }
+            return admitWarm(shopperId, ShelfCodec.encode(copy));
+        }
+    }
+
+    public void invalidate(String shopperId) {
+        generations.incrementAndGet(stripe(shopperId));
+        synchronized (this) {
+            removeLocked(shopperId);
+        }
+    }
+
+    public void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        synchronized (this) {
+            hot.clear();
+            warm.clear();
+            hotBytes.set(0);
+            warmBytes.set(0);
+        }
+    }
+
+    public int hotShoppers() {
+        return hot.size();
+    }
+
+    public int warmShoppers() {
+        return warm.size();
+    }
+
+    public boolean isHot(String shopperId) {
+        return hot.containsKey(shopperId);
+    }
+
+    public boolean isWarm(String shopperId) {
+        return warm.containsKey(shopperId);
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void promote(String shopperId, byte[] encoded, List<ShopperProductDTO> shelf) {
+        synchronized (this) {
+            // Invalidated or replaced while it was decoded
+            if (warm.get(shopperId) != encoded) {
+                return;
+            }
+            if (hot.size() >= hotMaxShoppers) {
+                String victim = victim(hot.keySet(), true);
+                if (victim == null || sketch.frequency(shopperId) <= sketch.frequency(victim)) {
+                    return;
+                }
+                demote(victim);
+            }
+            warm.remove(shopperId);
+            warmBytes.addAndGet(-warmSize(encoded));
+            putHot(shopperId, shelf);
+            promotions.increment();
+        }
+    }
+
+    private boolean admitHot(String shopperId, List<ShopperProductDTO> shelf) {
+        if (hotMaxShoppers <= 0) {
+            return false;
+        }
+        if (hot.size() >= hotMaxShoppers) {
+            String victim = victim(hot.keySet(), true);
+            if (victim == null || sketch.frequency(shopperId) <= sketch.frequency(victim)) {
+                hotRejections.increment();
+                return false;
+            }
+            demote(victim);
+        }
+        putHot(shopperId, shelf);
+        return true;
+    }
+
+    private boolean admitWarm(String shopperId, byte[] encoded) {
+        long size = encoded.length + ENTRY_OVERHEAD_BYTES;
+        if (size > warmMaxBytes) {
+            warmRejections.increment();
+            return false;
+        }
+        int frequency = sketch.frequency(shopperId);
+        while (warmBytes.get() + size > warmMaxBytes) {
+            String victim = victim(warm.keySet(), false);
+            if (victim == null || frequency <= sketch.frequency(victim)) {
+                warmRejections.increment();
+                return false;
+            }
+            byte[] evicted = warm.remove(victim);
+            warmBytes.addAndGet(-warmSize(evicted));
+            warmEvictions.increment();
+        }
+        warm.put(shopperId, encoded);
+        warmBytes.addAndGet(size);
+        return true;
+    }
+
+    /**
+     * Moves a hot shopper to the warm tier, or drops it if the warm tier does not admit it.
+     */
+    private void demote(String shopperId) {
+        HotEntry entry = hot.remove(shopperId);
+        hotBytes.addAndGet(-entry.bytes());
+        hotEvictions.increment();
+        if (admitWarm(shopperId, ShelfCodec.encode(entry.shelf()))) {
+            demotions.increment();
+        }
+    }
+
+    private void putHot(String shopperId, List<ShopperProductDTO> shelf) {
+        HotEntry entry = new HotEntry(shelf, estimateBytes(shelf));
+        hot.put(shopperId, entry);
+        hotBytes.addAndGet(entry.bytes());
+    }
+
+    private void removeLocked(String shopperId) {
+        HotEntry entry = hot.remove(shopperId);
+        if (entry != null) {
+            hotBytes.addAndGet(-entry.bytes());
+        }
+        byte[] encoded = warm.remove(shopperId);
+        if (encoded != null) {
+            warmBytes.addAndGet(-warmSize(encoded));
+        }
+    }
+
+    /**
+     * Least frequently read shopper among the next few under the tier's clock cursor.
+     */
+    private String victim(Iterable<String> shoppers, boolean hotTier) {
+        Iterator<String> cursor = hotTier ? hotCursor : warmCursor;
+        String victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        for (int sampled = 0; sampled < EVICTION_SAMPLE; sampled++) {
+            if (cursor == null || !cursor.hasNext()) {
+                cursor = shoppers.iterator();
+                if (!cursor.hasNext()) {
+                    break;
+                }
+            }
+            String candidate = cursor.next();
+            int frequency = sketch.frequency(candidate);
+            if (frequency < victimFrequency) {
+                victim = candidate;
+                victimFrequency = frequency;
+            }
+        }
+        if (hotTier) {
+            hotCursor = cursor;
+        } else {
+            warmCursor = cursor;
+        }
+        return victim;
+    }
+
+    private double hitRatio(Counter tierHits) {
+        double lookups = hotHits.count() + warmHits.count() + misses.count();
+        return lookups == 0 ? Double.NaN : tierHits.count() / lookups;
+    }
+
+    private static long warmSize(byte[] encoded) {
+        return encoded.length + ENTRY_OVERHEAD_BYTES;
+    }
+
+    private static long estimateBytes(List<ShopperProductDTO> shelf) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (ShopperProductDTO item : shelf) {
+            bytes += ITEM_OVERHEAD_BYTES + length(item.getProductId()) + length(item.getCategory()) + length(item.getBrand());
+        }
+        return bytes;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static int stripe(String shopperId) {
+        return shopperId.hashCode() & (STRIPES - 1);
+    }
+
+    private record HotEntry(List<ShopperProductDTO> shelf, long bytes) {
+    }
+}
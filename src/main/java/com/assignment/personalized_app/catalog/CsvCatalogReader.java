@@ -0,0 +1,309 @@
+package com.assignment.personalized_app.catalog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads {@code productId,category,brand} lines from a CSV file through memory-mapped windows.
+ * <p>
+ * The file is mapped {@code windowSize} bytes at a time and scanned in place, so no read buffer
+ * is copied and files far beyond 2 GB are fine; a line crossing the end of a window is re-read
+ * from a window starting at that line. Fields are split on the mapped bytes and only the product
+ * id is decoded per line: categories and brands repeat across millions of lines and are looked
+ * up byte-wise in a small pool of already decoded values. Quoted fields ({@code "a,b"},
+ * {@code ""} escapes, on one line), CRLF line ends, a UTF-8 byte order mark and a header line
+ * are accepted.
+ * <p>
+ * Every row carries the file offset just past its line, so a reader opened at that offset
+ * continues with the next line. The header is only recognised when reading from offset 0.
+ * Not thread-safe.
+ */
+public final class CsvCatalogReader implements Closeable {
+
+    private static final int FIELDS = 3;
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private final ValuePool values = new ValuePool();
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+    private boolean headerChecked;
+    private byte[] scratch = new byte[256];
+    private final int[] fieldStarts = new int[FIELDS];
+    private final int[] fieldEnds = new int[FIELDS];
+    private int fieldCount;
+    private boolean unterminatedQuote;
+
+    public CsvCatalogReader(Path file, long startOffset, int windowSize) throws IOException {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        if (startOffset < 0 || startOffset > size) {
+            channel.close();
+            throw new IllegalArgumentException("Offset " + startOffset + " is outside the file (" + size + " bytes)");
+        }
+        this.headerChecked = startOffset > 0;
+        map(startOffset);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * File offset just past the last line returned.
+     */
+    public long offset() {
+        return windowStart + position;
+    }
+
+    /**
+     * Reads the next non-blank line.
+     *
+     * @return the row, with {@link Row#error()} set if the line is malformed; null at end of file
+     * @throws IOException if a line does not fit in one window or the file cannot be mapped
+     */
+    public Row next() throws IOException {
+        while (offset() < size) {
+            if (offset() == 0 && startsWithBom()) {
+                position += BOM.length;
+            }
+            int end = scanLine();
+            int start = position;
+            position = end < window.limit() ? end + 1 : end;
+
+            int contentEnd = end > start && window.get(end - 1) == '\r' ? end - 1 : end;
+            if (contentEnd == start) {
+                continue;
+            }
+            if (fieldCount > 0 && fieldEnds[Math.min(fieldCount, FIELDS) - 1] == end) {
+                // The CR belongs to the line end, not to the last field
+                fieldEnds[Math.min(fieldCount, FIELDS) - 1] = contentEnd;
+            }
+            Row row = toRow(windowStart + start);
+            if (!headerChecked) {
+                headerChecked = true;
+                if (isHeader(row)) {
+                    continue;
+                }
+            }
+            return row;
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released when the buffer is garbage collected
+        window = null;
+        channel.close();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        long length = Math.min(windowSize, size - start);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        position = 0;
+    }
+
+    /**
+     * Splits the line starting at {@link #position} into fields and returns the index of the
+     * newline ending it, or the window limit when the line ends the file. A quote only opens a
+     * quoted field at the start of a field, so a stray quote inside a value is kept as is.
+     * Remaps when the line runs past the current window.
+     */
+    private int scanLine() throws IOException {
+        while (true) {
+            int limit = window.limit();
+            boolean quoted = false;
+            boolean fieldStart = true;
+            fieldCount = 0;
+            unterminatedQuote = false;
+            int currentStart = position;
+            for (int i = position; i < limit; i++) {
+                byte b = window.get(i);
+                if (quoted) {
+                    if (b == '\n') {
+                        // Catalog values never span lines; keep one bad quote from eating the file
+                        unterminatedQuote = true;
+                        endField(currentStart, i);
+                        return i;
+                    }
+                    if (b == '"') {
+                        if (i + 1 < limit && window.get(i + 1) == '"') {
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    }
+                    continue;
+                }
+                if (b == '"' && fieldStart) {
+                    quoted = true;
+                } else if (b == ',' || b == '\n') {
+                    endField(currentStart, i);
+                    currentStart = i + 1;
+                    if (b == '\n') {
+                        return i;
+                    }
+                    fieldStart = true;
+                    continue;
+                }
+                fieldStart = false;
+            }
+            if (windowStart + limit == size) {
+                endField(currentStart, limit);
+                unterminatedQuote = quoted;
+                return limit;
+            }
+            if (position == 0) {
+                throw new IOException("Line at offset " + windowStart + " is longer than the "
+                        + windowSize + " byte map window");
+            }
+            map(windowStart + position);
+        }
+    }
+
+    private void endField(int start, int end) {
+        if (fieldCount < FIELDS) {
+            fieldStarts[fieldCount] = start;
+            fieldEnds[fieldCount] = end;
+        }
+        fieldCount++;
+    }
+
+    private Row toRow(long lineOffset) {
+        if (unterminatedQuote) {
+            return Row.rejected(lineOffset, offset(), "unterminated quoted field");
+        }
+        if (fieldCount != FIELDS) {
+            return Row.rejected(lineOffset, offset(), "expected " + FIELDS + " fields, found " + fieldCount);
+        }
+        int idLength = copyField(0);
+        if (idLength == 0) {
+            return Row.rejected(lineOffset, offset(), "empty productId");
+        }
+        String productId = new String(scratch, 0, idLength, StandardCharsets.UTF_8);
+        String category = values.get(scratch, copyField(1));
+        String brand = values.get(scratch, copyField(2));
+        return new Row(productId, category, brand, lineOffset, offset(), null);
+    }
+
+    /**
+     * Copies a field's bytes into {@link #scratch}, unquoting it, and returns their length.
+     */
+    private int copyField(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        int length = end - start;
+        if (length >= 2 && window.get(start) == '"' && window.get(end - 1) == '"') {
+            ensureScratch(length);
+            int out = 0;
+            for (int i = start + 1; i < end - 1; i++) {
+                byte b = window.get(i);
+                scratch[out++] = b;
+                if (b == '"') {
+                    i++; // "" is one literal quote
+                }
+            }
+            return out;
+        }
+        ensureScratch(length);
+        window.get(start, scratch, 0, length);
+        return length;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+
+    private boolean startsWithBom() {
+        if (window.limit() - position < BOM.length) {
+            return false;
+        }
+        for (int i = 0; i < BOM.length; i++) {
+            if (window.get(position + i) != BOM[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHeader(Row row) {
+        return row.error() == null
+                && ("productId".equalsIgnoreCase(row.productId()) || "product_id".equalsIgnoreCase(row.productId()));
+    }
+
+    /**
+     * One parsed line. Empty category and brand fields are null.
+     *
+     * @param lineOffset file offset of the first byte of the line
+     * @param endOffset  file offset just past the line, where reading resumes
+     * @param error      why the line was rejected, or null if it parsed
+     */
+    public record Row(String productId, String category, String brand,
+                      long lineOffset, long endOffset, String error) {
+
+        static Row rejected(long lineOffset, long endOffset, String error) {
+            return new Row(null, null, null, lineOffset, endOffset, error);
+        }
+    }
+
+    /**
+     * Decoded strings keyed by their UTF-8 bytes, so a repeated value is neither decoded nor
+     * allocated again. Open addressing; once full, further values are decoded without pooling.
+     */
+    static final class ValuePool {
+
+        private static final int CAPACITY = 1 << 14;
+        private static final int MAX_VALUES = CAPACITY / 2;
+
+        private final byte[][] keys = new byte[CAPACITY][];
+        private final String[] strings = new String[CAPACITY];
+        private int count;
+
+        String get(byte[] bytes, int length) {
+            if (length == 0) {
+                return null;
+            }
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+            while (keys[slot] != null) {
+                byte[] key = keys[slot];
+                if (Arrays.equals(key, 0, key.length, bytes, 0, length)) {
+                    return strings[slot];
+                }
+                slot = (slot + 1) & (CAPACITY - 1);
+            }
+            String value = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            if (count < MAX_VALUES) {
+                keys[slot] = Arrays.copyOf(bytes, length);
+                strings[slot] = value;
+                count++;
+            }
+            return value;
+        }
+    }
+}
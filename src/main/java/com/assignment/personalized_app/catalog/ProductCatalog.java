@@ -0,0 +1,219 @@
+package com.assignment.personalized_app.catalog;
+
+import com.assignment.personalized_app.config.CatalogProperties;
+import com.assignment.personalized_app.config.ShardingProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of product_metadata (productId to category and brand).
+ * <p>
+ * Used to validate shelf uploads and to enrich shelf reads without joining product_metadata,
+ * which is required once shelves are sharded away from the catalog database. Loaded in full
+ * when the application is ready and reloaded periodically; local metadata writes go through
+ * {@link #put}, and ids not yet in memory are looked up in the catalog database and cached.
+ * Queries always go to the catalog database, outside any shard transaction.
+ */
+@Component
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate catalogJdbc;
+    private final TaskScheduler taskScheduler;
+    private final boolean enabled;
+    private final Duration reloadInterval;
+
+    private final Object lock = new Object();
+    private final Map<String, Entry> writesDuringReload = new HashMap<>();
+    private volatile Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private boolean reloading;
+    private volatile boolean restored;
+
+    public ProductCatalog(DataSource dataSource,
+                          @Qualifier("catalogDataSource") Optional<DataSource> catalogDataSource,
+                          TaskScheduler taskScheduler,
+                          CatalogProperties catalogProperties,
+                          ShardingProperties shardingProperties) {
+        this.catalogJdbc = new NamedParameterJdbcTemplate(catalogDataSource.orElse(dataSource));
+        this.taskScheduler = taskScheduler;
+        this.enabled = catalogProperties.isInMemory() || shardingProperties.isEnabled();
+        this.reloadInterval = catalogProperties.getReloadInterval();
+    }
+
+    /**
+     * Whether services should validate and enrich through this catalog instead of joins.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        // A snapshot restored at startup already made the copy current
+        if (!restored) {
+            reload();
+        }
+        taskScheduler.scheduleWithFixedDelay(this::reloadQuietly,
+                Instant.now().plus(reloadInterval), reloadInterval);
+    }
+
+    /**
+     * Returns the subset of the given ids that exist in product_metadata.
+     */
+    public Set<String> findExisting(Collection<String> productIds) {
+        return lookup(productIds).keySet();
+    }
+
+    /**
+     * Category and brand for each given id that exists in product_metadata.
+     */
+    public Map<String, Entry> lookup(Collection<String> productIds) {
+        Map<String, Entry> snapshot = entries;
+        Map<String, Entry> found = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+
+        for (String productId : productIds) {
+            Entry entry = snapshot.get(productId);
+            if (entry != null) {
+                found.put(productId, entry);
+            } else if (productId != null) {
+                missing.add(productId);
+            }
+        }
+
+        for (int i = 0; i < missing.size(); i += LOOKUP_BATCH_SIZE) {
+            List<String> ids = missing.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, missing.size()));
+            catalogJdbc.query(
+                    "SELECT product_id, category, brand FROM product_metadata WHERE product_id IN (:ids)",
+                    new MapSqlParameterSource("ids", ids),
+                    rs -> {
+                        Entry entry = new Entry(rs.getString(2), rs.getString(3));
+                        found.put(rs.getString(1), entry);
+                        put(rs.getString(1), entry);
+                    });
+        }
+        return found;
+    }
+
+    /**
+     * Category and brand of one product, or null if it does not exist.
+     */
+    public Entry get(String productId) {
+        Entry entry = entries.get(productId);
+        return entry != null ? entry : lookup(List.of(productId)).get(productId);
+    }
+
+    /**
+     * Records a product created or updated by this node.
+     */
+    public void put(String productId, String category, String brand) {
+        put(productId, new Entry(category, brand));
+    }
+
+    /**
+     * Replaces the in-memory copy with a fresh full read of product_metadata.
+     * Writes made while the read is running are re-applied on top of it.
+     */
+    public void reload() {
+        long started = System.currentTimeMillis();
+        synchronized (lock) {
+            reloading = true;
+        }
+
+        Map<String, Entry> fresh = new ConcurrentHashMap<>();
+        Map<String, String> interned = new HashMap<>();
+        try {
+            catalogJdbc.getJdbcTemplate().query("SELECT product_id, category, brand FROM product_metadata", rs -> {
+                // Few distinct categories and brands; share one String per value
+                fresh.put(rs.getString(1), new Entry(
+                        intern(interned, rs.getString(2)),
+                        intern(interned, rs.getString(3))));
+            });
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                writesDuringReload.clear();
+                reloading = false;
+            }
+            throw e;
+        }
+
+        synchronized (lock) {
+            fresh.putAll(writesDuringReload);
+            writesDuringReload.clear();
+            reloading = false;
+            entries = fresh;
+        }
+        logger.info("Product catalog loaded, products={}, elapsedMs={}",
+                fresh.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Replaces the in-memory copy with one restored from a snapshot and caught up since, so the
+     * full read at startup is skipped. Entries written or looked up before the restore are newer
+     * than the snapshot and are kept.
+     */
+    public void restore(Map<String, Entry> restoredEntries) {
+        Map<String, Entry> fresh = new ConcurrentHashMap<>(restoredEntries);
+        synchronized (lock) {
+            fresh.putAll(entries);
+            entries = fresh;
+            restored = true;
+        }
+        logger.info("Product catalog restored from snapshot, products={}", fresh.size());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void put(String productId, Entry entry) {
+        synchronized (lock) {
+            entries.put(productId, entry);
+            if (reloading) {
+                writesDuringReload.put(productId, entry);
+            }
+        }
+    }
+
+    private void reloadQuietly() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.warn("Product catalog reload failed, keeping previous copy: {}", e.getMessage());
+        }
+    }
+
+    private static String intern(Map<String, String> interned, String value) {
+        return value == null ? null : interned.computeIfAbsent(value, v -> v);
+    }
+
+    /**
+     * Catalog attributes of one product.
+     */
+    public record Entry(String category, String brand) {
+    }
+}
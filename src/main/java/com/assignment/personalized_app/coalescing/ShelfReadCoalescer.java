@@ -0,0 +1,85 @@
+package com.assignment.personalized_app.coalescing;
+
+import com.assignment.personalized_app.config.CoalescingProperties;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.logging.AccessLogContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight layer in front of the shelf read path: concurrent requests for the same
+ * shopper page share one database fetch. Writes to a shopper detach its in-flight fetches
+ * once they commit, so no request arriving after a commit is handed a fetch that started before it.
+ * A shared fetch runs on a loader thread but its rows and JDBC time are recorded against the
+ * request that started it.
+ * Metrics are published under {@code shelf.read.coalescing.*}, see {@link SingleFlight}.
+ */
+@Component
+public class ShelfReadCoalescer {
+
+    private final SingleFlight<ShelfPageKey, PageResponseDTO<ShopperProductDTO>> singleFlight;
+    private final boolean enabled;
+    private final Duration timeout;
+
+    public ShelfReadCoalescer(CoalescingProperties properties,
+                              @Qualifier("shelfReadExecutor") ThreadPoolTaskExecutor shelfReadExecutor,
+                              MeterRegistry meterRegistry) {
+        this.enabled = properties.isEnabled();
+        this.timeout = properties.getTimeout();
+        this.singleFlight = enabled
+                ? new SingleFlight<>("shelf.read.coalescing", shelfReadExecutor.getThreadPoolExecutor(), meterRegistry)
+                : null;
+    }
+
+    /**
+     * Returns the page for the key, joining an identical fetch already in flight.
+     *
+     * @throws TimeoutException if the fetch did not finish within personalized.coalescing.timeout
+     */
+    public PageResponseDTO<ShopperProductDTO> read(ShelfPageKey key,
+                                                   Supplier<PageResponseDTO<ShopperProductDTO>> loader)
+            throws TimeoutException {
+        if (!enabled) {
+            return loader.get();
+        }
+        return singleFlight.load(key, AccessLogContext.propagate(loader), timeout);
+    }
+
+    /**
+     * Detaches the shopper's in-flight fetches, after commit when called inside a transaction.
+     */
+    public void invalidate(String shopperId) {
+        if (!enabled || shopperId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    forget(shopperId);
+                }
+            });
+        } else {
+            forget(shopperId);
+        }
+    }
+
+    private void forget(String shopperId) {
+        singleFlight.forget(key -> key.shopperId().equals(shopperId));
+    }
+
+    /**
+     * Identifies one page of one shelf view; filters are already normalized.
+     */
+    public record ShelfPageKey(String shopperId, String category, String brand, int pageNumber, int pageSize) {
+    }
+}
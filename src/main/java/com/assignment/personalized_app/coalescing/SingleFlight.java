@@ -0,0 +1,177 @@
+package com.assignment.personalized_app.coalescing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent loads of the same key into one.
+ * <p>
+ * The first caller for a key starts the load on the executor; callers arriving while it runs
+ * wait for the same future instead of starting their own. Each caller waits at most its own
+ * timeout. When every caller waiting for a load has given up, the load is cancelled and forgotten,
+ * so the next caller starts afresh. A finished load is removed immediately: nothing is cached.
+ * <p>
+ * Metrics (prefix given at construction): {@code .loads} loads started, {@code .collapsed}
+ * callers that joined a running load, {@code .timeouts} callers that gave up, {@code .cancelled}
+ * loads abandoned by all callers, and {@code .inflight} loads currently running.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    private final Counter loads;
+    private final Counter collapsed;
+    private final Counter timeouts;
+    private final Counter cancelled;
+
+    public SingleFlight(String metricPrefix, ExecutorService executor, MeterRegistry meterRegistry) {
+        this.executor = executor;
+        this.loads = meterRegistry.counter(metricPrefix + ".loads");
+        this.collapsed = meterRegistry.counter(metricPrefix + ".collapsed");
+        this.timeouts = meterRegistry.counter(metricPrefix + ".timeouts");
+        this.cancelled = meterRegistry.counter(metricPrefix + ".cancelled");
+        meterRegistry.gaugeMapSize(metricPrefix + ".inflight", Tags.empty(), flights);
+    }
+
+    /**
+     * Returns the result of the running load for the key, starting one if there is none.
+     *
+     * @throws TimeoutException if the load did not finish within the timeout
+     * @throws RuntimeException  the load's own exception, shared by every caller of that load
+     */
+    public V load(K key, Supplier<V> loader, Duration timeout) throws TimeoutException {
+        Flight<V> flight;
+        boolean leader;
+        while (true) {
+            Flight<V> created = new Flight<>();
+            flight = flights.putIfAbsent(key, created);
+            leader = flight == null;
+            if (leader) {
+                flight = created;
+            }
+            if (flight.join()) {
+                break;
+            }
+            // Abandoned by its callers between lookup and join; start over
+            flights.remove(key, flight);
+        }
+
+        if (leader) {
+            loads.increment();
+            start(key, flight, loader);
+        } else {
+            collapsed.increment();
+        }
+        return await(key, flight, timeout);
+    }
+
+    /**
+     * Detaches running loads whose key matches, so that later callers start a new load.
+     * Callers already waiting still receive the detached result. Used when the data being
+     * loaded has just changed and an in-flight load may have read the old version.
+     */
+    public void forget(Predicate<K> keys) {
+        flights.keySet().removeIf(keys);
+    }
+
+    public int inFlight() {
+        return flights.size();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void start(K key, Flight<V> flight, Supplier<V> loader) {
+        Runnable task = () -> {
+            if (flight.future.isDone()) {
+                return;
+            }
+            // Forget the flight before publishing, so no caller joins a load that has already finished
+            try {
+                V value = loader.get();
+                flights.remove(key, flight);
+                flight.future.complete(value);
+            } catch (Throwable t) {
+                flights.remove(key, flight);
+                flight.future.completeExceptionally(t);
+            }
+        };
+        try {
+            flight.task = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            // All loader threads busy; load on this thread rather than queueing behind them
+            task.run();
+        }
+    }
+
+    private V await(K key, Flight<V> flight, Duration timeout) throws TimeoutException {
+        try {
+            return flight.future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for load of " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Load of " + key + " failed", cause);
+        } finally {
+            if (flight.leave()) {
+                cancelled.increment();
+                flights.remove(key, flight);
+            }
+        }
+    }
+
+    /**
+     * One running load and the number of callers still waiting for it.
+     */
+    private static final class Flight<V> {
+
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile Future<?> task;
+        private int waiters;
+        private boolean abandoned;
+
+        synchronized boolean join() {
+            if (abandoned) {
+                return false;
+            }
+            waiters++;
+            return true;
+        }
+
+        /**
+         * @return true if this was the last waiter and the unfinished load was cancelled
+         */
+        synchronized boolean leave() {
+            waiters--;
+            if (waiters > 0 || future.isDone()) {
+                return false;
+            }
+            abandoned = true;
+            future.cancel(false);
+            Future<?> running = task;
+            if (running != null) {
+                running.cancel(true);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.assignment.personalized_app.coherence;
+
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.CoherenceProperties;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.repository.ShelfVersionRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Keeps this node's in-process caches coherent with writes committed by other nodes, using only
+ * the shared databases.
+ * <p>
+ * Every shelf write bumps the shopper's row in shelf_version, on the shopper's shard and in the
+ * write's transaction, tagged with the writing node. Each node polls shelf_version of every
+ * database, and product_metadata of the catalog database, for rows whose updated_at is at or
+ * after the last change it saw less {@code overlap}; the overlap covers transactions that
+ * committed after rows with later timestamps were read. Rows written by this node, and versions
+ * already handled, are skipped. The changed keys are then dropped from the caches that hold
+ * them: the second-level product cache, in-memory catalog and category/brand index directly,
+ * the product-to-shoppers index by re-reading the changed shelves, and the shelf cache and
+ * materialized pages through
+ * {@link RemoteShelvesChangedEvent} and {@link RemoteProductsChangedEvent}.
+ * <p>
+ * A write on another node is thus served stale for at most about {@code poll-interval} plus
+ * the poll's duration. Product rows carry no writer, so this node's own metadata writes are
+ * invalidated a second time, which only costs cache misses.
+ * Metrics: {@code cache.coherence.poll} (timer) and {@code cache.coherence.invalidations}
+ * (tagged by type).
+ */
+@Component
+public class CacheCoherence {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheCoherence.class);
+
+    private static final String SHELF_CHANGES_SQL = """
+            SELECT shopper_id, version, writer, updated_at FROM shelf_version
+            WHERE updated_at > ? OR (updated_at = ? AND shopper_id > ?)
+            ORDER BY updated_at, shopper_id LIMIT ?
+            """;
+    private static final String PRODUCT_CHANGES_SQL = """
+            SELECT product_id, category, brand, updated_at FROM product_metadata
+            WHERE updated_at > ? OR (updated_at = ? AND product_id > ?)
+            ORDER BY updated_at, product_id LIMIT ?
+            """;
+
+    private final JdbcTemplate shelfJdbc;
+    private final JdbcTemplate catalogJdbc;
+    private final ShelfVersionRepository shelfVersionRepository;
+    private final ShardRouter shardRouter;
+    private final ProductCatalog productCatalog;
+    private final ProductAttributeIndex productAttributeIndex;
+    private final ProductShopperIndex productShopperIndex;
+    private final ProductMetadataCacheRegions productMetadataCacheRegions;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TaskScheduler taskScheduler;
+    private final CoherenceProperties properties;
+    private final String nodeId;
+
+    // Poll position and handled versions per database; null is the catalog database
+    private final Map<String, Cursor> shelfCursors = new HashMap<>();
+    private Cursor productCursor;
+
+    private final Timer pollTimer;
+    private final Counter shelfInvalidations;
+    private final Counter productInvalidations;
+
+    public CacheCoherence(DataSource dataSource,
+                          @Qualifier("catalogDataSource") Optional<DataSource> catalogDataSource,
+                          ShelfVersionRepository shelfVersionRepository,
+                          ShardRouter shardRouter,
+                          ProductCatalog productCatalog,
+                          ProductAttributeIndex productAttributeIndex,
+                          ProductShopperIndex productShopperIndex,
+                          ProductMetadataCacheRegions productMetadataCacheRegions,
+                          ApplicationEventPublisher eventPublisher,
+                          TaskScheduler taskScheduler,
+                          CoherenceProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.shelfJdbc = new JdbcTemplate(dataSource);
+        this.catalogJdbc = new JdbcTemplate(catalogDataSource.orElse(dataSource));
+        this.shelfVersionRepository = shelfVersionRepository;
+        this.shardRouter = shardRouter;
+        this.productCatalog = productCatalog;
+        this.productAttributeIndex = productAttributeIndex;
+        this.productShopperIndex = productShopperIndex;
+        this.productMetadataCacheRegions = productMetadataCacheRegions;
+        this.eventPublisher = eventPublisher;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+        this.nodeId = properties.getNodeId() == null || properties.getNodeId().isBlank()
+                ? UUID.randomUUID().toString()
+                : properties.getNodeId();
+        this.pollTimer = meterRegistry.timer("cache.coherence.poll");
+        this.shelfInvalidations = meterRegistry.counter("cache.coherence.invalidations", "type", "shelf");
+        this.productInvalidations = meterRegistry.counter("cache.coherence.invalidations", "type", "product");
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        start();
+        taskScheduler.scheduleWithFixedDelay(this::pollQuietly, properties.getPollInterval());
+        logger.info("Cache coherence polling every {}ms as node {}", properties.getPollInterval().toMillis(), nodeId);
+    }
+
+    /**
+     * Bumps the shopper's shelf version in the current, shard-bound write transaction.
+     */
+    public void recordShelfWrite(String shopperId) {
+        if (properties.isEnabled()) {
+            shelfVersionRepository.bump(shopperId, nodeId);
+        }
+    }
+
+    /**
+     * Positions every cursor at the current database time, as caches start out empty.
+     */
+    public synchronized void start() {
+        for (String shard : shelfDatabases()) {
+            shelfCursors.put(shard, new Cursor(shardRouter.inShard(shard, () -> now(shelfJdbc))));
+        }
+        productCursor = new Cursor(now(catalogJdbc));
+    }
+
+    /**
+     * Reads every database for changes since the last poll and invalidates them.
+     */
+    public synchronized void poll() {
+        pollTimer.record(() -> {
+            for (String shard : shelfDatabases()) {
+                pollShelves(shard, shelfCursors.computeIfAbsent(shard, key -> new Cursor(new Timestamp(0))));
+            }
+            pollProducts();
+        });
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void pollShelves(String shard, Cursor cursor) {
+        List<String> changed = new ArrayList<>();
+        shardRouter.inShard(shard, () -> {
+            cursor.read(shelfJdbc, SHELF_CHANGES_SQL, properties, rs -> {
+                String shopperId = rs.getString(1);
+                long version = rs.getLong(2);
+                boolean ownWrite = nodeId.equals(rs.getString(3));
+                if (cursor.firstSight(shopperId, version, rs.getTimestamp(4)) && !ownWrite) {
+                    changed.add(shopperId);
+                }
+            });
+            return null;
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        // Before the event, so that product changes find these shoppers' new products
+        if (productShopperIndex.isEnabled() && productShopperIndex.isReady()) {
+            productShopperIndex.refresh(shard, changed);
+        }
+        eventPublisher.publishEvent(new RemoteShelvesChangedEvent(changed));
+        shelfInvalidations.increment(changed.size());
+        logger.debug("Invalidated {} shelves changed by other nodes", changed.size());
+    }
+
+    private void pollProducts() {
+        Map<String, ProductCatalog.Entry> changed = new LinkedHashMap<>();
+        productCursor.read(catalogJdbc, PRODUCT_CHANGES_SQL, properties, rs -> {
+            String productId = rs.getString(1);
+            Timestamp updatedAt = rs.getTimestamp(4);
+            // The row's timestamp stands in for a version
+            if (productCursor.firstSight(productId, updatedAt.getTime(), updatedAt)) {
+                changed.put(productId, new ProductCatalog.Entry(rs.getString(2), rs.getString(3)));
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<String> productIds = new ArrayList<>(changed.keySet());
+        if (productCatalog.isEnabled()) {
+            changed.forEach((productId, entry) -> productCatalog.put(productId, entry.category(), entry.brand()));
+        }
+        changed.forEach((productId, entry) -> productAttributeIndex.put(productId, entry.category(), entry.brand()));
+        productMetadataCacheRegions.evict(productIds);
+        eventPublisher.publishEvent(new RemoteProductsChangedEvent(productIds));
+        productInvalidations.increment(productIds.size());
+        logger.debug("Invalidated {} changed products", productIds.size());
+    }
+
+    private List<String> shelfDatabases() {
+        return shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+    }
+
+    private static Timestamp now(JdbcTemplate jdbcTemplate) {
+        // Database time, so that the cursor compares like with like
+        return jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class);
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            logger.warn("Cache coherence poll failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Position in one table's (updated_at, key) order, and the versions handled within the
+     * overlap window, so that re-read rows are not invalidated twice.
+     */
+    private static final class Cursor {
+
+        private Timestamp lastSeen;
+        private final Map<String, Handled> handled = new HashMap<>();
+
+        Cursor(Timestamp start) {
+            this.lastSeen = start;
+        }
+
+        void read(JdbcTemplate jdbcTemplate, String sql, CoherenceProperties properties, RowHandler handler) {
+            Timestamp from = new Timestamp(lastSeen.getTime() - properties.getOverlap().toMillis());
+            Timestamp afterTime = from;
+            String afterKey = "";
+            int rows;
+            do {
+                Timestamp[] lastTime = {afterTime};
+                String[] lastKey = {afterKey};
+                rows = jdbcTemplate.query(sql, rs -> {
+                    int count = 0;
+                    while (rs.next()) {
+                        handler.handle(rs);
+                        lastKey[0] = rs.getString(1);
+                        lastTime[0] = rs.getTimestamp(4);
+                        count++;
+                    }
+                    return count;
+                }, afterTime, afterTime, afterKey, properties.getBatchSize());
+                afterTime = lastTime[0];
+                afterKey = lastKey[0];
+            } while (rows == properties.getBatchSize());
+
+            if (afterTime.after(lastSeen)) {
+                lastSeen = afterTime;
+            }
+            forgetBefore(lastSeen.getTime() - properties.getOverlap().toMillis());
+        }
+
+        /**
+         * Whether this version of the key has not been handled yet; marks it handled.
+         */
+        boolean firstSight(String key, long version, Timestamp updatedAt) {
+            Handled previous = handled.put(key, new Handled(version, updatedAt.getTime()));
+            return previous == null || previous.version() != version;
+        }
+
+        // Rows older than the next poll's start are not read again
+        private void forgetBefore(long cutoffMillis) {
+            handled.values().removeIf(entry -> entry.updatedAtMillis() < cutoffMillis);
+        }
+    }
+
+    private record Handled(long version, long updatedAtMillis) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.logging.AccessLogFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the access log filter when personalized.access-log.enabled=true, ahead of every
+ * other filter so that the recorded latency includes bulkhead queueing.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "personalized.access-log", name = "enabled", havingValue = "true")
+public class AccessLogConfig {
+
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilter(AccessLogProperties properties,
+                                                                  MeterRegistry meterRegistry) {
+        FilterRegistrationBean<AccessLogFilter> registration = new FilterRegistrationBean<>(
+                new AccessLogFilter(properties.getSampleRate(), properties.getSampleRates(),
+                        properties.getAlwaysLogSlowerThan(), meterRegistry));
+        registration.setName("accessLogFilter");
+        registration.addUrlPatterns("/internal/*", "/external/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,34 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sampled JSON access records, written through the asynchronous "access" logger.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.access-log")
+public class AccessLogProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Fraction of requests recorded for endpoints without their own rate.
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * Fraction of requests recorded per endpoint, keyed by the matched request mapping,
+     * e.g. {@code sample-rates[/external/{shopperId}/products]=0.05}.
+     */
+    private Map<String, Double> sampleRates = new HashMap<>();
+
+    /**
+     * Requests at least this slow are recorded regardless of sampling, as are 5xx responses.
+     */
+    private Duration alwaysLogSlowerThan = Duration.ofSeconds(1);
+}
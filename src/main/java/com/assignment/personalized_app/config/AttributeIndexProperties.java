@@ -0,0 +1,20 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * In-memory category and brand bitmaps over product ordinals, used to filter shelf reads by
+ * several categories or brands without joining product_metadata.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.attribute-index")
+public class AttributeIndexProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Rows per cursor fetch while loading the index from product_metadata at startup.
+     */
+    private int loadFetchSize = 1000;
+}
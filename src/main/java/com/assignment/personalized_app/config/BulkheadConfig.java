@@ -0,0 +1,53 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.bulkhead.BulkheadFilter;
+import com.assignment.personalized_app.bulkhead.ConcurrencyLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Registers the internal and external bulkheads when personalized.bulkhead.enabled=true.
+ * Internal writes can then only occupy their own share of servlet threads (limit plus queue)
+ * and of primary connections, so an ingestion run cannot starve shopper reads.
+ * Bulk NDJSON ingestion is exempt: it already runs on its own bounded executor.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "personalized.bulkhead", name = "enabled", havingValue = "true")
+public class BulkheadConfig {
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> internalBulkheadFilter(BulkheadProperties properties,
+                                                                        ObjectMapper objectMapper,
+                                                                        MeterRegistry meterRegistry) throws IOException {
+        return register("internal", properties.getInternal(), Set.of("/internal/shopper-products/bulk"),
+                "/internal/*", objectMapper, meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> externalBulkheadFilter(BulkheadProperties properties,
+                                                                        ObjectMapper objectMapper,
+                                                                        MeterRegistry meterRegistry) throws IOException {
+        return register("external", properties.getExternal(), Set.of(), "/external/*", objectMapper, meterRegistry);
+    }
+
+    private FilterRegistrationBean<BulkheadFilter> register(String name,
+                                                           BulkheadProperties.Bulkhead settings,
+                                                           Set<String> exemptPaths,
+                                                           String urlPattern,
+                                                           ObjectMapper objectMapper,
+                                                           MeterRegistry meterRegistry) throws IOException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(name, settings, meterRegistry);
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(
+                new BulkheadFilter(name, limiter, exemptPaths, settings.getRetryAfter(), objectMapper));
+        registration.setName(name + "BulkheadFilter");
+        registration.addUrlPatterns(urlPattern);
+        return registration;
+    }
+}
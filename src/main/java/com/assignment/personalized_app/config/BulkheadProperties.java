@@ -0,0 +1,78 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Separate concurrency budgets for /internal (shelf and metadata writes) and /external (reads).
+ * Each request holds at most one primary connection, so the internal limit also caps the
+ * connections writes take from the pool; keep {@code internal.max-limit} below
+ * spring.datasource.hikari.maximum-pool-size to leave room for reads.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = false;
+
+    private Bulkhead internal = Bulkhead.of(4, 1, 6, 16, Duration.ofSeconds(1), true);
+
+    private Bulkhead external = Bulkhead.of(64, 64, 64, 64, Duration.ofMillis(200), false);
+
+    @Data
+    public static class Bulkhead {
+
+        /**
+         * Requests allowed to run at once at startup; the adaptive limit moves from here.
+         */
+        private int limit;
+
+        private int minLimit;
+
+        private int maxLimit;
+
+        /**
+         * Requests allowed to wait for a slot; further requests are rejected at once.
+         */
+        private int queueLimit;
+
+        /**
+         * Longest a request waits for a slot before it is rejected.
+         */
+        private Duration maxWait;
+
+        /**
+         * Retry-After sent with 429 responses.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+
+        /**
+         * Lowers the limit when the database time of requests rises above the observed baseline
+         * and raises it again while it stays close to it and the limit is in use.
+         */
+        private boolean adaptive;
+
+        /**
+         * Ratio of a window's median database time to the baseline above which the limit is lowered.
+         */
+        private double latencyTolerance = 2.0;
+
+        /**
+         * Completed requests per limit adjustment.
+         */
+        private int sampleWindow = 50;
+
+        static Bulkhead of(int limit, int minLimit, int maxLimit, int queueLimit, Duration maxWait, boolean adaptive) {
+            Bulkhead bulkhead = new Bulkhead();
+            bulkhead.setLimit(limit);
+            bulkhead.setMinLimit(minLimit);
+            bulkhead.setMaxLimit(maxLimit);
+            bulkhead.setQueueLimit(queueLimit);
+            bulkhead.setMaxWait(maxWait);
+            bulkhead.setAdaptive(adaptive);
+            return bulkhead;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for catalog imports: one thread parses the file and one writes batches,
+ * so parsing of the next batch overlaps the database round trips of the previous one.
+ */
+@Configuration
+public class CatalogImportConfig {
+
+    @Bean(name = "catalogImportExecutor")
+    public ThreadPoolTaskExecutor catalogImportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("catalog-import-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,43 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for importing product_metadata from CSV files on the server.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.catalog-import")
+public class CatalogImportProperties {
+
+    /**
+     * Directory the imported files are read from; imports are disabled while unset.
+     * Requests name a file relative to it and cannot reach outside it.
+     */
+    private String directory;
+
+    /**
+     * Rows upserted per database transaction; the resume offset advances once per batch.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * Parsed batches allowed to wait for the writer before the parser pauses.
+     */
+    private int queueDepth = 4;
+
+    /**
+     * Bytes of the file mapped at a time. A single CSV line must fit in one window.
+     */
+    private DataSize mapWindowSize = DataSize.ofMegabytes(64);
+
+    private Duration progressLogInterval = Duration.ofSeconds(10);
+
+    /**
+     * Rejected lines reported individually in the status; beyond this only counts are kept.
+     */
+    private int maxReportedRejects = 100;
+}
@@ -0,0 +1,22 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * In-memory copy of product_metadata used to validate and enrich shelves without a join.
+ * Always on when sharding is enabled, because shards hold no product_metadata.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.catalog")
+public class CatalogProperties {
+
+    private boolean inMemory = false;
+
+    /**
+     * Full reload interval; picks up changes made by other nodes.
+     */
+    private Duration reloadInterval = Duration.ofMinutes(10);
+}
@@ -0,0 +1,55 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Transactional outbox of shelf and product metadata changes, tailed through
+ * GET /internal/changes.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.change-feed")
+public class ChangeFeedProperties {
+
+    /**
+     * Appends a change record to change_outbox in the transaction of every shelf and metadata
+     * write, and registers the feed endpoint.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Most records returned by one feed request.
+     */
+    private int maxBatchSize = 1000;
+
+    /**
+     * Longest a feed request waits for new records; keep it below
+     * spring.mvc.async.request-timeout and any proxy read timeout.
+     */
+    private Duration maxWait = Duration.ofSeconds(25);
+
+    /**
+     * How often waiting requests check the outbox for records committed by other nodes.
+     * Records committed by this node wake them at once.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * How long a gap in the sequence holds back the records after it. A gap is a transaction that
+     * took its sequence number but has not committed yet; one older than this is taken to have
+     * rolled back and is skipped.
+     */
+    private Duration gapTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Records older than this are deleted; consumers further behind must re-read whole shelves.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * Rows per delete statement while pruning expired records.
+     */
+    private int pruneBatchSize = 5000;
+}
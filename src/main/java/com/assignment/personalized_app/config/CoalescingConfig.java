@@ -0,0 +1,25 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for shared shelf loads. Loads run off the request thread so that a load can be
+ * cancelled once every request waiting for it has timed out. No queue is configured: when
+ * all loader threads are busy the load runs on the request thread instead of waiting.
+ */
+@Configuration
+public class CoalescingConfig {
+
+    @Bean(name = "shelfReadExecutor")
+    public ThreadPoolTaskExecutor shelfReadExecutor(CoalescingProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getLoaderThreads());
+        executor.setMaxPoolSize(properties.getLoaderThreads());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("shelf-read-");
+        executor.initialize();
+        return executor;
+    }
+}
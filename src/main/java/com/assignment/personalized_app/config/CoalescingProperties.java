@@ -0,0 +1,30 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Single-flight coalescing of identical concurrent shelf reads.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.coalescing")
+public class CoalescingProperties {
+
+    /**
+     * When false every read runs its own query on the request thread.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long a request waits for a shared load before giving up.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    /**
+     * Threads running shared loads. When all are busy, further loads run on the request
+     * thread without coalescing. Keep at or below the connection pool size.
+     */
+    private int loaderThreads = 8;
+}
@@ -0,0 +1,45 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Invalidation of this node's in-process caches after writes committed by other nodes, found by
+ * polling the shared databases.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.coherence")
+public class CoherenceProperties {
+
+    /**
+     * Bumps a per-shopper version with every shelf write and polls the versions and
+     * product_metadata for other nodes' changes.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Identifies this node's writes, which it invalidates at commit and skips when polling.
+     * Defaults to a random id per process, so several instances on one machine stay apart.
+     */
+    private String nodeId = "";
+
+    /**
+     * Delay between polls; with the poll's own duration, the bound on how long another node's
+     * write can be served stale from this node's caches. Each poll runs one indexed range query
+     * per database.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * Rows read per query; a poll keeps reading until it has caught up.
+     */
+    private int batchSize = 1000;
+
+    /**
+     * How far before the last change seen each poll starts again. Must exceed the longest shelf
+     * or metadata write transaction, whose rows carry the time of the statement, not the commit.
+     */
+    private Duration overlap = Duration.ofSeconds(5);
+}
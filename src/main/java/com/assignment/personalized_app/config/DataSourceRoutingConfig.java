@@ -0,0 +1,90 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with a read/write router when
+ * personalized.datasource.routing.enabled=true.
+ * The router is wrapped in a {@link LazyConnectionDataSourceProxy} so that the physical
+ * connection is chosen after the transaction's read-only flag has been set.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "personalized.datasource.routing", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceRoutingConfig.class);
+
+    /**
+     * The spring.datasource.* connection, with its pool tuned by spring.datasource.hikari.* as
+     * the auto-configured one would be.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties primaryProperties) {
+        return primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                                                 DataSourceRoutingProperties routing,
+                                                                 Environment environment) {
+        Binder binder = Binder.get(environment);
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceRoutingProperties.Replica> configured = routing.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            DataSourceRoutingProperties.Replica replica = configured.get(i);
+            String name = replica.getName() != null ? replica.getName() : "replica-" + i;
+            replicas.put(name, buildReplica(name, replica, binder));
+        }
+
+        logger.info("Read/write routing enabled with {} replica(s), selection={}, readYourWritesWindow={}",
+                replicas.size(), routing.getSelection(), routing.getReadYourWritesWindow());
+        return new ReadWriteRoutingDataSource(primary, replicas, routing.getSelection());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    /**
+     * Replica pools start from the primary's spring.datasource.hikari.* settings; the replica's
+     * own connection details, pool size and read-only flag are applied on top.
+     */
+    private DataSource buildReplica(String name, DataSourceRoutingProperties.Replica replica, Binder binder) {
+        HikariDataSource dataSource = new HikariDataSource();
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername());
+        dataSource.setPassword(replica.getPassword());
+        if (replica.getDriverClassName() != null) {
+            dataSource.setDriverClassName(replica.getDriverClassName());
+        }
+        dataSource.setPoolName(name);
+        if (replica.getMaximumPoolSize() != null) {
+            dataSource.setMaximumPoolSize(replica.getMaximumPoolSize());
+        }
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+}
@@ -0,0 +1,47 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.datasource.ReplicaSelection;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read/write split settings. The primary is the regular spring.datasource.* connection;
+ * replicas are listed here and only receive read-only transactions.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    /**
+     * Enables routing; when false every query goes to spring.datasource.url.
+     */
+    private boolean enabled = false;
+
+    private ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+
+    /**
+     * How long a shopper's reads stay on the primary after a write to that shopper.
+     * Zero disables read-your-writes pinning.
+     */
+    private Duration readYourWritesWindow = Duration.ZERO;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    @Data
+    public static class Replica {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        /**
+         * Defaults to spring.datasource.hikari.maximum-pool-size.
+         */
+        private Integer maximumPoolSize;
+    }
+}
@@ -0,0 +1,85 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.encoding.ProductsPageHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the compact binary encodings (CBOR and Smile) next to the default JSON converter.
+ * The encoding is negotiated per request: {@code Accept} selects the response format and
+ * {@code Content-Type} selects how request bodies are read. JSON stays the default.
+ * <p>
+ * With {@code personalized.products-json.enabled}, JSON products pages are written by
+ * {@link ProductsPageHttpMessageConverter} ahead of the Jackson JSON converter.
+ */
+@Configuration
+// Registered here as well as by the scan, so that web slices that pick up this configurer bind it too
+@EnableConfigurationProperties(ProductsJsonProperties.class)
+public class EncodingConfig implements WebMvcConfigurer {
+
+    public static final String APPLICATION_CBOR_VALUE = MediaType.APPLICATION_CBOR_VALUE;
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    public static final MediaType APPLICATION_CBOR = MediaType.APPLICATION_CBOR;
+    public static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(APPLICATION_SMILE_VALUE);
+
+    /**
+     * Spring Boot's pre-configured builder, so the binary mappers pick up the same
+     * modules and spring.jackson.* settings as the JSON mapper.
+     */
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider;
+
+    private final ProductsJsonProperties productsJsonProperties;
+
+    public EncodingConfig(ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider,
+                          ProductsJsonProperties productsJsonProperties) {
+        this.builderProvider = builderProvider;
+        this.productsJsonProperties = productsJsonProperties;
+    }
+
+    /**
+     * Replaces the framework-default binary converters with ones built from the application's
+     * Jackson configuration. JSON converters keep precedence for requests without an
+     * explicit binary media type.
+     * <p>
+     * CBOR writes {@code BigDecimal} scores as decimal fractions (tag 4) and Smile as
+     * scaled binary integers, instead of the long decimal strings used by JSON.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.removeIf(c -> c instanceof MappingJackson2CborHttpMessageConverter
+                || c instanceof MappingJackson2SmileHttpMessageConverter);
+
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                builder().factory(new CBORFactory()).build()));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(
+                builder().factory(new SmileFactory()).build()));
+
+        if (productsJsonProperties.isEnabled()) {
+            for (int i = 0; i < converters.size(); i++) {
+                if (converters.get(i) instanceof MappingJackson2HttpMessageConverter json) {
+                    converters.add(i, new ProductsPageHttpMessageConverter(json));
+                    break;
+                }
+            }
+        }
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        // The Boot builder is prototype-scoped, so each call yields an independent copy
+        return builderProvider.getIfAvailable(Jackson2ObjectMapperBuilder::json);
+    }
+}
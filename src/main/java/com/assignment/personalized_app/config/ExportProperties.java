@@ -0,0 +1,20 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the NDJSON shelf export endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.export")
+public class ExportProperties {
+
+    /**
+     * Rows fetched per round trip from the forward-only cursor. This is also the
+     * flush interval of the response, so heap usage is bounded by one batch.
+     * With MySQL this requires {@code useCursorFetch=true} on the JDBC URL;
+     * {@code Integer.MIN_VALUE} switches to row-by-row streaming instead.
+     */
+    private int fetchSize = 1000;
+}
@@ -0,0 +1,30 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Per-shopper category/brand counters behind GET /external/{shopperId}/facets.
+ * When disabled, facets are computed from the shelf on each request instead.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.facets")
+public class FacetProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Delay before the first reconciliation after startup; it also fills in counters for
+     * shelves written before facets were enabled.
+     */
+    private Duration reconcileInitialDelay = Duration.ofMinutes(1);
+
+    private Duration reconcileInterval = Duration.ofHours(6);
+
+    /**
+     * Shoppers compared per reconciliation query.
+     */
+    private int reconcileBatchSize = 500;
+}
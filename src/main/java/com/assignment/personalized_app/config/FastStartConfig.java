@@ -0,0 +1,36 @@
+package com.assignment.personalized_app.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+/**
+ * Startup tuning of the {@code fast-start} profile (see application-fast-start.properties).
+ * <p>
+ * The profile initializes beans lazily. Hibernate is the exception: its bootstrap is the
+ * longest part of startup, so the EntityManagerFactory stays eager and is built on a background
+ * thread while the rest of the context and the web server come up. Repositories (bootstrapped
+ * in deferred mode) and the first query wait for it if it is not done yet.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("fast-start")
+public class FastStartConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerEntityManagerFactory() {
+        return LazyInitializationExcludeFilter.forBeanTypes(EntityManagerFactory.class);
+    }
+
+    /**
+     * Boot only sets a bootstrap executor when it finds applicationTaskExecutor, which the
+     * application's own executors suppress.
+     */
+    @Bean
+    EntityManagerFactoryBuilderCustomizer backgroundEntityManagerFactoryBootstrap() {
+        return builder -> builder.setBootstrapExecutor(new SimpleAsyncTaskExecutor("jpa-bootstrap-"));
+    }
+}
@@ -0,0 +1,25 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for the database writers of bulk shelf ingestion.
+ * No queue is configured, so an ingestion beyond the configured concurrency is
+ * rejected immediately instead of waiting with an open request body.
+ */
+@Configuration
+public class IngestionConfig {
+
+    @Bean(name = "ingestionExecutor")
+    public ThreadPoolTaskExecutor ingestionExecutor(IngestionProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getMaxConcurrentIngestions());
+        executor.setMaxPoolSize(properties.getMaxConcurrentIngestions());
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("shelf-ingest-");
+        executor.initialize();
+        return executor;
+    }
+}
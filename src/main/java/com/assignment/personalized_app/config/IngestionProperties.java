@@ -0,0 +1,33 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the streamed NDJSON bulk shelf ingestion.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.ingest")
+public class IngestionProperties {
+
+    /**
+     * Shelves (shoppers) written per database transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Parsed batches allowed to wait for the writer. When the queue is full the
+     * request thread stops reading the body, which pushes back on the client.
+     */
+    private int queueDepth = 2;
+
+    /**
+     * Bulk ingestions that may write concurrently; one writer thread each.
+     */
+    private int maxConcurrentIngestions = 4;
+
+    /**
+     * Failures reported individually in the summary; beyond this only counts are kept.
+     */
+    private int maxReportedFailures = 1000;
+}
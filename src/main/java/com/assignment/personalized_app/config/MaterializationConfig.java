@@ -0,0 +1,24 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor rebuilding materialized first pages after shelf writes, off the request thread.
+ * The queue is bounded so that bulk ingestion cannot pile up unlimited rebuilds.
+ */
+@Configuration
+public class MaterializationConfig {
+
+    @Bean(name = "materializationExecutor")
+    public ThreadPoolTaskExecutor materializationExecutor(MaterializationProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getRebuildThreads());
+        executor.setMaxPoolSize(properties.getRebuildThreads());
+        executor.setQueueCapacity(properties.getRebuildQueueCapacity());
+        executor.setThreadNamePrefix("page-materialize-");
+        executor.initialize();
+        return executor;
+    }
+}
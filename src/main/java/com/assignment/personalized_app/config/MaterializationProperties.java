@@ -0,0 +1,42 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pre-serialized first pages of shelf views, rebuilt after each shelf write.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.materialization")
+public class MaterializationProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Page sizes (limit) materialized for every view; other sizes are served by the query path.
+     */
+    private List<Integer> pageSizes = new ArrayList<>(List.of(10, 20));
+
+    /**
+     * Category views materialized per shopper, picked by product count. The unfiltered
+     * view is always materialized; 0 materializes it alone.
+     */
+    private int topCategories = 3;
+
+    /**
+     * Upper bound on the serialized bytes held across all shoppers.
+     */
+    private DataSize maxMemory = DataSize.ofMegabytes(64);
+
+    private int rebuildThreads = 2;
+
+    /**
+     * Rebuilds allowed to wait for a thread; beyond this, rebuilds are dropped and the
+     * shopper is served by the query path until its next write.
+     */
+    private int rebuildQueueCapacity = 10_000;
+}
@@ -0,0 +1,23 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Hibernate second-level cache of ProductMetadata and the findExistingProductIds query cache.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.product-metadata-cache")
+public class ProductMetadataCacheProperties {
+
+    /**
+     * Caches ProductMetadata entities and existing-id query results in bounded in-process regions,
+     * and records Hibernate statistics for the hibernate.* cache metrics.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Ehcache configuration declaring the regions and their sizes; a classpath resource or a URI.
+     */
+    private String config = "ehcache.xml";
+}
@@ -0,0 +1,18 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Direct JSON serialization of the products response.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.products-json")
+public class ProductsJsonProperties {
+
+    /**
+     * Writes JSON products pages with ProductsPageJsonWriter instead of Jackson's bean
+     * serializer. The bytes are the same either way.
+     */
+    private boolean enabled = false;
+}
@@ -0,0 +1,41 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Background deletion of stale shelves and low-scoring shelf items.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.retention")
+public class RetentionProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Shelves neither sent nor with an item written for this long are deleted whole; unset keeps every shelf.
+     */
+    private Duration maxShelfAge;
+
+    /**
+     * Items scoring below this are deleted from the shelves that are kept; unset keeps every item.
+     */
+    private BigDecimal scoreFloor;
+
+    private Duration initialDelay = Duration.ofMinutes(10);
+
+    private Duration interval = Duration.ofHours(6);
+
+    /**
+     * Shoppers scanned per query. Each shopper is then pruned in its own short transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Sleep after each batch of shoppers, so that a run yields to live shelf writes.
+     */
+    private Duration pause = Duration.ofMillis(200);
+}
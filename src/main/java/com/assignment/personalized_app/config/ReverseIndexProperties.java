@@ -0,0 +1,20 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * In-memory product-to-shoppers index, used to invalidate only the affected shoppers'
+ * cached views when product metadata changes.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.reverse-index")
+public class ReverseIndexProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Rows per cursor fetch while loading the index from shopper_product at startup.
+     */
+    private int loadFetchSize = 1000;
+}
@@ -0,0 +1,14 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the shared task scheduler used by background jobs
+ * (shard map and catalog refreshes, reconciliation, compaction).
+ * Pool size is set with spring.task.scheduling.pool.size.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,39 @@
+package com.assignment.personalized_app.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate second-level and query cache settings, backed by Ehcache through JCache.
+ * <p>
+ * When disabled, the second-level cache is switched off explicitly: with a region factory on the
+ * classpath Hibernate would otherwise pick it up on its own. When enabled, statistics are
+ * recorded, and Boot binds them as hibernate.second.level.cache.* and hibernate.cache.query.*
+ * metrics per region.
+ */
+@Configuration
+@EnableConfigurationProperties(ProductMetadataCacheProperties.class)
+public class SecondLevelCacheConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(ProductMetadataCacheProperties properties) {
+        return hibernateProperties -> {
+            if (!properties.isEnabled()) {
+                hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put("hibernate.javax.cache.provider", "org.ehcache.jsr107.EhcacheCachingProvider");
+            hibernateProperties.put("hibernate.javax.cache.uri", properties.getConfig());
+            // A region missing from the configuration would otherwise be created unbounded
+            hibernateProperties.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
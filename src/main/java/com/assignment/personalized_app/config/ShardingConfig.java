@@ -0,0 +1,122 @@
+package com.assignment.personalized_app.config;
+
+import com.assignment.personalized_app.sharding.ShardMap;
+import com.assignment.personalized_app.sharding.ShardRebalancer;
+import com.assignment.personalized_app.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured data source with a shard router when
+ * personalized.sharding.enabled=true.
+ * The regular spring.datasource.* database becomes the catalog database (product_metadata and
+ * the shard map); shopper_product rows live on the configured shards. JPA keeps a single
+ * persistence unit: the connection behind each transaction is picked lazily from the shard
+ * the transaction was bound to, see {@link com.assignment.personalized_app.sharding.ShardContext}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "personalized.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardingConfig.class);
+
+    @Bean
+    public DataSource catalogDataSource(DataSourceProperties primaryProperties,
+                                        DataSourceRoutingProperties routing) {
+        if (routing.isEnabled()) {
+            throw new IllegalStateException(
+                    "personalized.sharding and personalized.datasource.routing cannot both be enabled");
+        }
+        return primaryProperties.initializeDataSourceBuilder().build();
+    }
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(@Qualifier("catalogDataSource") DataSource catalogDataSource,
+                                                         ShardingProperties sharding) {
+        Map<String, DataSource> shards = new LinkedHashMap<>();
+        List<ShardingProperties.Shard> configured = sharding.getShards();
+        for (int i = 0; i < configured.size(); i++) {
+            ShardingProperties.Shard shard = configured.get(i);
+            String name = shard.getName() != null ? shard.getName() : "shard-" + i;
+            if (shards.containsKey(name)) {
+                throw new IllegalStateException("Duplicate shard name " + name);
+            }
+            shards.put(name, buildShard(name, shard));
+        }
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("personalized.sharding.enabled=true requires at least one shard");
+        }
+
+        if (sharding.isInitializeSchema()) {
+            ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("schema-shard.sql"));
+            shards.values().forEach(populator::execute);
+        }
+
+        logger.info("Sharding enabled with shards {}, buckets={}", shards.keySet(), sharding.getBuckets());
+        return new ShardRoutingDataSource(catalogDataSource, shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ShardMap shardMap(@Qualifier("catalogDataSource") DataSource catalogDataSource,
+                             ShardRoutingDataSource shardRoutingDataSource,
+                             ShardingProperties sharding,
+                             TaskScheduler taskScheduler) {
+        ShardMap shardMap = new ShardMap(new JdbcTemplate(catalogDataSource), sharding.getBuckets(),
+                List.copyOf(shardRoutingDataSource.shards().keySet()));
+        shardMap.initialize();
+
+        Duration interval = sharding.getMapRefreshInterval();
+        taskScheduler.scheduleWithFixedDelay(shardMap::refreshQuietly, Instant.now().plus(interval), interval);
+        return shardMap;
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardMap shardMap,
+                                           ShardRoutingDataSource shardRoutingDataSource,
+                                           ShardingProperties sharding) {
+        return new ShardRebalancer(shardMap, shardRoutingDataSource.shards(),
+                sharding.getRebalanceBatchSize(), sharding.getRebalanceSettleTime());
+    }
+
+    private DataSource buildShard(String name, ShardingProperties.Shard shard) {
+        DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(shard.getUrl())
+                .username(shard.getUsername())
+                .password(shard.getPassword());
+        if (shard.getDriverClassName() != null) {
+            builder.driverClassName(shard.getDriverClassName());
+        }
+
+        HikariDataSource dataSource = builder.build();
+        dataSource.setPoolName(name);
+        dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+        return dataSource;
+    }
+}
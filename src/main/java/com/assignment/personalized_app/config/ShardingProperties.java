@@ -0,0 +1,60 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hash sharding of shopper_product. Shelves are spread over the shards listed here;
+ * product_metadata and the shard map stay on the regular spring.datasource.* database.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.sharding")
+public class ShardingProperties {
+
+    /**
+     * Enables sharding; cannot be combined with read/write routing.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Number of hash buckets. Fixed once the shard map has been seeded.
+     */
+    private int buckets = 1024;
+
+    /**
+     * How often every node reloads the bucket-to-shard assignment.
+     */
+    private Duration mapRefreshInterval = Duration.ofSeconds(5);
+
+    /**
+     * How long the rebalancer waits after changing a bucket's state. Must cover one map
+     * refresh interval plus the longest write transaction.
+     */
+    private Duration rebalanceSettleTime = Duration.ofSeconds(10);
+
+    /**
+     * Shoppers copied per target transaction while rebalancing.
+     */
+    private int rebalanceBatchSize = 500;
+
+    /**
+     * Creates the shopper_product table on each shard if it is missing.
+     */
+    private boolean initializeSchema = true;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String name;
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+        private int maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,33 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Two-tier cache of ranked shelves in front of the shelf query, see
+ * {@link com.assignment.personalized_app.cache.TieredShelfCache}.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.shelf-cache")
+public class ShelfCacheProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Shoppers whose decoded shelves are kept on the heap.
+     */
+    private int hotMaxShoppers = 10_000;
+
+    /**
+     * Upper bound on the serialized shelves of the warm tier. They are kept on the heap, so
+     * -Xmx must leave room for it.
+     */
+    private DataSize warmMaxMemory = DataSize.ofMegabytes(256);
+
+    /**
+     * Distinct shoppers the frequency sketch is sized for; about the number of shoppers read
+     * between two halvings of the counts (ten times this many reads).
+     */
+    private int sketchCapacity = 1_000_000;
+}
@@ -0,0 +1,25 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Content hashes of applied shelves, used to acknowledge re-sent shelves without diffing them.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.shelf-digest")
+public class ShelfDigestProperties {
+
+    /**
+     * Stores a digest with every shelf write and short-circuits updates whose shelf, or parts of
+     * it, match the stored digest.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Chunks a shelf is split into by product id; an update only validates and diffs the
+     * products of chunks whose hash changed; at most 256. Changing
+     * this makes every stored digest miss once.
+     */
+    private int chunks = 16;
+}
@@ -0,0 +1,45 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Periodic binary snapshots of shelves and the catalog, used to warm the in-memory catalog and
+ * product-to-shoppers index at startup instead of reading every row from the database.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.snapshot")
+public class SnapshotProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Local directory snapshots are written to and restored from.
+     */
+    private String directory = "snapshots";
+
+    private Duration interval = Duration.ofHours(1);
+
+    /**
+     * Delay before the first snapshot after startup.
+     */
+    private Duration initialDelay = Duration.ofMinutes(5);
+
+    /**
+     * Snapshots kept; older ones are deleted after each write.
+     */
+    private int retain = 2;
+
+    /**
+     * How far before the snapshot time the catch-up starts, covering transactions that were
+     * still open when the snapshot was read and clock differences between databases.
+     */
+    private Duration catchUpOverlap = Duration.ofMinutes(5);
+
+    /**
+     * Rows per cursor fetch while writing a snapshot or catching up.
+     */
+    private int fetchSize = 1000;
+}
@@ -0,0 +1,27 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Storage layout of shopper_product.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.storage")
+public class StorageProperties {
+
+    /**
+     * Serves shelf reads through idx_shopper_key_score (numeric shopper key and scaled score)
+     * instead of idx_shopper_relevancy. The compact columns are written either way; enable this
+     * only once existing rows are backfilled (see db/compact-keys-migration.sql). While enabled,
+     * items scoring 922337203.6854775808 or more, which do not fit the scaled score, are not saved
+     * and are returned in notSavedProductIds.
+     */
+    private boolean compactKeys = false;
+
+    /**
+     * Most items kept per shopper; only the highest-scoring ones are stored, and writes evict
+     * stored items that fall below the cut. 0 keeps every item.
+     */
+    private int maxItemsPerShopper = 0;
+}
@@ -0,0 +1,23 @@
+package com.assignment.personalized_app.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor running startup warm-up chunks in parallel. The queue holds every chunk of one
+ * warm-up, so the pool size alone bounds the load put on the database.
+ */
+@Configuration
+public class WarmupConfig {
+
+    @Bean(name = "warmupExecutor")
+    public ThreadPoolTaskExecutor warmupExecutor(WarmupProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getThreads());
+        executor.setMaxPoolSize(properties.getThreads());
+        executor.setThreadNamePrefix("cache-warmup-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,53 @@
+package com.assignment.personalized_app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Startup warm-up of the materialized first pages of the most read shoppers, gating readiness.
+ */
+@Data
+@ConfigurationProperties(prefix = "personalized.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * File holding the most read shopperIds, one per line, hottest first. Rewritten periodically
+     * and at shutdown; when missing, the shoppers with the most recently written shelves are used.
+     */
+    private String hotShoppersFile = "hot-shoppers.txt";
+
+    /**
+     * Shoppers warmed at startup and kept in the hot-shopper file.
+     */
+    private int maxShoppers = 10_000;
+
+    /**
+     * Shoppers read by one multi-shopper query.
+     */
+    private int chunkSize = 100;
+
+    private int threads = 4;
+
+    /**
+     * Fraction of the hot shoppers that must be warmed before the application reports ready.
+     */
+    private double coverage = 0.9;
+
+    /**
+     * Time after which the application reports ready even if the coverage was not reached.
+     * Warm-up carries on in the background.
+     */
+    private Duration deadline = Duration.ofMinutes(2);
+
+    private Duration persistInterval = Duration.ofMinutes(5);
+
+    /**
+     * Upper bound on distinct shoppers counted between two persists; further new shoppers are
+     * ignored until then.
+     */
+    private int maxTracked = 100_000;
+}
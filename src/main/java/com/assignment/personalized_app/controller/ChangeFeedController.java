@@ -0,0 +1,72 @@
+package com.assignment.personalized_app.controller;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.outbox.ChangeFeed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ChangeFeedController lets downstream caches, search indexes and sibling nodes tail the
+ * shelf and product metadata changes recorded in the transactional outbox.
+ * Only registered when personalized.change-feed.enabled=true.
+ **/
+@RestController
+@RequestMapping("/internal/changes")
+@ConditionalOnProperty(prefix = "personalized.change-feed", name = "enabled", havingValue = "true")
+public class ChangeFeedController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeedController.class);
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    /**
+     * Returns the changes recorded after a sequence number, oldest first. When there are none
+     * yet, the request is held open until some are committed or the wait ends, and then answered
+     * with an empty batch. Pass the returned nextSeq as {@code after} to continue.
+     *
+     * @param after  last seq already processed (default 0, the start of the retained feed).
+     * @param limit  maximum changes returned (default 500, capped at max-batch-size).
+     * @param waitMs how long to wait for new changes (default 0, capped at max-wait).
+     * @param shard  shard whose shelf changes to read; omitted for the catalog database.
+     * @return ResponseEntity with the batch of changes and the next seq.
+     * <p>
+     * Example endpoint: GET /internal/changes?after=1200&waitMs=20000
+     */
+    @GetMapping
+    public CompletableFuture<ResponseEntity<?>> getChanges(@RequestParam(defaultValue = "0") long after,
+                                                           @RequestParam(defaultValue = "500") int limit,
+                                                           @RequestParam(defaultValue = "0") long waitMs,
+                                                           @RequestParam(required = false) String shard) {
+        try {
+            return changeFeed.poll(shard, after, limit, Duration.ofMillis(Math.max(0, waitMs)))
+                    .<ResponseEntity<?>>thenApply(batch -> ResponseEntity.ok(
+                            new OperationResponse<>(true, "Changes fetched successfully", batch)))
+                    .exceptionally(e -> {
+                        logger.error("Error reading changes after seq {}: {}", after, e.getMessage(), e);
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(Map.of("message", "Failed to fetch changes"));
+                    });
+
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new OperationResponse<>(false, e.getMessage(), null)));
+        } catch (Exception e) {
+            logger.error("Error reading changes after seq {}: {}", after, e.getMessage(), e);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to fetch changes")));
+        }
+    }
+}
@@ -1,14 +1,33 @@
 package com.assignment.personalized_app.controller;
 
+import com.assignment.personalized_app.config.EncodingConfig;
+import com.assignment.personalized_app.service.FacetService;
+import com.assignment.personalized_app.service.PageMaterializationService;
+import com.assignment.personalized_app.service.ShelfExportService;
 import com.assignment.personalized_app.service.ShopperService;
+import com.assignment.personalized_app.warmup.HotShopperTracker;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 
 @RestController
 @RequestMapping("/external")
 public class ExternalController {
+
+    private static final List<MediaType> PRODUCIBLE =
+            List.of(MediaType.APPLICATION_JSON, EncodingConfig.APPLICATION_CBOR, EncodingConfig.APPLICATION_SMILE);
+
     /**
      * Service layer for handling shopper-related operations.
      * Responsible for saving shopper shelves and any related business logic.
@@ -16,24 +35,61 @@ public class ExternalController {
     @Autowired
     private ShopperService shopperService;
 
+    /**
+     * Service layer for streaming complete shelves to downstream consumers.
+     */
+    @Autowired
+    private ShelfExportService shelfExportService;
+
+    /**
+     * Service layer for per-shopper category and brand counts.
+     */
+    @Autowired
+    private FacetService facetService;
+
+    /**
+     * Pre-serialized first pages of each shopper's hottest views.
+     */
+    @Autowired
+    private PageMaterializationService pageMaterializationService;
+
+    /**
+     * Read counts deciding whose pages are warmed at the next startup.
+     */
+    @Autowired
+    private HotShopperTracker hotShopperTracker;
+
 
     /**
      * Retrieves products for a shopper with optional category/brand filters and pagination.
+     * The response is JSON by default; CBOR or Smile is returned when requested via the
+     * {@code Accept} header (see {@link EncodingConfig}).
+     * JSON requests for the first page without a brand filter are served from the materialized
+     * page when one exists (see {@link PageMaterializationService}).
+     * Several categories or brands, given as repeated parameters, or a score range, select the
+     * in-memory filtered read instead (see {@link ShopperService#getFilteredProducts}). They are
+     * read from the parameter map rather than bound as a list, which would split a single value
+     * on commas, so a category or brand containing a comma stays one value.
      *
-     * @param shopperId Shopper identifier (required)
-     * @param category  Product category filter (optional)
-     * @param brand     Product brand filter (optional)
-     * @param limit     Maximum products per page (default=10, max=100)
-     * @param page      Page number for pagination (default=0)
+     * @param shopperId  Shopper identifier (required)
+     * @param parameters Query parameters, read for the repeatable category and brand filters,
+     *                   any of whose values match (optional)
+     * @param minScore   Lowest relevancy score returned, inclusive (optional)
+     * @param maxScore   Highest relevancy score returned, inclusive (optional)
+     * @param limit      Maximum products per page (default=10, max=100)
+     * @param page       Page number for pagination (default=0)
+     * @param accept     Accept header, used to serve materialized JSON only to JSON clients
      * @return ResponseEntity containing paginated products
      */
     @GetMapping("/{shopperId}/products")
     public ResponseEntity<?> getProductsByShopper(
             @PathVariable String shopperId,
-            @RequestParam(required = false) String category,
-            @RequestParam(required = false) String brand,
+            @RequestParam MultiValueMap<String, String> parameters,
+            @RequestParam(required = false) BigDecimal minScore,
+            @RequestParam(required = false) BigDecimal maxScore,
             @RequestParam(required = false) Integer limit,
-            @RequestParam(required = false) Integer page
+            @RequestParam(required = false) Integer page,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept
     ) {
         // Handle defaults and clamp limits
         if (Objects.isNull(limit) || limit <= 0) limit = 10;
@@ -41,6 +97,109 @@ public class ExternalController {
 
         if (Objects.isNull(page) || page < 0) page = 0;
 
-        return shopperService.getProductsByShopper(shopperId, category, brand, limit, page);
+        hotShopperTracker.recordRead(shopperId);
+
+        List<String> categories = valuesOf(parameters.get("category"));
+        List<String> brands = valuesOf(parameters.get("brand"));
+        if (categories.size() > 1 || brands.size() > 1 || minScore != null || maxScore != null) {
+            return shopperService.getFilteredProducts(shopperId, categories, brands, minScore, maxScore, limit, page);
+        }
+        String singleCategory = categories.isEmpty() ? null : categories.get(0);
+        String singleBrand = brands.isEmpty() ? null : brands.get(0);
+
+        if (page == 0 && singleBrand == null && acceptsJson(accept)) {
+            byte[] materialized = pageMaterializationService.findFirstPage(shopperId, singleCategory, limit);
+            if (materialized != null) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(materialized);
+            }
+        }
+
+        return shopperService.getProductsByShopper(shopperId, singleCategory, singleBrand, limit, page);
+    }
+
+    /**
+     * Returns category and brand facets of a shopper's shelf, each with its product count,
+     * largest first.
+     *
+     * @param shopperId Shopper identifier (required)
+     * @return ResponseEntity containing the shopper's facets
+     * <p>
+     * Example endpoint: GET /external/{shopperId}/facets
+     */
+    @GetMapping("/{shopperId}/facets")
+    public ResponseEntity<?> getFacets(@PathVariable String shopperId) {
+        return facetService.getFacets(shopperId);
+    }
+
+    /**
+     * Streams a shopper's entire ranked shelf as NDJSON, one product per line.
+     * Rows are written as they are read from the database, without paging.
+     *
+     * @param shopperId Shopper identifier (required)
+     * @param response  Servlet response the rows are streamed to
+     * <p>
+     * Example endpoint: GET /external/{shopperId}/products/export
+     */
+    @GetMapping(value = "/{shopperId}/products/export", produces = EncodingConfig.APPLICATION_NDJSON_VALUE)
+    public void exportShelf(@PathVariable String shopperId, HttpServletResponse response) throws IOException {
+        response.setContentType(EncodingConfig.APPLICATION_NDJSON_VALUE);
+        shelfExportService.exportShelf(shopperId, response.getOutputStream());
+    }
+
+    /**
+     * Streams all shelves for shopperIds in [fromShopperId, toShopperId) as NDJSON,
+     * grouped by shopper and ranked within each shopper.
+     *
+     * @param fromShopperId First shopperId of the range (inclusive)
+     * @param toShopperId   End of the range (exclusive)
+     * @param response      Servlet response the rows are streamed to
+     * <p>
+     * Example endpoint: GET /external/shelves/export?fromShopperId=a&toShopperId=b
+     */
+    @GetMapping(value = "/shelves/export", produces = EncodingConfig.APPLICATION_NDJSON_VALUE)
+    public void exportShelves(@RequestParam String fromShopperId,
+                              @RequestParam String toShopperId,
+                              HttpServletResponse response) throws IOException {
+        if (fromShopperId.compareTo(toShopperId) > 0) {
+            response.sendError(HttpStatus.BAD_REQUEST.value(), "fromShopperId must not be after toShopperId");
+            return;
+        }
+        response.setContentType(EncodingConfig.APPLICATION_NDJSON_VALUE);
+        shelfExportService.exportShelves(fromShopperId, toShopperId, response.getOutputStream());
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    /**
+     * Non-blank values of a repeated parameter, without duplicates; empty when it was not sent.
+     */
+    private List<String> valuesOf(List<String> values) {
+        return values == null ? List.of() : values.stream()
+                .filter(value -> value != null && !value.isBlank())
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * True when content negotiation would pick JSON: the highest-quality accepted type that this
+     * endpoint can produce (JSON, CBOR or Smile) is compatible with JSON.
+     */
+    private boolean acceptsJson(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            return MediaType.parseMediaTypes(accept).stream()
+                    .filter(type -> type.getQualityValue() > 0)
+                    .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                    .filter(type -> PRODUCIBLE.stream().anyMatch(type::isCompatibleWith))
+                    .findFirst()
+                    .map(type -> type.isCompatibleWith(MediaType.APPLICATION_JSON))
+                    .orElse(false);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
     }
 }
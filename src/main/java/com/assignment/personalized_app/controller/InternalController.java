@@ -1,17 +1,23 @@
 package com.assignment.personalized_app.controller;
 
+import com.assignment.personalized_app.config.EncodingConfig;
+import com.assignment.personalized_app.dto.IngestionSummaryDTO;
 import com.assignment.personalized_app.dto.OperationResponse;
 import com.assignment.personalized_app.dto.ProductMetadataDTO;
 import com.assignment.personalized_app.dto.ShopperShelfDTO;
+import com.assignment.personalized_app.service.CatalogImportService;
 import com.assignment.personalized_app.service.ProductService;
+import com.assignment.personalized_app.service.ShelfIngestionService;
 import com.assignment.personalized_app.service.ShopperService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.Map;
 
 /**
@@ -20,6 +26,8 @@ import java.util.Map;
  * This controller is intended for internal system use, allowing
  * the saving of shopper shelves and product metadata through
  * POST requests.
+ * Shelf payloads may be sent as JSON, CBOR or Smile, selected by the
+ * {@code Content-Type} header.
  **/
 @RestController
 @RequestMapping("/internal")
@@ -41,6 +49,20 @@ public class InternalController {
     @Autowired
     private ProductService productService;
 
+    /**
+     * Service layer for streamed bulk shelf ingestion.
+     * Responsible for parsing NDJSON bodies and writing shelves in multi-shopper batches.
+     */
+    @Autowired
+    private ShelfIngestionService shelfIngestionService;
+
+    /**
+     * Service layer for importing product metadata from CSV files on the server.
+     * Responsible for running imports in the background and reporting their progress.
+     */
+    @Autowired
+    private CatalogImportService catalogImportService;
+
     /**
      * Saves product metadata information.
      *
@@ -67,6 +89,35 @@ public class InternalController {
         return productService.updateMetadata(dto);
     }
 
+    /**
+     * Starts importing product metadata from a productId,category,brand CSV file in the
+     * configured import directory. The import runs in the background; an interrupted import
+     * of the same, unchanged file continues after its last committed batch.
+     *
+     * @param file   file name relative to the import directory.
+     * @param resume whether to continue an earlier import of the file (default true).
+     * @return ResponseEntity with the initial import status.
+     * <p>
+     * Example endpoint: POST /internal/product-metadata/import?file=catalog.csv
+     */
+    @PostMapping("/product-metadata/import")
+    public ResponseEntity<?> importProductMetadata(@RequestParam String file,
+                                                   @RequestParam(defaultValue = "true") boolean resume) {
+        return catalogImportService.startImport(file, resume);
+    }
+
+    /**
+     * Reports the progress of the running catalog import, or the outcome of the last one.
+     *
+     * @return ResponseEntity with the import status.
+     * <p>
+     * Example endpoint: GET /internal/product-metadata/import
+     */
+    @GetMapping("/product-metadata/import")
+    public ResponseEntity<?> getProductMetadataImport() {
+        return catalogImportService.getStatus();
+    }
+
     @PostMapping("/shopper-products")
     public ResponseEntity<?> postShopperProducts(@RequestBody ShopperShelfDTO dto) {
         try {
@@ -109,5 +160,35 @@ public class InternalController {
         }
     }
 
-}
+    /**
+     * Creates or updates many shopper shelves from a streamed NDJSON body,
+     * one ShopperShelfDTO per line. The body is parsed incrementally and written
+     * in multi-shopper transactions; each shelf uses the same rules as PUT /shopper-products.
+     *
+     * @param body NDJSON request body stream.
+     * @return ResponseEntity with a summary of succeeded and failed shoppers.
+     * <p>
+     * Example endpoint: PUT /internal/shopper-products/bulk
+     */
+    @PutMapping(value = "/shopper-products/bulk", consumes = EncodingConfig.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> bulkUpdateShopperProducts(InputStream body) {
+        try {
+            OperationResponse<IngestionSummaryDTO> response = shelfIngestionService.ingest(body);
+            if (!response.isSuccess()) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+            } else {
+                return ResponseEntity.status(HttpStatus.OK).body(response);
+            }
 
+        } catch (TaskRejectedException e) {
+            logger.warn("Rejected bulk shelf ingestion: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(Map.of("message", "Too many bulk ingestions in progress"));
+        } catch (Exception e) {
+            logger.error("Error ingesting shopper shelves: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to ingest shopper shelves"));
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.assignment.personalized_app.controller;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.RebalanceReportDTO;
+import com.assignment.personalized_app.dto.ShardMapDTO;
+import com.assignment.personalized_app.sharding.ShardMap;
+import com.assignment.personalized_app.sharding.ShardRebalancer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * ShardController exposes the shard map and the online rebalancing tool.
+ * Only registered when personalized.sharding.enabled=true.
+ **/
+@RestController
+@RequestMapping("/internal/shards")
+@ConditionalOnProperty(prefix = "personalized.sharding", name = "enabled", havingValue = "true")
+public class ShardController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardController.class);
+
+    @Autowired
+    private ShardMap shardMap;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    /**
+     * Returns the number of buckets per shard and the buckets currently being moved.
+     * <p>
+     * Example endpoint: GET /internal/shards
+     */
+    @GetMapping
+    public ResponseEntity<?> getShardMap() {
+        ShardMapDTO dto = ShardMapDTO.builder()
+                .buckets(shardMap.buckets())
+                .bucketsPerShard(shardMap.bucketsPerShard())
+                .migratingBuckets(shardMap.migratingBuckets())
+                .build();
+        return ResponseEntity.ok(new OperationResponse<>(true, "Shard map fetched successfully", dto));
+    }
+
+    /**
+     * Moves one bucket of shoppers to another shard. Runs until the move has finished;
+     * writes to the bucket's shoppers are refused while it runs.
+     *
+     * @param bucket      bucket to move.
+     * @param targetShard name of the shard that will own the bucket.
+     * @return ResponseEntity with the number of shoppers and rows moved.
+     * <p>
+     * Example endpoint: POST /internal/shards/buckets/17/move?targetShard=shard-2
+     */
+    @PostMapping("/buckets/{bucket}/move")
+    public ResponseEntity<?> moveBucket(@PathVariable int bucket, @RequestParam String targetShard) {
+        try {
+            RebalanceReportDTO report = shardRebalancer.moveBucket(bucket, targetShard);
+            return ResponseEntity.ok(new OperationResponse<>(true, "Bucket moved successfully", report));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new OperationResponse<>(false, e.getMessage(), null));
+        } catch (Exception e) {
+            logger.error("Error moving bucket {} to shard {}: {}", bucket, targetShard, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Failed to move bucket"));
+        }
+    }
+}
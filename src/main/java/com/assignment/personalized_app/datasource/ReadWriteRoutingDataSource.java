@@ -0,0 +1,168 @@
+package com.assignment.personalized_app.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes read-only transactions to one of several replicas and everything else to the primary.
+ * <p>
+ * The read-only flag is only known once the transaction has started, so this data source must
+ * sit behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which
+ * defers the physical connection until the first statement. Reads are also kept on the primary
+ * when {@link RoutingContext} pins them there (read-your-writes), or when no replica can hand
+ * out a connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final ReplicaSelection selection;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary,
+                                      Map<String, DataSource> replicas,
+                                      ReplicaSelection selection) {
+        this.primary = Objects.requireNonNull(primary, "primary");
+        this.replicas = replicas.entrySet().stream()
+                .map(e -> new Replica(e.getKey(), e.getValue()))
+                .toList();
+        this.selection = selection == null ? ReplicaSelection.ROUND_ROBIN : selection;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection();
+        }
+        return replicaConnection(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!routeToReplica()) {
+            return primary.getConnection(username, password);
+        }
+        return replicaConnection(username, password);
+    }
+
+    /**
+     * Connections currently checked out per replica, for monitoring and tests.
+     */
+    public Map<String, Integer> activeReplicaConnections() {
+        Map<String, Integer> active = new LinkedHashMap<>();
+        replicas.forEach(r -> active.put(r.name, r.active.get()));
+        return active;
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeQuietly(primary);
+        replicas.forEach(r -> closeQuietly(r.dataSource));
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private boolean routeToReplica() {
+        return !replicas.isEmpty()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && !RoutingContext.isPrimaryPinned();
+    }
+
+    private Connection replicaConnection(String username, String password) throws SQLException {
+        Replica replica = selectReplica();
+        try {
+            return replica.open(username, password);
+        } catch (SQLException e) {
+            // A replica that is down must not fail reads the primary could serve
+            logger.warn("Replica {} unavailable, reading from primary: {}", replica.name, e.getMessage());
+            return username == null ? primary.getConnection() : primary.getConnection(username, password);
+        }
+    }
+
+    private Replica selectReplica() {
+        if (replicas.size() == 1) {
+            return replicas.get(0);
+        }
+        if (selection == ReplicaSelection.LEAST_LOADED) {
+            // Start the scan at a rotating offset so ties are spread across replicas
+            int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+            Replica best = null;
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica candidate = replicas.get((start + i) % replicas.size());
+                if (best == null || candidate.active.get() < best.active.get()) {
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    private static void closeQuietly(DataSource dataSource) {
+        if (dataSource instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                logger.warn("Error closing data source: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * A replica data source with a count of the connections it has checked out.
+     */
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private final AtomicInteger active = new AtomicInteger();
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        Connection open(String username, String password) throws SQLException {
+            Connection target = username == null
+                    ? dataSource.getConnection()
+                    : dataSource.getConnection(username, password);
+            active.incrementAndGet();
+            return tracked(target);
+        }
+
+        /**
+         * Wraps the connection so that closing it releases this replica's load count exactly once.
+         */
+        private Connection tracked(Connection target) {
+            AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                            active.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
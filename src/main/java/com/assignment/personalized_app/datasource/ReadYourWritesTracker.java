@@ -0,0 +1,92 @@
+package com.assignment.personalized_app.datasource;
+
+import com.assignment.personalized_app.config.DataSourceRoutingProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a shopper's reads on the primary for a short window after a write to that shopper,
+ * so a client reading back its own shelf update is not served stale data by a lagging replica.
+ * A zero window disables tracking entirely.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    // Expired entries are swept every this many recorded writes
+    private static final int SWEEP_INTERVAL = 1024;
+
+    private final long windowNanos;
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+    private final AtomicInteger writesSinceSweep = new AtomicInteger();
+
+    public ReadYourWritesTracker(DataSourceRoutingProperties properties) {
+        this.windowNanos = properties.isEnabled()
+                ? properties.getReadYourWritesWindow().toNanos()
+                : 0L;
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    /**
+     * Starts the window for a shopper. Inside a transaction the window starts after commit,
+     * since only then can replicas begin to apply the change.
+     */
+    public void recordWrite(String shopperId) {
+        if (!isEnabled() || shopperId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    pin(shopperId);
+                }
+            });
+        } else {
+            pin(shopperId);
+        }
+    }
+
+    /**
+     * True while the shopper's read-your-writes window is open.
+     */
+    public boolean requiresPrimary(String shopperId) {
+        if (!isEnabled() || shopperId == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(shopperId);
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        pinnedUntil.remove(shopperId, until);
+        return false;
+    }
+
+    /**
+     * Runs a read for the shopper, on the primary if its window is still open.
+     */
+    public <T> T read(String shopperId, Supplier<T> query) {
+        return requiresPrimary(shopperId) ? RoutingContext.onPrimary(query) : query.get();
+    }
+
+    private void pin(String shopperId) {
+        long now = System.nanoTime();
+        pinnedUntil.put(shopperId, now + windowNanos);
+
+        if (writesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            writesSinceSweep.set(0);
+            pinnedUntil.values().removeIf(until -> now - until >= 0);
+        }
+    }
+}
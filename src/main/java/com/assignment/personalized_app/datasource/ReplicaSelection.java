@@ -0,0 +1,11 @@
+package com.assignment.personalized_app.datasource;
+
+/**
+ * Strategy used to pick a replica for a read-only transaction.
+ */
+public enum ReplicaSelection {
+    /** Cycle through the replicas in configuration order. */
+    ROUND_ROBIN,
+    /** Pick the replica with the fewest connections currently checked out. */
+    LEAST_LOADED
+}
@@ -0,0 +1,39 @@
+package com.assignment.personalized_app.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing hints for {@link ReadWriteRoutingDataSource}.
+ * Pinning forces connections obtained on this thread to the primary, even inside
+ * a read-only transaction. Because connections are acquired lazily, the pin must be
+ * in place before the first statement of the transaction runs.
+ */
+public final class RoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_PINNED = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static boolean isPrimaryPinned() {
+        return Boolean.TRUE.equals(PRIMARY_PINNED.get());
+    }
+
+    /**
+     * Runs the given work with connections pinned to the primary, restoring the
+     * previous state afterwards so nested calls behave.
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        Boolean previous = PRIMARY_PINNED.get();
+        PRIMARY_PINNED.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_PINNED.remove();
+            } else {
+                PRIMARY_PINNED.set(previous);
+            }
+        }
+    }
+}
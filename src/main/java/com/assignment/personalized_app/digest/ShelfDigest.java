@@ -0,0 +1,144 @@
+package com.assignment.personalized_app.digest;
+
+import com.assignment.personalized_app.entity.CompactColumns;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Order-independent content hash of a shelf, whole and per chunk.
+ * <p>
+ * Items are normalized to (product id, score at {@link CompactColumns#SCORE_SCALE} places, as
+ * stored), assigned to a chunk by the product id's hash code and sorted by product id within
+ * their chunk, so neither payload order nor trailing zeros change the digest. Each chunk is
+ * hashed with SHA-256, of which the first {@value #CHUNK_HASH_BYTES} bytes are kept; the shelf
+ * hash is the SHA-256 of the chunk count and the full chunk hashes. Equal shelf hashes mean the
+ * same items with the same scores; equal chunk hashes mean the same for that chunk's products.
+ */
+public final class ShelfDigest {
+
+    public static final int CHUNK_HASH_BYTES = 8;
+
+    private final int chunks;
+    private final byte[] shelfHash;
+    private final byte[] chunkHashes;
+    private final int itemCount;
+
+    private ShelfDigest(int chunks, byte[] shelfHash, byte[] chunkHashes, int itemCount) {
+        this.chunks = chunks;
+        this.shelfHash = shelfHash;
+        this.chunkHashes = chunkHashes;
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Digest of the given product scores, split into {@code chunks} chunks.
+     */
+    public static ShelfDigest of(Map<String, BigDecimal> items, int chunks) {
+        if (chunks < 1) {
+            throw new IllegalArgumentException("chunks must be positive: " + chunks);
+        }
+        List<List<String>> byChunk = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            byChunk.add(new ArrayList<>());
+        }
+        for (String productId : items.keySet()) {
+            byChunk.get(chunkOf(productId, chunks)).add(productId);
+        }
+
+        MessageDigest chunkDigest = sha256();
+        MessageDigest shelfDigest = sha256();
+        shelfDigest.update(ByteBuffer.allocate(Integer.BYTES).putInt(chunks).array());
+        byte[] chunkHashes = new byte[chunks * CHUNK_HASH_BYTES];
+        ByteBuffer scratch = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+
+        for (int i = 0; i < chunks; i++) {
+            List<String> productIds = byChunk.get(i);
+            Collections.sort(productIds);
+            for (String productId : productIds) {
+                byte[] id = productId.getBytes(StandardCharsets.UTF_8);
+                scratch.clear();
+                chunkDigest.update(scratch.putInt(id.length).array(), 0, Integer.BYTES);
+                chunkDigest.update(id);
+                BigDecimal score = items.get(productId);
+                if (CompactColumns.fits(score)) {
+                    scratch.clear();
+                    chunkDigest.update(scratch.putLong(CompactColumns.scaledScore(score)).array(), 0, Long.BYTES);
+                } else {
+                    chunkDigest.update(score.setScale(CompactColumns.SCORE_SCALE, RoundingMode.HALF_UP)
+                            .unscaledValue().toByteArray());
+                }
+            }
+            byte[] hash = chunkDigest.digest();
+            shelfDigest.update(hash);
+            System.arraycopy(hash, 0, chunkHashes, i * CHUNK_HASH_BYTES, CHUNK_HASH_BYTES);
+        }
+        return new ShelfDigest(chunks, shelfDigest.digest(), chunkHashes, items.size());
+    }
+
+    /**
+     * Chunk of a product id; stable across JVMs, since String.hashCode is specified.
+     */
+    public static int chunkOf(String productId, int chunks) {
+        return Math.floorMod(productId.hashCode(), chunks);
+    }
+
+    /**
+     * Whether this shelf equals the one the stored hashes were computed from.
+     */
+    public boolean matches(byte[] storedShelfHash) {
+        return MessageDigest.isEqual(shelfHash, storedShelfHash);
+    }
+
+    /**
+     * Chunks whose hash differs from the stored chunk hashes; all of them if those were computed
+     * with another chunk count.
+     */
+    public BitSet changedChunks(byte[] storedChunkHashes) {
+        BitSet changed = new BitSet(chunks);
+        if (storedChunkHashes == null || storedChunkHashes.length != chunkHashes.length) {
+            changed.set(0, chunks);
+            return changed;
+        }
+        for (int i = 0; i < chunks; i++) {
+            if (!Arrays.equals(chunkHashes, i * CHUNK_HASH_BYTES, (i + 1) * CHUNK_HASH_BYTES,
+                    storedChunkHashes, i * CHUNK_HASH_BYTES, (i + 1) * CHUNK_HASH_BYTES)) {
+                changed.set(i);
+            }
+        }
+        return changed;
+    }
+
+    public int chunks() {
+        return chunks;
+    }
+
+    public byte[] shelfHash() {
+        return shelfHash.clone();
+    }
+
+    public byte[] chunkHashes() {
+        return chunkHashes.clone();
+    }
+
+    public int itemCount() {
+        return itemCount;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CatalogImportStatusDTO {
+    private String file;
+    private String state;
+    private long fileBytes;
+    private long startOffset;
+    private long committedOffset;
+    private double percentComplete;
+    private long parsedRows;
+    private long insertedRows;
+    private long updatedRows;
+    private long unchangedRows;
+    private long rejectedRows;
+    private long batches;
+    private long elapsedMillis;
+    private List<String> rejects;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ChangeBatchDTO {
+    private String shard;
+    private List<ChangeRecordDTO> changes;
+    // Pass as "after" to continue from this batch
+    private long nextSeq;
+}
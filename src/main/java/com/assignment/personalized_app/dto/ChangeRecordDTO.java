@@ -0,0 +1,27 @@
+package com.assignment.personalized_app.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeRecordDTO {
+    private long seq;
+    private String type;
+    private String shopperId;
+    private String productId;
+    private Map<String, BigDecimal> scores;
+    private String category;
+    private String brand;
+    private Instant createdAt;
+}
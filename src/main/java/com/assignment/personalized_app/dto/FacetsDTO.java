@@ -0,0 +1,18 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetsDTO {
+    private String shopperId;
+    private List<FacetCountDTO> categories;
+    private List<FacetCountDTO> brands;
+}
@@ -0,0 +1,24 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionSummaryDTO {
+    private long totalShelves;
+    private long succeededShelves;
+    private long failedShelves;
+    private long insertedItems;
+    private long updatedItems;
+    private long skippedItems;
+    private long batches;
+    private long elapsedMillis;
+    private Map<String, String> failures;
+}
@@ -0,0 +1,20 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RebalanceReportDTO {
+    private int bucket;
+    private String sourceShard;
+    private String targetShard;
+    private long shoppersMoved;
+    private long rowsCopied;
+    private long rowsDeleted;
+    private long elapsedMillis;
+}
@@ -0,0 +1,17 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RetentionReportDTO {
+    private long shoppersScanned;
+    private long shelvesDeleted;
+    private long itemsDeleted;
+    private long elapsedMillis;
+}
@@ -0,0 +1,19 @@
+package com.assignment.personalized_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ShardMapDTO {
+    private int buckets;
+    private Map<String, Integer> bucketsPerShard;
+    private List<Integer> migratingBuckets;
+}
@@ -0,0 +1,263 @@
+package com.assignment.personalized_app.encoding;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte array that JSON tokens are written into as UTF-8, formatted the way Jackson's
+ * default JSON generator formats them. Not thread-safe.
+ */
+final class JsonBuffer {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Largest precision whose unscaled value always fits in a long.
+     */
+    private static final int LONG_PRECISION = 18;
+
+    private byte[] bytes;
+    private int length;
+
+    JsonBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    int capacity() {
+        return bytes.length;
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    /* ============================================================
+       WRITE
+       ============================================================ */
+
+    /**
+     * Writes pre-encoded bytes, such as punctuation and quoted field names.
+     */
+    void writeRaw(byte[] raw) {
+        ensureCapacity(length + raw.length);
+        System.arraycopy(raw, 0, bytes, length, raw.length);
+        length += raw.length;
+    }
+
+    void writeByte(char ascii) {
+        ensureCapacity(length + 1);
+        bytes[length++] = (byte) ascii;
+    }
+
+    void writeNull() {
+        writeRaw(NULL);
+    }
+
+    void writeBoolean(boolean value) {
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    /**
+     * Writes a quoted string, escaping quotes, backslashes and control characters as Jackson
+     * does; everything else is written as UTF-8.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        int chars = value.length();
+        // Worst case: 6 bytes per control character, 3 per other char, plus the quotes
+        ensureCapacity(length + chars * 6 + 2);
+        byte[] b = bytes;
+        int pos = length;
+        b[pos++] = '"';
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    b[pos++] = (byte) c;
+                } else {
+                    pos = writeEscape(b, pos, c);
+                }
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                b[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                b[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                b[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                throw new IllegalArgumentException("Unpaired surrogate in JSON string at index " + i);
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        b[pos++] = '"';
+        length = pos;
+    }
+
+    void writeLong(long value) {
+        ensureCapacity(length + 20);
+        if (value < 0) {
+            bytes[length++] = '-';
+            if (value == Long.MIN_VALUE) {
+                writeAscii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        length = writeDigits(bytes, length, value, digitCount(value));
+    }
+
+    /**
+     * Writes the number as {@link BigDecimal#toString()} spells it, which is what Jackson writes.
+     * Values of up to 18 digits are formatted from their unscaled long without allocating;
+     * longer ones fall back to {@code toString()}.
+     */
+    void writeDecimal(BigDecimal value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        if (value.precision() > LONG_PRECISION) {
+            writeAscii(value.toString());
+            return;
+        }
+        int scale = value.scale();
+        // Compact values: a scale of 0 makes longValue() return the unscaled value as is
+        long unscaled = value.scaleByPowerOfTen(scale).longValue();
+        writeDecimal(unscaled, scale);
+    }
+
+    /**
+     * Writes {@code unscaled × 10^-scale} in {@link BigDecimal#toString()} notation: plain when
+     * the scale is not negative and the adjusted exponent is at least -6, scientific otherwise.
+     */
+    void writeDecimal(long unscaled, int scale) {
+        if (unscaled == Long.MIN_VALUE) {
+            writeAscii(BigDecimal.valueOf(unscaled, scale).toString());
+            return;
+        }
+        ensureCapacity(length + 40);
+        byte[] b = bytes;
+        int pos = length;
+        if (unscaled < 0) {
+            b[pos++] = '-';
+            unscaled = -unscaled;
+        }
+        int digits = digitCount(unscaled);
+        long adjusted = (long) digits - 1 - scale;
+
+        if (scale == 0) {
+            pos = writeDigits(b, pos, unscaled, digits);
+        } else if (scale > 0 && adjusted >= -6) {
+            int integerDigits = digits - scale;
+            if (integerDigits <= 0) {
+                b[pos++] = '0';
+                b[pos++] = '.';
+                for (int i = integerDigits; i < 0; i++) {
+                    b[pos++] = '0';
+                }
+                pos = writeDigits(b, pos, unscaled, digits);
+            } else {
+                pos = writeDigits(b, pos, unscaled, digits);
+                // Shift the fraction one place right to make room for the point
+                System.arraycopy(b, pos - scale, b, pos - scale + 1, scale);
+                b[pos - scale] = '.';
+                pos++;
+            }
+        } else {
+            pos = writeDigits(b, pos, unscaled, digits);
+            if (digits > 1) {
+                System.arraycopy(b, pos - digits + 1, b, pos - digits + 2, digits - 1);
+                b[pos - digits + 1] = '.';
+                pos++;
+            }
+            if (adjusted != 0) {
+                b[pos++] = 'E';
+                if (adjusted > 0) {
+                    b[pos++] = '+';
+                } else {
+                    b[pos++] = '-';
+                    adjusted = -adjusted;
+                }
+                pos = writeDigits(b, pos, adjusted, digitCount(adjusted));
+            }
+        }
+        length = pos;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void writeAscii(String ascii) {
+        ensureCapacity(length + ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            bytes[length++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private static int writeEscape(byte[] b, int pos, char c) {
+        b[pos++] = '\\';
+        switch (c) {
+            case '"', '\\' -> b[pos++] = (byte) c;
+            case '\b' -> b[pos++] = 'b';
+            case '\t' -> b[pos++] = 't';
+            case '\n' -> b[pos++] = 'n';
+            case '\f' -> b[pos++] = 'f';
+            case '\r' -> b[pos++] = 'r';
+            default -> {
+                b[pos++] = 'u';
+                b[pos++] = '0';
+                b[pos++] = '0';
+                b[pos++] = HEX[c >> 4];
+                b[pos++] = HEX[c & 0xF];
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Writes the digits of a non-negative value right to left into the next {@code digits} bytes.
+     */
+    private static int writeDigits(byte[] b, int pos, long value, int digits) {
+        int end = pos + digits;
+        for (int i = end - 1; i >= pos; i--) {
+            b[i] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        }
+        return end;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        for (long bound = 10; digits < 19 && value >= bound; bound *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
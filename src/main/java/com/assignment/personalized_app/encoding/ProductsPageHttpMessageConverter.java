@@ -0,0 +1,74 @@
+package com.assignment.personalized_app.encoding;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes JSON {@link OperationResponse} bodies holding a products page with
+ * {@link ProductsPageJsonWriter}, and hands every other {@code OperationResponse} to the JSON
+ * converter it was registered in front of. Write-only.
+ */
+public class ProductsPageHttpMessageConverter implements HttpMessageConverter<Object> {
+
+    private final HttpMessageConverter<Object> fallback;
+
+    public ProductsPageHttpMessageConverter(HttpMessageConverter<Object> fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return OperationResponse.class.isAssignableFrom(clazz)
+                && (mediaType == null || MediaType.APPLICATION_JSON.isCompatibleWith(mediaType));
+    }
+
+    @Override
+    public List<MediaType> getSupportedMediaTypes() {
+        return List.of(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    public Object read(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Write-only converter", inputMessage);
+    }
+
+    @Override
+    public void write(Object body, MediaType contentType, HttpOutputMessage outputMessage) throws IOException {
+        if (!ProductsPageJsonWriter.supports(body)) {
+            fallback.write(body, contentType, outputMessage);
+            return;
+        }
+        JsonBuffer buffer;
+        try {
+            buffer = ProductsPageJsonWriter.encode((OperationResponse<?>) body);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotWritableException("Could not write products page: " + e.getMessage(), e);
+        }
+        try {
+            // Headers go out with the first body byte, so they are set first
+            HttpHeaders headers = outputMessage.getHeaders();
+            if (headers.getContentType() == null) {
+                headers.setContentType(contentType == null || !contentType.isConcrete()
+                        ? MediaType.APPLICATION_JSON : contentType);
+            }
+            headers.setContentLength(buffer.length());
+            outputMessage.getBody().write(buffer.bytes(), 0, buffer.length());
+        } finally {
+            ProductsPageJsonWriter.release(buffer);
+        }
+    }
+}
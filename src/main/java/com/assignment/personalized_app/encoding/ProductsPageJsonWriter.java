@@ -0,0 +1,163 @@
+package com.assignment.personalized_app.encoding;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a products page response ({@code OperationResponse<PageResponseDTO<ShopperProductDTO>>})
+ * as JSON without Jackson's reflective bean serialization.
+ * <p>
+ * The output is byte-identical to what the application's ObjectMapper writes: the same property
+ * order, no whitespace, Jackson's string escaping and {@code BigDecimal.toString()} notation for
+ * scores. Field names are pre-encoded, scores are formatted from their unscaled value, and each
+ * thread reuses one buffer, so a page is written without per-field allocations. Thread-safe.
+ */
+public final class ProductsPageJsonWriter {
+
+    /**
+     * Buffers that grew beyond this are not kept for the next response.
+     */
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+
+    private static final ThreadLocal<JsonBuffer> BUFFER = ThreadLocal.withInitial(() -> new JsonBuffer(8 * 1024));
+
+    private static final byte[] SUCCESS = ascii("{\"success\":");
+    private static final byte[] MESSAGE = ascii(",\"message\":");
+    private static final byte[] CONTENT = ascii(",\"data\":{\"content\":[");
+    private static final byte[] NULL_CONTENT = ascii(",\"data\":{\"content\":null");
+    private static final byte[] CURRENT_PAGE = ascii(",\"currentPage\":");
+    private static final byte[] TOTAL_PAGES = ascii(",\"totalPages\":");
+    private static final byte[] TOTAL_ITEMS = ascii(",\"totalItems\":");
+    private static final byte[] PRODUCT_ID = ascii("{\"productId\":");
+    private static final byte[] RELEVANCY_SCORE = ascii(",\"relevancyScore\":");
+    private static final byte[] CATEGORY = ascii(",\"category\":");
+    private static final byte[] BRAND = ascii(",\"brand\":");
+    private static final byte[] END = ascii("}}");
+
+    private ProductsPageJsonWriter() {
+    }
+
+    /**
+     * True if the body is a products page response, i.e. a page whose content holds only
+     * {@link ShopperProductDTO}s.
+     */
+    public static boolean supports(Object body) {
+        if (!(body instanceof OperationResponse<?> response) || !(response.getData() instanceof PageResponseDTO<?> page)) {
+            return false;
+        }
+        List<?> content = page.getContent();
+        if (content == null) {
+            return true;
+        }
+        for (Object item : content) {
+            if (!(item instanceof ShopperProductDTO)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the response to the stream with a single write call.
+     *
+     * @return number of bytes written
+     * @throws IllegalArgumentException if the body is not {@linkplain #supports supported}
+     */
+    public static int write(OperationResponse<?> response, OutputStream out) throws IOException {
+        JsonBuffer buffer = encode(response);
+        try {
+            out.write(buffer.bytes(), 0, buffer.length());
+            return buffer.length();
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * The response as a new byte array.
+     *
+     * @throws IllegalArgumentException if the body is not {@linkplain #supports supported}
+     */
+    public static byte[] toBytes(OperationResponse<?> response) {
+        JsonBuffer buffer = encode(response);
+        try {
+            return Arrays.copyOf(buffer.bytes(), buffer.length());
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Encodes the response into this thread's buffer, which must be {@linkplain #release released}
+     * once its bytes have been copied out.
+     */
+    static JsonBuffer encode(OperationResponse<?> response) {
+        if (!supports(response)) {
+            throw new IllegalArgumentException("Not a products page response");
+        }
+        PageResponseDTO<?> page = (PageResponseDTO<?>) response.getData();
+        JsonBuffer buffer = BUFFER.get();
+        buffer.clear();
+
+        buffer.writeRaw(SUCCESS);
+        buffer.writeBoolean(response.isSuccess());
+        buffer.writeRaw(MESSAGE);
+        buffer.writeString(response.getMessage());
+
+        List<?> content = page.getContent();
+        if (content == null) {
+            buffer.writeRaw(NULL_CONTENT);
+        } else {
+            buffer.writeRaw(CONTENT);
+            for (int i = 0; i < content.size(); i++) {
+                if (i > 0) {
+                    buffer.writeByte(',');
+                }
+                writeProduct((ShopperProductDTO) content.get(i), buffer);
+            }
+            buffer.writeByte(']');
+        }
+        buffer.writeRaw(CURRENT_PAGE);
+        buffer.writeLong(page.getCurrentPage());
+        buffer.writeRaw(TOTAL_PAGES);
+        buffer.writeLong(page.getTotalPages());
+        buffer.writeRaw(TOTAL_ITEMS);
+        buffer.writeLong(page.getTotalItems());
+        buffer.writeRaw(END);
+        return buffer;
+    }
+
+    static void release(JsonBuffer buffer) {
+        buffer.clear();
+        if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private static void writeProduct(ShopperProductDTO product, JsonBuffer buffer) {
+        buffer.writeRaw(PRODUCT_ID);
+        buffer.writeString(product.getProductId());
+        buffer.writeRaw(RELEVANCY_SCORE);
+        buffer.writeDecimal(product.getRelevancyScore());
+        buffer.writeRaw(CATEGORY);
+        buffer.writeString(product.getCategory());
+        buffer.writeRaw(BRAND);
+        buffer.writeString(product.getBrand());
+        buffer.writeByte('}');
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,49 @@
+package com.assignment.personalized_app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * One change in the transactional outbox, written in the same transaction as the change it
+ * describes. Shelf changes live on the shopper's shard, product changes on the catalog
+ * database; seq orders the records of one database.
+ */
+@Entity
+@Table(name = "change_outbox",
+        indexes = {
+                @Index(name = "idx_change_outbox_created", columnList = "created_at")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeRecord {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "seq")
+    private Long seq;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 32)
+    private ChangeType changeType;
+
+    @Column(name = "shopper_id")
+    private String shopperId;
+
+    @Column(name = "product_id")
+    private String productId;
+
+    // JSON: {"scores":{productId:score,...}} for shelves, {"category":..,"brand":..} for products
+    @Column(name = "payload", nullable = false, columnDefinition = "MEDIUMTEXT")
+    private String payload;
+
+    @Column(name = "created_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)")
+    private Instant createdAt;
+}
@@ -0,0 +1,22 @@
+package com.assignment.personalized_app.entity;
+
+/**
+ * Kind of write a change_outbox record describes.
+ */
+public enum ChangeType {
+    /**
+     * A new shelf; the record holds every item.
+     */
+    SHELF_CREATED,
+    /**
+     * Items inserted into or re-scored on an existing shelf; the record holds those items only.
+     */
+    SHELF_UPDATED,
+    /**
+     * Items deleted from a shelf by retention or the per-shopper cap; the record holds those items
+     * with their last scores.
+     */
+    SHELF_ITEMS_DELETED,
+    PRODUCT_CREATED,
+    PRODUCT_UPDATED
+}
@@ -0,0 +1,80 @@
+package com.assignment.personalized_app.entity;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Numeric forms of shopper_product's shopper_id and relevancy_score, stored next to them so that
+ * idx_shopper_key_score holds two BIGINTs per entry instead of a VARCHAR and a DECIMAL.
+ * <p>
+ * The shopper key is the first 60 bits of MD5(shopper_id), which MySQL computes as
+ * {@code CONV(LEFT(MD5(shopper_id), 15), 16, 10)}, so existing rows can be backfilled in SQL and
+ * every shard derives the same key without a shared dictionary. Keys are not unique: queries
+ * returning rows by shopper_key must also match shopper_id, which filters out the rare collision.
+ * The scaled score is relevancy_score times 10^{@value #SCORE_SCALE}, the column's scale, so it
+ * sorts exactly like the decimal; scores of 922337203.6854775808 or more, in either direction,
+ * do not fit.
+ */
+public final class CompactColumns {
+
+    public static final int SCORE_SCALE = 10;
+
+    private static final ThreadLocal<MessageDigest> MD5 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    });
+
+    private CompactColumns() {
+    }
+
+    public static Long shopperKey(String shopperId) {
+        if (shopperId == null) {
+            return null;
+        }
+        byte[] digest = MD5.get().digest(shopperId.getBytes(StandardCharsets.UTF_8));
+        long high = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (digest[i] & 0xff);
+        }
+        return high >>> 4;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the score does not fit in a scaled BIGINT
+     */
+    public static Long scaledScore(BigDecimal score) {
+        if (score == null) {
+            return null;
+        }
+        try {
+            return score.setScale(SCORE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Relevancy score out of range: " + score, e);
+        }
+    }
+
+    /**
+     * Whether the score fits in a scaled BIGINT; a null score does.
+     */
+    public static boolean fits(BigDecimal score) {
+        return score == null || score.setScale(SCORE_SCALE, RoundingMode.HALF_UP).unscaledValue().bitLength() < Long.SIZE;
+    }
+
+    /**
+     * {@link #scaledScore}, or null for a score that does not fit; such rows are left out of
+     * idx_shopper_key_score's order rather than failing the write.
+     */
+    public static Long scaledScoreOrNull(BigDecimal score) {
+        return fits(score) ? scaledScore(score) : null;
+    }
+
+    public static BigDecimal score(Long scaledScore) {
+        return scaledScore == null ? null : BigDecimal.valueOf(scaledScore, SCORE_SCALE);
+    }
+}
@@ -0,0 +1,9 @@
+package com.assignment.personalized_app.entity;
+
+/**
+ * Product attribute a shopper facet counts by.
+ */
+public enum FacetType {
+    CATEGORY,
+    BRAND
+}
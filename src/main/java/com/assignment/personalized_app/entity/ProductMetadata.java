@@ -1,15 +1,26 @@
 package com.assignment.personalized_app.entity;
 
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
+import java.time.Instant;
 import java.util.List;
 
+// Read-mostly; cached in the second-level cache when personalized.product-metadata-cache.enabled=true
 @Entity
-@Table(name = "product_metadata")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ProductMetadataCacheRegions.ENTITY_REGION)
+@Table(name = "product_metadata",
+        indexes = {
+                @Index(name = "idx_product_metadata_updated", columnList = "updated_at")
+        })
 @Data
 @Builder
 @NoArgsConstructor
@@ -26,6 +37,12 @@ public class ProductMetadata {
     @Column(name = "brand")
     private String brand;
 
+    // Maintained by the database on every insert and change; lets snapshots catch up on changes
+    @JsonIgnore
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)")
+    private Instant updatedAt;
+
     // Bidirectional mapping (optional but correct)
     @OneToMany(mappedBy = "product", fetch = FetchType.LAZY)
     private List<ShopperProduct> shopperProducts;
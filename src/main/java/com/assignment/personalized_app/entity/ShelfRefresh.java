@@ -0,0 +1,32 @@
+package com.assignment.personalized_app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * When a shopper's shelf was last sent, touched by every save and by every update with a
+ * non-empty payload, including updates acknowledged as unchanged that write no shelf row.
+ * Shelf retention ages shelves by it, since shopper_product.updated_at only moves when a score
+ * changes. Kept on the shopper's shard.
+ */
+@Entity
+@Table(name = "shelf_refresh")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfRefresh {
+
+    @Id
+    @Column(name = "shopper_id")
+    private String shopperId;
+
+    @Column(name = "refreshed_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)")
+    private Instant refreshedAt;
+}
@@ -0,0 +1,40 @@
+package com.assignment.personalized_app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Version of a shopper's shelf, bumped in the transaction of every shelf write and kept on the
+ * shopper's shard. Other nodes poll it by updated_at to invalidate their cached copies.
+ */
+@Entity
+@Table(name = "shelf_version",
+        indexes = {
+                @Index(name = "idx_shelf_version_updated", columnList = "updated_at")
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShelfVersion {
+
+    @Id
+    @Column(name = "shopper_id")
+    private String shopperId;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    // Node whose write set the current version
+    @Column(name = "writer", nullable = false, length = 64)
+    private String writer;
+
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)")
+    private Instant updatedAt;
+}
@@ -0,0 +1,44 @@
+package com.assignment.personalized_app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of products on a shopper's shelf with a given category or brand.
+ * Maintained incrementally by shelf writes and metadata changes, see
+ * {@link com.assignment.personalized_app.service.FacetService}.
+ */
+@Entity
+@Table(name = "shopper_facet",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "uq_shopper_facet",
+                        columnNames = {"shopper_id", "facet_type", "facet_value"}
+                )
+        })
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopperFacet {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "shopper_id", nullable = false)
+    private String shopperId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "facet_type", nullable = false, length = 16)
+    private FacetType facetType;
+
+    @Column(name = "facet_value", nullable = false)
+    private String facetValue;
+
+    @Column(name = "product_count", nullable = false)
+    private int productCount;
+}
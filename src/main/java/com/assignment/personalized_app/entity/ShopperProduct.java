@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Entity
 @Table(name = "shopper_product",
@@ -17,7 +18,9 @@ import java.math.BigDecimal;
                 )
         },
         indexes = {
-                @Index(name = "idx_shopper_relevancy", columnList = "shopper_id, relevancy_score DESC")
+                @Index(name = "idx_shopper_relevancy", columnList = "shopper_id, relevancy_score DESC"),
+                @Index(name = "idx_shopper_key_score", columnList = "shopper_key, score_scaled DESC"),
+                @Index(name = "idx_shopper_product_updated", columnList = "updated_at")
         })
 @Data
 @Builder
@@ -39,8 +42,27 @@ public class ShopperProduct {
     )
     private BigDecimal relevancyScore;
 
+    // Compact copies of shopper_id and relevancy_score for idx_shopper_key_score (see CompactColumns)
+    @Column(name = "shopper_key")
+    private Long shopperKey;
+
+    @Column(name = "score_scaled")
+    private Long scoreScaled;
+
+    // Maintained by the database on every insert and change; lets snapshots catch up on changes
+    @Column(name = "updated_at", insertable = false, updatable = false,
+            columnDefinition = "TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)")
+    private Instant updatedAt;
+
     // Correct Many-to-One relationship
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id", nullable = false)
     private ProductMetadata product;
+
+    @PrePersist
+    @PreUpdate
+    void deriveCompactColumns() {
+        shopperKey = CompactColumns.shopperKey(shopperId);
+        scoreScaled = CompactColumns.scaledScoreOrNull(relevancyScore);
+    }
 }
@@ -0,0 +1,34 @@
+package com.assignment.personalized_app.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Content hash of the shelf items last applied for a shopper, see
+ * {@link com.assignment.personalized_app.digest.ShelfDigest}. Written in the same transaction
+ * as the shelf rows and kept on the shopper's shard.
+ */
+@Entity
+@Table(name = "shopper_shelf_digest")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShopperShelfDigest {
+
+    @Id
+    @Column(name = "shopper_id")
+    private String shopperId;
+
+    @Column(name = "shelf_hash", nullable = false, length = 32)
+    private byte[] shelfHash;
+
+    @Column(name = "chunk_hashes", nullable = false, length = 2048)
+    private byte[] chunkHashes;
+
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+}
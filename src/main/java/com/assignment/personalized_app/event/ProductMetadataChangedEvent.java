@@ -0,0 +1,12 @@
+package com.assignment.personalized_app.event;
+
+/**
+ * Published when a product's category or brand changes, after the change is saved.
+ * Carries the values before and after the change.
+ */
+public record ProductMetadataChangedEvent(String productId,
+                                          String oldCategory,
+                                          String oldBrand,
+                                          String newCategory,
+                                          String newBrand) {
+}
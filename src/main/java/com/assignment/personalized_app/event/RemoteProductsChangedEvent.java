@@ -0,0 +1,11 @@
+package com.assignment.personalized_app.event;
+
+import java.util.List;
+
+/**
+ * Published on this node when polling finds committed product metadata changes. These include
+ * this node's own writes, which are then dropped a second time. Listeners drop their in-process
+ * copies only.
+ */
+public record RemoteProductsChangedEvent(List<String> productIds) {
+}
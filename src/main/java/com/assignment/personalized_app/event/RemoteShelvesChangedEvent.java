@@ -0,0 +1,10 @@
+package com.assignment.personalized_app.event;
+
+import java.util.List;
+
+/**
+ * Published on this node when shelf writes committed by other nodes are found. Listeners drop
+ * their in-process copies only; the writing node has already updated shared state.
+ */
+public record RemoteShelvesChangedEvent(List<String> shopperIds) {
+}
@@ -0,0 +1,9 @@
+package com.assignment.personalized_app.event;
+
+/**
+ * Published by shelf writes that changed at least one row of the shopper's shelf.
+ * Listeners that must only see committed data use
+ * {@link org.springframework.transaction.event.TransactionalEventListener}.
+ */
+public record ShelfChangedEvent(String shopperId) {
+}
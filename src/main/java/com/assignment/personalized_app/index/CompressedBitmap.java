@@ -0,0 +1,270 @@
+package com.assignment.personalized_app.index;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed set of non-negative ints, laid out like a Roaring bitmap.
+ * <p>
+ * Values are split by their high 16 bits into chunks of 65536. A chunk holding at most
+ * {@value #ARRAY_MAX} values is a sorted {@code char[]} (2 bytes per value); a denser chunk is a
+ * 65536-bit bitmap (8 KB). Small sets, which is what most products' shopper sets are, cost a few
+ * bytes per member, and large ones never more than one bit per possible value.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class CompressedBitmap {
+
+    static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys = new char[1];
+    private Object[] chunks = new Object[1];
+    private int size;
+
+    public boolean add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = indexOf(key);
+        if (index < 0) {
+            insertChunk(-index - 1, key, new char[]{low}, 1);
+            return true;
+        }
+        Object chunk = chunks[index];
+        if (chunk instanceof long[] bits) {
+            long mask = 1L << low;
+            boolean added = (bits[low >>> 6] & mask) == 0;
+            bits[low >>> 6] |= mask;
+            return added;
+        }
+        ArrayChunk array = (ArrayChunk) chunk;
+        int position = Arrays.binarySearch(array.values, 0, array.cardinality, low);
+        if (position >= 0) {
+            return false;
+        }
+        if (array.cardinality == ARRAY_MAX) {
+            long[] bits = toBitmap(array);
+            bits[low >>> 6] |= 1L << low;
+            chunks[index] = bits;
+            return true;
+        }
+        array.insert(-position - 1, low);
+        return true;
+    }
+
+    public boolean remove(int value) {
+        checkValue(value);
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[index];
+        if (chunk instanceof long[] bits) {
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return false;
+            }
+            bits[low >>> 6] &= ~mask;
+            int cardinality = cardinality(bits);
+            if (cardinality <= ARRAY_MAX) {
+                chunks[index] = toArray(bits, cardinality);
+            }
+            return true;
+        }
+        ArrayChunk array = (ArrayChunk) chunk;
+        int position = Arrays.binarySearch(array.values, 0, array.cardinality, low);
+        if (position < 0) {
+            return false;
+        }
+        array.delete(position);
+        if (array.cardinality == 0) {
+            removeChunk(index);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOf((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[index];
+        if (chunk instanceof long[] bits) {
+            return (bits[low >>> 6] & (1L << low)) != 0;
+        }
+        ArrayChunk array = (ArrayChunk) chunk;
+        return Arrays.binarySearch(array.values, 0, array.cardinality, low) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += chunks[i] instanceof long[] bits ? cardinality(bits) : ((ArrayChunk) chunks[i]).cardinality;
+        }
+        return total;
+    }
+
+    /**
+     * Calls the action for every value, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            if (chunks[i] instanceof long[] bits) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long remaining = bits[word];
+                    while (remaining != 0) {
+                        action.accept(high | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                        remaining &= remaining - 1;
+                    }
+                }
+            } else {
+                ArrayChunk array = (ArrayChunk) chunks[i];
+                for (int j = 0; j < array.cardinality; j++) {
+                    action.accept(high | array.values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds every value of this bitmap to the target set.
+     */
+    public void orInto(BitSet target) {
+        for (int i = 0; i < size; i++) {
+            int high = keys[i] << 16;
+            if (chunks[i] instanceof long[] bits) {
+                for (int word = 0; word < BITMAP_WORDS; word++) {
+                    long remaining = bits[word];
+                    while (remaining != 0) {
+                        target.set(high | (word << 6) | Long.numberOfTrailingZeros(remaining));
+                        remaining &= remaining - 1;
+                    }
+                }
+            } else {
+                ArrayChunk array = (ArrayChunk) chunks[i];
+                for (int j = 0; j < array.cardinality; j++) {
+                    target.set(high | array.values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Approximate heap footprint, including array headers.
+     */
+    public long sizeInBytes() {
+        long bytes = 16 + 16 + keys.length * 2L + 16 + chunks.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += chunks[i] instanceof long[]
+                    ? 16 + BITMAP_WORDS * 8L
+                    : 16 + 16 + ((ArrayChunk) chunks[i]).values.length * 2L;
+        }
+        return bytes;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private int indexOf(char key) {
+        // Chunks are usually few; the last one is the common target for ascending ordinals
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertChunk(int index, char key, char[] values, int cardinality) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(chunks, index, chunks, index + 1, size - index);
+        keys[index] = key;
+        chunks[index] = new ArrayChunk(values, cardinality);
+        size++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, size - index - 1);
+        chunks[--size] = null;
+    }
+
+    private static long[] toBitmap(ArrayChunk array) {
+        long[] bits = new long[BITMAP_WORDS];
+        for (int i = 0; i < array.cardinality; i++) {
+            char value = array.values[i];
+            bits[value >>> 6] |= 1L << value;
+        }
+        return bits;
+    }
+
+    private static ArrayChunk toArray(long[] bits, int cardinality) {
+        char[] values = new char[cardinality];
+        int next = 0;
+        for (int word = 0; word < BITMAP_WORDS; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                values[next++] = (char) ((word << 6) | Long.numberOfTrailingZeros(remaining));
+                remaining &= remaining - 1;
+            }
+        }
+        return new ArrayChunk(values, cardinality);
+    }
+
+    private static int cardinality(long[] bits) {
+        int total = 0;
+        for (long word : bits) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value);
+        }
+    }
+
+    /**
+     * Sorted low halves of the values in one chunk, with spare capacity at the end.
+     */
+    private static final class ArrayChunk {
+
+        private char[] values;
+        private int cardinality;
+
+        ArrayChunk(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        void insert(int position, char value) {
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality + (cardinality >> 1))));
+            }
+            System.arraycopy(values, position, values, position + 1, cardinality - position);
+            values[position] = value;
+            cardinality++;
+        }
+
+        void delete(int position) {
+            System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+            cardinality--;
+        }
+    }
+}
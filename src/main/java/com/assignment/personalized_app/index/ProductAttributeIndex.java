@@ -0,0 +1,282 @@
+package com.assignment.personalized_app.index;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.AttributeIndexProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Category and brand bitmap indexes over product ordinals.
+ * <p>
+ * Each product gets a dense int ordinal on first sight, and each category and brand keeps a
+ * {@link CompressedBitmap} of the ordinals carrying it. A filter such as
+ * {@code category IN (a, b) AND brand IN (c)} is the union of the category bitmaps intersected
+ * with the union of the brand bitmaps, computed once per read and then tested per shelf item
+ * with a map lookup and a bit probe, so shelf reads never join product_metadata to filter.
+ * <p>
+ * Loaded from product_metadata on the catalog database when the application is ready; until then
+ * {@link #isReady()} is false and callers filter another way. Local metadata writes go through
+ * {@link #put}, other nodes' writes arrive through cache coherence, and products not yet indexed
+ * are looked up when a read meets them.
+ * Metrics: {@code product.attribute.index.products} and {@code .bytes}.
+ */
+@Component
+public class ProductAttributeIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductAttributeIndex.class);
+
+    private static final String LOAD_SQL = "SELECT product_id, category, brand FROM product_metadata";
+    private static final String LOOKUP_SQL = LOAD_SQL + " WHERE product_id IN (:ids)";
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final boolean enabled;
+
+    // Guards the bitmaps, the per-ordinal attributes and the interned values
+    private final Object lock = new Object();
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final Map<String, CompressedBitmap> byCategory = new HashMap<>();
+    private final Map<String, CompressedBitmap> byBrand = new HashMap<>();
+    private final Map<String, String> interned = new HashMap<>();
+    private String[] categories = new String[1024];
+    private String[] brands = new String[1024];
+    private int nextOrdinal;
+    private volatile boolean ready;
+
+    public ProductAttributeIndex(DataSource dataSource,
+                                 @Qualifier("catalogDataSource") Optional<DataSource> catalogDataSource,
+                                 AttributeIndexProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(catalogDataSource.orElse(dataSource));
+        this.jdbcTemplate.setFetchSize(properties.getLoadFetchSize());
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.enabled = properties.isEnabled();
+        if (enabled) {
+            Gauge.builder("product.attribute.index.products", ordinals, Map::size).register(meterRegistry);
+            Gauge.builder("product.attribute.index.bytes", this, ProductAttributeIndex::sizeInBytes).register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True once the initial load has finished; before that the index is incomplete.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled || ready) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        // Products written or looked up during the load are at least as new as the loaded row
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            putIfAbsent(rs.getString(1), rs.getString(2), rs.getString(3));
+        });
+        ready = true;
+        logger.info("Product attribute index loaded, products={}, categories={}, brands={}, elapsedMs={}",
+                ordinals.size(), byCategory.size(), byBrand.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Records a product's current category and brand, moving it between bitmaps if they changed.
+     */
+    public void put(String productId, String category, String brand) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            index(productId, category, brand);
+        }
+    }
+
+    /**
+     * Filter matching products whose category is one of {@code categories} and whose brand is one
+     * of {@code brands}; an empty collection leaves that attribute unconstrained. The given
+     * products, typically a shelf about to be filtered, are indexed first if they are not yet.
+     */
+    public Filter filter(Collection<String> categories, Collection<String> brands, Collection<String> productIds) {
+        if (categories.isEmpty() && brands.isEmpty()) {
+            return Filter.ALL;
+        }
+        indexMissing(productIds);
+        synchronized (lock) {
+            BitSet matching = null;
+            if (!categories.isEmpty()) {
+                matching = union(byCategory, categories);
+            }
+            if (!brands.isEmpty()) {
+                BitSet brandMatches = union(byBrand, brands);
+                if (matching == null) {
+                    matching = brandMatches;
+                } else {
+                    matching.and(brandMatches);
+                }
+            }
+            return new Filter(matching, ordinals);
+        }
+    }
+
+    /**
+     * Category and brand of each given product that exists in product_metadata.
+     */
+    public Map<String, ProductCatalog.Entry> lookup(Collection<String> productIds) {
+        indexMissing(productIds);
+        Map<String, ProductCatalog.Entry> found = new HashMap<>();
+        synchronized (lock) {
+            for (String productId : productIds) {
+                Integer ordinal = ordinals.get(productId);
+                if (ordinal != null) {
+                    found.put(productId, new ProductCatalog.Entry(categories[ordinal], brands[ordinal]));
+                }
+            }
+        }
+        return found;
+    }
+
+    public int products() {
+        return ordinals.size();
+    }
+
+    /**
+     * Approximate heap used by the bitmaps and per-ordinal attributes, excluding id strings.
+     */
+    public long sizeInBytes() {
+        synchronized (lock) {
+            long bytes = 0;
+            for (CompressedBitmap bitmap : byCategory.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            for (CompressedBitmap bitmap : byBrand.values()) {
+                bytes += bitmap.sizeInBytes();
+            }
+            return bytes + categories.length * 8L + ordinals.size() * 4L;
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void indexMissing(Collection<String> productIds) {
+        List<String> missing = new ArrayList<>();
+        for (String productId : productIds) {
+            if (productId != null && !ordinals.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += LOOKUP_BATCH_SIZE) {
+            List<String> batch = missing.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, missing.size()));
+            namedJdbcTemplate.query(LOOKUP_SQL, new MapSqlParameterSource("ids", batch), rs -> {
+                putIfAbsent(rs.getString(1), rs.getString(2), rs.getString(3));
+            });
+        }
+    }
+
+    private void putIfAbsent(String productId, String category, String brand) {
+        synchronized (lock) {
+            if (!ordinals.containsKey(productId)) {
+                index(productId, category, brand);
+            }
+        }
+    }
+
+    private void index(String productId, String category, String brand) {
+        Integer ordinal = ordinals.get(productId);
+        if (ordinal == null) {
+            ordinal = register(productId);
+        } else if (Objects.equals(categories[ordinal], category) && Objects.equals(brands[ordinal], brand)) {
+            return;
+        } else {
+            remove(byCategory, categories[ordinal], ordinal);
+            remove(byBrand, brands[ordinal], ordinal);
+        }
+        categories[ordinal] = intern(category);
+        brands[ordinal] = intern(brand);
+        add(byCategory, category, ordinal);
+        add(byBrand, brand, ordinal);
+    }
+
+    private int register(String productId) {
+        if (nextOrdinal == categories.length) {
+            categories = Arrays.copyOf(categories, categories.length * 2);
+            brands = Arrays.copyOf(brands, brands.length * 2);
+        }
+        ordinals.put(productId, nextOrdinal);
+        return nextOrdinal++;
+    }
+
+    private String intern(String value) {
+        return value == null ? null : interned.computeIfAbsent(value, v -> v);
+    }
+
+    private static void add(Map<String, CompressedBitmap> bitmaps, String value, int ordinal) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, v -> new CompressedBitmap()).add(ordinal);
+        }
+    }
+
+    private static void remove(Map<String, CompressedBitmap> bitmaps, String value, int ordinal) {
+        if (value == null) {
+            return;
+        }
+        CompressedBitmap bitmap = bitmaps.get(value);
+        if (bitmap != null && bitmap.remove(ordinal) && bitmap.isEmpty()) {
+            bitmaps.remove(value);
+        }
+    }
+
+    private static BitSet union(Map<String, CompressedBitmap> bitmaps, Collection<String> values) {
+        BitSet union = new BitSet();
+        for (String value : values) {
+            CompressedBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.orInto(union);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Products matching one read's category and brand constraints, fixed when it was created.
+     */
+    public static final class Filter {
+
+        static final Filter ALL = new Filter(null, Map.of());
+
+        private final BitSet matching;
+        private final Map<String, Integer> ordinals;
+
+        private Filter(BitSet matching, Map<String, Integer> ordinals) {
+            this.matching = matching;
+            this.ordinals = ordinals;
+        }
+
+        public boolean test(String productId) {
+            if (matching == null) {
+                return true;
+            }
+            Integer ordinal = ordinals.get(productId);
+            return ordinal != null && matching.get(ordinal);
+        }
+    }
+}
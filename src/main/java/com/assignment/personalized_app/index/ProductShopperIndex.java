@@ -0,0 +1,232 @@
+package com.assignment.personalized_app.index;
+
+import com.assignment.personalized_app.config.ReverseIndexProperties;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse index from productId to the shoppers whose shelf holds it.
+ * <p>
+ * Each shopper gets a dense int ordinal on first sight, and each product keeps a
+ * {@link CompressedBitmap} of shopper ordinals. Shelf writes add to the index as they run,
+ * before commit: a rolled-back write leaves a stale member behind, which only costs a spare
+ * invalidation, whereas adding after commit could miss a metadata change racing the write.
+ * Loaded from shopper_product (every shard) when the application is ready, or restored from a
+ * shelf snapshot before that; until then {@link #isReady()} is false and callers must assume any
+ * shopper may be affected.
+ * Metrics: {@code product.shopper.index.products}, {@code .shoppers} and {@code .bytes}.
+ */
+@Component
+public class ProductShopperIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductShopperIndex.class);
+
+    private static final String LOAD_SQL = "SELECT shopper_id, product_id FROM shopper_product";
+    private static final String REFRESH_SQL = LOAD_SQL + " WHERE shopper_id IN (:shopperIds)";
+    private static final int REFRESH_BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+
+    private final Map<String, CompressedBitmap> shoppersByProduct = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private String[] shopperIds = new String[1024];
+    private int nextOrdinal;
+    private volatile boolean ready;
+
+    public ProductShopperIndex(DataSource dataSource,
+                               ShardRouter shardRouter,
+                               ReverseIndexProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(properties.getLoadFetchSize());
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.shardRouter = shardRouter;
+        this.enabled = properties.isEnabled();
+        if (enabled) {
+            Gauge.builder("product.shopper.index.products", shoppersByProduct, Map::size).register(meterRegistry);
+            Gauge.builder("product.shopper.index.shoppers", ordinals, Map::size).register(meterRegistry);
+            Gauge.builder("product.shopper.index.bytes", this, ProductShopperIndex::sizeInBytes).register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True once the initial load has finished; before that the index is incomplete.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Already filled from a snapshot at startup
+        if (!enabled || ready) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        long[] rows = new long[1];
+        List<String> shards = shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+        for (String shard : shards) {
+            shardRouter.inShard(shard, () -> {
+                jdbcTemplate.query(LOAD_SQL, rs -> {
+                    add(rs.getString(1), rs.getString(2));
+                    rows[0]++;
+                });
+                return null;
+            });
+        }
+        ready = true;
+        logger.info("Product-shopper index loaded, rows={}, products={}, shoppers={}, elapsedMs={}",
+                rows[0], shoppersByProduct.size(), ordinals.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Marks the index complete after it was filled through {@link #addAll} from a snapshot
+     * and the changes made since, instead of the full load.
+     */
+    public void markRestored() {
+        ready = true;
+        logger.info("Product-shopper index restored from snapshot, products={}, shoppers={}",
+                shoppersByProduct.size(), ordinals.size());
+    }
+
+    /**
+     * Records that the shopper's shelf holds the given products.
+     */
+    public void addAll(String shopperId, Collection<String> productIds) {
+        if (!enabled) {
+            return;
+        }
+        int ordinal = ordinalOf(shopperId);
+        for (String productId : productIds) {
+            add(productId, ordinal);
+        }
+    }
+
+    /**
+     * Records that the given products left the shopper's shelf.
+     */
+    public void removeAll(String shopperId, Collection<String> productIds) {
+        if (!enabled) {
+            return;
+        }
+        Integer ordinal = ordinals.get(shopperId);
+        if (ordinal == null) {
+            return;
+        }
+        for (String productId : productIds) {
+            shoppersByProduct.computeIfPresent(productId, (id, shoppers) -> {
+                shoppers.remove(ordinal);
+                return shoppers.isEmpty() ? null : shoppers;
+            });
+        }
+    }
+
+    /**
+     * Re-reads the shelves of the given shoppers on one shard (null for the unsharded database),
+     * for shelves another node wrote to.
+     */
+    public void refresh(String shard, List<String> shopperIds) {
+        if (!enabled) {
+            return;
+        }
+        for (int from = 0; from < shopperIds.size(); from += REFRESH_BATCH_SIZE) {
+            List<String> batch = shopperIds.subList(from, Math.min(from + REFRESH_BATCH_SIZE, shopperIds.size()));
+            shardRouter.inShard(shard, () -> {
+                namedJdbcTemplate.query(REFRESH_SQL, new MapSqlParameterSource("shopperIds", batch),
+                        rs -> {
+                            add(rs.getString(1), rs.getString(2));
+                        });
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Shoppers whose shelf holds any of the given products, each listed once.
+     */
+    public List<String> shoppersOf(Collection<String> productIds) {
+        BitSet union = new BitSet();
+        for (String productId : productIds) {
+            // compute holds the bin lock, so the bitmap is not read while a writer changes it
+            shoppersByProduct.computeIfPresent(productId, (id, shoppers) -> {
+                shoppers.orInto(union);
+                return shoppers;
+            });
+        }
+        List<String> result = new ArrayList<>(union.cardinality());
+        String[] ids = shopperIdsSnapshot();
+        union.stream().forEach(ordinal -> result.add(ids[ordinal]));
+        return result;
+    }
+
+    public int products() {
+        return shoppersByProduct.size();
+    }
+
+    public int shoppers() {
+        return ordinals.size();
+    }
+
+    /**
+     * Approximate heap used by the product bitmaps, excluding the id strings themselves.
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (CompressedBitmap shoppers : shoppersByProduct.values()) {
+            bytes += shoppers.sizeInBytes();
+        }
+        return bytes + ordinals.size() * 4L;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void add(String shopperId, String productId) {
+        add(productId, ordinalOf(shopperId));
+    }
+
+    private void add(String productId, int ordinal) {
+        shoppersByProduct.compute(productId, (id, shoppers) -> {
+            CompressedBitmap bitmap = shoppers == null ? new CompressedBitmap() : shoppers;
+            bitmap.add(ordinal);
+            return bitmap;
+        });
+    }
+
+    private int ordinalOf(String shopperId) {
+        return ordinals.computeIfAbsent(shopperId, this::register);
+    }
+
+    private synchronized int register(String shopperId) {
+        if (nextOrdinal == shopperIds.length) {
+            shopperIds = Arrays.copyOf(shopperIds, shopperIds.length * 2);
+        }
+        shopperIds[nextOrdinal] = shopperId;
+        return nextOrdinal++;
+    }
+
+    private synchronized String[] shopperIdsSnapshot() {
+        return shopperIds;
+    }
+}
@@ -0,0 +1,116 @@
+package com.assignment.personalized_app.logging;
+
+import java.util.function.Supplier;
+
+/**
+ * Details of the current request gathered for its access record: set by the services and by
+ * {@link DbTimeSessionListener} on the request thread, read by {@link AccessLogFilter}. The
+ * bulkhead filters also read its database time, opening a context themselves when the access
+ * log is off. Every method is a no-op outside an open context, so callers need not check.
+ * <p>
+ * Work a request hands to another thread is attributed to it through {@link #propagate}; the
+ * counters are then updated from that thread while the request waits, hence the locking.
+ */
+public final class AccessLogContext {
+
+    private static final ThreadLocal<AccessLogContext> CURRENT = new ThreadLocal<>();
+
+    private String shopperId;
+    private int rows;
+    private int statements;
+    private long dbNanos;
+
+    private AccessLogContext() {
+    }
+
+    /**
+     * Shopper the request is about, when it is not in the URL (shelf writes).
+     */
+    public static void shopper(String shopperId) {
+        AccessLogContext context = CURRENT.get();
+        if (context != null) {
+            synchronized (context) {
+                context.shopperId = shopperId;
+            }
+        }
+    }
+
+    /**
+     * Adds to the rows read or written by the request.
+     */
+    public static void rows(int rows) {
+        AccessLogContext context = CURRENT.get();
+        if (context != null) {
+            synchronized (context) {
+                context.rows += rows;
+            }
+        }
+    }
+
+    static void statement(long nanos) {
+        AccessLogContext context = CURRENT.get();
+        if (context != null) {
+            synchronized (context) {
+                context.statements++;
+                context.dbNanos += nanos;
+            }
+        }
+    }
+
+    /**
+     * Wraps work to run on another thread so that its rows and JDBC time count towards the
+     * current request.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> work) {
+        AccessLogContext context = CURRENT.get();
+        if (context == null) {
+            return work;
+        }
+        return () -> {
+            AccessLogContext previous = CURRENT.get();
+            CURRENT.set(context);
+            try {
+                return work.get();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * Context of the current thread, or null if none is open.
+     */
+    public static AccessLogContext current() {
+        return CURRENT.get();
+    }
+
+    public static AccessLogContext open() {
+        AccessLogContext context = new AccessLogContext();
+        CURRENT.set(context);
+        return context;
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    synchronized String shopperId() {
+        return shopperId;
+    }
+
+    synchronized int rows() {
+        return rows;
+    }
+
+    public synchronized int statements() {
+        return statements;
+    }
+
+    public synchronized long dbNanos() {
+        return dbNanos;
+    }
+}
@@ -0,0 +1,182 @@
+package com.assignment.personalized_app.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes one JSON line per sampled request to the "access" logger: time, method, endpoint
+ * (the matched request mapping), status, shopperId, rows, JDBC statements and their time, and
+ * latency. The line also carries the sample rate it was recorded at, so counts can be scaled
+ * back up. 5xx responses and slow requests are always recorded. Asynchronous requests are
+ * recorded when their response completes, with its final status and full latency.
+ * <p>
+ * The record is built on the request thread and handed to the logger, whose asynchronous
+ * appender (see logback.xml) drops it rather than block when its queue is full.
+ * Metrics: {@code access.log.records} and {@code access.log.skipped}.
+ */
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private static final Logger accessLogger = LoggerFactory.getLogger("access");
+    private static final String UNMATCHED = "unmatched";
+
+    private final double defaultSampleRate;
+    private final Map<String, Double> sampleRates;
+    private final long alwaysLogSlowerThanNanos;
+    private final Counter records;
+    private final Counter skipped;
+
+    public AccessLogFilter(double defaultSampleRate,
+                           Map<String, Double> sampleRates,
+                           Duration alwaysLogSlowerThan,
+                           MeterRegistry meterRegistry) {
+        this.defaultSampleRate = defaultSampleRate;
+        this.sampleRates = Map.copyOf(sampleRates);
+        this.alwaysLogSlowerThanNanos = alwaysLogSlowerThan.toNanos();
+        this.records = meterRegistry.counter("access.log.records");
+        this.skipped = meterRegistry.counter("access.log.skipped");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (!accessLogger.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long started = System.nanoTime();
+        AccessLogContext context = AccessLogContext.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            AccessLogContext.close();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordOnComplete(request, response, context, started));
+            } else {
+                record(request, response, context, System.nanoTime() - started);
+            }
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void record(HttpServletRequest request, HttpServletResponse response,
+                        AccessLogContext context, long latencyNanos) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = pattern == null ? UNMATCHED : pattern.toString();
+        double sampleRate = sampleRates.getOrDefault(endpoint, defaultSampleRate);
+        int status = response.getStatus();
+
+        boolean sampled = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+        if (!sampled && status < 500 && latencyNanos < alwaysLogSlowerThanNanos) {
+            skipped.increment();
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"ts\":").append(System.currentTimeMillis());
+        appendField(json, "method", request.getMethod());
+        appendField(json, "endpoint", endpoint);
+        json.append(",\"status\":").append(status);
+        appendField(json, "shopperId", shopperId(request, context));
+        json.append(",\"rows\":").append(context.rows());
+        json.append(",\"dbStatements\":").append(context.statements());
+        json.append(",\"dbMs\":").append(context.dbNanos() / 1_000_000.0);
+        json.append(",\"latencyMs\":").append(latencyNanos / 1_000_000.0);
+        json.append(",\"sampleRate\":").append(sampled ? sampleRate : 1.0);
+        json.append('}');
+        accessLogger.info(json.toString());
+        records.increment();
+    }
+
+    /**
+     * Records an asynchronous request (change feed long-polls) once its response is complete,
+     * rather than when its handler returned.
+     */
+    private final class RecordOnComplete implements AsyncListener {
+
+        private final HttpServletRequest request;
+        private final HttpServletResponse response;
+        private final AccessLogContext context;
+        private final long started;
+
+        RecordOnComplete(HttpServletRequest request, HttpServletResponse response,
+                         AccessLogContext context, long started) {
+            this.request = request;
+            this.response = response;
+            this.context = context;
+            this.started = started;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record(request, response, context, System.nanoTime() - started);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Restarting async drops the listeners registered so far
+            event.getAsyncContext().addListener(this);
+        }
+    }
+
+    private static String shopperId(HttpServletRequest request, AccessLogContext context) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (variables instanceof Map<?, ?> map && map.get("shopperId") instanceof String shopperId) {
+            return shopperId;
+        }
+        return context.shopperId();
+    }
+
+    private static void appendField(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+}
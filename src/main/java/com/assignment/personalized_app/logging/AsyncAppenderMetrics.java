@@ -0,0 +1,41 @@
+package com.assignment.personalized_app.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Publishes the queue depth and drop count of every {@link CountingAsyncAppender} attached to
+ * the root or "access" logger: {@code logging.async.queued} and {@code logging.async.dropped},
+ * tagged by appender name.
+ */
+@Component
+public class AsyncAppenderMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+        for (String name : List.of(org.slf4j.Logger.ROOT_LOGGER_NAME, "access")) {
+            Logger logger = context.getLogger(name);
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof CountingAsyncAppender appender) {
+                    Gauge.builder("logging.async.queued", appender, CountingAsyncAppender::getNumberOfElementsInQueue)
+                            .tag("appender", appender.getName()).register(registry);
+                    Gauge.builder("logging.async.dropped", appender, CountingAsyncAppender::getDroppedCount)
+                            .tag("appender", appender.getName()).register(registry);
+                }
+            }
+        }
+    }
+}
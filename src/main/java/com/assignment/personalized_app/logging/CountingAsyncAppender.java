@@ -0,0 +1,30 @@
+package com.assignment.personalized_app.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logback's {@link AsyncAppender} that also counts the events it drops. Configure it with
+ * {@code neverBlock=true}: a full queue then drops events instead of blocking the logging
+ * thread, and above the discarding threshold TRACE, DEBUG and INFO events are dropped to leave
+ * room for warnings and errors.
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private final LongAdder dropped = new LongAdder();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (getRemainingCapacity() == 0
+                || (getRemainingCapacity() < getDiscardingThreshold() && isDiscardable(event))) {
+            dropped.increment();
+        }
+        super.append(event);
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,34 @@
+package com.assignment.personalized_app.logging;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Adds the time Hibernate spends executing JDBC statements and batches to the current request's
+ * {@link AccessLogContext}. Registered for every session through
+ * {@code hibernate.session.events.auto}; Hibernate creates one instance per session, and a
+ * session is used by one thread at a time.
+ */
+public class DbTimeSessionListener implements SessionEventListener {
+
+    private long started;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        AccessLogContext.statement(System.nanoTime() - started);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        AccessLogContext.statement(System.nanoTime() - started);
+    }
+}
@@ -0,0 +1,226 @@
+package com.assignment.personalized_app.materialization;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serialized response bodies per shopper and view, bounded by total size.
+ * <p>
+ * Reads are lock-free. A rebuild is identified by the token handed out when the shopper was
+ * invalidated; {@link #publish} only stores pages whose token is still current, and both run
+ * atomically per shopper, so a rebuild that read the shelf before a newer write can never
+ * overwrite that write's invalidation.
+ * <p>
+ * When the size limit is exceeded, shoppers are evicted by a clock sweep: a cursor walks the
+ * map and evicts the least recently read shopper among the next few entries.
+ * Metrics: {@code shelf.materialized.hits}, {@code .misses}, {@code .evictions},
+ * {@code .bytes} and {@code .shoppers}.
+ */
+public class MaterializedPageStore {
+
+    // Rough per-page overhead (array header, map entry, key) added to the byte count
+    private static final int PAGE_OVERHEAD_BYTES = 96;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final Map<String, MaterializedShelf> shelves = new ConcurrentHashMap<>();
+    private final Map<String, Object> pendingRebuilds = new ConcurrentHashMap<>();
+    private final AtomicLong bytes = new AtomicLong();
+    private final long maxBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private Iterator<Map.Entry<String, MaterializedShelf>> evictionCursor;
+
+    public MaterializedPageStore(long maxBytes, MeterRegistry meterRegistry) {
+        this.maxBytes = maxBytes;
+        this.hits = meterRegistry.counter("shelf.materialized.hits");
+        this.misses = meterRegistry.counter("shelf.materialized.misses");
+        this.evictions = meterRegistry.counter("shelf.materialized.evictions");
+        Gauge.builder("shelf.materialized.bytes", bytes, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("shelf.materialized.shoppers", shelves, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Serialized page for the view, or null if it is not materialized.
+     */
+    public byte[] get(String shopperId, PageView view) {
+        MaterializedShelf shelf = shelves.get(shopperId);
+        byte[] page = shelf == null ? null : shelf.pages.get(view);
+        if (page == null) {
+            misses.increment();
+            return null;
+        }
+        shelf.lastRead = System.nanoTime();
+        hits.increment();
+        return page;
+    }
+
+    /**
+     * Drops the shopper's pages and starts a new rebuild generation.
+     *
+     * @return token the rebuild must present to {@link #publish}
+     */
+    public Object invalidate(String shopperId) {
+        Object token = new Object();
+        pendingRebuilds.compute(shopperId, (id, previous) -> {
+            remove(id);
+            return token;
+        });
+        return token;
+    }
+
+    /**
+     * Starts a rebuild generation for a shopper that has neither pages nor a pending rebuild,
+     * leaving everything else untouched.
+     *
+     * @return token the rebuild must present to {@link #publish}, or null if the shopper is
+     * already materialized or being rebuilt
+     */
+    public Object claim(String shopperId) {
+        Object token = new Object();
+        boolean[] claimed = new boolean[1];
+        pendingRebuilds.compute(shopperId, (id, pending) -> {
+            if (pending != null || shelves.containsKey(id)) {
+                return pending;
+            }
+            claimed[0] = true;
+            return token;
+        });
+        return claimed[0] ? token : null;
+    }
+
+    /**
+     * Drops every shopper's pages and cancels all pending rebuilds.
+     */
+    public void invalidateAll() {
+        Set<String> shopperIds = new HashSet<>(shelves.keySet());
+        shopperIds.addAll(pendingRebuilds.keySet());
+        for (String shopperId : shopperIds) {
+            pendingRebuilds.compute(shopperId, (id, previous) -> {
+                remove(id);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * True while no newer invalidation has superseded the given rebuild.
+     */
+    public boolean isCurrent(String shopperId, Object token) {
+        return pendingRebuilds.get(shopperId) == token;
+    }
+
+    /**
+     * Gives up a rebuild without storing anything.
+     */
+    public void abandon(String shopperId, Object token) {
+        pendingRebuilds.remove(shopperId, token);
+    }
+
+    /**
+     * Stores the rebuilt pages if the rebuild is still current and fits in the size limit.
+     *
+     * @return true if the pages were stored
+     */
+    public boolean publish(String shopperId, Object token, Map<PageView, byte[]> pages) {
+        MaterializedShelf shelf = new MaterializedShelf(Map.copyOf(pages));
+        boolean[] stored = new boolean[1];
+        pendingRebuilds.computeIfPresent(shopperId, (id, current) -> {
+            if (current != token) {
+                return current;
+            }
+            if (shelf.size <= maxBytes) {
+                put(id, shelf);
+                stored[0] = true;
+            }
+            return null;
+        });
+        if (stored[0]) {
+            evictOverLimit();
+        }
+        return stored[0];
+    }
+
+    public long bytes() {
+        return bytes.get();
+    }
+
+    public int shoppers() {
+        return shelves.size();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void put(String shopperId, MaterializedShelf shelf) {
+        MaterializedShelf previous = shelves.put(shopperId, shelf);
+        bytes.addAndGet(shelf.size - (previous == null ? 0 : previous.size));
+    }
+
+    private void remove(String shopperId) {
+        MaterializedShelf previous = shelves.remove(shopperId);
+        if (previous != null) {
+            bytes.addAndGet(-previous.size);
+        }
+    }
+
+    private synchronized void evictOverLimit() {
+        while (bytes.get() > maxBytes && !shelves.isEmpty()) {
+            String victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (int i = 0; i < EVICTION_SAMPLE; i++) {
+                if (evictionCursor == null || !evictionCursor.hasNext()) {
+                    evictionCursor = shelves.entrySet().iterator();
+                    if (!evictionCursor.hasNext()) {
+                        break;
+                    }
+                }
+                Map.Entry<String, MaterializedShelf> candidate = evictionCursor.next();
+                if (victim == null || candidate.getValue().lastRead - oldest < 0) {
+                    victim = candidate.getKey();
+                    oldest = candidate.getValue().lastRead;
+                }
+            }
+            if (victim == null) {
+                return;
+            }
+            // Evict through the rebuild lock so an in-progress publish for the shopper is not torn
+            String evicted = victim;
+            pendingRebuilds.compute(evicted, (id, pending) -> {
+                remove(id);
+                return pending;
+            });
+            evictions.increment();
+        }
+    }
+
+    /**
+     * A materialized view: one category (null for the unfiltered shelf) at one page size.
+     * Only the first page of a view is materialized.
+     */
+    public record PageView(String category, int pageSize) {
+    }
+
+    private static final class MaterializedShelf {
+
+        private final Map<PageView, byte[]> pages;
+        private final long size;
+        private volatile long lastRead = System.nanoTime();
+
+        MaterializedShelf(Map<PageView, byte[]> pages) {
+            this.pages = pages;
+            this.size = pages.values().stream().mapToLong(page -> page.length + PAGE_OVERHEAD_BYTES).sum();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.assignment.personalized_app.outbox;
+
+import com.assignment.personalized_app.config.ChangeFeedProperties;
+import com.assignment.personalized_app.dto.ChangeBatchDTO;
+import com.assignment.personalized_app.dto.ChangeRecordDTO;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads change_outbox in sequence order for consumers tailing the change feed.
+ * <p>
+ * Each database has its own sequence: the catalog database (product changes, and shelf changes
+ * when sharding is disabled) and every shard. A consumer tails each of them from the last seq it
+ * processed. Sequence numbers are taken at insert but become visible at commit, so a batch stops
+ * before a gap until the gap fills or is older than {@code gap-timeout}, when it is taken to be a
+ * rolled-back insert; this keeps a later commit of a lower seq from being skipped.
+ * <p>
+ * A request finding nothing new waits, without holding a servlet thread, until records are
+ * committed or {@code max-wait} passes. Commits on this node wake waiters at once; commits on
+ * other nodes are noticed by a check every {@code poll-interval} that only reads the outbox's
+ * highest seq while nothing is new.
+ */
+@Component
+public class ChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    private static final String SELECT_SQL = """
+            SELECT seq, change_type, shopper_id, product_id, payload, created_at
+            FROM change_outbox WHERE seq > ? ORDER BY seq LIMIT ?
+            """;
+    private static final String MAX_SEQ_SQL = "SELECT MAX(seq) FROM change_outbox";
+    private static final String PRUNE_SQL = "DELETE FROM change_outbox WHERE created_at < ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+    private final ChangeFeedProperties properties;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+
+    public ChangeFeed(DataSource dataSource,
+                      ShardRouter shardRouter,
+                      TaskScheduler taskScheduler,
+                      ChangeFeedProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this::checkWaiters, properties.getPollInterval());
+        taskScheduler.scheduleWithFixedDelay(this::pruneQuietly, Instant.now().plus(Duration.ofMinutes(1)),
+                Duration.ofHours(1));
+    }
+
+    /* ============================================================
+       READ
+       ============================================================ */
+
+    /**
+     * Records after {@code after}, up to {@code limit} and up to the first unsettled gap.
+     *
+     * @param shard shard to read, or null for the catalog database
+     * @throws IllegalArgumentException for an unknown shard
+     */
+    public ChangeBatchDTO read(String shard, long after, int limit) {
+        checkShard(shard);
+        int size = Math.max(1, Math.min(limit, properties.getMaxBatchSize()));
+        List<ChangeRecordDTO> changes = shardRouter.inShard(shard, () -> {
+            List<ChangeRecordDTO> rows = jdbcTemplate.query(SELECT_SQL, (rs, i) -> {
+                ChangeOutbox.Payload payload = ChangeOutbox.readPayload(rs.getString(5));
+                Timestamp createdAt = rs.getTimestamp(6);
+                return ChangeRecordDTO.builder()
+                        .seq(rs.getLong(1))
+                        .type(rs.getString(2))
+                        .shopperId(rs.getString(3))
+                        .productId(rs.getString(4))
+                        .scores(payload.scores())
+                        .category(payload.category())
+                        .brand(payload.brand())
+                        .createdAt(createdAt == null ? null : createdAt.toInstant())
+                        .build();
+            }, after, size);
+            return upToUnsettledGap(rows, after);
+        });
+        long next = changes.isEmpty() ? after : changes.get(changes.size() - 1).getSeq();
+        return ChangeBatchDTO.builder().shard(shard).changes(changes).nextSeq(next).build();
+    }
+
+    /**
+     * Like {@link #read}, but when nothing is available yet, completes once records arrive or
+     * {@code wait} (capped at {@code max-wait}) passes, with an empty batch in the latter case.
+     */
+    public CompletableFuture<ChangeBatchDTO> poll(String shard, long after, int limit, Duration wait) {
+        ChangeBatchDTO batch = read(shard, after, limit);
+        Duration capped = wait.compareTo(properties.getMaxWait()) > 0 ? properties.getMaxWait() : wait;
+        if (!batch.getChanges().isEmpty() || capped.isZero() || capped.isNegative()) {
+            return CompletableFuture.completedFuture(batch);
+        }
+        Waiter waiter = new Waiter(shard, after, limit, System.nanoTime() + capped.toNanos());
+        waiters.add(waiter);
+        return waiter.future;
+    }
+
+    /**
+     * Called after a transaction that appended records commits on this node.
+     */
+    void changesCommitted() {
+        if (!waiters.isEmpty() && checkScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::checkWaiters, Instant.now());
+        }
+    }
+
+    /* ============================================================
+       PRUNE
+       ============================================================ */
+
+    /**
+     * Deletes records older than the retention period from every database, in batches.
+     *
+     * @return records deleted
+     */
+    public long prune() {
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(properties.getRetention()));
+        long deleted = 0;
+        for (String shard : databases()) {
+            deleted += shardRouter.inShard(shard, () -> {
+                long total = 0;
+                int batch;
+                do {
+                    batch = jdbcTemplate.update(PRUNE_SQL, cutoff, properties.getPruneBatchSize());
+                    total += batch;
+                } while (batch == properties.getPruneBatchSize());
+                return total;
+            });
+        }
+        if (deleted > 0) {
+            logger.info("Pruned {} change records older than {}", deleted, cutoff.toInstant());
+        }
+        return deleted;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void checkWaiters() {
+        checkScheduled.set(false);
+        if (waiters.isEmpty()) {
+            return;
+        }
+        Map<String, Long> maxSeqs = new HashMap<>();
+        long now = System.nanoTime();
+        for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            try {
+                if (waiter.future.isDone()) {
+                    it.remove();
+                    continue;
+                }
+                long maxSeq = maxSeqs.computeIfAbsent(String.valueOf(waiter.shard), key -> maxSeq(waiter.shard));
+                if (maxSeq > waiter.after) {
+                    ChangeBatchDTO batch = read(waiter.shard, waiter.after, waiter.limit);
+                    if (!batch.getChanges().isEmpty()) {
+                        it.remove();
+                        waiter.future.complete(batch);
+                        continue;
+                    }
+                }
+                if (now - waiter.deadlineNanos >= 0) {
+                    it.remove();
+                    waiter.future.complete(ChangeBatchDTO.builder()
+                            .shard(waiter.shard).changes(List.of()).nextSeq(waiter.after).build());
+                }
+            } catch (RuntimeException e) {
+                it.remove();
+                waiter.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private long maxSeq(String shard) {
+        Long max = shardRouter.inShard(shard, () -> jdbcTemplate.queryForObject(MAX_SEQ_SQL, Long.class));
+        return max == null ? 0 : max;
+    }
+
+    /**
+     * The rows before the first gap in the sequence that may still be an open transaction.
+     */
+    private List<ChangeRecordDTO> upToUnsettledGap(List<ChangeRecordDTO> rows, long after) {
+        long expected = after + 1;
+        for (int i = 0; i < rows.size(); i++) {
+            ChangeRecordDTO row = rows.get(i);
+            if (row.getSeq() != expected && !settled(row)) {
+                return rows.subList(0, i);
+            }
+            expected = row.getSeq() + 1;
+        }
+        return rows;
+    }
+
+    /**
+     * Whether a row was inserted long enough ago that any lower seq still missing rolled back.
+     */
+    private boolean settled(ChangeRecordDTO row) {
+        if (row.getCreatedAt() == null) {
+            return true;
+        }
+        // Database time, so that the comparison does not depend on this node's clock
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class);
+        return row.getCreatedAt().plus(properties.getGapTimeout()).isBefore(now.toInstant());
+    }
+
+    private void checkShard(String shard) {
+        if (shard != null && !shardRouter.shardNames().contains(shard)) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+    }
+
+    private List<String> databases() {
+        List<String> databases = new ArrayList<>();
+        databases.add(null);
+        databases.addAll(shardRouter.shardNames());
+        return databases;
+    }
+
+    private void pruneQuietly() {
+        try {
+            prune();
+        } catch (RuntimeException e) {
+            logger.warn("Pruning change records failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static final class Waiter {
+
+        private final String shard;
+        private final long after;
+        private final int limit;
+        private final long deadlineNanos;
+        private final CompletableFuture<ChangeBatchDTO> future = new CompletableFuture<>();
+
+        Waiter(String shard, long after, int limit, long deadlineNanos) {
+            this.shard = shard;
+            this.after = after;
+            this.limit = limit;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.assignment.personalized_app.outbox;
+
+import com.assignment.personalized_app.config.ChangeFeedProperties;
+import com.assignment.personalized_app.entity.ChangeRecord;
+import com.assignment.personalized_app.entity.ChangeType;
+import com.assignment.personalized_app.repository.ChangeRecordRepository;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Appends change records to change_outbox inside the caller's transaction, so a record exists
+ * exactly when the change it describes committed. Nothing is written when the change feed is
+ * disabled.
+ */
+@Component
+public class ChangeOutbox {
+
+    private static final ObjectMapper PAYLOAD_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO change_outbox (change_type, shopper_id, product_id, payload) VALUES (?, ?, ?, ?)";
+
+    private final ChangeRecordRepository changeRecordRepository;
+    private final ChangeFeed changeFeed;
+    private final ChangeFeedProperties properties;
+
+    public ChangeOutbox(ChangeRecordRepository changeRecordRepository,
+                        ChangeFeed changeFeed,
+                        ChangeFeedProperties properties) {
+        this.changeRecordRepository = changeRecordRepository;
+        this.changeFeed = changeFeed;
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Records new scores of a shopper's shelf items; runs in the caller's (shard-bound) transaction.
+     */
+    public void recordShelf(String shopperId, ChangeType type, Map<String, BigDecimal> scores) {
+        if (!properties.isEnabled() || scores.isEmpty()) {
+            return;
+        }
+        append(ChangeRecord.builder()
+                .changeType(type)
+                .shopperId(shopperId)
+                .payload(toJson(new Payload(scores, null, null)))
+                .build());
+    }
+
+    /**
+     * Records a product's category and brand; runs in the caller's transaction.
+     */
+    public void recordProduct(String productId, ChangeType type, String category, String brand) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        append(ChangeRecord.builder()
+                .changeType(type)
+                .productId(productId)
+                .payload(toJson(new Payload(null, category, brand)))
+                .build());
+    }
+
+    /**
+     * Records product changes through a JDBC template, in the JDBC transaction it takes part in.
+     */
+    public void recordProducts(JdbcTemplate jdbcTemplate, List<ProductChange> changes) {
+        if (!properties.isEnabled() || changes.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, changes.stream()
+                .map(change -> new Object[]{change.type().name(), null, change.productId(),
+                        toJson(new Payload(null, change.category(), change.brand()))})
+                .toList());
+        wakeFeedAfterCommit();
+    }
+
+    /**
+     * Decodes the payload column of a change record.
+     */
+    static Payload readPayload(String json) {
+        try {
+            return PAYLOAD_MAPPER.readValue(json, Payload.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void append(ChangeRecord record) {
+        changeRecordRepository.save(record);
+        wakeFeedAfterCommit();
+    }
+
+    private void wakeFeedAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changeFeed.changesCommitted();
+                }
+            });
+        } else {
+            changeFeed.changesCommitted();
+        }
+    }
+
+    private static String toJson(Payload payload) {
+        try {
+            return PAYLOAD_MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A product write to record through {@link #recordProducts}.
+     */
+    public record ProductChange(String productId, ChangeType type, String category, String brand) {
+    }
+
+    /**
+     * Stored form of a record's data; shelf records carry scores, product records the rest.
+     */
+    record Payload(Map<String, BigDecimal> scores, String category, String brand) {
+    }
+}
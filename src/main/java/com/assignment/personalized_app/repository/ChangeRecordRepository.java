@@ -0,0 +1,7 @@
+package com.assignment.personalized_app.repository;
+
+import com.assignment.personalized_app.entity.ChangeRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ChangeRecordRepository extends JpaRepository<ChangeRecord, Long> {
+}
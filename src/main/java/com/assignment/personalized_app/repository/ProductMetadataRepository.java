@@ -1,15 +1,27 @@
 package com.assignment.personalized_app.repository;
 
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
 import com.assignment.personalized_app.entity.ProductMetadata;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductMetadataRepository extends JpaRepository<ProductMetadata, String> {
+    // Served from the query cache when personalized.product-metadata-cache.enabled=true
     @Query("SELECT pm.productId FROM ProductMetadata pm WHERE pm.productId IN :ids")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ProductMetadataCacheRegions.EXISTING_IDS_REGION)
+    })
     Optional<List<String>> findExistingProductIds(@Param("ids") List<String> ids);
 
+    @Query("SELECT pm.productId, pm.category, pm.brand FROM ProductMetadata pm WHERE pm.productId IN :ids")
+    List<Object[]> findCategoryAndBrand(@Param("ids") List<String> ids);
+
 }
@@ -0,0 +1,32 @@
+package com.assignment.personalized_app.repository;
+
+import com.assignment.personalized_app.entity.ShelfRefresh;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+public interface ShelfRefreshRepository extends JpaRepository<ShelfRefresh, String> {
+
+    /**
+     * Sets the shopper's refresh time to now, creating the row; runs in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shelf_refresh (shopper_id, refreshed_at) VALUES (:shopperId, CURRENT_TIMESTAMP(3))
+        ON DUPLICATE KEY UPDATE refreshed_at = CURRENT_TIMESTAMP(3)
+        """, nativeQuery = true)
+    void touch(@Param("shopperId") String shopperId);
+
+    /**
+     * The shopper's refresh time (empty if never recorded), locking its row until the caller's
+     * transaction ends, so that a concurrent save or update waits rather than refreshing a shelf
+     * that is being deleted.
+     */
+    @Query(value = "SELECT refreshed_at FROM shelf_refresh WHERE shopper_id = :shopperId FOR UPDATE",
+            nativeQuery = true)
+    List<Timestamp> lockRefreshedAt(@Param("shopperId") String shopperId);
+}
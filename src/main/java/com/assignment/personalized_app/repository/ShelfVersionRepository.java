@@ -0,0 +1,20 @@
+package com.assignment.personalized_app.repository;
+
+import com.assignment.personalized_app.entity.ShelfVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ShelfVersionRepository extends JpaRepository<ShelfVersion, String> {
+
+    /**
+     * Increments the shopper's version, creating it at 1; runs in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shelf_version (shopper_id, version, writer) VALUES (:shopperId, 1, :writer)
+        ON DUPLICATE KEY UPDATE version = version + 1, writer = VALUES(writer)
+        """, nativeQuery = true)
+    void bump(@Param("shopperId") String shopperId, @Param("writer") String writer);
+}
@@ -0,0 +1,39 @@
+package com.assignment.personalized_app.repository;
+
+import com.assignment.personalized_app.entity.ShopperFacet;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ShopperFacetRepository extends JpaRepository<ShopperFacet, Long> {
+
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT f FROM ShopperFacet f
+        WHERE f.shopperId = :shopperId AND f.productCount > 0
+        ORDER BY f.productCount DESC, f.facetValue
+        """)
+    List<ShopperFacet> findByShopperId(@Param("shopperId") String shopperId);
+
+    /**
+     * Adds delta to the counter, creating it if missing; runs in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shopper_facet (shopper_id, facet_type, facet_value, product_count)
+        VALUES (:shopperId, :facetType, :facetValue, :delta)
+        ON DUPLICATE KEY UPDATE product_count = product_count + :delta
+        """, nativeQuery = true)
+    void adjust(@Param("shopperId") String shopperId,
+                @Param("facetType") String facetType,
+                @Param("facetValue") String facetValue,
+                @Param("delta") int delta);
+
+    @Modifying
+    @Query("DELETE FROM ShopperFacet f WHERE f.shopperId = :shopperId AND f.productCount <= 0")
+    void deleteEmpty(@Param("shopperId") String shopperId);
+}
@@ -7,20 +7,34 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ShopperProductRepository extends JpaRepository<ShopperProduct, Long> {
 
-    @Query("""
+    /**
+     * Product metadata is fetched in the same query, and both the page and the count run
+     * in one read-only transaction so that they can be served by a replica.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = """
         SELECT sp FROM ShopperProduct sp
-        JOIN sp.product p
+        JOIN FETCH sp.product p
         WHERE sp.shopperId = :shopperId
           AND (:category IS NULL OR p.category = :category)
           AND (:brand IS NULL OR p.brand = :brand)
         ORDER BY sp.relevancyScore DESC
+        """,
+            countQuery = """
+        SELECT COUNT(sp) FROM ShopperProduct sp
+        JOIN sp.product p
+        WHERE sp.shopperId = :shopperId
+          AND (:category IS NULL OR p.category = :category)
+          AND (:brand IS NULL OR p.brand = :brand)
         """)
     Page<ShopperProduct> findByShopperWithFilters(
             @Param("shopperId") String shopperId,
@@ -29,11 +43,127 @@ public interface ShopperProductRepository extends JpaRepository<ShopperProduct,
             Pageable pageable
     );
 
+    /**
+     * {@link #findByShopperWithFilters} through idx_shopper_key_score. shopperId is matched as
+     * well, because shopper keys are not unique (see CompactColumns).
+     */
+    @Transactional(readOnly = true)
+    @Query(value = """
+        SELECT sp FROM ShopperProduct sp
+        JOIN FETCH sp.product p
+        WHERE sp.shopperKey = :shopperKey AND sp.shopperId = :shopperId
+          AND (:category IS NULL OR p.category = :category)
+          AND (:brand IS NULL OR p.brand = :brand)
+        ORDER BY sp.scoreScaled DESC
+        """,
+            countQuery = """
+        SELECT COUNT(sp) FROM ShopperProduct sp
+        JOIN sp.product p
+        WHERE sp.shopperKey = :shopperKey AND sp.shopperId = :shopperId
+          AND (:category IS NULL OR p.category = :category)
+          AND (:brand IS NULL OR p.brand = :brand)
+        """)
+    Page<ShopperProduct> findByShopperKeyWithFilters(
+            @Param("shopperKey") Long shopperKey,
+            @Param("shopperId") String shopperId,
+            @Param("category") String category,
+            @Param("brand") String brand,
+            Pageable pageable
+    );
+
+    /**
+     * Ranked (productId, relevancyScore) rows without touching product_metadata,
+     * for shards that do not hold the catalog.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = """
+        SELECT sp.product.productId, sp.relevancyScore FROM ShopperProduct sp
+        WHERE sp.shopperId = :shopperId
+        ORDER BY sp.relevancyScore DESC
+        """,
+            countQuery = "SELECT COUNT(sp) FROM ShopperProduct sp WHERE sp.shopperId = :shopperId")
+    Page<Object[]> findRankedProductIds(@Param("shopperId") String shopperId, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT sp.product.productId, sp.relevancyScore FROM ShopperProduct sp
+        WHERE sp.shopperId = :shopperId
+        ORDER BY sp.relevancyScore DESC
+        """)
+    List<Object[]> findAllRankedProductIds(@Param("shopperId") String shopperId);
+
+    /**
+     * {@link #findRankedProductIds} through idx_shopper_key_score. Rows are matched on shopperId
+     * as well, because shopper keys are not unique (see CompactColumns); only the count is read
+     * from the index alone, so a key collision could inflate the total but never return another
+     * shopper's items.
+     */
+    @Transactional(readOnly = true)
+    @Query(value = """
+        SELECT sp.product.productId, sp.relevancyScore FROM ShopperProduct sp
+        WHERE sp.shopperKey = :shopperKey AND sp.shopperId = :shopperId
+        ORDER BY sp.scoreScaled DESC
+        """,
+            countQuery = """
+        SELECT COUNT(sp) FROM ShopperProduct sp
+        WHERE sp.shopperKey = :shopperKey
+        """)
+    Page<Object[]> findRankedProductIdsByKey(@Param("shopperKey") Long shopperKey,
+                                             @Param("shopperId") String shopperId,
+                                             Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT sp.product.productId, sp.relevancyScore FROM ShopperProduct sp
+        WHERE sp.shopperKey = :shopperKey AND sp.shopperId = :shopperId
+        ORDER BY sp.scoreScaled DESC
+        """)
+    List<Object[]> findAllRankedProductIdsByKey(@Param("shopperKey") Long shopperKey,
+                                                @Param("shopperId") String shopperId);
+
+    /**
+     * Complete ranked shelves of several shoppers in one query, grouped by shopper.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT sp FROM ShopperProduct sp
+        JOIN FETCH sp.product p
+        WHERE sp.shopperId IN :shopperIds
+        ORDER BY sp.shopperId, sp.relevancyScore DESC
+        """)
+    List<ShopperProduct> findShelvesWithProducts(@Param("shopperIds") List<String> shopperIds);
+
+    /**
+     * Ranked (shopperId, productId, relevancyScore) rows of several shoppers, grouped by shopper,
+     * for shards that do not hold the catalog.
+     */
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT sp.shopperId, sp.product.productId, sp.relevancyScore FROM ShopperProduct sp
+        WHERE sp.shopperId IN :shopperIds
+        ORDER BY sp.shopperId, sp.relevancyScore DESC
+        """)
+    List<Object[]> findAllRankedProductIdsOf(@Param("shopperIds") List<String> shopperIds);
+
+    @Transactional(readOnly = true)
+    @Query("""
+        SELECT p.category FROM ShopperProduct sp
+        JOIN sp.product p
+        WHERE sp.shopperId = :shopperId AND p.category IS NOT NULL
+        GROUP BY p.category
+        ORDER BY COUNT(sp) DESC
+        """)
+    List<String> findTopCategories(@Param("shopperId") String shopperId, Pageable pageable);
+
     @Modifying
-    @Query("UPDATE ShopperProduct sp SET sp.relevancyScore = :score WHERE sp.shopperId = :shopperId AND sp.product.productId = :productId")
+    @Query("""
+        UPDATE ShopperProduct sp SET sp.relevancyScore = :score, sp.scoreScaled = :scoreScaled
+        WHERE sp.shopperId = :shopperId AND sp.product.productId = :productId
+        """)
     void updateRelevancyScore(@Param("shopperId") String shopperId,
                               @Param("productId") String productId,
-                              @Param("score") BigDecimal score);
+                              @Param("score") BigDecimal score,
+                              @Param("scoreScaled") Long scoreScaled);
 
     @Query("""
             SELECT sp.product.productId, sp.relevancyScore 
@@ -44,4 +174,22 @@ public interface ShopperProductRepository extends JpaRepository<ShopperProduct,
                                                     @Param("productIds") List<String> productIds);
 
     List<ShopperProduct> findByShopperId(String shopperId);
+
+    /**
+     * (productId, relevancyScore, updatedAt) rows of the shopper's shelf, locked until the
+     * caller's transaction ends.
+     */
+    @Query(value = """
+        SELECT product_id, relevancy_score, updated_at FROM shopper_product
+        WHERE shopper_id = :shopperId FOR UPDATE
+        """, nativeQuery = true)
+    List<Object[]> lockShelf(@Param("shopperId") String shopperId);
+
+    /**
+     * Deletes the given items of the shopper's shelf; runs in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM shopper_product WHERE shopper_id = :shopperId AND product_id IN (:productIds)",
+            nativeQuery = true)
+    int deleteItems(@Param("shopperId") String shopperId, @Param("productIds") Collection<String> productIds);
 }
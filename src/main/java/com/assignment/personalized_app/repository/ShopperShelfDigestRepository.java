@@ -0,0 +1,25 @@
+package com.assignment.personalized_app.repository;
+
+import com.assignment.personalized_app.entity.ShopperShelfDigest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ShopperShelfDigestRepository extends JpaRepository<ShopperShelfDigest, String> {
+
+    /**
+     * Inserts or replaces the shopper's digest; runs in the caller's transaction.
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO shopper_shelf_digest (shopper_id, shelf_hash, chunk_hashes, item_count)
+        VALUES (:shopperId, :shelfHash, :chunkHashes, :itemCount)
+        ON DUPLICATE KEY UPDATE shelf_hash = VALUES(shelf_hash), chunk_hashes = VALUES(chunk_hashes),
+                                item_count = VALUES(item_count)
+        """, nativeQuery = true)
+    void upsert(@Param("shopperId") String shopperId,
+                @Param("shelfHash") byte[] shelfHash,
+                @Param("chunkHashes") byte[] chunkHashes,
+                @Param("itemCount") int itemCount);
+}
@@ -0,0 +1,8 @@
+package com.assignment.personalized_app.service;
+
+import org.springframework.http.ResponseEntity;
+
+public interface CatalogImportService {
+    ResponseEntity<?> startImport(String file, boolean resume);
+    ResponseEntity<?> getStatus();
+}
@@ -0,0 +1,514 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
+import com.assignment.personalized_app.catalog.CsvCatalogReader;
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.CatalogImportProperties;
+import com.assignment.personalized_app.dto.CatalogImportStatusDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.entity.ChangeType;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Imports product_metadata from {@code productId,category,brand} CSV files on the server.
+ * <p>
+ * An import runs in the background on two threads: the parser reads the file through
+ * {@link CsvCatalogReader} and hands batches of rows to the writer through a small bounded
+ * queue, and the writer upserts each batch in one transaction on the catalog database. The same
+ * transaction records the file offset just past the batch in catalog_import_checkpoint, so a
+ * stopped or failed import resumes after the last committed batch, as long as the file's size
+ * and modification time are unchanged.
+ * <p>
+ * Each batch first reads the stored rows for its ids: unchanged rows are skipped, and a changed
+ * category or brand publishes a {@link ProductMetadataChangedEvent} after commit, exactly as a
+ * single metadata update does; upserts are recorded in the change outbox in the batch's
+ * transaction. Upserted products are evicted from the second-level cache, which does not see
+ * JDBC writes. One import runs at a time; its progress is kept until the next one starts.
+ */
+@Service
+public class CatalogImportServiceImpl implements CatalogImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportServiceImpl.class);
+
+    private static final String CREATE_CHECKPOINT_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS catalog_import_checkpoint (
+                source VARCHAR(512) NOT NULL PRIMARY KEY,
+                file_size BIGINT NOT NULL,
+                last_modified BIGINT NOT NULL,
+                committed_offset BIGINT NOT NULL,
+                imported_rows BIGINT NOT NULL,
+                completed BOOLEAN NOT NULL DEFAULT FALSE
+            )
+            """;
+    private static final String SELECT_CHECKPOINT_SQL = """
+            SELECT file_size, last_modified, committed_offset, imported_rows, completed
+            FROM catalog_import_checkpoint WHERE source = ?
+            """;
+    private static final String UPSERT_CHECKPOINT_SQL = """
+            INSERT INTO catalog_import_checkpoint
+                (source, file_size, last_modified, committed_offset, imported_rows, completed)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE file_size = VALUES(file_size), last_modified = VALUES(last_modified),
+                committed_offset = VALUES(committed_offset), imported_rows = VALUES(imported_rows),
+                completed = VALUES(completed)
+            """;
+    private static final String SELECT_EXISTING_SQL =
+            "SELECT product_id, category, brand FROM product_metadata WHERE product_id IN (:ids)";
+    private static final String UPSERT_PRODUCT_SQL = """
+            INSERT INTO product_metadata (product_id, category, brand) VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE category = VALUES(category), brand = VALUES(brand)
+            """;
+
+    // Identity marker telling the writer that the file has been fully parsed
+    private static final Batch END_OF_FILE = new Batch(List.of(), -1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalog productCatalog;
+    private final ProductAttributeIndex productAttributeIndex;
+    private final ProductMetadataCacheRegions productMetadataCacheRegions;
+    private final ChangeOutbox changeOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolTaskExecutor catalogImportExecutor;
+    private final CatalogImportProperties properties;
+
+    private final AtomicReference<ImportJob> currentJob = new AtomicReference<>();
+    private volatile boolean checkpointTableReady;
+
+    public CatalogImportServiceImpl(DataSource dataSource,
+                                    @Qualifier("catalogDataSource") Optional<DataSource> catalogDataSource,
+                                    ProductCatalog productCatalog,
+                                    ProductAttributeIndex productAttributeIndex,
+                                    ProductMetadataCacheRegions productMetadataCacheRegions,
+                                    ChangeOutbox changeOutbox,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Qualifier("catalogImportExecutor") ThreadPoolTaskExecutor catalogImportExecutor,
+                                    CatalogImportProperties properties) {
+        DataSource catalog = catalogDataSource.orElse(dataSource);
+        this.jdbcTemplate = new JdbcTemplate(catalog);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        // JDBC-only transactions on the catalog database, never bound to a shard
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(catalog));
+        this.productCatalog = productCatalog;
+        this.productAttributeIndex = productAttributeIndex;
+        this.productMetadataCacheRegions = productMetadataCacheRegions;
+        this.changeOutbox = changeOutbox;
+        this.eventPublisher = eventPublisher;
+        this.catalogImportExecutor = catalogImportExecutor;
+        this.properties = properties;
+    }
+
+    /**
+     * Starts importing a file from the import directory in the background.
+     *
+     * @param file   file name, relative to personalized.catalog-import.directory
+     * @param resume continue after the last committed batch of an earlier import of the same file
+     * @return 202 with the initial status; 200 if the file was already fully imported;
+     * 400 for a bad file name; 409 if an import is already running
+     */
+    @Override
+    public ResponseEntity<?> startImport(String file, boolean resume) {
+        try {
+            if (properties.getDirectory() == null || properties.getDirectory().isBlank()) {
+                return ResponseEntity.badRequest().body(new OperationResponse<>(false,
+                        "Catalog import is disabled; set personalized.catalog-import.directory", null));
+            }
+            Path directory = Paths.get(properties.getDirectory()).toAbsolutePath().normalize();
+            Path path = file == null ? directory : directory.resolve(file).normalize();
+            if (!path.startsWith(directory) || path.equals(directory) || !Files.isRegularFile(path)) {
+                return ResponseEntity.badRequest().body(new OperationResponse<>(false,
+                        "No file " + file + " in the catalog import directory", null));
+            }
+            String source = directory.relativize(path).toString();
+
+            ImportJob running = currentJob.get();
+            if (running != null && running.isRunning()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new OperationResponse<>(false,
+                        "Catalog import of " + running.source + " is already running", running.toStatus()));
+            }
+
+            ensureCheckpointTable();
+            long fileSize = Files.size(path);
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            Checkpoint checkpoint = resume ? readCheckpoint(source) : null;
+            if (checkpoint != null && !checkpoint.matches(fileSize, lastModified)) {
+                logger.info("Catalog file {} changed since its last import, starting from the beginning", source);
+                checkpoint = null;
+            }
+            if (checkpoint != null && checkpoint.completed()) {
+                return ResponseEntity.ok(new OperationResponse<>(true,
+                        "Catalog file " + source + " was already imported", null));
+            }
+
+            long startOffset = checkpoint == null ? 0 : checkpoint.committedOffset();
+            long previousRows = checkpoint == null ? 0 : checkpoint.importedRows();
+            ImportJob job = new ImportJob(source, path, fileSize, lastModified, startOffset, previousRows,
+                    properties.getMaxReportedRejects());
+            if (!currentJob.compareAndSet(running, job)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new OperationResponse<>(false,
+                        "Another catalog import was started concurrently", null));
+            }
+
+            BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueDepth()));
+            try {
+                job.writer = catalogImportExecutor.submit(() -> write(job, queue));
+                catalogImportExecutor.submit(() -> parse(job, queue));
+            } catch (TaskRejectedException e) {
+                job.fail("Import threads unavailable: " + e.getMessage());
+                if (job.writer != null) {
+                    job.writer.cancel(true);
+                }
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(new OperationResponse<>(false,
+                        "Catalog import threads are busy", job.toStatus()));
+            }
+
+            logger.info("Catalog import started, file={}, bytes={}, startOffset={}", source, fileSize, startOffset);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .body(new OperationResponse<>(true, "Catalog import started", job.toStatus()));
+
+        } catch (Exception e) {
+            logger.error("Error starting catalog import of {}", file, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new OperationResponse<>(false, "Failed to start catalog import: " + e.getMessage(), null));
+        }
+    }
+
+    /**
+     * Progress of the running import, or the outcome of the last one.
+     */
+    @Override
+    public ResponseEntity<?> getStatus() {
+        ImportJob job = currentJob.get();
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new OperationResponse<>(false, "No catalog import has run", null));
+        }
+        return ResponseEntity.ok(new OperationResponse<>(true, "Catalog import " + job.state.name().toLowerCase(),
+                job.toStatus()));
+    }
+
+    /* ============================================================
+       PARSER
+       ============================================================ */
+
+    private void parse(ImportJob job, BlockingQueue<Batch> queue) {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        int windowSize = (int) Math.min(Integer.MAX_VALUE, properties.getMapWindowSize().toBytes());
+        try (CsvCatalogReader reader = new CsvCatalogReader(job.path, job.startOffset, windowSize)) {
+            List<CsvCatalogReader.Row> rows = new ArrayList<>(batchSize);
+            long enqueuedOffset = job.startOffset;
+            CsvCatalogReader.Row row;
+            while (job.isRunning() && (row = reader.next()) != null) {
+                job.parsedRows++;
+                if (row.error() != null) {
+                    job.reject(row);
+                    continue;
+                }
+                rows.add(row);
+                if (rows.size() == batchSize) {
+                    enqueue(job, queue, new Batch(rows, reader.offset()));
+                    enqueuedOffset = reader.offset();
+                    rows = new ArrayList<>(batchSize);
+                }
+            }
+            // Rejected trailing lines still move the offset, so a resume does not re-read them
+            if (job.isRunning() && reader.offset() > enqueuedOffset) {
+                enqueue(job, queue, new Batch(rows, reader.offset()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("Catalog import of {} failed while parsing", job.source, e);
+            job.fail("Failed to read " + job.source + ": " + e.getMessage());
+        } finally {
+            enqueue(job, queue, END_OF_FILE);
+        }
+    }
+
+    /**
+     * Hands a batch to the writer, blocking while the queue is full.
+     * Gives up once the import has failed, so the parser never waits on a dead writer.
+     */
+    private void enqueue(ImportJob job, BlockingQueue<Batch> queue, Batch batch) {
+        try {
+            while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+                if (job.writer.isDone()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Catalog import interrupted");
+        }
+    }
+
+    /* ============================================================
+       WRITER
+       ============================================================ */
+
+    private void write(ImportJob job, BlockingQueue<Batch> queue) {
+        long nextProgressLog = System.currentTimeMillis() + properties.getProgressLogInterval().toMillis();
+        try {
+            while (true) {
+                Batch batch = queue.take();
+                if (batch == END_OF_FILE) {
+                    break;
+                }
+                if (!job.isRunning()) {
+                    continue;
+                }
+                writeBatch(job, batch);
+                if (System.currentTimeMillis() >= nextProgressLog) {
+                    logProgress(job);
+                    nextProgressLog = System.currentTimeMillis() + properties.getProgressLogInterval().toMillis();
+                }
+            }
+            if (job.isRunning()) {
+                saveCheckpoint(job, job.committedOffset, job.importedRows, true);
+                job.complete();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Catalog import interrupted");
+        } catch (RuntimeException e) {
+            logger.error("Catalog import of {} failed at offset {}", job.source, job.committedOffset, e);
+            job.fail("Failed to write batch after offset " + job.committedOffset + ": " + e.getMessage());
+        }
+        logger.info("Catalog import {}, file={}, committedOffset={}, inserted={}, updated={}, unchanged={}, "
+                        + "rejected={}, batches={}, elapsedMs={}", job.state.name().toLowerCase(), job.source,
+                job.committedOffset, job.insertedRows, job.updatedRows, job.unchangedRows, job.rejectedRows,
+                job.batches, job.elapsedMillis());
+    }
+
+    private void writeBatch(ImportJob job, Batch batch) {
+        // A later line for the same product wins, as it would with one upsert per line
+        Map<String, CsvCatalogReader.Row> rows = new LinkedHashMap<>();
+        batch.rows().forEach(row -> rows.put(row.productId(), row));
+
+        BatchOutcome outcome = transactionTemplate.execute(status -> {
+            Map<String, ProductCatalog.Entry> existing = new HashMap<>();
+            if (!rows.isEmpty()) {
+                namedJdbcTemplate.query(SELECT_EXISTING_SQL, new MapSqlParameterSource("ids", rows.keySet()),
+                        rs -> {
+                            existing.put(rs.getString(1), new ProductCatalog.Entry(rs.getString(2), rs.getString(3)));
+                        });
+            }
+
+            List<CsvCatalogReader.Row> upserts = new ArrayList<>();
+            List<ProductMetadataChangedEvent> changes = new ArrayList<>();
+            for (CsvCatalogReader.Row row : rows.values()) {
+                ProductCatalog.Entry before = existing.get(row.productId());
+                if (before == null) {
+                    upserts.add(row);
+                } else if (!Objects.equals(before.category(), row.category())
+                        || !Objects.equals(before.brand(), row.brand())) {
+                    upserts.add(row);
+                    changes.add(new ProductMetadataChangedEvent(row.productId(),
+                            before.category(), before.brand(), row.category(), row.brand()));
+                }
+            }
+
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_PRODUCT_SQL, upserts.stream()
+                        .map(row -> new Object[]{row.productId(), row.category(), row.brand()})
+                        .toList());
+                changeOutbox.recordProducts(jdbcTemplate, upserts.stream()
+                        .map(row -> new ChangeOutbox.ProductChange(row.productId(),
+                                existing.containsKey(row.productId()) ? ChangeType.PRODUCT_UPDATED : ChangeType.PRODUCT_CREATED,
+                                row.category(), row.brand()))
+                        .toList());
+            }
+            saveCheckpoint(job, batch.endOffset(), job.importedRows + upserts.size(), false);
+            return new BatchOutcome(upserts, changes, rows.size() - upserts.size());
+        });
+
+        if (productCatalog.isEnabled()) {
+            outcome.upserts().forEach(row -> productCatalog.put(row.productId(), row.category(), row.brand()));
+        }
+        outcome.upserts().forEach(row -> productAttributeIndex.put(row.productId(), row.category(), row.brand()));
+        productMetadataCacheRegions.evict(outcome.upserts().stream().map(CsvCatalogReader.Row::productId).toList());
+        outcome.changes().forEach(eventPublisher::publishEvent);
+
+        job.importedRows += outcome.upserts().size();
+        job.insertedRows += outcome.upserts().size() - outcome.changes().size();
+        job.updatedRows += outcome.changes().size();
+        job.unchangedRows += outcome.unchanged() + batch.rows().size() - rows.size();
+        job.committedOffset = batch.endOffset();
+        job.batches++;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void ensureCheckpointTable() {
+        if (!checkpointTableReady) {
+            jdbcTemplate.execute(CREATE_CHECKPOINT_TABLE_SQL);
+            checkpointTableReady = true;
+        }
+    }
+
+    private Checkpoint readCheckpoint(String source) {
+        List<Checkpoint> found = jdbcTemplate.query(SELECT_CHECKPOINT_SQL, (rs, i) -> new Checkpoint(
+                rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getBoolean(5)), source);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    private void saveCheckpoint(ImportJob job, long offset, long importedRows, boolean completed) {
+        jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, job.source, job.fileSize, job.lastModified,
+                offset, importedRows, completed);
+    }
+
+    private void logProgress(ImportJob job) {
+        logger.info("Catalog import progress, file={}, committed={}/{} bytes ({}%), parsed={}, written={}, elapsedMs={}",
+                job.source, job.committedOffset, job.fileSize, String.format("%.1f", job.percentComplete()),
+                job.parsedRows, job.insertedRows + job.updatedRows, job.elapsedMillis());
+    }
+
+    /* ============================================================
+       INTERNAL TYPES
+       ============================================================ */
+
+    private enum State { RUNNING, COMPLETED, FAILED }
+
+    /**
+     * Parsed rows up to {@code endOffset}, the file offset to resume from once they are committed.
+     */
+    private record Batch(List<CsvCatalogReader.Row> rows, long endOffset) {
+    }
+
+    private record BatchOutcome(List<CsvCatalogReader.Row> upserts,
+                                List<ProductMetadataChangedEvent> changes,
+                                int unchanged) {
+    }
+
+    private record Checkpoint(long fileSize, long lastModified, long committedOffset,
+                              long importedRows, boolean completed) {
+
+        boolean matches(long size, long modified) {
+            return fileSize == size && lastModified == modified;
+        }
+    }
+
+    /**
+     * Progress of one import. Parser and writer counters each have a single writing thread and
+     * are volatile so that status requests see recent values.
+     */
+    private static final class ImportJob {
+
+        private final String source;
+        private final Path path;
+        private final long fileSize;
+        private final long lastModified;
+        private final long startOffset;
+        private final long startedAt = System.currentTimeMillis();
+        private final int maxReportedRejects;
+        private final List<String> rejects = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile Future<?> writer;
+        private volatile State state = State.RUNNING;
+        private volatile String error;
+        private volatile long finishedAt;
+        private volatile long committedOffset;
+        private volatile long importedRows;
+        private volatile long parsedRows;
+        private volatile long rejectedRows;
+        private volatile long insertedRows;
+        private volatile long updatedRows;
+        private volatile long unchangedRows;
+        private volatile long batches;
+
+        ImportJob(String source, Path path, long fileSize, long lastModified, long startOffset,
+                  long importedRows, int maxReportedRejects) {
+            this.source = source;
+            this.path = path;
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.startOffset = startOffset;
+            this.committedOffset = startOffset;
+            this.importedRows = importedRows;
+            this.maxReportedRejects = maxReportedRejects;
+        }
+
+        boolean isRunning() {
+            return state == State.RUNNING;
+        }
+
+        void reject(CsvCatalogReader.Row row) {
+            rejectedRows++;
+            if (rejects.size() < maxReportedRejects) {
+                rejects.add("offset " + row.lineOffset() + ": " + row.error());
+            }
+        }
+
+        synchronized void fail(String message) {
+            if (state == State.RUNNING) {
+                error = message;
+                finishedAt = System.currentTimeMillis();
+                state = State.FAILED;
+            }
+        }
+
+        synchronized void complete() {
+            if (state == State.RUNNING) {
+                finishedAt = System.currentTimeMillis();
+                state = State.COMPLETED;
+            }
+        }
+
+        long elapsedMillis() {
+            return (finishedAt > 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+        }
+
+        double percentComplete() {
+            return fileSize == 0 ? 100.0 : committedOffset * 100.0 / fileSize;
+        }
+
+        CatalogImportStatusDTO toStatus() {
+            return CatalogImportStatusDTO.builder()
+                    .file(source)
+                    .state(state.name())
+                    .fileBytes(fileSize)
+                    .startOffset(startOffset)
+                    .committedOffset(committedOffset)
+                    .percentComplete(Math.round(percentComplete() * 10) / 10.0)
+                    .parsedRows(parsedRows)
+                    .insertedRows(insertedRows)
+                    .updatedRows(updatedRows)
+                    .unchangedRows(unchangedRows)
+                    .rejectedRows(rejectedRows)
+                    .batches(batches)
+                    .elapsedMillis(elapsedMillis())
+                    .rejects(List.copyOf(rejects))
+                    .error(error)
+                    .build();
+        }
+    }
+}
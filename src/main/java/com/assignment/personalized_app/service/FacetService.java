@@ -0,0 +1,14 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collection;
+
+public interface FacetService {
+    ResponseEntity<?> getFacets(String shopperId);
+    void recordAdded(String shopperId, Collection<String> productIds);
+    void recordRemoved(String shopperId, Collection<String> productIds);
+    void onProductChanged(ProductMetadataChangedEvent event);
+    int reconcile();
+}
@@ -0,0 +1,415 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.FacetProperties;
+import com.assignment.personalized_app.datasource.ReadYourWritesTracker;
+import com.assignment.personalized_app.dto.FacetCountDTO;
+import com.assignment.personalized_app.dto.FacetsDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.entity.FacetType;
+import com.assignment.personalized_app.entity.ShopperFacet;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.repository.ProductMetadataRepository;
+import com.assignment.personalized_app.repository.ShopperFacetRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Category and brand facet counts per shopper.
+ * <p>
+ * Counters live in shopper_facet, next to the shopper's shelf (on its shard when sharded), and
+ * are adjusted in the same transaction as the shelf write, so a facets read is a single indexed
+ * lookup of a few rows. A metadata change moves the product's count from the old value to the
+ * new one for every shopper holding it, with set-based statements on each shard.
+ * <p>
+ * A shelf write racing a metadata change of one of its products can count the old value;
+ * a periodic reconciliation recomputes the counts from the shelves, repairs any shopper that
+ * differs under a lock on its counters, and fills in shoppers written before facets were
+ * enabled. Metrics: {@code shelf.facets.reconcile.checked} and {@code .repaired}.
+ */
+@Service
+public class FacetServiceImpl implements FacetService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FacetServiceImpl.class);
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private static final String DECREMENT_SQL = """
+            UPDATE shopper_facet SET product_count = product_count - 1
+            WHERE facet_type = :type AND facet_value = :value
+              AND shopper_id IN (SELECT shopper_id FROM shopper_product WHERE product_id = :productId)
+            """;
+    private static final String DELETE_EMPTY_SQL = """
+            DELETE FROM shopper_facet
+            WHERE facet_type = :type AND facet_value = :value AND product_count <= 0
+              AND shopper_id IN (SELECT shopper_id FROM shopper_product WHERE product_id = :productId)
+            """;
+    private static final String INCREMENT_SQL = """
+            INSERT INTO shopper_facet (shopper_id, facet_type, facet_value, product_count)
+            SELECT shopper_id, :type, :value, 1 FROM shopper_product WHERE product_id = :productId
+            ON DUPLICATE KEY UPDATE product_count = product_count + 1
+            """;
+    private static final String SHOPPER_BATCH_SQL = """
+            SELECT shopper_id FROM (
+                SELECT shopper_id FROM shopper_product WHERE shopper_id > :after
+                UNION
+                SELECT shopper_id FROM shopper_facet WHERE shopper_id > :after
+            ) s ORDER BY shopper_id LIMIT :limit
+            """;
+    private static final String INSERT_FACET_SQL = """
+            INSERT INTO shopper_facet (shopper_id, facet_type, facet_value, product_count)
+            VALUES (:shopperId, :type, :value, :count)
+            """;
+
+    private final ShopperFacetRepository shopperFacetRepository;
+    private final ProductMetadataRepository productMetadataRepository;
+    private final ProductCatalog productCatalog;
+    private final ShardRouter shardRouter;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final TaskScheduler taskScheduler;
+    private final FacetProperties properties;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter checked;
+    private final Counter repaired;
+
+    public FacetServiceImpl(ShopperFacetRepository shopperFacetRepository,
+                            ProductMetadataRepository productMetadataRepository,
+                            ProductCatalog productCatalog,
+                            ShardRouter shardRouter,
+                            ReadYourWritesTracker readYourWritesTracker,
+                            DataSource dataSource,
+                            TaskScheduler taskScheduler,
+                            FacetProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.shopperFacetRepository = shopperFacetRepository;
+        this.productMetadataRepository = productMetadataRepository;
+        this.productCatalog = productCatalog;
+        this.shardRouter = shardRouter;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        // JDBC-only transactions, so each one takes its own connection on the current shard
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.checked = meterRegistry.counter("shelf.facets.reconcile.checked");
+        this.repaired = meterRegistry.counter("shelf.facets.reconcile.repaired");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this::reconcileQuietly,
+                Instant.now().plus(properties.getReconcileInitialDelay()), properties.getReconcileInterval());
+    }
+
+    /* ============================================================
+       FETCH FACETS
+       ============================================================ */
+
+    /**
+     * Category and brand counts of the shopper's shelf, largest first.
+     */
+    @Override
+    public ResponseEntity<?> getFacets(String shopperId) {
+        try {
+            Map<FacetKey, Integer> counts = shardRouter.inShardOf(shopperId, () ->
+                    readYourWritesTracker.read(shopperId, () -> properties.isEnabled()
+                            ? storedCounts(shopperId)
+                            : actualCounts(List.of(shopperId)).getOrDefault(shopperId, Map.of())));
+
+            return ResponseEntity.ok(new OperationResponse<>(true, "Facets fetched successfully",
+                    toFacets(shopperId, counts)));
+        } catch (Exception e) {
+            logger.error("Error fetching facets for shopperId={}", shopperId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new OperationResponse<>(false, "Failed to fetch facets for shopper", Map.of()));
+        }
+    }
+
+    /* ============================================================
+       INCREMENTAL MAINTENANCE
+       ============================================================ */
+
+    /**
+     * Counts products newly added to the shopper's shelf; runs in the shelf write's transaction.
+     */
+    @Override
+    public void recordAdded(String shopperId, Collection<String> productIds) {
+        if (!properties.isEnabled() || productIds.isEmpty()) {
+            return;
+        }
+        Map<FacetKey, Integer> deltas = new HashMap<>();
+        metadataOf(productIds).values().forEach(entry -> count(deltas, entry.category(), entry.brand(), 1));
+        deltas.forEach((key, delta) ->
+                shopperFacetRepository.adjust(shopperId, key.type().name(), key.value(), delta));
+    }
+
+    /**
+     * Uncounts products deleted from the shopper's shelf; runs in the deleting transaction.
+     */
+    @Override
+    public void recordRemoved(String shopperId, Collection<String> productIds) {
+        if (!properties.isEnabled() || productIds.isEmpty()) {
+            return;
+        }
+        Map<FacetKey, Integer> deltas = new HashMap<>();
+        metadataOf(productIds).values().forEach(entry -> count(deltas, entry.category(), entry.brand(), -1));
+        deltas.forEach((key, delta) ->
+                shopperFacetRepository.adjust(shopperId, key.type().name(), key.value(), delta));
+        shopperFacetRepository.deleteEmpty(shopperId);
+    }
+
+    /**
+     * Moves the product's count from its old category/brand to the new one for every shopper
+     * holding it, after the metadata change is saved.
+     */
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductMetadataChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        for (String shard : shards()) {
+            shardRouter.inShard(shard, () -> transactionTemplate.execute(status -> {
+                move(FacetType.CATEGORY, event.productId(), event.oldCategory(), event.newCategory());
+                move(FacetType.BRAND, event.productId(), event.oldBrand(), event.newBrand());
+                return null;
+            }));
+        }
+    }
+
+    /* ============================================================
+       RECONCILIATION
+       ============================================================ */
+
+    /**
+     * Compares every shopper's counters with counts recomputed from the shelf and repairs
+     * those that differ.
+     *
+     * @return number of shoppers repaired
+     */
+    @Override
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        int checkedShoppers = 0;
+        int repairedShoppers = 0;
+
+        for (String shard : shards()) {
+            String after = "";
+            while (true) {
+                String from = after;
+                List<String> batch = shardRouter.inShard(shard, () -> jdbcTemplate.queryForList(SHOPPER_BATCH_SQL,
+                        new MapSqlParameterSource("after", from).addValue("limit", properties.getReconcileBatchSize()),
+                        String.class));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                Map<String, Map<FacetKey, Integer>> actual = shardRouter.inShard(shard, () -> actualCounts(batch));
+                Map<String, Map<FacetKey, Integer>> stored = shardRouter.inShard(shard, () -> storedCounts(batch));
+
+                for (String shopperId : batch) {
+                    checkedShoppers++;
+                    if (!actual.getOrDefault(shopperId, Map.of()).equals(stored.getOrDefault(shopperId, Map.of()))
+                            && shardRouter.inShard(shard, () -> repair(shopperId))) {
+                        repairedShoppers++;
+                    }
+                }
+                after = batch.get(batch.size() - 1);
+            }
+        }
+
+        checked.increment(checkedShoppers);
+        repaired.increment(repairedShoppers);
+        logger.info("Facet reconciliation finished, shoppers={}, repaired={}, elapsedMs={}",
+                checkedShoppers, repairedShoppers, System.currentTimeMillis() - started);
+        return repairedShoppers;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void move(FacetType type, String productId, String oldValue, String newValue) {
+        if (Objects.equals(oldValue, newValue)) {
+            return;
+        }
+        if (oldValue != null) {
+            MapSqlParameterSource params = facetParams(type, oldValue, productId);
+            jdbcTemplate.update(DECREMENT_SQL, params);
+            jdbcTemplate.update(DELETE_EMPTY_SQL, params);
+        }
+        if (newValue != null) {
+            jdbcTemplate.update(INCREMENT_SQL, facetParams(type, newValue, productId));
+        }
+    }
+
+    /**
+     * Rewrites the shopper's counters from the shelf, holding a lock on them so that concurrent
+     * shelf writes wait. Returns false if the counters turned out to be correct after all.
+     */
+    private boolean repair(String shopperId) {
+        Boolean changed = transactionTemplate.execute(status -> {
+            MapSqlParameterSource shopper = new MapSqlParameterSource("shopperId", shopperId);
+            jdbcTemplate.queryForList("SELECT id FROM shopper_facet WHERE shopper_id = :shopperId FOR UPDATE",
+                    shopper, Long.class);
+
+            Map<FacetKey, Integer> actual = actualCounts(List.of(shopperId)).getOrDefault(shopperId, Map.of());
+            Map<FacetKey, Integer> stored = storedCounts(List.of(shopperId)).getOrDefault(shopperId, Map.of());
+            if (actual.equals(stored)) {
+                return false;
+            }
+            logger.warn("Facet counts drifted for shopperId={}, stored={}, actual={}", shopperId, stored, actual);
+
+            jdbcTemplate.update("DELETE FROM shopper_facet WHERE shopper_id = :shopperId", shopper);
+            jdbcTemplate.batchUpdate(INSERT_FACET_SQL, actual.entrySet().stream()
+                    .map(e -> new MapSqlParameterSource("shopperId", shopperId)
+                            .addValue("type", e.getKey().type().name())
+                            .addValue("value", e.getKey().value())
+                            .addValue("count", e.getValue()))
+                    .toArray(MapSqlParameterSource[]::new));
+            return true;
+        });
+        return Boolean.TRUE.equals(changed);
+    }
+
+    private Map<FacetKey, Integer> storedCounts(String shopperId) {
+        Map<FacetKey, Integer> counts = new HashMap<>();
+        for (ShopperFacet facet : shopperFacetRepository.findByShopperId(shopperId)) {
+            counts.put(new FacetKey(facet.getFacetType(), facet.getFacetValue()), facet.getProductCount());
+        }
+        return counts;
+    }
+
+    private Map<String, Map<FacetKey, Integer>> storedCounts(List<String> shopperIds) {
+        Map<String, Map<FacetKey, Integer>> counts = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT shopper_id, facet_type, facet_value, product_count FROM shopper_facet
+                        WHERE shopper_id IN (:ids) AND product_count <> 0
+                        """,
+                new MapSqlParameterSource("ids", shopperIds),
+                rs -> {
+                    counts.computeIfAbsent(rs.getString(1), id -> new HashMap<>())
+                            .put(new FacetKey(FacetType.valueOf(rs.getString(2)), rs.getString(3)), rs.getInt(4));
+                });
+        return counts;
+    }
+
+    /**
+     * Facet counts recomputed from the shoppers' shelves: with a join on a single database,
+     * through the in-memory catalog when product_metadata is elsewhere.
+     */
+    private Map<String, Map<FacetKey, Integer>> actualCounts(List<String> shopperIds) {
+        Map<String, Map<FacetKey, Integer>> counts = new HashMap<>();
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", shopperIds);
+
+        if (!shardRouter.isEnabled()) {
+            jdbcTemplate.query("""
+                            SELECT sp.shopper_id, p.category, p.brand, COUNT(*) FROM shopper_product sp
+                            JOIN product_metadata p ON p.product_id = sp.product_id
+                            WHERE sp.shopper_id IN (:ids)
+                            GROUP BY sp.shopper_id, p.category, p.brand
+                            """,
+                    ids,
+                    rs -> {
+                        count(counts.computeIfAbsent(rs.getString(1), id -> new HashMap<>()),
+                                rs.getString(2), rs.getString(3), rs.getInt(4));
+                    });
+            return counts;
+        }
+
+        Map<String, List<String>> shelves = new HashMap<>();
+        jdbcTemplate.query("SELECT shopper_id, product_id FROM shopper_product WHERE shopper_id IN (:ids)", ids,
+                rs -> {
+                    shelves.computeIfAbsent(rs.getString(1), id -> new ArrayList<>()).add(rs.getString(2));
+                });
+        shelves.forEach((shopperId, productIds) -> {
+            Map<FacetKey, Integer> shopperCounts = counts.computeIfAbsent(shopperId, id -> new HashMap<>());
+            productCatalog.lookup(productIds).values()
+                    .forEach(entry -> count(shopperCounts, entry.category(), entry.brand(), 1));
+        });
+        return counts;
+    }
+
+    private Map<String, ProductCatalog.Entry> metadataOf(Collection<String> productIds) {
+        if (productCatalog.isEnabled()) {
+            return productCatalog.lookup(productIds);
+        }
+        List<String> ids = new ArrayList<>(productIds);
+        Map<String, ProductCatalog.Entry> metadata = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += LOOKUP_BATCH_SIZE) {
+            productMetadataRepository.findCategoryAndBrand(ids.subList(i, Math.min(i + LOOKUP_BATCH_SIZE, ids.size())))
+                    .forEach(row -> metadata.put((String) row[0],
+                            new ProductCatalog.Entry((String) row[1], (String) row[2])));
+        }
+        return metadata;
+    }
+
+    private static void count(Map<FacetKey, Integer> counts, String category, String brand, int products) {
+        if (category != null) {
+            counts.merge(new FacetKey(FacetType.CATEGORY, category), products, Integer::sum);
+        }
+        if (brand != null) {
+            counts.merge(new FacetKey(FacetType.BRAND, brand), products, Integer::sum);
+        }
+    }
+
+    private FacetsDTO toFacets(String shopperId, Map<FacetKey, Integer> counts) {
+        return FacetsDTO.builder()
+                .shopperId(shopperId)
+                .categories(facetsOf(counts, FacetType.CATEGORY))
+                .brands(facetsOf(counts, FacetType.BRAND))
+                .build();
+    }
+
+    private List<FacetCountDTO> facetsOf(Map<FacetKey, Integer> counts, FacetType type) {
+        return counts.entrySet().stream()
+                .filter(e -> e.getKey().type() == type && e.getValue() > 0)
+                .map(e -> new FacetCountDTO(e.getKey().value(), e.getValue()))
+                .sorted(Comparator.comparingInt(FacetCountDTO::getCount).reversed()
+                        .thenComparing(FacetCountDTO::getValue))
+                .toList();
+    }
+
+    private MapSqlParameterSource facetParams(FacetType type, String value, String productId) {
+        return new MapSqlParameterSource("type", type.name())
+                .addValue("value", value)
+                .addValue("productId", productId);
+    }
+
+    private List<String> shards() {
+        return shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            logger.warn("Facet reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    private record FacetKey(FacetType type, String value) {
+    }
+}
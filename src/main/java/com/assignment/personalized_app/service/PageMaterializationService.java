@@ -0,0 +1,17 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+
+import java.util.List;
+
+public interface PageMaterializationService {
+    byte[] findFirstPage(String shopperId, String category, int pageSize);
+    void onShelfChanged(ShelfChangedEvent event);
+    void onProductChanged(ProductMetadataChangedEvent event);
+    void onRemoteShelvesChanged(RemoteShelvesChangedEvent event);
+    void onRemoteProductsChanged(RemoteProductsChangedEvent event);
+    int warm(List<String> shopperIds);
+}
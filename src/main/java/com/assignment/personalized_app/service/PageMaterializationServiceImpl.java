@@ -0,0 +1,256 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.MaterializationProperties;
+import com.assignment.personalized_app.datasource.RoutingContext;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.materialization.MaterializedPageStore;
+import com.assignment.personalized_app.materialization.MaterializedPageStore.PageView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the serialized first page of each shopper's hottest views, so that the most common
+ * request (page 0, no brand filter) is answered with a byte copy instead of a query.
+ * <p>
+ * When a shelf write commits, the shopper's pages are dropped at once and rebuilt on the
+ * materialization executor: the unfiltered view plus the shopper's largest categories, for every
+ * configured page size. The shopper's ranked shelf is read from the primary on the rebuilding
+ * thread itself, not through the coalesced query path, whose loads run on another thread without
+ * the primary pin and could see a lagging replica. Pages are cut from that shelf by
+ * {@link ShopperService#getFirstPage} and serialized with the application's ObjectMapper, so they
+ * are byte-identical to the JSON the query path would return. Until the rebuild finishes,
+ * requests use the query path.
+ * <p>
+ * Pages also embed category and brand, so a product metadata change rebuilds the pages of the
+ * shoppers holding that product, found through {@link ProductShopperIndex}. Without the index
+ * (or before it has loaded) every materialized page is dropped instead.
+ */
+@Service
+public class PageMaterializationServiceImpl implements PageMaterializationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageMaterializationServiceImpl.class);
+
+    private final ShopperService shopperService;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor executor;
+    private final MaterializationProperties properties;
+    private final MaterializedPageStore store;
+    private final ProductShopperIndex productShopperIndex;
+
+    private final Counter rebuilds;
+    private final Counter dropped;
+
+    public PageMaterializationServiceImpl(ShopperService shopperService,
+                                          ObjectMapper objectMapper,
+                                          @Qualifier("materializationExecutor") ThreadPoolTaskExecutor executor,
+                                          MaterializationProperties properties,
+                                          ProductShopperIndex productShopperIndex,
+                                          MeterRegistry meterRegistry) {
+        this.shopperService = shopperService;
+        this.objectMapper = objectMapper;
+        this.executor = executor;
+        this.properties = properties;
+        this.productShopperIndex = productShopperIndex;
+        this.store = properties.isEnabled()
+                ? new MaterializedPageStore(properties.getMaxMemory().toBytes(), meterRegistry)
+                : null;
+        this.rebuilds = meterRegistry.counter("shelf.materialized.rebuilds");
+        this.dropped = meterRegistry.counter("shelf.materialized.rebuilds.dropped");
+    }
+
+    /**
+     * Serialized JSON body for page 0 of the view, or null if it is not materialized.
+     *
+     * @param category normalized category filter, null for the unfiltered view
+     */
+    @Override
+    public byte[] findFirstPage(String shopperId, String category, int pageSize) {
+        if (store == null) {
+            return null;
+        }
+        return store.get(shopperId, new PageView(category, pageSize));
+    }
+
+    /**
+     * Runs after the writing transaction commits, or immediately outside a transaction.
+     */
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShelfChanged(ShelfChangedEvent event) {
+        if (store == null) {
+            return;
+        }
+        invalidateAndRebuild(event.shopperId());
+    }
+
+    /**
+     * Rebuilds the pages of every shopper holding the product, after the change is committed.
+     */
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductMetadataChangedEvent event) {
+        if (store == null) {
+            return;
+        }
+        if (!productShopperIndex.isEnabled() || !productShopperIndex.isReady()) {
+            store.invalidateAll();
+            return;
+        }
+        for (String shopperId : productShopperIndex.shoppersOf(List.of(event.productId()))) {
+            invalidateAndRebuild(shopperId);
+        }
+    }
+
+    /**
+     * Rebuilds the pages of shoppers whose shelves another node wrote.
+     */
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoteShelvesChanged(RemoteShelvesChangedEvent event) {
+        if (store == null) {
+            return;
+        }
+        event.shopperIds().forEach(this::invalidateAndRebuild);
+    }
+
+    /**
+     * Rebuilds the pages of every shopper holding a product changed elsewhere, as for a local change.
+     */
+    @Override
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoteProductsChanged(RemoteProductsChangedEvent event) {
+        if (store == null) {
+            return;
+        }
+        if (!productShopperIndex.isEnabled() || !productShopperIndex.isReady()) {
+            store.invalidateAll();
+            return;
+        }
+        productShopperIndex.shoppersOf(event.productIds()).forEach(this::invalidateAndRebuild);
+    }
+
+    /**
+     * Materializes the pages of shoppers that have none yet, from one multi-shopper shelf read
+     * on the primary, for startup warm-up. Runs on the caller's thread; shoppers without a shelf,
+     * or written to meanwhile, are skipped.
+     *
+     * @return shoppers whose pages were stored
+     */
+    @Override
+    public int warm(List<String> shopperIds) {
+        if (store == null) {
+            return 0;
+        }
+        Map<String, Object> tokens = new LinkedHashMap<>();
+        for (String shopperId : shopperIds) {
+            Object token = store.claim(shopperId);
+            if (token != null) {
+                tokens.put(shopperId, token);
+            }
+        }
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+
+        int warmed = 0;
+        try {
+            Map<String, List<ShopperProductDTO>> shelves = RoutingContext.onPrimary(() ->
+                    shopperService.getRankedShelves(new ArrayList<>(tokens.keySet())));
+            for (Map.Entry<String, Object> claimed : tokens.entrySet()) {
+                String shopperId = claimed.getKey();
+                List<ShopperProductDTO> shelf = shelves.get(shopperId);
+                if (shelf != null && store.publish(shopperId, claimed.getValue(), renderFrom(shelf))) {
+                    warmed++;
+                } else {
+                    store.abandon(shopperId, claimed.getValue());
+                }
+            }
+        } catch (Exception e) {
+            tokens.forEach(store::abandon);
+            logger.warn("Failed to warm pages for {} shoppers", tokens.size(), e);
+        }
+        return warmed;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void invalidateAndRebuild(String shopperId) {
+        Object token = store.invalidate(shopperId);
+        try {
+            executor.execute(() -> rebuild(shopperId, token));
+        } catch (TaskRejectedException e) {
+            store.abandon(shopperId, token);
+            dropped.increment();
+            logger.debug("Rebuild queue full, shopperId={} served by query path", shopperId);
+        }
+    }
+
+    private void rebuild(String shopperId, Object token) {
+        // A newer write has queued its own rebuild
+        if (!store.isCurrent(shopperId, token)) {
+            return;
+        }
+        try {
+            List<ShopperProductDTO> shelf = RoutingContext.onPrimary(() ->
+                    shopperService.getRankedShelves(List.of(shopperId)).getOrDefault(shopperId, List.of()));
+            if (store.publish(shopperId, token, renderFrom(shelf))) {
+                rebuilds.increment();
+            }
+        } catch (Exception e) {
+            store.abandon(shopperId, token);
+            logger.warn("Failed to materialize pages for shopperId={}", shopperId, e);
+        }
+    }
+
+    /**
+     * The unfiltered view and the shelf's largest categories, for every configured page size,
+     * cut from a complete ranked shelf already in memory.
+     */
+    private Map<PageView, byte[]> renderFrom(List<ShopperProductDTO> shelf) {
+        List<String> categories = new ArrayList<>();
+        categories.add(null);
+        shelf.stream()
+                .map(ShopperProductDTO::getCategory)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(category -> category, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(properties.getTopCategories())
+                .forEach(entry -> categories.add(entry.getKey()));
+
+        Map<PageView, byte[]> pages = new HashMap<>();
+        for (String category : categories) {
+            for (Integer pageSize : properties.getPageSizes()) {
+                pages.put(new PageView(category, pageSize),
+                        serialize(shopperService.getFirstPage(shelf, category, pageSize)));
+            }
+        }
+        return pages;
+    }
+
+    private byte[] serialize(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to serialize materialized page", e);
+        }
+    }
+}
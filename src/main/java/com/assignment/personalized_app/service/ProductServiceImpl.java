@@ -1,22 +1,32 @@
 package com.assignment.personalized_app.service;
 
-
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.datasource.RoutingContext;
 import com.assignment.personalized_app.dto.OperationResponse;
 import com.assignment.personalized_app.dto.ProductMetadataDTO;
+import com.assignment.personalized_app.entity.ChangeType;
 import com.assignment.personalized_app.entity.ProductMetadata;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
 import com.assignment.personalized_app.repository.ProductMetadataRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Service class to handle product metadata operations.
  * Provides functionality to save product metadata and handle exceptions.
+ * Each write appends a change record to the change outbox in its own transaction, and is applied
+ * to the in-memory catalog and category/brand index once committed.
  */
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -26,6 +36,21 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private ProductMetadataRepository productMetadataRepository;
 
+    @Autowired
+    private ProductCatalog productCatalog;
+
+    @Autowired
+    private ProductAttributeIndex productAttributeIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ChangeOutbox changeOutbox;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Saves product metadata.
      * This method creates a new product metadata entry in the database
@@ -42,8 +67,9 @@ public class ProductServiceImpl implements ProductService {
         try {
             logger.debug("Creating product metadata for productId: {}", dto.getProductId());
 
-            // Check if productId already exists
-            boolean exists = productMetadataRepository.existsById(dto.getProductId());
+            // Check if productId already exists; on the primary, as a lagging replica could miss it
+            boolean exists = RoutingContext.onPrimary(() ->
+                    productMetadataRepository.existsById(dto.getProductId()));
             if (exists) {
                 String message = "Product metadata with productId " + dto.getProductId() + " already exists";
                 logger.warn(message);
@@ -58,7 +84,15 @@ public class ProductServiceImpl implements ProductService {
                     .brand(dto.getBrand())
                     .build();
 
-            ProductMetadata savedProduct = productMetadataRepository.save(newProduct);
+            // The change record commits with the product
+            ProductMetadata savedProduct = transactionTemplate.execute(status -> {
+                ProductMetadata saved = productMetadataRepository.save(newProduct);
+                changeOutbox.recordProduct(saved.getProductId(), ChangeType.PRODUCT_CREATED,
+                        saved.getCategory(), saved.getBrand());
+                return saved;
+            });
+            productCatalog.put(savedProduct.getProductId(), savedProduct.getCategory(), savedProduct.getBrand());
+            productAttributeIndex.put(savedProduct.getProductId(), savedProduct.getCategory(), savedProduct.getBrand());
             logger.info("Product metadata created successfully for productId: {}", dto.getProductId());
 
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -78,6 +112,8 @@ public class ProductServiceImpl implements ProductService {
      * the request is rejected with a Bad Request (400).
      * The response is wrapped in an {@link OperationResponse} object to ensure
      * consistent API responses across the application.
+     * A change of category or brand publishes a {@link ProductMetadataChangedEvent} so that
+     * cached shopper views showing the product can be invalidated.
      * @param dto ProductMetadataDTO containing productId, category, and brand
      * @return ResponseEntity containing OperationResponse with updated product data,
      * or an error message if the update fails
@@ -88,8 +124,8 @@ public class ProductServiceImpl implements ProductService {
             logger.debug("Updating product metadata for productId: {}", dto.getProductId());
 
             // Check if product exists
-            Optional<ProductMetadata> existingOpt =
-                    productMetadataRepository.findById(dto.getProductId());
+            Optional<ProductMetadata> existingOpt = RoutingContext.onPrimary(() ->
+                    productMetadataRepository.findById(dto.getProductId()));
 
             if (existingOpt.isEmpty()) {
                 String message = "Product metadata with productId "
@@ -102,11 +138,27 @@ public class ProductServiceImpl implements ProductService {
 
             // Update existing product
             ProductMetadata existingProduct = existingOpt.get();
+            String oldCategory = existingProduct.getCategory();
+            String oldBrand = existingProduct.getBrand();
+            boolean changed = !Objects.equals(oldCategory, dto.getCategory())
+                    || !Objects.equals(oldBrand, dto.getBrand());
             existingProduct.setCategory(dto.getCategory());
             existingProduct.setBrand(dto.getBrand());
 
-            ProductMetadata updatedProduct =
-                    productMetadataRepository.save(existingProduct);
+            ProductMetadata updatedProduct = transactionTemplate.execute(status -> {
+                ProductMetadata saved = productMetadataRepository.save(existingProduct);
+                if (changed) {
+                    changeOutbox.recordProduct(saved.getProductId(), ChangeType.PRODUCT_UPDATED,
+                            saved.getCategory(), saved.getBrand());
+                }
+                return saved;
+            });
+            productCatalog.put(updatedProduct.getProductId(), updatedProduct.getCategory(), updatedProduct.getBrand());
+            productAttributeIndex.put(updatedProduct.getProductId(), updatedProduct.getCategory(), updatedProduct.getBrand());
+            if (changed) {
+                eventPublisher.publishEvent(new ProductMetadataChangedEvent(updatedProduct.getProductId(),
+                        oldCategory, oldBrand, updatedProduct.getCategory(), updatedProduct.getBrand()));
+            }
 
             logger.info("Product metadata updated successfully for productId: {}",
                     dto.getProductId());
@@ -0,0 +1,19 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+public interface ShelfCacheService {
+    boolean isEnabled();
+    List<ShopperProductDTO> getShelf(String shopperId, Supplier<List<ShopperProductDTO>> loader);
+    void onShelfChanged(ShelfChangedEvent event);
+    void onProductChanged(ProductMetadataChangedEvent event);
+    void onRemoteShelvesChanged(RemoteShelvesChangedEvent event);
+    void onRemoteProductsChanged(RemoteProductsChangedEvent event);
+}
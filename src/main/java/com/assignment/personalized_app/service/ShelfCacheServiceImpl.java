@@ -0,0 +1,119 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.cache.TieredShelfCache;
+import com.assignment.personalized_app.config.ShelfCacheProperties;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Serves whole ranked shelves from a {@link TieredShelfCache}, so that any page and filter of a
+ * cached shopper is answered without a query.
+ * <p>
+ * A shopper's entry is dropped when a shelf write commits. Cached items embed category and
+ * brand, so a product metadata change drops the shoppers holding that product, found through
+ * {@link ProductShopperIndex}; without the index (or before it has loaded) the whole cache is
+ * dropped instead. These listeners run before the other listeners of the same events, such as
+ * the page materializer's, so that nothing they trigger can read the stale entry back.
+ */
+@Service
+public class ShelfCacheServiceImpl implements ShelfCacheService {
+
+    private final TieredShelfCache cache;
+    private final ProductShopperIndex productShopperIndex;
+
+    public ShelfCacheServiceImpl(ShelfCacheProperties properties,
+                                 ProductShopperIndex productShopperIndex,
+                                 MeterRegistry meterRegistry) {
+        this.productShopperIndex = productShopperIndex;
+        this.cache = properties.isEnabled()
+                ? new TieredShelfCache(properties.getHotMaxShoppers(), properties.getWarmMaxMemory().toBytes(),
+                        properties.getSketchCapacity(), meterRegistry)
+                : null;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Cached ranked shelf of the shopper; on a miss, the loader's shelf, offered to the cache.
+     */
+    @Override
+    public List<ShopperProductDTO> getShelf(String shopperId, Supplier<List<ShopperProductDTO>> loader) {
+        if (cache == null) {
+            return loader.get();
+        }
+        List<ShopperProductDTO> shelf = cache.get(shopperId);
+        if (shelf != null) {
+            return shelf;
+        }
+        long stamp = cache.stamp(shopperId);
+        shelf = loader.get();
+        cache.put(shopperId, stamp, shelf);
+        return shelf;
+    }
+
+    /**
+     * Runs after the writing transaction commits, or immediately outside a transaction.
+     */
+    @Override
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onShelfChanged(ShelfChangedEvent event) {
+        if (cache != null) {
+            cache.invalidate(event.shopperId());
+        }
+    }
+
+    @Override
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductMetadataChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        if (!productShopperIndex.isEnabled() || !productShopperIndex.isReady()) {
+            cache.invalidateAll();
+            return;
+        }
+        for (String shopperId : productShopperIndex.shoppersOf(List.of(event.productId()))) {
+            cache.invalidate(shopperId);
+        }
+    }
+
+    @Override
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoteShelvesChanged(RemoteShelvesChangedEvent event) {
+        if (cache != null) {
+            event.shopperIds().forEach(cache::invalidate);
+        }
+    }
+
+    @Override
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRemoteProductsChanged(RemoteProductsChangedEvent event) {
+        if (cache == null) {
+            return;
+        }
+        if (!productShopperIndex.isEnabled() || !productShopperIndex.isReady()) {
+            cache.invalidateAll();
+            return;
+        }
+        productShopperIndex.shoppersOf(event.productIds()).forEach(cache::invalidate);
+    }
+}
@@ -0,0 +1,9 @@
+package com.assignment.personalized_app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ShelfExportService {
+    long exportShelf(String shopperId, OutputStream out) throws IOException;
+    long exportShelves(String fromShopperId, String toShopperId, OutputStream out) throws IOException;
+}
@@ -0,0 +1,220 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.ExportProperties;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Streams ranked shelves as NDJSON (one product per line) straight from a forward-only
+ * JDBC cursor to the response. Rows are never collected: each row is written as soon as
+ * it is read and the output is flushed once per fetch batch, so heap usage is constant
+ * regardless of how many rows are exported. Exports run read-only, so they are served
+ * by a replica when read/write routing is enabled.
+ * <p>
+ * With sharding, each shard is read in its own transaction without the product_metadata join,
+ * and category/brand come from {@link ProductCatalog}. A range export then walks the shards one
+ * after another, so shoppers are ordered within each shard rather than across the whole output.
+ */
+@Service
+public class ShelfExportServiceImpl implements ShelfExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShelfExportServiceImpl.class);
+
+    private static final String SELECT_COLUMNS = """
+            SELECT sp.shopper_id, sp.product_id, sp.relevancy_score, pm.category, pm.brand
+            FROM shopper_product sp
+            JOIN product_metadata pm ON pm.product_id = sp.product_id
+            """;
+
+    private static final String SHELF_SQL = SELECT_COLUMNS + """
+            WHERE sp.shopper_id = ?
+            ORDER BY sp.relevancy_score DESC
+            """;
+
+    // Ordered along idx_shopper_relevancy so the range is read as one index scan
+    private static final String RANGE_SQL = SELECT_COLUMNS + """
+            WHERE sp.shopper_id >= ? AND sp.shopper_id < ?
+            ORDER BY sp.shopper_id, sp.relevancy_score DESC
+            """;
+
+    private static final String SHARD_SELECT_COLUMNS = """
+            SELECT sp.shopper_id, sp.product_id, sp.relevancy_score
+            FROM shopper_product sp
+            """;
+
+    private static final String SHARD_SHELF_SQL = SHARD_SELECT_COLUMNS + """
+            WHERE sp.shopper_id = ?
+            ORDER BY sp.relevancy_score DESC
+            """;
+
+    private static final String SHARD_RANGE_SQL = SHARD_SELECT_COLUMNS + """
+            WHERE sp.shopper_id >= ? AND sp.shopper_id < ?
+            ORDER BY sp.shopper_id, sp.relevancy_score DESC
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ExportProperties exportProperties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ShardRouter shardRouter;
+    private final ProductCatalog productCatalog;
+
+    public ShelfExportServiceImpl(JdbcTemplate jdbcTemplate,
+                                  ObjectMapper objectMapper,
+                                  ExportProperties exportProperties,
+                                  DataSource dataSource,
+                                  ShardRouter shardRouter,
+                                  ProductCatalog productCatalog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.exportProperties = exportProperties;
+        // JDBC-only transactions: a JPA transaction would reuse the request's EntityManager
+        // connection (open-in-view), which stays on whichever shard it first touched
+        this.readOnlyTransaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.readOnlyTransaction.setReadOnly(true);
+        this.shardRouter = shardRouter;
+        this.productCatalog = productCatalog;
+    }
+
+    /**
+     * Writes the complete ranked shelf of one shopper.
+     *
+     * @return number of rows written
+     */
+    @Override
+    public long exportShelf(String shopperId, OutputStream out) throws IOException {
+        logger.info("Exporting shelf for shopperId={}", shopperId);
+        if (!shardRouter.isEnabled()) {
+            return stream(Collections.singletonList(null), SHELF_SQL, out, shopperId);
+        }
+        return stream(Collections.singletonList(shardRouter.shardOf(shopperId)), SHARD_SHELF_SQL, out, shopperId);
+    }
+
+    /**
+     * Writes every shelf whose shopperId falls in [fromShopperId, toShopperId),
+     * grouped by shopper and ranked within each shopper.
+     *
+     * @return number of rows written
+     */
+    @Override
+    public long exportShelves(String fromShopperId, String toShopperId, OutputStream out) throws IOException {
+        logger.info("Exporting shelves for shopperId range [{}, {})", fromShopperId, toShopperId);
+        if (!shardRouter.isEnabled()) {
+            return stream(Collections.singletonList(null), RANGE_SQL, out, fromShopperId, toShopperId);
+        }
+        return stream(shardRouter.shardNames(), SHARD_RANGE_SQL, out, fromShopperId, toShopperId);
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    /**
+     * Runs the query once per shard (a single null entry meaning the unsharded database),
+     * each in its own read-only transaction, writing all rows to one stream.
+     */
+    private long stream(List<String> shards, String sql, OutputStream out, String... params) throws IOException {
+        int fetchSize = exportProperties.getFetchSize();
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.setRootValueSeparator(null);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            NdjsonRowWriter writer = new NdjsonRowWriter(generator, fetchSize,
+                    shardRouter.isEnabled() ? productCatalog : null);
+
+            for (String shard : shards) {
+                shardRouter.inShard(shard, () -> readOnlyTransaction.execute(status -> {
+                    jdbcTemplate.query(cursor(sql, fetchSize, params), writer);
+                    return null;
+                }));
+            }
+
+            generator.flush();
+            logger.info("Export finished, rows={}", writer.rows);
+            return writer.rows;
+
+        } catch (UncheckedIOException e) {
+            // Client went away mid-stream; nothing more can be sent
+            logger.warn("Export aborted after write failure: {}", e.getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private PreparedStatementCreator cursor(String sql, int fetchSize, String... params) {
+        return con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setString(i + 1, params[i]);
+            }
+            return ps;
+        };
+    }
+
+    /**
+     * Serializes each row directly from the result set, without intermediate DTOs.
+     * Category and brand come from the catalog when one is given, otherwise from columns 4 and 5.
+     */
+    private static final class NdjsonRowWriter implements RowCallbackHandler {
+
+        private final JsonGenerator generator;
+        private final int flushEvery;
+        private final ProductCatalog catalog;
+        private long rows;
+
+        NdjsonRowWriter(JsonGenerator generator, int fetchSize, ProductCatalog catalog) {
+            this.generator = generator;
+            this.flushEvery = fetchSize > 0 ? fetchSize : 1000;
+            this.catalog = catalog;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                generator.writeStartObject();
+                generator.writeStringField("shopperId", rs.getString(1));
+                generator.writeStringField("productId", rs.getString(2));
+                generator.writeFieldName("relevancyScore");
+                generator.writeNumber(rs.getBigDecimal(3));
+                if (catalog == null) {
+                    generator.writeStringField("category", rs.getString(4));
+                    generator.writeStringField("brand", rs.getString(5));
+                } else {
+                    ProductCatalog.Entry entry = catalog.get(rs.getString(2));
+                    generator.writeStringField("category", entry == null ? null : entry.category());
+                    generator.writeStringField("brand", entry == null ? null : entry.brand());
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+
+                if (++rows % flushEvery == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.dto.IngestionSummaryDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+
+import java.io.InputStream;
+
+public interface ShelfIngestionService {
+    OperationResponse<IngestionSummaryDTO> ingest(InputStream ndjson);
+}
@@ -0,0 +1,294 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.IngestionProperties;
+import com.assignment.personalized_app.dto.IngestionSummaryDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.ShopperShelfDTO;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingests a streamed NDJSON body of many shelves, one {@link ShopperShelfDTO} per line.
+ * <p>
+ * The request thread parses the body incrementally and hands fixed-size batches of shelves
+ * to a single writer thread through a small bounded queue. Each batch is applied with
+ * {@link ShopperService#updateShelf} inside one transaction spanning all of its shoppers.
+ * When the database falls behind, the queue fills up and the request thread blocks, so the
+ * body is read no faster than it can be written. A batch that fails as a whole is rolled back
+ * and retried shelf by shelf, so one bad shelf only fails its own shopper.
+ * With sharding, a batch is split by shard and written as one transaction per shard.
+ */
+@Service
+public class ShelfIngestionServiceImpl implements ShelfIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShelfIngestionServiceImpl.class);
+
+    // Identity marker telling the writer that the body has been fully parsed
+    private static final List<ShopperShelfDTO> END_OF_STREAM = new ArrayList<>(0);
+
+    private final ShopperService shopperService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolTaskExecutor ingestionExecutor;
+    private final IngestionProperties properties;
+    private final ShardRouter shardRouter;
+
+    public ShelfIngestionServiceImpl(ShopperService shopperService,
+                                     TransactionTemplate transactionTemplate,
+                                     ObjectMapper objectMapper,
+                                     @Qualifier("ingestionExecutor") ThreadPoolTaskExecutor ingestionExecutor,
+                                     IngestionProperties properties,
+                                     ShardRouter shardRouter) {
+        this.shopperService = shopperService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.ingestionExecutor = ingestionExecutor;
+        this.properties = properties;
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Parses and applies all shelves in the body.
+     * A malformed line or a broken body stops parsing; shelves read before it are still
+     * applied and reported.
+     *
+     * @param ndjson request body, one shelf object per line
+     * @return OperationResponse with the per-shopper summary; unsuccessful only if the body was malformed
+     * @throws org.springframework.core.task.TaskRejectedException if too many ingestions are already running
+     */
+    @Override
+    public OperationResponse<IngestionSummaryDTO> ingest(InputStream ndjson) {
+        long started = System.currentTimeMillis();
+        int batchSize = Math.max(1, properties.getBatchSize());
+
+        IngestionTally tally = new IngestionTally(properties.getMaxReportedFailures());
+        BlockingQueue<List<ShopperShelfDTO>> queue =
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueDepth()));
+
+        Future<?> writer = ingestionExecutor.submit(() -> drain(queue, tally));
+        logger.info("Bulk shelf ingestion started, batchSize={}", batchSize);
+
+        String parseError = null;
+        long parsed = 0;
+        List<ShopperShelfDTO> batch = new ArrayList<>(batchSize);
+
+        try (MappingIterator<ShopperShelfDTO> shelves =
+                     objectMapper.readerFor(ShopperShelfDTO.class).readValues(ndjson)) {
+
+            while (shelves.hasNextValue()) {
+                batch.add(shelves.nextValue());
+                parsed++;
+
+                if (batch.size() == batchSize) {
+                    enqueue(queue, batch, writer);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+
+        } catch (JsonProcessingException e) {
+            parseError = "Malformed NDJSON after " + parsed + " shelves: " + e.getOriginalMessage();
+            logger.warn(parseError);
+        } catch (IOException e) {
+            parseError = "Failed to read NDJSON body after " + parsed + " shelves: " + e.getMessage();
+            logger.warn(parseError);
+        } finally {
+            // Shelves parsed before the end (or before a bad line) are still written
+            if (!batch.isEmpty()) {
+                enqueue(queue, batch, writer);
+            }
+            enqueue(queue, END_OF_STREAM, writer);
+        }
+
+        awaitWriter(writer);
+
+        IngestionSummaryDTO summary = tally.toSummary(System.currentTimeMillis() - started);
+        logger.info("Bulk shelf ingestion finished, shelves={}, succeeded={}, failed={}, batches={}, elapsedMs={}",
+                summary.getTotalShelves(), summary.getSucceededShelves(), summary.getFailedShelves(),
+                summary.getBatches(), summary.getElapsedMillis());
+
+        if (parseError != null) {
+            return new OperationResponse<>(false, parseError, summary);
+        }
+        return new OperationResponse<>(true, String.format(
+                "Ingested %d shelves (succeeded=%d, failed=%d)",
+                summary.getTotalShelves(), summary.getSucceededShelves(), summary.getFailedShelves()
+        ), summary);
+    }
+
+    /* ============================================================
+       WRITER
+       ============================================================ */
+
+    private void drain(BlockingQueue<List<ShopperShelfDTO>> queue, IngestionTally tally) {
+        try {
+            while (true) {
+                List<ShopperShelfDTO> batch = queue.take();
+                if (batch == END_OF_STREAM) {
+                    return;
+                }
+                writeBatch(batch, tally);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ingestion writer interrupted", e);
+        }
+    }
+
+    private void writeBatch(List<ShopperShelfDTO> batch, IngestionTally tally) {
+        for (List<ShopperShelfDTO> group : shardRouter.groupByShard(batch, this::shopperIdOf)) {
+            writeGroup(group, tally);
+        }
+        tally.batches++;
+    }
+
+    private void writeGroup(List<ShopperShelfDTO> group, IngestionTally tally) {
+        List<ShelfOutcome> outcomes;
+        try {
+            outcomes = transactionTemplate.execute(status -> group.stream().map(this::apply).toList());
+        } catch (RuntimeException e) {
+            logger.warn("Batch of {} shelves rolled back ({}), retrying shelves individually",
+                    group.size(), e.getMessage());
+            outcomes = group.stream().map(this::applyIsolated).toList();
+        }
+        outcomes.forEach(tally::record);
+    }
+
+    private ShelfOutcome apply(ShopperShelfDTO dto) {
+        return ShelfOutcome.of(shopperIdOf(dto), shopperService.updateShelf(dto));
+    }
+
+    private ShelfOutcome applyIsolated(ShopperShelfDTO dto) {
+        try {
+            return transactionTemplate.execute(status -> apply(dto));
+        } catch (RuntimeException e) {
+            logger.error("Error ingesting shelf for shopperId={}", shopperIdOf(dto), e);
+            return new ShelfOutcome(shopperIdOf(dto), false, "Failed to write shelf: " + e.getMessage(), 0, 0, 0);
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    /**
+     * Hands a batch to the writer, blocking while the queue is full.
+     * Gives up if the writer has died, so the request thread never waits forever.
+     */
+    private void enqueue(BlockingQueue<List<ShopperShelfDTO>> queue,
+                         List<ShopperShelfDTO> batch,
+                         Future<?> writer) {
+        try {
+            while (!queue.offer(batch, 1, TimeUnit.SECONDS)) {
+                if (writer.isDone()) {
+                    awaitWriter(writer);
+                    throw new IllegalStateException("Ingestion writer stopped unexpectedly");
+                }
+            }
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ingestion interrupted", e);
+        }
+    }
+
+    private void awaitWriter(Future<?> writer) {
+        try {
+            writer.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Ingestion writer failed", e.getCause());
+        } catch (InterruptedException e) {
+            writer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ingestion interrupted", e);
+        }
+    }
+
+    private String shopperIdOf(ShopperShelfDTO dto) {
+        return dto == null ? null : dto.getShopperId();
+    }
+
+    /* ============================================================
+       INTERNAL TYPES
+       ============================================================ */
+
+    private record ShelfOutcome(String shopperId, boolean success, String message,
+                                int inserted, int updated, int skipped) {
+
+        static ShelfOutcome of(String shopperId, OperationResponse<?> response) {
+            if (response.getData() instanceof Map<?, ?> data) {
+                return new ShelfOutcome(shopperId, response.isSuccess(), response.getMessage(),
+                        sizeOf(data.get("insertedProductIds")),
+                        sizeOf(data.get("updatedProductIds")),
+                        sizeOf(data.get("notSavedProductIds")));
+            }
+            return new ShelfOutcome(shopperId, response.isSuccess(), response.getMessage(), 0, 0, 0);
+        }
+
+        private static int sizeOf(Object value) {
+            return value instanceof Collection<?> c ? c.size() : 0;
+        }
+    }
+
+    /**
+     * Running totals; only touched by the writer thread and read after it has finished.
+     */
+    private static final class IngestionTally {
+
+        private final int maxReportedFailures;
+        private final Map<String, String> failures = new LinkedHashMap<>();
+        private long total;
+        private long succeeded;
+        private long inserted;
+        private long updated;
+        private long skipped;
+        private long batches;
+
+        IngestionTally(int maxReportedFailures) {
+            this.maxReportedFailures = maxReportedFailures;
+        }
+
+        void record(ShelfOutcome outcome) {
+            total++;
+            inserted += outcome.inserted();
+            updated += outcome.updated();
+            skipped += outcome.skipped();
+
+            if (outcome.success()) {
+                succeeded++;
+            } else if (failures.size() < maxReportedFailures) {
+                failures.put(String.valueOf(outcome.shopperId()), outcome.message());
+            }
+        }
+
+        IngestionSummaryDTO toSummary(long elapsedMillis) {
+            return IngestionSummaryDTO.builder()
+                    .totalShelves(total)
+                    .succeededShelves(succeeded)
+                    .failedShelves(total - succeeded)
+                    .insertedItems(inserted)
+                    .updatedItems(updated)
+                    .skippedItems(skipped)
+                    .batches(batches)
+                    .elapsedMillis(elapsedMillis)
+                    .failures(failures)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.dto.RetentionReportDTO;
+
+public interface ShelfRetentionService {
+    RetentionReportDTO run();
+}
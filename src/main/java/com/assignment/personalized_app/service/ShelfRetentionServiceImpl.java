@@ -0,0 +1,189 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.RetentionProperties;
+import com.assignment.personalized_app.dto.RetentionReportDTO;
+import com.assignment.personalized_app.entity.ShelfRefresh;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deletes shelves that have been neither sent nor written for {@code max-shelf-age}, and items
+ * scoring below {@code score-floor} from the other shelves.
+ * <p>
+ * A run walks each shard's shoppers in shopper_id order, {@code batch-size} at a time, reading
+ * each shopper's newest item write, last refresh (see {@link ShelfRefresh}) and lowest score.
+ * Re-sending an identical shelf writes no item, so the refresh time is what keeps a shelf that
+ * the recommender still sends alive. Shoppers past either limit are pruned through
+ * {@link ShopperService#pruneShelf}, one short transaction each that re-checks the limits under
+ * a lock on that shelf only, so live writes of other shoppers never wait and a shelf written
+ * since the scan is kept. The run sleeps for {@code pause} after every batch.
+ * <p>
+ * Snapshots are caught up by updated_at, which a deleted row no longer has, so the
+ * product-to-shoppers index restored from a snapshot older than a run can still list pruned
+ * items; that only widens later invalidations. Metrics: {@code shelf.retention.items.deleted}
+ * and {@code shelf.retention.shelves.deleted}.
+ */
+@Service
+public class ShelfRetentionServiceImpl implements ShelfRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShelfRetentionServiceImpl.class);
+
+    private static final String SHOPPER_BATCH_SQL = """
+            SELECT sp.shopper_id, MAX(sp.updated_at), MIN(sp.relevancy_score), MAX(r.refreshed_at)
+            FROM shopper_product sp LEFT JOIN shelf_refresh r ON r.shopper_id = sp.shopper_id
+            WHERE sp.shopper_id > ? GROUP BY sp.shopper_id ORDER BY sp.shopper_id LIMIT ?
+            """;
+
+    private final ShopperService shopperService;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskScheduler taskScheduler;
+    private final RetentionProperties properties;
+
+    private final Counter itemsDeleted;
+    private final Counter shelvesDeleted;
+
+    public ShelfRetentionServiceImpl(ShopperService shopperService,
+                                     ShardRouter shardRouter,
+                                     DataSource dataSource,
+                                     TaskScheduler taskScheduler,
+                                     RetentionProperties properties,
+                                     MeterRegistry meterRegistry) {
+        this.shopperService = shopperService;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+        this.itemsDeleted = meterRegistry.counter("shelf.retention.items.deleted");
+        this.shelvesDeleted = meterRegistry.counter("shelf.retention.shelves.deleted");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this::runQuietly,
+                Instant.now().plus(properties.getInitialDelay()), properties.getInterval());
+    }
+
+    /**
+     * Prunes every shard once.
+     *
+     * @return shoppers scanned, and shelves and items deleted
+     */
+    @Override
+    public RetentionReportDTO run() {
+        long started = System.currentTimeMillis();
+        Instant expiredBefore = properties.getMaxShelfAge() == null ? null
+                : Instant.now().minus(properties.getMaxShelfAge());
+        BigDecimal scoreFloor = properties.getScoreFloor();
+        long scanned = 0;
+        long shelves = 0;
+        long items = 0;
+
+        if (expiredBefore != null || scoreFloor != null) {
+            scan:
+            for (String shard : shards()) {
+                String after = "";
+                while (true) {
+                    String from = after;
+                    List<Candidate> batch = shardRouter.inShard(shard, () -> jdbcTemplate.query(SHOPPER_BATCH_SQL,
+                            (rs, i) -> new Candidate(rs.getString(1), rs.getTimestamp(2), rs.getBigDecimal(3),
+                                    rs.getTimestamp(4)),
+                            from, properties.getBatchSize()));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    for (Candidate candidate : batch) {
+                        scanned++;
+                        boolean expired = candidate.expired(expiredBefore);
+                        if (!expired && !candidate.belowFloor(scoreFloor)) {
+                            continue;
+                        }
+                        int deleted = shopperService.pruneShelf(candidate.shopperId(), expiredBefore, scoreFloor);
+                        items += deleted;
+                        if (expired && deleted > 0) {
+                            shelves++;
+                        }
+                    }
+                    after = batch.get(batch.size() - 1).shopperId();
+                    if (!pause()) {
+                        break scan;
+                    }
+                }
+            }
+        }
+
+        itemsDeleted.increment(items);
+        shelvesDeleted.increment(shelves);
+        long elapsed = System.currentTimeMillis() - started;
+        logger.info("Shelf retention finished, shoppersScanned={}, shelvesDeleted={}, itemsDeleted={}, elapsedMs={}",
+                scanned, shelves, items, elapsed);
+        return RetentionReportDTO.builder()
+                .shoppersScanned(scanned)
+                .shelvesDeleted(shelves)
+                .itemsDeleted(items)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    /**
+     * Sleeps between batches; false if the thread was interrupted and the run should stop.
+     */
+    private boolean pause() {
+        if (properties.getPause().isZero() || properties.getPause().isNegative()) {
+            return true;
+        }
+        try {
+            Thread.sleep(properties.getPause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<String> shards() {
+        return shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            logger.warn("Shelf retention failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private record Candidate(String shopperId, Timestamp lastWritten, BigDecimal lowestScore, Timestamp lastRefreshed) {
+
+        boolean expired(Instant expiredBefore) {
+            return expiredBefore != null && lastWritten != null && lastWritten.toInstant().isBefore(expiredBefore)
+                    && (lastRefreshed == null || lastRefreshed.toInstant().isBefore(expiredBefore));
+        }
+
+        boolean belowFloor(BigDecimal scoreFloor) {
+            return scoreFloor != null && lowestScore != null && lowestScore.compareTo(scoreFloor) < 0;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package com.assignment.personalized_app.service;
 
 import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
 import com.assignment.personalized_app.dto.ShopperShelfDTO;
 import org.springframework.http.ResponseEntity;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
 public interface ShopperService {
     OperationResponse<?>  saveShelf(ShopperShelfDTO dto);
     OperationResponse<?> updateShelf(ShopperShelfDTO dto);
+    int pruneShelf(String shopperId, Instant expiredBefore, BigDecimal scoreFloor);
     ResponseEntity<?> getProductsByShopper(String shopperId,String category,String brand,Integer limit,Integer page);
+    ResponseEntity<?> getFilteredProducts(String shopperId, List<String> categories, List<String> brands,
+                                          BigDecimal minScore, BigDecimal maxScore, Integer limit, Integer page);
+    List<String> getTopCategories(String shopperId, int limit);
+    Map<String, List<ShopperProductDTO>> getRankedShelves(List<String> shopperIds);
+    OperationResponse<PageResponseDTO<ShopperProductDTO>> getFirstPage(List<ShopperProductDTO> rankedShelf, String category, int pageSize);
 }
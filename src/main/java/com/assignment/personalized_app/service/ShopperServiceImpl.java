@@ -1,15 +1,37 @@
 package com.assignment.personalized_app.service;
 
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.coalescing.ShelfReadCoalescer;
+import com.assignment.personalized_app.coalescing.ShelfReadCoalescer.ShelfPageKey;
+import com.assignment.personalized_app.coherence.CacheCoherence;
+import com.assignment.personalized_app.config.ShelfDigestProperties;
+import com.assignment.personalized_app.config.StorageProperties;
+import com.assignment.personalized_app.datasource.ReadYourWritesTracker;
+import com.assignment.personalized_app.datasource.RoutingContext;
+import com.assignment.personalized_app.digest.ShelfDigest;
 import com.assignment.personalized_app.dto.*;
+import com.assignment.personalized_app.entity.ChangeType;
+import com.assignment.personalized_app.entity.CompactColumns;
 import com.assignment.personalized_app.entity.ProductMetadata;
 import com.assignment.personalized_app.entity.ShopperProduct;
+import com.assignment.personalized_app.entity.ShopperShelfDigest;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.logging.AccessLogContext;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
 import com.assignment.personalized_app.repository.ProductMetadataRepository;
+import com.assignment.personalized_app.repository.ShelfRefreshRepository;
 import com.assignment.personalized_app.repository.ShopperProductRepository;
+import com.assignment.personalized_app.repository.ShopperShelfDigestRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -17,28 +39,93 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 /**
  * Service implementation for managing shopper shelves and product retrieval.
+ * When sharding is enabled, each shelf write runs on the shard owning the shopper, and
+ * product metadata is validated and joined in memory through {@link ProductCatalog}.
+ * With shelf digests enabled, updates that re-send an applied shelf are acknowledged after one
+ * digest lookup, and only the changed chunks of other updates are validated and diffed.
+ * Every write that changes a shelf appends its new scores to the change outbox in the same
+ * transaction (see {@link ChangeOutbox}).
+ * With personalized.storage.max-items-per-shopper set, only each shelf's highest-scoring items
+ * are stored, and items pushed below the cut by a write are deleted in its transaction.
+ * Multi-value category/brand and score-range reads filter the ranked shelf in memory, through
+ * {@link ProductAttributeIndex} when it is enabled.
  */
 @Service
 public class ShopperServiceImpl implements ShopperService {
 
     private static final Logger logger = LoggerFactory.getLogger(ShopperServiceImpl.class);
     private static final int BATCH_SIZE = 50;
+    private static final int FILTER_CHUNK_SIZE = 1000;
+    private static final String PRODUCTS_FETCHED = "Products fetched successfully";
+    // Order in which items fall below the per-shopper cap: lowest score first, ties by productId
+    private static final Comparator<Map.Entry<String, BigDecimal>> CUT_ORDER =
+            Map.Entry.<String, BigDecimal>comparingByValue(Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Map.Entry.<String, BigDecimal>comparingByKey().reversed());
 
     private final ShopperProductRepository shopperProductRepository;
     private final ProductMetadataRepository productMetadataRepository;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final ShardRouter shardRouter;
+    private final ProductCatalog productCatalog;
+    private final ShelfReadCoalescer shelfReadCoalescer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductShopperIndex productShopperIndex;
+    private final FacetService facetService;
+    private final StorageProperties storageProperties;
+    private final ShopperShelfDigestRepository shelfDigestRepository;
+    private final ShelfDigestProperties shelfDigestProperties;
+    private final ShelfCacheService shelfCacheService;
+    private final ChangeOutbox changeOutbox;
+    private final CacheCoherence cacheCoherence;
+    private final ProductAttributeIndex productAttributeIndex;
+    private final ShelfRefreshRepository shelfRefreshRepository;
 
     @PersistenceContext
     private EntityManager entityManager;
 
     public ShopperServiceImpl(ShopperProductRepository shopperProductRepository,
-                              ProductMetadataRepository productMetadataRepository) {
+                              ProductMetadataRepository productMetadataRepository,
+                              ReadYourWritesTracker readYourWritesTracker,
+                              ShardRouter shardRouter,
+                              ProductCatalog productCatalog,
+                              ShelfReadCoalescer shelfReadCoalescer,
+                              ApplicationEventPublisher eventPublisher,
+                              ProductShopperIndex productShopperIndex,
+                              FacetService facetService,
+                              StorageProperties storageProperties,
+                              ShopperShelfDigestRepository shelfDigestRepository,
+                              ShelfDigestProperties shelfDigestProperties,
+                              ShelfCacheService shelfCacheService,
+                              ChangeOutbox changeOutbox,
+                              CacheCoherence cacheCoherence,
+                              ProductAttributeIndex productAttributeIndex,
+                              ShelfRefreshRepository shelfRefreshRepository) {
         this.shopperProductRepository = shopperProductRepository;
         this.productMetadataRepository = productMetadataRepository;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.shardRouter = shardRouter;
+        this.productCatalog = productCatalog;
+        this.shelfReadCoalescer = shelfReadCoalescer;
+        this.eventPublisher = eventPublisher;
+        this.productShopperIndex = productShopperIndex;
+        this.facetService = facetService;
+        this.storageProperties = storageProperties;
+        this.shelfDigestRepository = shelfDigestRepository;
+        this.shelfDigestProperties = shelfDigestProperties;
+        this.shelfCacheService = shelfCacheService;
+        this.changeOutbox = changeOutbox;
+        this.cacheCoherence = cacheCoherence;
+        this.productAttributeIndex = productAttributeIndex;
+        this.shelfRefreshRepository = shelfRefreshRepository;
     }
 
     /* ============================================================
@@ -57,31 +144,63 @@ public class ShopperServiceImpl implements ShopperService {
         }
 
         String shopperId = dto.getShopperId();
-        logger.info("Creating shelf for shopperId={}", shopperId);
+        logger.debug("Creating shelf for shopperId={}", shopperId);
+        AccessLogContext.shopper(shopperId);
+
+        if (!shardRouter.bindForWrite(shopperId)) {
+            return failure(rebalancingMessage(shopperId));
+        }
 
         if (shelfAlreadyExists(shopperId)) {
             return failure("Shelf already exists for shopperId=" + shopperId + ". Use updateShelf.");
         }
 
-        Map<String, BigDecimal> incomingMap = buildIncomingMap(dto.getShelf());
-        if (incomingMap.isEmpty()) {
+        Map<String, BigDecimal> payloadMap = buildIncomingMap(dto.getShelf());
+        if (payloadMap.isEmpty()) {
             return failure("No valid products found in shelf payload");
         }
+        List<String> unindexable = unindexableIds(payloadMap);
+        Map<String, BigDecimal> incomingMap = withoutKeys(payloadMap, unindexable);
+        if (incomingMap.isEmpty()) {
+            return failureWithData("No valid products found in shelf payload", Map.of("notSavedProductIds", unindexable));
+        }
 
         ValidationResult validationResult = validateProductIds(incomingMap.keySet());
         if (!validationResult.isValid()) {
             return failure("ProductIds missing in product metadata: " + validationResult.missingIds());
         }
 
-        List<ShopperProduct> entities = buildShopperProducts(shopperId, incomingMap);
+        int cap = storageProperties.getMaxItemsPerShopper();
+        Map<String, BigDecimal> keptMap = cap > 0 ? topItems(incomingMap, cap) : incomingMap;
+
+        List<ShopperProduct> entities = buildShopperProducts(shopperId, keptMap);
+        shelfRefreshRepository.touch(shopperId);
         shopperProductRepository.saveAll(entities);
+        if (shelfDigestProperties.isEnabled()) {
+            // The whole payload, so that re-sending it is recognised even if the cap cut it
+            storeDigest(shopperId, ShelfDigest.of(incomingMap, shelfDigestProperties.getChunks()));
+        }
+        changeOutbox.recordShelf(shopperId, ChangeType.SHELF_CREATED, keptMap);
+        cacheCoherence.recordShelfWrite(shopperId);
+        productShopperIndex.addAll(shopperId, keptMap.keySet());
+        facetService.recordAdded(shopperId, keptMap.keySet());
+        readYourWritesTracker.recordWrite(shopperId);
+        shelfReadCoalescer.invalidate(shopperId);
+        eventPublisher.publishEvent(new ShelfChangedEvent(shopperId));
 
-        logger.info("Shelf created for shopperId={}, totalItems={}", shopperId, entities.size());
+        AccessLogContext.rows(entities.size());
+        logger.debug("Shelf created for shopperId={}, totalItems={}", shopperId, entities.size());
 
-        return success(
-                "Shopper shelf created successfully",
-                Map.of("shopperId", shopperId, "totalItems", entities.size())
-        );
+        Map<String, Object> data = new HashMap<>();
+        data.put("shopperId", shopperId);
+        data.put("totalItems", entities.size());
+        if (cap > 0) {
+            data.put("overCapCount", incomingMap.size() - keptMap.size());
+        }
+        if (!unindexable.isEmpty()) {
+            data.put("notSavedProductIds", unindexable);
+        }
+        return success("Shopper shelf created successfully", data);
     }
 
     /* ============================================================
@@ -90,6 +209,10 @@ public class ShopperServiceImpl implements ShopperService {
 
     /**
      * Updates an existing shelf by inserting new products and updating changed relevancy scores.
+     * With shelf digests enabled, a shelf identical to the last applied one is acknowledged
+     * without validation or diffing, and otherwise only the products of changed chunks are.
+     * With a per-shopper cap, the shelf is locked and merged with the payload's top valid items,
+     * and stored items that fall below the cut are deleted.
      */
     @Override
     @Transactional
@@ -100,48 +223,185 @@ public class ShopperServiceImpl implements ShopperService {
         }
 
         String shopperId = dto.getShopperId();
-        logger.info("Updating shelf for shopperId={}", shopperId);
+        logger.debug("Updating shelf for shopperId={}", shopperId);
+        AccessLogContext.shopper(shopperId);
+
+        if (!shardRouter.bindForWrite(shopperId)) {
+            return failure(rebalancingMessage(shopperId));
+        }
 
         Map<String, BigDecimal> incomingMap = buildIncomingMap(dto.getShelf());
         if (incomingMap.isEmpty()) {
             return failure("Shelf payload is empty");
         }
 
-        ValidationResult validationResult = validateProductIds(incomingMap.keySet());
-        if (validationResult.allInvalid()) {
+        // Before the digest lookup: waits for a retention prune of this shelf to commit, and then
+        // finds its digest gone and applies the payload in full
+        shelfRefreshRepository.touch(shopperId);
+
+        int cap = storageProperties.getMaxItemsPerShopper();
+        ShelfDigest digest = null;
+        Map<String, BigDecimal> changedMap = incomingMap;
+        if (shelfDigestProperties.isEnabled()) {
+            digest = ShelfDigest.of(incomingMap, shelfDigestProperties.getChunks());
+            Optional<ShopperShelfDigest> stored = shelfDigestRepository.findById(shopperId);
+            if (stored.isPresent()) {
+                if (digest.matches(stored.get().getShelfHash())) {
+                    logger.debug("Shelf unchanged for shopperId={}, totalItems={}", shopperId, incomingMap.size());
+                    return success(
+                            "Shelf unchanged for shopperId=" + shopperId,
+                            Map.of(
+                                    "insertedProductIds", List.of(),
+                                    "updatedProductIds", List.of(),
+                                    "notSavedProductIds", List.of()
+                            )
+                    );
+                }
+                if (cap == 0) {
+                    // With a cap, items of unchanged chunks may have been cut and compete again
+                    changedMap = changedItems(incomingMap, digest, stored.get());
+                }
+            }
+        }
+
+        boolean wholePayload = changedMap.size() == incomingMap.size();
+        List<String> unindexable = unindexableIds(changedMap);
+        changedMap = withoutKeys(changedMap, unindexable);
+
+        ValidationResult validationResult = validateProductIds(changedMap.keySet());
+        List<String> notSaved = new ArrayList<>(unindexable);
+        notSaved.addAll(validationResult.missingIds());
+        if (validationResult.allInvalid() && wholePayload) {
             return failureWithData(
                     "No valid products found for shopperId=" + shopperId,
                     Map.of(
                             "insertedProductIds", List.of(),
                             "updatedProductIds", List.of(),
-                            "notSavedProductIds", validationResult.missingIds()
+                            "notSavedProductIds", notSaved
                     )
             );
         }
 
-        Map<String, BigDecimal> existingMap =
-                fetchExistingRelevancyMap(shopperId, validationResult.validIds());
+        Set<String> appliedIds = validationResult.validIds();
+        Map<String, BigDecimal> existingMap;
+        Map<String, BigDecimal> evicted = new HashMap<>();
+        if (cap > 0) {
+            // Only the payload's top valid items can make the cut; products missing from the
+            // catalog were left out first, so that they take none of its places
+            appliedIds = topItems(withoutKeys(changedMap, validationResult.missingIds()), cap).keySet();
+            existingMap = lockedShelf(shopperId);
+            Map<String, BigDecimal> merged = new HashMap<>(existingMap);
+            appliedIds.forEach(productId -> merged.put(productId, incomingMap.get(productId)));
+            if (merged.size() > cap) {
+                Set<String> kept = topItems(merged, cap).keySet();
+                existingMap.forEach((productId, score) -> {
+                    if (!kept.contains(productId)) {
+                        evicted.put(productId, score);
+                    }
+                });
+                appliedIds = appliedIds.stream().filter(kept::contains).collect(Collectors.toSet());
+            }
+        } else {
+            existingMap = fetchExistingRelevancyMap(shopperId, appliedIds);
+        }
 
         List<String> inserted = new ArrayList<>();
         List<String> updated = new ArrayList<>();
 
+        deleteItems(shopperId, evicted);
         processUpdatesAndInserts(
                 shopperId,
                 incomingMap,
-                validationResult.validIds(),
+                appliedIds,
                 existingMap,
                 inserted,
                 updated
         );
+        boolean changed = !inserted.isEmpty() || !updated.isEmpty() || !evicted.isEmpty();
 
-        return success(
-                buildUpdateMessage(shopperId, inserted, updated, validationResult.missingIds()),
-                Map.of(
-                        "insertedProductIds", inserted,
-                        "updatedProductIds", updated,
-                        "notSavedProductIds", validationResult.missingIds()
-                )
-        );
+        if (digest != null) {
+            // Covers the applied items only, so that products missing from the catalog are retried
+            storeDigest(shopperId, notSaved.isEmpty() ? digest
+                    : ShelfDigest.of(withoutKeys(incomingMap, notSaved), digest.chunks()));
+        }
+        if (changeOutbox.isEnabled()) {
+            changeOutbox.recordShelf(shopperId, ChangeType.SHELF_UPDATED, itemsOf(incomingMap, inserted, updated));
+        }
+        if (changed) {
+            cacheCoherence.recordShelfWrite(shopperId);
+        }
+
+        AccessLogContext.rows(inserted.size() + updated.size() + evicted.size());
+        productShopperIndex.addAll(shopperId, inserted);
+        facetService.recordAdded(shopperId, inserted);
+        if (changed) {
+            readYourWritesTracker.recordWrite(shopperId);
+            shelfReadCoalescer.invalidate(shopperId);
+            eventPublisher.publishEvent(new ShelfChangedEvent(shopperId));
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("insertedProductIds", inserted);
+        data.put("updatedProductIds", updated);
+        data.put("notSavedProductIds", notSaved);
+        if (cap > 0) {
+            data.put("evictedProductIds", new ArrayList<>(evicted.keySet()));
+            data.put("overCapCount", validationResult.validIds().size() - appliedIds.size());
+        }
+        return success(buildUpdateMessage(shopperId, inserted, updated, notSaved), data);
+    }
+
+    /* ============================================================
+       PRUNE SHELF
+       ============================================================ */
+
+    /**
+     * Deletes the shopper's whole shelf if it was neither sent nor had an item written since
+     * expiredBefore, and otherwise the items scoring below scoreFloor; either limit may be null.
+     * Facet counters, the product-to-shoppers index, the digest and caches follow as for any
+     * other shelf write.
+     * The refresh row and shelf rows are locked first, so a concurrent write of the same shopper
+     * waits for this short transaction rather than interleaving with it.
+     *
+     * @return items deleted; 0 also when the shopper's bucket is being rebalanced
+     */
+    @Override
+    @Transactional
+    public int pruneShelf(String shopperId, Instant expiredBefore, BigDecimal scoreFloor) {
+        if (!shardRouter.bindForWrite(shopperId)) {
+            return 0;
+        }
+
+        // Refresh row first, in the order saves and updates lock
+        List<Timestamp> refreshed = shelfRefreshRepository.lockRefreshedAt(shopperId);
+        List<Object[]> rows = shopperProductRepository.lockShelf(shopperId);
+        boolean expired = expiredBefore != null && !rows.isEmpty()
+                && refreshed.stream().allMatch(time -> time == null || time.toInstant().isBefore(expiredBefore))
+                && rows.stream().allMatch(row -> ((Timestamp) row[2]).toInstant().isBefore(expiredBefore));
+        Map<String, BigDecimal> removed = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            BigDecimal score = (BigDecimal) row[1];
+            if (expired || (scoreFloor != null && score != null && score.compareTo(scoreFloor) < 0)) {
+                removed.put((String) row[0], score);
+            }
+        }
+        if (removed.isEmpty()) {
+            return 0;
+        }
+
+        deleteItems(shopperId, removed);
+        // The digest no longer describes the shelf, so the next update is applied in full
+        shelfDigestRepository.deleteById(shopperId);
+        if (expired) {
+            shelfRefreshRepository.deleteById(shopperId);
+        }
+        cacheCoherence.recordShelfWrite(shopperId);
+        readYourWritesTracker.recordWrite(shopperId);
+        shelfReadCoalescer.invalidate(shopperId);
+        eventPublisher.publishEvent(new ShelfChangedEvent(shopperId));
+
+        logger.debug("Pruned shopperId={}, items={}, wholeShelf={}", shopperId, removed.size(), expired);
+        return removed.size();
     }
 
     /* ============================================================
@@ -150,6 +410,12 @@ public class ShopperServiceImpl implements ShopperService {
 
     /**
      * Retrieves paginated products for a shopper with optional filters.
+     * The query runs read-only, so it is served by a replica when routing is enabled,
+     * unless the shopper was written to within the read-your-writes window.
+     * With sharding, the query runs on the shopper's shard and category/brand come from the catalog.
+     * Identical concurrent requests share one fetch (see {@link ShelfReadCoalescer}).
+     * With the shelf cache enabled, the page is cut from the shopper's cached ranked shelf, which
+     * is read whole on a miss (see {@link ShelfCacheService}).
      */
     @Override
     public ResponseEntity<?> getProductsByShopper(
@@ -161,22 +427,30 @@ public class ShopperServiceImpl implements ShopperService {
     ) {
         try {
             PageRequest pageable = PageRequest.of(pageNumber, pageSize);
+            ShelfPageKey key = new ShelfPageKey(
+                    shopperId, normalize(category), normalize(brand), pageNumber, pageSize);
 
-            Page<ShopperProduct> page =
-                    shopperProductRepository.findByShopperWithFilters(
-                            shopperId,
-                            normalize(category),
-                            normalize(brand),
-                            pageable
-                    );
-
-            PageResponseDTO<ShopperProductDTO> response =
-                    mapToPageResponse(page, pageNumber);
+            PageResponseDTO<ShopperProductDTO> response = shelfReadCoalescer.read(key, () -> {
+                if (shelfCacheService.isEnabled()) {
+                    List<ShopperProductDTO> shelf =
+                            shelfCacheService.getShelf(shopperId, () -> primaryShelf(shopperId));
+                    return pageOf(shelf, key.category(), key.brand(), pageSize, pageNumber);
+                }
+                Page<ShopperProduct> page = shardRouter.inShardOf(shopperId, () ->
+                        readYourWritesTracker.read(shopperId, () ->
+                                findShelfPage(shopperId, key.category(), key.brand(), pageable)));
+                return mapToPageResponse(page, pageNumber);
+            });
+            AccessLogContext.rows(response.getContent().size());
 
             return ResponseEntity.ok(
-                    success("Products fetched successfully", response)
+                    success(PRODUCTS_FETCHED, response)
             );
 
+        } catch (TimeoutException e) {
+            logger.warn("Timed out fetching products for shopperId={}", shopperId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(failure("Timed out fetching products for shopper"));
         } catch (Exception e) {
             logger.error("Error fetching products for shopperId={}", shopperId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -184,6 +458,127 @@ public class ShopperServiceImpl implements ShopperService {
         }
     }
 
+    /**
+     * Retrieves paginated products for a shopper whose category is any of {@code categories},
+     * whose brand is any of {@code brands} and whose score lies within [minScore, maxScore].
+     * Empty lists and null bounds leave that constraint out.
+     * The shopper's ranked (productId, score) rows are read without joining product_metadata and
+     * filtered in memory: by score, then through the category and brand bitmaps of
+     * {@link ProductAttributeIndex} when it is ready, or else through {@link ProductCatalog}.
+     * Category and brand are looked up only for the rows of the returned page.
+     * With the shelf cache enabled, the cached ranked shelf is filtered instead.
+     */
+    @Override
+    public ResponseEntity<?> getFilteredProducts(
+            String shopperId,
+            List<String> categories,
+            List<String> brands,
+            BigDecimal minScore,
+            BigDecimal maxScore,
+            Integer pageSize,
+            Integer pageNumber
+    ) {
+        if (minScore != null && maxScore != null && minScore.compareTo(maxScore) > 0) {
+            return ResponseEntity.badRequest().body(failure("minScore must not be greater than maxScore"));
+        }
+        try {
+            Set<String> categorySet = valuesOf(categories);
+            Set<String> brandSet = valuesOf(brands);
+
+            PageResponseDTO<ShopperProductDTO> response;
+            if (shelfCacheService.isEnabled()) {
+                List<ShopperProductDTO> shelf = shelfCacheService.getShelf(shopperId, () -> primaryShelf(shopperId));
+                List<ShopperProductDTO> matching = shelf.stream()
+                        .filter(p -> inRange(p.getRelevancyScore(), minScore, maxScore))
+                        .filter(p -> categorySet.isEmpty() || categorySet.contains(p.getCategory()))
+                        .filter(p -> brandSet.isEmpty() || brandSet.contains(p.getBrand()))
+                        .toList();
+                Page<ShopperProductDTO> page = slice(matching, pageSize, pageNumber);
+                response = toPageResponse(page.getContent(), page, pageNumber);
+            } else {
+                response = shardRouter.inShardOf(shopperId, () ->
+                        readYourWritesTracker.read(shopperId, () -> findFilteredPage(
+                                shopperId, categorySet, brandSet, minScore, maxScore, pageSize, pageNumber)));
+            }
+            AccessLogContext.rows(response.getContent().size());
+
+            return ResponseEntity.ok(
+                    success(PRODUCTS_FETCHED, response)
+            );
+
+        } catch (Exception e) {
+            logger.error("Error fetching filtered products for shopperId={}", shopperId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(failure("Failed to fetch products for shopper"));
+        }
+    }
+
+    /**
+     * Categories of the shopper's shelf ordered by product count, largest first.
+     */
+    @Override
+    public List<String> getTopCategories(String shopperId, int limit) {
+        if (!shardRouter.isEnabled()) {
+            return shopperProductRepository.findTopCategories(shopperId, PageRequest.of(0, limit));
+        }
+
+        List<Object[]> ranked = shardRouter.inShardOf(shopperId, () ->
+                shopperProductRepository.findAllRankedProductIds(shopperId));
+        Map<String, ProductCatalog.Entry> catalog =
+                productCatalog.lookup(ranked.stream().map(row -> (String) row[0]).toList());
+        return catalog.values().stream()
+                .map(ProductCatalog.Entry::category)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(category -> category, Collectors.counting()))
+                .entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    /**
+     * Complete ranked shelves of several shoppers, read with one query per shard.
+     * Shoppers without a shelf are absent from the result.
+     */
+    @Override
+    public Map<String, List<ShopperProductDTO>> getRankedShelves(List<String> shopperIds) {
+        Map<String, List<ShopperProductDTO>> shelves = new LinkedHashMap<>();
+        for (List<String> group : shardRouter.groupByShard(shopperIds, shopperId -> shopperId)) {
+            if (group.isEmpty()) {
+                continue;
+            }
+            if (!shardRouter.isEnabled()) {
+                shopperProductRepository.findShelvesWithProducts(group).forEach(sp ->
+                        shelves.computeIfAbsent(sp.getShopperId(), id -> new ArrayList<>()).add(toDto(sp)));
+                continue;
+            }
+
+            List<Object[]> ranked = shardRouter.inShardOf(group.get(0), () ->
+                    shopperProductRepository.findAllRankedProductIdsOf(group));
+            Map<String, ProductCatalog.Entry> catalog =
+                    productCatalog.lookup(ranked.stream().map(row -> (String) row[1]).distinct().toList());
+            for (Object[] row : ranked) {
+                ShopperProduct sp = fromCatalog((String) row[0], new Object[]{row[1], row[2]}, catalog);
+                shelves.computeIfAbsent(sp.getShopperId(), id -> new ArrayList<>()).add(toDto(sp));
+            }
+        }
+        return shelves;
+    }
+
+    /**
+     * First page of a ranked shelf, optionally filtered by category, in the same form as the
+     * body {@link #getProductsByShopper} returns for it.
+     */
+    @Override
+    public OperationResponse<PageResponseDTO<ShopperProductDTO>> getFirstPage(
+            List<ShopperProductDTO> rankedShelf,
+            String category,
+            int pageSize
+    ) {
+        return success(PRODUCTS_FETCHED, pageOf(rankedShelf, category, null, pageSize, 0));
+    }
+
     /* ============================================================
        HELPER METHODS
        ============================================================ */
@@ -209,7 +604,9 @@ public class ShopperServiceImpl implements ShopperService {
     }
 
     private ValidationResult validateProductIds(Set<String> productIds) {
-        Set<String> valid = new HashSet<>(
+        Set<String> valid = productCatalog.isEnabled()
+                ? productCatalog.findExisting(productIds)
+                : new HashSet<>(
                 productMetadataRepository.findExistingProductIds(new ArrayList<>(productIds))
                         .orElse(List.of())
         );
@@ -263,7 +660,7 @@ public class ShopperServiceImpl implements ShopperService {
             if (existingMap.containsKey(productId)) {
                 if (incomingScore.compareTo(existingMap.get(productId)) != 0) {
                     shopperProductRepository.updateRelevancyScore(
-                            shopperId, productId, incomingScore
+                            shopperId, productId, incomingScore, CompactColumns.scaledScoreOrNull(incomingScore)
                     );
                     updated.add(productId);
                 }
@@ -288,19 +685,290 @@ public class ShopperServiceImpl implements ShopperService {
         entityManager.clear();
     }
 
-    private PageResponseDTO<ShopperProductDTO> mapToPageResponse(
-            Page<ShopperProduct> page,
+    private Page<ShopperProduct> findShelfPage(
+            String shopperId,
+            String category,
+            String brand,
+            PageRequest pageable
+    ) {
+        boolean compact = storageProperties.isCompactKeys();
+        if (!shardRouter.isEnabled()) {
+            return compact
+                    ? shopperProductRepository.findByShopperKeyWithFilters(
+                            CompactColumns.shopperKey(shopperId), shopperId, category, brand, pageable)
+                    : shopperProductRepository.findByShopperWithFilters(shopperId, category, brand, pageable);
+        }
+
+        // product_metadata is not on the shard: rank on the shard, join and filter in memory
+        if (category == null && brand == null) {
+            Page<Object[]> ranked = compact
+                    ? shopperProductRepository.findRankedProductIdsByKey(
+                            CompactColumns.shopperKey(shopperId), shopperId, pageable)
+                    : shopperProductRepository.findRankedProductIds(shopperId, pageable);
+            Map<String, ProductCatalog.Entry> catalog =
+                    productCatalog.lookup(ranked.getContent().stream().map(row -> (String) row[0]).toList());
+            return ranked.map(row -> fromCatalog(shopperId, row, catalog));
+        }
+
+        List<Object[]> ranked = compact
+                ? shopperProductRepository.findAllRankedProductIdsByKey(CompactColumns.shopperKey(shopperId), shopperId)
+                : shopperProductRepository.findAllRankedProductIds(shopperId);
+        Map<String, ProductCatalog.Entry> catalog =
+                productCatalog.lookup(ranked.stream().map(row -> (String) row[0]).toList());
+        List<ShopperProduct> matching = ranked.stream()
+                .map(row -> fromCatalog(shopperId, row, catalog))
+                .filter(sp -> (category == null || category.equals(sp.getProduct().getCategory()))
+                        && (brand == null || brand.equals(sp.getProduct().getBrand())))
+                .toList();
+
+        int from = (int) Math.min(pageable.getOffset(), matching.size());
+        int to = Math.min(from + pageable.getPageSize(), matching.size());
+        return new PageImpl<>(matching.subList(from, to), pageable, matching.size());
+    }
+
+    /**
+     * Filtered page of a ranked shelf on the current shard, in one pass over the ranked rows.
+     * Rows outside the score range are dropped first, then the rest are tested against the
+     * attribute bitmaps {@value #FILTER_CHUNK_SIZE} ids at a time; only the requested page's rows
+     * are kept, and later matches are counted for the totals. No product_metadata row is read
+     * for an item that is not on the page.
+     */
+    private PageResponseDTO<ShopperProductDTO> findFilteredPage(
+            String shopperId,
+            Set<String> categories,
+            Set<String> brands,
+            BigDecimal minScore,
+            BigDecimal maxScore,
+            int pageSize,
             int pageNumber
     ) {
+        List<Object[]> ranked = storageProperties.isCompactKeys()
+                ? shopperProductRepository.findAllRankedProductIdsByKey(CompactColumns.shopperKey(shopperId), shopperId)
+                : shopperProductRepository.findAllRankedProductIds(shopperId);
+        boolean indexed = productAttributeIndex.isEnabled() && productAttributeIndex.isReady();
+
+        long skip = (long) pageNumber * pageSize;
+        List<Object[]> pageRows = new ArrayList<>();
+        long matches = 0;
+        for (int from = 0; from < ranked.size(); from += FILTER_CHUNK_SIZE) {
+            List<Object[]> chunk = ranked.subList(from, Math.min(from + FILTER_CHUNK_SIZE, ranked.size())).stream()
+                    .filter(row -> inRange((BigDecimal) row[1], minScore, maxScore))
+                    .toList();
+            Predicate<String> matching = attributeFilter(categories, brands, chunk, indexed);
+            for (Object[] row : chunk) {
+                if (!matching.test((String) row[0])) {
+                    continue;
+                }
+                if (matches >= skip && pageRows.size() < pageSize) {
+                    pageRows.add(row);
+                }
+                matches++;
+            }
+        }
+        Page<Object[]> page = new PageImpl<>(pageRows, PageRequest.of(pageNumber, pageSize), matches);
+
+        List<String> pageIds = page.getContent().stream().map(row -> (String) row[0]).toList();
+        Map<String, ProductCatalog.Entry> catalog = indexed
+                ? productAttributeIndex.lookup(pageIds)
+                : productCatalog.lookup(pageIds);
         List<ShopperProductDTO> content = page.getContent().stream()
-                .map(sp -> ShopperProductDTO.builder()
-                        .productId(sp.getProduct().getProductId())
-                        .relevancyScore(sp.getRelevancyScore())
-                        .category(sp.getProduct().getCategory())
-                        .brand(sp.getProduct().getBrand())
+                .map(row -> toDto(fromCatalog(shopperId, row, catalog)))
+                .toList();
+        return toPageResponse(content, page, pageNumber);
+    }
+
+    /**
+     * Category and brand test for the product ids of a chunk of ranked rows, from the attribute
+     * bitmaps when they are loaded and from the catalog otherwise.
+     */
+    private Predicate<String> attributeFilter(Set<String> categories,
+                                              Set<String> brands,
+                                              List<Object[]> rows,
+                                              boolean indexed) {
+        if (categories.isEmpty() && brands.isEmpty()) {
+            return productId -> true;
+        }
+        List<String> productIds = rows.stream().map(row -> (String) row[0]).toList();
+        if (indexed) {
+            return productAttributeIndex.filter(categories, brands, productIds)::test;
+        }
+        Map<String, ProductCatalog.Entry> entries = productCatalog.lookup(productIds);
+        return productId -> {
+            ProductCatalog.Entry entry = entries.get(productId);
+            return entry != null
+                    && (categories.isEmpty() || categories.contains(entry.category()))
+                    && (brands.isEmpty() || brands.contains(entry.brand()));
+        };
+    }
+
+    /**
+     * Whole ranked shelf for the shelf cache, read from the primary: a cached shelf is served
+     * until the shopper's next write, so it must not be loaded from a lagging replica.
+     */
+    private List<ShopperProductDTO> primaryShelf(String shopperId) {
+        return RoutingContext.onPrimary(() ->
+                getRankedShelves(List.of(shopperId)).getOrDefault(shopperId, List.of()));
+    }
+
+    private ShopperProduct fromCatalog(String shopperId, Object[] row, Map<String, ProductCatalog.Entry> catalog) {
+        String productId = (String) row[0];
+        ProductCatalog.Entry entry = catalog.get(productId);
+        return ShopperProduct.builder()
+                .shopperId(shopperId)
+                .relevancyScore((BigDecimal) row[1])
+                .product(ProductMetadata.builder()
+                        .productId(productId)
+                        .category(entry == null ? null : entry.category())
+                        .brand(entry == null ? null : entry.brand())
                         .build())
+                .build();
+    }
+
+    /**
+     * Deletes items from the shopper's shelf along with their facet counts and index entries,
+     * and records them in the change outbox; runs in the caller's transaction.
+     */
+    private void deleteItems(String shopperId, Map<String, BigDecimal> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        shopperProductRepository.deleteItems(shopperId, items.keySet());
+        changeOutbox.recordShelf(shopperId, ChangeType.SHELF_ITEMS_DELETED, items);
+        productShopperIndex.removeAll(shopperId, items.keySet());
+        facetService.recordRemoved(shopperId, items.keySet());
+    }
+
+    /**
+     * Scores of every item on the shopper's shelf, locked until the transaction ends so that
+     * concurrent writes of the shopper apply the cap one after the other.
+     */
+    private Map<String, BigDecimal> lockedShelf(String shopperId) {
+        Map<String, BigDecimal> shelf = new HashMap<>();
+        shopperProductRepository.lockShelf(shopperId)
+                .forEach(row -> shelf.put((String) row[0], (BigDecimal) row[1]));
+        return shelf;
+    }
+
+    /**
+     * The k highest-scoring items, chosen with a heap of k items rather than by sorting them all.
+     */
+    private static Map<String, BigDecimal> topItems(Map<String, BigDecimal> items, int k) {
+        if (items.size() <= k) {
+            return items;
+        }
+        PriorityQueue<Map.Entry<String, BigDecimal>> heap = new PriorityQueue<>(k + 1, CUT_ORDER);
+        for (Map.Entry<String, BigDecimal> item : items.entrySet()) {
+            if (heap.size() < k) {
+                heap.add(item);
+            } else if (CUT_ORDER.compare(item, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(item);
+            }
+        }
+        Map<String, BigDecimal> top = new HashMap<>();
+        heap.forEach(item -> top.put(item.getKey(), item.getValue()));
+        return top;
+    }
+
+    /**
+     * Incoming items of the chunks whose hash differs from the stored digest. The other items were
+     * applied with the same scores by an earlier write and need neither validation nor diffing.
+     */
+    private Map<String, BigDecimal> changedItems(
+            Map<String, BigDecimal> incomingMap,
+            ShelfDigest digest,
+            ShopperShelfDigest stored
+    ) {
+        BitSet changedChunks = digest.changedChunks(stored.getChunkHashes());
+        Map<String, BigDecimal> changed = new HashMap<>();
+        incomingMap.forEach((productId, score) -> {
+            if (changedChunks.get(ShelfDigest.chunkOf(productId, digest.chunks()))) {
+                changed.put(productId, score);
+            }
+        });
+        logger.debug("Shelf digest for shopperId={}: changedChunks={}/{}, changedItems={}/{}",
+                stored.getShopperId(), changedChunks.cardinality(), digest.chunks(), changed.size(), incomingMap.size());
+        return changed;
+    }
+
+    /**
+     * Items whose score idx_shopper_key_score cannot order, refused while compact keys are on
+     * rather than stored without a scaled score.
+     */
+    private List<String> unindexableIds(Map<String, BigDecimal> items) {
+        if (!storageProperties.isCompactKeys()) {
+            return List.of();
+        }
+        return items.entrySet().stream()
+                .filter(item -> !CompactColumns.fits(item.getValue()))
+                .map(Map.Entry::getKey)
                 .toList();
+    }
+
+    private Map<String, BigDecimal> withoutKeys(Map<String, BigDecimal> map, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return map;
+        }
+        Map<String, BigDecimal> remaining = new HashMap<>(map);
+        keys.forEach(remaining::remove);
+        return remaining;
+    }
+
+    private Map<String, BigDecimal> itemsOf(Map<String, BigDecimal> incomingMap,
+                                            List<String> inserted,
+                                            List<String> updated) {
+        Map<String, BigDecimal> items = new HashMap<>();
+        inserted.forEach(productId -> items.put(productId, incomingMap.get(productId)));
+        updated.forEach(productId -> items.put(productId, incomingMap.get(productId)));
+        return items;
+    }
+
+    private void storeDigest(String shopperId, ShelfDigest digest) {
+        shelfDigestRepository.upsert(shopperId, digest.shelfHash(), digest.chunkHashes(), digest.itemCount());
+    }
+
+    private String rebalancingMessage(String shopperId) {
+        return "Shelf for shopperId=" + shopperId + " is being rebalanced, retry later";
+    }
+
+    private PageResponseDTO<ShopperProductDTO> mapToPageResponse(
+            Page<ShopperProduct> page,
+            int pageNumber
+    ) {
+        return toPageResponse(page.getContent().stream().map(this::toDto).toList(), page, pageNumber);
+    }
+
+    /**
+     * Page of a ranked shelf, filtered in memory as the sharded query path does.
+     */
+    private PageResponseDTO<ShopperProductDTO> pageOf(
+            List<ShopperProductDTO> rankedShelf,
+            String category,
+            String brand,
+            int pageSize,
+            int pageNumber
+    ) {
+        List<ShopperProductDTO> matching = category == null && brand == null
+                ? rankedShelf
+                : rankedShelf.stream()
+                        .filter(p -> category == null || category.equals(p.getCategory()))
+                        .filter(p -> brand == null || brand.equals(p.getBrand()))
+                        .toList();
+        Page<ShopperProductDTO> page = slice(matching, pageSize, pageNumber);
+        return toPageResponse(page.getContent(), page, pageNumber);
+    }
 
+    private static <T> Page<T> slice(List<T> matching, int pageSize, int pageNumber) {
+        int from = (int) Math.min((long) pageNumber * pageSize, matching.size());
+        return new PageImpl<>(matching.subList(from, Math.min(from + pageSize, matching.size())),
+                PageRequest.of(pageNumber, pageSize), matching.size());
+    }
+
+    private PageResponseDTO<ShopperProductDTO> toPageResponse(
+            List<ShopperProductDTO> content,
+            Page<?> page,
+            int pageNumber
+    ) {
         return PageResponseDTO.<ShopperProductDTO>builder()
                 .content(content)
                 .currentPage(pageNumber)
@@ -309,10 +977,35 @@ public class ShopperServiceImpl implements ShopperService {
                 .build();
     }
 
+    private ShopperProductDTO toDto(ShopperProduct sp) {
+        return ShopperProductDTO.builder()
+                .productId(sp.getProduct().getProductId())
+                .relevancyScore(sp.getRelevancyScore())
+                .category(sp.getProduct().getCategory())
+                .brand(sp.getProduct().getBrand())
+                .build();
+    }
+
     private String normalize(String value) {
         return (value == null || value.isBlank()) ? null : value;
     }
 
+    private Set<String> valuesOf(List<String> values) {
+        return values == null ? Set.of() : values.stream()
+                .map(this::normalize)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private static boolean inRange(BigDecimal score, BigDecimal minScore, BigDecimal maxScore) {
+        if (minScore == null && maxScore == null) {
+            return true;
+        }
+        return score != null
+                && (minScore == null || score.compareTo(minScore) >= 0)
+                && (maxScore == null || score.compareTo(maxScore) <= 0);
+    }
+
     private String buildUpdateMessage(
             String shopperId,
             List<String> inserted,
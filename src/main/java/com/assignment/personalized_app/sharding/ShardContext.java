@@ -0,0 +1,133 @@
+package com.assignment.personalized_app.sharding;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread shard selection for {@link ShardRoutingDataSource}.
+ * <p>
+ * Outside a transaction a shard is selected for a block of work with {@link #inShard}.
+ * Inside a transaction, {@link #bindToTransaction} pins the transaction to one shard until it
+ * completes: a transaction only ever holds one physical connection, so touching a second shard
+ * from it fails fast instead of silently writing to the wrong database. The pin follows the
+ * transaction through suspension, so a REQUIRES_NEW transaction started from a pinned one
+ * starts unpinned and the outer pin is restored when it resumes.
+ * <p>
+ * Because connections are acquired lazily, the shard must be selected before the first
+ * statement of the transaction runs.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private static final Object PIN_KEY = new Object();
+
+    private ShardContext() {
+    }
+
+    /**
+     * Shard selected on this thread, or null for the catalog database.
+     */
+    public static String currentShard() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the given work against one shard, restoring the previous selection afterwards.
+     *
+     * @throws IllegalStateException if the current transaction is pinned to another shard
+     */
+    public static <T> T inShard(String shard, Supplier<T> work) {
+        checkAccess(shard);
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    /**
+     * Pins the current transaction to the given shard. Binding the same shard again is a no-op.
+     *
+     * @throws IllegalStateException if there is no transaction, or it is pinned to another shard
+     */
+    public static void bindToTransaction(String shard) {
+        Objects.requireNonNull(shard, "shard");
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No active transaction to bind shard " + shard + " to");
+        }
+        ShardPin pin = (ShardPin) TransactionSynchronizationManager.getResource(PIN_KEY);
+        if (pin != null) {
+            checkAccess(shard);
+            return;
+        }
+        pin = new ShardPin(shard, CURRENT.get());
+        TransactionSynchronizationManager.bindResource(PIN_KEY, pin);
+        TransactionSynchronizationManager.registerSynchronization(pin);
+        CURRENT.set(shard);
+    }
+
+    /**
+     * Shard the current transaction is pinned to, or null.
+     */
+    public static String pinnedShard() {
+        ShardPin pin = (ShardPin) TransactionSynchronizationManager.getResource(PIN_KEY);
+        return pin == null ? null : pin.shard;
+    }
+
+    /**
+     * Fails if the current transaction is pinned to a shard other than the given one.
+     */
+    static void checkAccess(String shard) {
+        String pinned = pinnedShard();
+        if (pinned != null && !pinned.equals(shard)) {
+            throw new IllegalStateException("Transaction is bound to shard " + pinned
+                    + " and cannot use " + (shard == null ? "the catalog database" : "shard " + shard));
+        }
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Transaction-scoped shard binding; releases itself when the transaction completes.
+     */
+    private static final class ShardPin implements TransactionSynchronization {
+
+        private final String shard;
+        private final String previous;
+
+        ShardPin(String shard, String previous) {
+            this.shard = shard;
+            this.previous = previous;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PIN_KEY);
+            restore(previous);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(PIN_KEY, this);
+            CURRENT.set(shard);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PIN_KEY);
+            restore(previous);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.assignment.personalized_app.sharding;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stable hash of a shopperId onto a fixed number of buckets.
+ * Uses 32-bit MurmurHash3 over the UTF-8 bytes, so the bucket of a shopper never depends
+ * on the JVM, the node or String.hashCode(). Buckets, not shoppers, are assigned to shards.
+ */
+public final class ShardHash {
+
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+
+    private ShardHash() {
+    }
+
+    public static int bucketOf(String shopperId, int buckets) {
+        return (int) (Integer.toUnsignedLong(murmur3(shopperId.getBytes(StandardCharsets.UTF_8))) % buckets);
+    }
+
+    static int murmur3(byte[] data) {
+        int h = 0;
+        int length = data.length;
+        int blocks = length / 4;
+
+        for (int i = 0; i < blocks; i++) {
+            int offset = i * 4;
+            int k = (data[offset] & 0xff)
+                    | (data[offset + 1] & 0xff) << 8
+                    | (data[offset + 2] & 0xff) << 16
+                    | (data[offset + 3] & 0xff) << 24;
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+
+        int tail = blocks * 4;
+        int k = 0;
+        switch (length & 3) {
+            case 3:
+                k ^= (data[tail + 2] & 0xff) << 16;
+            case 2:
+                k ^= (data[tail + 1] & 0xff) << 8;
+            case 1:
+                k ^= data[tail] & 0xff;
+                h ^= mixK(k);
+            default:
+                break;
+        }
+
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        return k * C2;
+    }
+}
@@ -0,0 +1,173 @@
+package com.assignment.personalized_app.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.*;
+
+/**
+ * Assignment of hash buckets to shards, stored in the shard_map table of the catalog database
+ * and cached in memory.
+ * <p>
+ * Shoppers hash onto a fixed number of buckets ({@link ShardHash}); only the bucket-to-shard
+ * assignment changes when shards are added or rebalanced, so a bucket can be moved without
+ * rehashing anyone else. Every node reads the table on startup and then every refresh interval;
+ * a bucket flagged as migrating accepts reads but no writes until the rebalancer has moved it.
+ */
+public class ShardMap {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardMap.class);
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS shard_map (
+                bucket INT NOT NULL PRIMARY KEY,
+                shard VARCHAR(64) NOT NULL,
+                migrating BOOLEAN NOT NULL DEFAULT FALSE
+            )
+            """;
+
+    private final JdbcTemplate catalogJdbc;
+    private final int buckets;
+    private final List<String> shardNames;
+
+    private volatile Snapshot snapshot;
+
+    public ShardMap(JdbcTemplate catalogJdbc, int buckets, List<String> shardNames) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Bucket count must be positive");
+        }
+        if (shardNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.catalogJdbc = catalogJdbc;
+        this.buckets = buckets;
+        this.shardNames = List.copyOf(shardNames);
+    }
+
+    /**
+     * Creates and seeds the table on first use (bucket i on shard i mod n), then loads it.
+     * The bucket count is fixed once seeded; changing it would move every shopper.
+     */
+    public void initialize() {
+        catalogJdbc.execute(CREATE_TABLE_SQL);
+
+        Integer existing = catalogJdbc.queryForObject("SELECT COUNT(*) FROM shard_map", Integer.class);
+        if (existing == null || existing == 0) {
+            List<Object[]> rows = new ArrayList<>(buckets);
+            for (int bucket = 0; bucket < buckets; bucket++) {
+                rows.add(new Object[]{bucket, shardNames.get(bucket % shardNames.size())});
+            }
+            catalogJdbc.batchUpdate("INSERT INTO shard_map (bucket, shard, migrating) VALUES (?, ?, FALSE)", rows);
+            logger.info("Seeded shard map with {} buckets over shards {}", buckets, shardNames);
+        } else if (existing != buckets) {
+            throw new IllegalStateException("shard_map holds " + existing
+                    + " buckets but personalized.sharding.buckets=" + buckets);
+        }
+
+        refresh();
+    }
+
+    /**
+     * Reloads the assignment from the catalog database.
+     */
+    public void refresh() {
+        String[] shards = new String[buckets];
+        BitSet migrating = new BitSet(buckets);
+
+        catalogJdbc.query("SELECT bucket, shard, migrating FROM shard_map", rs -> {
+            int bucket = rs.getInt(1);
+            String shard = rs.getString(2);
+            if (bucket < 0 || bucket >= buckets) {
+                throw new IllegalStateException("shard_map contains unexpected bucket " + bucket);
+            }
+            if (!shardNames.contains(shard)) {
+                throw new IllegalStateException("Bucket " + bucket + " is assigned to unknown shard " + shard);
+            }
+            shards[bucket] = shard;
+            if (rs.getBoolean(3)) {
+                migrating.set(bucket);
+            }
+        });
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            if (shards[bucket] == null) {
+                throw new IllegalStateException("shard_map has no row for bucket " + bucket);
+            }
+        }
+        snapshot = new Snapshot(shards, migrating);
+    }
+
+    /**
+     * Scheduled refresh; keeps serving the last good assignment if the reload fails.
+     */
+    public void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Shard map refresh failed, keeping previous assignment: {}", e.getMessage());
+        }
+    }
+
+    public int bucketOf(String shopperId) {
+        return ShardHash.bucketOf(shopperId, buckets);
+    }
+
+    public String shardFor(String shopperId) {
+        return shardOfBucket(bucketOf(shopperId));
+    }
+
+    public String shardOfBucket(int bucket) {
+        return snapshot.shards[bucket];
+    }
+
+    public boolean isMigrating(int bucket) {
+        return snapshot.migrating.get(bucket);
+    }
+
+    /**
+     * Freezes or unfreezes writes to a bucket on every node (after their next refresh).
+     */
+    public void setMigrating(int bucket, boolean migrating) {
+        catalogJdbc.update("UPDATE shard_map SET migrating = ? WHERE bucket = ?", migrating, bucket);
+        refresh();
+    }
+
+    /**
+     * Moves a bucket to another shard and reopens it for writes.
+     */
+    public void assign(int bucket, String shard) {
+        if (!shardNames.contains(shard)) {
+            throw new IllegalArgumentException("Unknown shard " + shard);
+        }
+        catalogJdbc.update("UPDATE shard_map SET shard = ?, migrating = FALSE WHERE bucket = ?", shard, bucket);
+        refresh();
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+
+    public List<String> shardNames() {
+        return shardNames;
+    }
+
+    public Map<String, Integer> bucketsPerShard() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        shardNames.forEach(name -> counts.put(name, 0));
+        for (String shard : snapshot.shards) {
+            counts.merge(shard, 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    public List<Integer> migratingBuckets() {
+        return snapshot.migrating.stream().boxed().toList();
+    }
+
+    /**
+     * Immutable view of the assignment, swapped as a whole on refresh.
+     */
+    private record Snapshot(String[] shards, BitSet migrating) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.assignment.personalized_app.sharding;
+
+import com.assignment.personalized_app.dto.RebalanceReportDTO;
+import com.assignment.personalized_app.entity.CompactColumns;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves one bucket of shoppers from its current shard to another while the service stays online.
+ * <ol>
+ *   <li>The bucket is flagged as migrating; writes to its shoppers are refused while reads
+ *       keep going to the source shard.</li>
+ *   <li>After the settle time (every node has refreshed its map and in-flight writes have
+ *       finished), the bucket's shelves, facet counters, shelf versions and refresh times are copied to
+ *       the target in batches, keeping each row's updated_at and refreshed_at so that retention age and
+ *       snapshot catch-up see the shelves as unchanged. Target rows are replaced, so a failed move can simply be retried.</li>
+ *   <li>The bucket is assigned to the target and writes resume there.</li>
+ *   <li>After another settle time (no node still reads from the source), the source rows are deleted.</li>
+ * </ol>
+ * Works directly on the shard data sources, outside the routing layer.
+ */
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO shopper_product (shopper_id, product_id, relevancy_score, shopper_key, score_scaled, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_FACET_SQL =
+            "INSERT INTO shopper_facet (shopper_id, facet_type, facet_value, product_count) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_VERSION_SQL =
+            "INSERT INTO shelf_version (shopper_id, version, writer, updated_at) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_REFRESH_SQL =
+            "INSERT INTO shelf_refresh (shopper_id, refreshed_at) VALUES (?, ?)";
+
+    private final ShardMap shardMap;
+    private final Map<String, DataSource> shards;
+    private final int batchSize;
+    private final Duration settleTime;
+
+    public ShardRebalancer(ShardMap shardMap, Map<String, DataSource> shards, int batchSize, Duration settleTime) {
+        this.shardMap = shardMap;
+        this.shards = new LinkedHashMap<>(shards);
+        this.batchSize = Math.max(1, batchSize);
+        this.settleTime = settleTime == null ? Duration.ZERO : settleTime;
+    }
+
+    /**
+     * Moves a bucket to the target shard. Only one move runs at a time on this node.
+     *
+     * @throws IllegalArgumentException for an unknown bucket or shard, or a bucket already on the target
+     */
+    public synchronized RebalanceReportDTO moveBucket(int bucket, String targetShard) {
+        if (bucket < 0 || bucket >= shardMap.buckets()) {
+            throw new IllegalArgumentException("Bucket must be between 0 and " + (shardMap.buckets() - 1));
+        }
+        if (!shards.containsKey(targetShard)) {
+            throw new IllegalArgumentException("Unknown shard " + targetShard);
+        }
+        String sourceShard = shardMap.shardOfBucket(bucket);
+        if (sourceShard.equals(targetShard)) {
+            throw new IllegalArgumentException("Bucket " + bucket + " is already on shard " + targetShard);
+        }
+
+        long started = System.currentTimeMillis();
+        NamedParameterJdbcTemplate source = new NamedParameterJdbcTemplate(shards.get(sourceShard));
+        NamedParameterJdbcTemplate target = new NamedParameterJdbcTemplate(shards.get(targetShard));
+        TransactionTemplate targetTransaction =
+                new TransactionTemplate(new DataSourceTransactionManager(shards.get(targetShard)));
+
+        logger.info("Rebalancing bucket {} from shard {} to shard {}", bucket, sourceShard, targetShard);
+        shardMap.setMigrating(bucket, true);
+
+        List<List<String>> chunks;
+        long rowsCopied = 0;
+        try {
+            settle();
+            chunks = chunk(shoppersInBucket(source, bucket));
+
+            for (List<String> shopperIds : chunks) {
+                List<Object[]> rows = readRows(source, shopperIds);
+                List<Object[]> facets = readFacets(source, shopperIds);
+                List<Object[]> versions = readVersions(source, shopperIds);
+                List<Object[]> refreshes = readRefreshes(source, shopperIds);
+                targetTransaction.executeWithoutResult(status -> {
+                    MapSqlParameterSource ids = new MapSqlParameterSource("ids", shopperIds);
+                    target.update("DELETE FROM shopper_product WHERE shopper_id IN (:ids)", ids);
+                    target.update("DELETE FROM shopper_facet WHERE shopper_id IN (:ids)", ids);
+                    target.update("DELETE FROM shopper_shelf_digest WHERE shopper_id IN (:ids)", ids);
+                    target.update("DELETE FROM shelf_version WHERE shopper_id IN (:ids)", ids);
+                    target.update("DELETE FROM shelf_refresh WHERE shopper_id IN (:ids)", ids);
+                    target.getJdbcTemplate().batchUpdate(INSERT_SQL, rows);
+                    target.getJdbcTemplate().batchUpdate(INSERT_FACET_SQL, facets);
+                    target.getJdbcTemplate().batchUpdate(INSERT_VERSION_SQL, versions);
+                    target.getJdbcTemplate().batchUpdate(INSERT_REFRESH_SQL, refreshes);
+                });
+                rowsCopied += rows.size();
+            }
+
+            shardMap.assign(bucket, targetShard);
+        } catch (RuntimeException e) {
+            // The source still owns the bucket; rows already copied are overwritten on retry
+            logger.error("Rebalancing bucket {} failed, bucket stays on shard {}", bucket, sourceShard, e);
+            shardMap.setMigrating(bucket, false);
+            throw e;
+        }
+
+        settle();
+        long rowsDeleted = 0;
+        for (List<String> shopperIds : chunks) {
+            MapSqlParameterSource ids = new MapSqlParameterSource("ids", shopperIds);
+            rowsDeleted += source.update("DELETE FROM shopper_product WHERE shopper_id IN (:ids)", ids);
+            source.update("DELETE FROM shopper_facet WHERE shopper_id IN (:ids)", ids);
+            source.update("DELETE FROM shopper_shelf_digest WHERE shopper_id IN (:ids)", ids);
+            source.update("DELETE FROM shelf_version WHERE shopper_id IN (:ids)", ids);
+            source.update("DELETE FROM shelf_refresh WHERE shopper_id IN (:ids)", ids);
+        }
+
+        long shoppers = chunks.stream().mapToLong(List::size).sum();
+        logger.info("Rebalanced bucket {} from {} to {}: shoppers={}, rowsCopied={}, rowsDeleted={}",
+                bucket, sourceShard, targetShard, shoppers, rowsCopied, rowsDeleted);
+
+        return RebalanceReportDTO.builder()
+                .bucket(bucket)
+                .sourceShard(sourceShard)
+                .targetShard(targetShard)
+                .shoppersMoved(shoppers)
+                .rowsCopied(rowsCopied)
+                .rowsDeleted(rowsDeleted)
+                .elapsedMillis(System.currentTimeMillis() - started)
+                .build();
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private List<String> shoppersInBucket(NamedParameterJdbcTemplate source, int bucket) {
+        List<String> shopperIds = new ArrayList<>();
+        source.getJdbcTemplate().query("SELECT DISTINCT shopper_id FROM shopper_product", rs -> {
+            String shopperId = rs.getString(1);
+            if (shardMap.bucketOf(shopperId) == bucket) {
+                shopperIds.add(shopperId);
+            }
+        });
+        return shopperIds;
+    }
+
+    private List<Object[]> readRows(NamedParameterJdbcTemplate source, List<String> shopperIds) {
+        return source.query(
+                "SELECT shopper_id, product_id, relevancy_score, updated_at FROM shopper_product WHERE shopper_id IN (:ids)",
+                new MapSqlParameterSource("ids", shopperIds),
+                (rs, rowNum) -> {
+                    String shopperId = rs.getString(1);
+                    BigDecimal score = rs.getObject(3, BigDecimal.class);
+                    // Derived again rather than copied, so rows not yet backfilled arrive complete
+                    return new Object[]{shopperId, rs.getString(2), score,
+                            CompactColumns.shopperKey(shopperId), CompactColumns.scaledScoreOrNull(score), rs.getTimestamp(4)};
+                });
+    }
+
+    private List<Object[]> readVersions(NamedParameterJdbcTemplate source, List<String> shopperIds) {
+        return source.query(
+                "SELECT shopper_id, version, writer, updated_at FROM shelf_version WHERE shopper_id IN (:ids)",
+                new MapSqlParameterSource("ids", shopperIds),
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getLong(2), rs.getString(3), rs.getTimestamp(4)});
+    }
+
+    private List<Object[]> readRefreshes(NamedParameterJdbcTemplate source, List<String> shopperIds) {
+        return source.query(
+                "SELECT shopper_id, refreshed_at FROM shelf_refresh WHERE shopper_id IN (:ids)",
+                new MapSqlParameterSource("ids", shopperIds),
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getTimestamp(2)});
+    }
+
+    private List<Object[]> readFacets(NamedParameterJdbcTemplate source, List<String> shopperIds) {
+        return source.query(
+                "SELECT shopper_id, facet_type, facet_value, product_count FROM shopper_facet WHERE shopper_id IN (:ids)",
+                new MapSqlParameterSource("ids", shopperIds),
+                (rs, rowNum) -> new Object[]{rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4)});
+    }
+
+    private List<List<String>> chunk(List<String> shopperIds) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < shopperIds.size(); i += batchSize) {
+            chunks.add(shopperIds.subList(i, Math.min(i + batchSize, shopperIds.size())));
+        }
+        return chunks;
+    }
+
+    private void settle() {
+        if (settleTime.isZero() || settleTime.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(settleTime.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Rebalance interrupted", e);
+        }
+    }
+}
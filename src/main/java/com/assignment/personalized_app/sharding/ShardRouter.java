@@ -0,0 +1,94 @@
+package com.assignment.personalized_app.sharding;
+
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Entry point for shard-aware services. When sharding is disabled there is no
+ * {@link ShardMap} and every method passes straight through, so callers need no
+ * separate code path for the single-database setup.
+ */
+@Component
+public class ShardRouter {
+
+    private final ShardMap shardMap;
+
+    public ShardRouter(Optional<ShardMap> shardMap) {
+        this.shardMap = shardMap.orElse(null);
+    }
+
+    public boolean isEnabled() {
+        return shardMap != null;
+    }
+
+    /**
+     * Shard currently owning the shopper, or null when sharding is disabled.
+     */
+    public String shardOf(String shopperId) {
+        return shardMap == null ? null : shardMap.shardFor(shopperId);
+    }
+
+    public List<String> shardNames() {
+        return shardMap == null ? List.of() : shardMap.shardNames();
+    }
+
+    /**
+     * Runs read work against the shard owning the shopper.
+     */
+    public <T> T inShardOf(String shopperId, Supplier<T> work) {
+        if (shardMap == null) {
+            return work.get();
+        }
+        return ShardContext.inShard(shardMap.shardFor(shopperId), work);
+    }
+
+    public <T> T inShard(String shard, Supplier<T> work) {
+        if (shardMap == null) {
+            return work.get();
+        }
+        return ShardContext.inShard(shard, work);
+    }
+
+    /**
+     * Pins the current transaction to the shard owning the shopper, before any write.
+     *
+     * @return false if the shopper's bucket is being rebalanced and must not be written now
+     */
+    public boolean bindForWrite(String shopperId) {
+        if (shardMap == null) {
+            return true;
+        }
+        int bucket = shardMap.bucketOf(shopperId);
+        if (shardMap.isMigrating(bucket)) {
+            return false;
+        }
+        ShardContext.bindToTransaction(shardMap.shardOfBucket(bucket));
+        return true;
+    }
+
+    /**
+     * Splits items by owning shard, keeping their order within each shard.
+     * Items without a shopperId stay with the first group. When sharding is disabled
+     * everything is returned as a single group.
+     */
+    public <T> Collection<List<T>> groupByShard(List<T> items, Function<T, String> shopperIdOf) {
+        if (shardMap == null || items.isEmpty()) {
+            return List.of(items);
+        }
+        Map<String, List<T>> groups = new LinkedHashMap<>();
+        String fallback = null;
+        for (T item : items) {
+            String shopperId = shopperIdOf.apply(item);
+            String shard = shopperId == null || shopperId.isBlank() ? null : shardMap.shardFor(shopperId);
+            if (shard == null) {
+                shard = fallback != null ? fallback : shardMap.shardNames().get(0);
+            }
+            fallback = fallback == null ? shard : fallback;
+            groups.computeIfAbsent(shard, k -> new ArrayList<>()).add(item);
+        }
+        return groups.values();
+    }
+}
@@ -0,0 +1,62 @@
+package com.assignment.personalized_app.sharding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Routes connections to the shard selected in {@link ShardContext}, or to the catalog
+ * database when no shard is selected. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} so that the
+ * shard can be chosen after the transaction has begun.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRoutingDataSource.class);
+
+    private final Map<String, DataSource> shards;
+
+    public ShardRoutingDataSource(DataSource catalog, Map<String, DataSource> shards) {
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        setDefaultTargetDataSource(catalog);
+        setTargetDataSources(new LinkedHashMap<>(shards));
+        // An unknown shard name is a configuration error, never a reason to use the catalog
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Shard data sources by name, for tools that work on one shard directly.
+     */
+    public Map<String, DataSource> shards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String shard = ShardContext.currentShard();
+        ShardContext.checkAccess(shard);
+        return shard;
+    }
+
+    /**
+     * Closes the shard pools; the catalog data source is managed as its own bean.
+     */
+    @Override
+    public void close() {
+        shards.values().forEach(dataSource -> {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("Error closing shard data source: {}", e.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,249 @@
+package com.assignment.personalized_app.snapshot;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads a snapshot written by {@link ShelfSnapshotWriter}.
+ * <p>
+ * The whole file is checksummed before anything is decoded, so a visitor never sees rows from a
+ * truncated or corrupted snapshot. Shelf rows are handed over one run (consecutive rows of one
+ * shopper) at a time, with the column arrays reused between calls.
+ */
+public final class ShelfSnapshotReader {
+
+    static final int MAGIC = 0x50534E50; // "PSNP"
+    static final int VERSION = 1;
+    static final byte END_BLOCK = 0;
+    static final byte CATALOG_BLOCK = 1;
+    static final byte SHELF_BLOCK = 2;
+
+    /**
+     * Decimal places of the scaled-integer scores; matches relevancy_score DECIMAL(19,10).
+     */
+    public static final int SCORE_SCALE = 10;
+
+    /**
+     * Marks a null score in the arrays passed to {@link Visitor#shelf}.
+     */
+    public static final long NULL_SCORE = Long.MIN_VALUE;
+
+    private static final int HEADER_BYTES = 16;
+    private static final int CHECKSUM_BYTES = 4;
+
+    private ShelfSnapshotReader() {
+    }
+
+    /**
+     * Receives the snapshot contents: all products first, then the shelf rows.
+     */
+    public interface Visitor {
+
+        default void product(String productId, String category, String brand) {
+        }
+
+        /**
+         * One run of a shopper's shelf rows; only the first {@code count} array entries are valid.
+         * Scores are unscaled at {@link #SCORE_SCALE} places, {@link #NULL_SCORE} for null.
+         */
+        default void shelf(String shopperId, String[] productIds, long[] scores, int count) {
+        }
+    }
+
+    /**
+     * Contents of the header and end block.
+     */
+    public record Summary(long asOfMillis, long products, long shelfRows) {
+    }
+
+    /**
+     * Verifies the checksum and returns the header's as-of time, without decoding any block.
+     *
+     * @throws IOException if the file is not a complete, intact snapshot
+     */
+    public static long verify(Path file) throws IOException {
+        long size = Files.size(file);
+        if (size < HEADER_BYTES + CHECKSUM_BYTES) {
+            throw new IOException("Snapshot " + file + " is truncated");
+        }
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[1 << 16];
+        long asOf;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            in.readFully(buffer, 0, HEADER_BYTES);
+            crc.update(buffer, 0, HEADER_BYTES);
+            asOf = readHeader(new DataInputStream(new ByteArrayInputStream(buffer, 0, HEADER_BYTES)), file);
+
+            long remaining = size - HEADER_BYTES - CHECKSUM_BYTES;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    throw new EOFException("Snapshot " + file + " is truncated");
+                }
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+            if (in.readInt() != (int) crc.getValue()) {
+                throw new IOException("Snapshot " + file + " failed its checksum");
+            }
+        }
+        return asOf;
+    }
+
+    /**
+     * Verifies the file, then decodes it into the visitor.
+     *
+     * @throws IOException if the file is not a complete, intact snapshot
+     */
+    public static Summary read(Path file, Visitor visitor) throws IOException {
+        long asOf = verify(file);
+        SnapshotBuffer block = new SnapshotBuffer(1 << 20);
+        Dictionary products = new Dictionary();
+        Dictionary categories = new Dictionary();
+        Dictionary brands = new Dictionary();
+        categories.add(null);
+        brands.add(null);
+        String[] productRun = new String[ShelfSnapshotWriter.BLOCK_ROWS];
+        long[] scoreRun = new long[ShelfSnapshotWriter.BLOCK_ROWS];
+        int[] productColumn = new int[ShelfSnapshotWriter.BLOCK_ROWS];
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            readHeader(in, file);
+            long shelfRows = 0;
+            while (true) {
+                byte type = in.readByte();
+                int length = in.readInt();
+                in.readFully(block.prepareRead(length), 0, length);
+
+                switch (type) {
+                    case CATALOG_BLOCK -> readCatalogBlock(block, products, categories, brands, visitor);
+                    case SHELF_BLOCK -> shelfRows += readShelfBlock(block, products, productColumn,
+                            productRun, scoreRun, visitor);
+                    case END_BLOCK -> {
+                        long expectedProducts = block.readVarLong();
+                        long expectedRows = block.readVarLong();
+                        if (expectedRows != shelfRows) {
+                            throw new IOException("Snapshot " + file + " holds " + shelfRows
+                                    + " shelf rows, expected " + expectedRows);
+                        }
+                        return new Summary(asOf, expectedProducts, shelfRows);
+                    }
+                    default -> throw new IOException("Unknown block type " + type + " in snapshot " + file);
+                }
+            }
+        }
+    }
+
+    public static BigDecimal toScore(long unscaled) {
+        return unscaled == NULL_SCORE ? null : BigDecimal.valueOf(unscaled, SCORE_SCALE);
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private static long readHeader(DataInputStream in, Path file) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a shelf snapshot");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        }
+        return in.readLong();
+    }
+
+    private static void readCatalogBlock(SnapshotBuffer block, Dictionary products, Dictionary categories,
+                                         Dictionary brands, Visitor visitor) throws IOException {
+        readAdditions(block, categories);
+        readAdditions(block, brands);
+        int rows = block.readVarInt();
+        int first = products.size;
+        readStrings(block, products, rows);
+        int[] categoryColumn = readColumn(block, rows);
+        int[] brandColumn = readColumn(block, rows);
+        for (int i = 0; i < rows; i++) {
+            visitor.product(products.get(first + i), categories.get(categoryColumn[i]), brands.get(brandColumn[i]));
+        }
+    }
+
+    private static int readShelfBlock(SnapshotBuffer block, Dictionary products, int[] productColumn,
+                                      String[] productRun, long[] scoreRun, Visitor visitor) throws IOException {
+        readAdditions(block, products);
+        int runs = block.readVarInt();
+        String[] shoppers = new String[runs];
+        int[] lengths = new int[runs];
+        int rows = 0;
+        for (int i = 0; i < runs; i++) {
+            shoppers[i] = block.readString();
+            lengths[i] = block.readVarInt();
+            rows += lengths[i];
+        }
+        if (rows > productColumn.length) {
+            throw new IOException("Shelf block of " + rows + " rows exceeds the block size");
+        }
+        for (int i = 0; i < rows; i++) {
+            productColumn[i] = block.readVarInt();
+        }
+
+        int row = 0;
+        for (int run = 0; run < runs; run++) {
+            for (int i = 0; i < lengths[run]; i++, row++) {
+                productRun[i] = products.get(productColumn[row]);
+                long coded = block.readVarLong();
+                scoreRun[i] = coded == 0 ? NULL_SCORE : decodeZigzag(coded - 1);
+            }
+            visitor.shelf(shoppers[run], productRun, scoreRun, lengths[run]);
+        }
+        return rows;
+    }
+
+    private static void readAdditions(SnapshotBuffer block, Dictionary dictionary) throws IOException {
+        readStrings(block, dictionary, block.readVarInt());
+    }
+
+    private static void readStrings(SnapshotBuffer block, Dictionary dictionary, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            dictionary.add(block.readString());
+        }
+    }
+
+    private static int[] readColumn(SnapshotBuffer block, int rows) throws IOException {
+        int[] column = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = block.readVarInt();
+        }
+        return column;
+    }
+
+    private static long decodeZigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Strings by ordinal, in the order the snapshot introduced them.
+     */
+    private static final class Dictionary {
+
+        private String[] values = new String[1024];
+        private int size;
+
+        void add(String value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        String get(int ordinal) throws IOException {
+            if (ordinal < 0 || ordinal >= size) {
+                throw new IOException("Dictionary ordinal " + ordinal + " out of range");
+            }
+            return values[ordinal];
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.assignment.personalized_app.snapshot;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+import static com.assignment.personalized_app.snapshot.ShelfSnapshotReader.*;
+
+/**
+ * Writes a shelf snapshot: the catalog dictionary followed by every shelf row.
+ * <p>
+ * Layout: a header (magic, version, as-of time), then blocks of up to {@value #BLOCK_ROWS} rows,
+ * each a type byte, a payload length and a columnar payload, then an end block and a CRC32C of
+ * everything before it. Catalog blocks hold product ids and dictionary-coded categories and
+ * brands; a product's ordinal is its position in the catalog. Shelf blocks hold shopper ids
+ * run-length coded (rows of one shelf are mostly adjacent), product ordinals and scores as
+ * scaled integers. A shelf row whose product is missing from the catalog, because it was created
+ * after the catalog was read, extends the product dictionary in that block.
+ * <p>
+ * All products must be written before the first shelf row. The file is written under a
+ * temporary name and moved into place by {@link #finish()}, so a crash never leaves a partial
+ * snapshot behind; {@link #close()} without {@code finish()} discards it. Not thread-safe.
+ */
+public final class ShelfSnapshotWriter implements Closeable {
+
+    static final int BLOCK_ROWS = 65_536;
+
+    private final Path target;
+    private final Path temp;
+    private final CheckedOutputStream checked;
+    private final DataOutputStream out;
+    private final SnapshotBuffer block = new SnapshotBuffer(1 << 20);
+
+    private final Map<String, Integer> productOrdinals = new HashMap<>();
+    private final Map<String, Integer> categoryOrdinals = new HashMap<>();
+    private final Map<String, Integer> brandOrdinals = new HashMap<>();
+
+    // Pending catalog block
+    private final List<String> blockProducts = new ArrayList<>();
+    private final List<String> newCategories = new ArrayList<>();
+    private final List<String> newBrands = new ArrayList<>();
+    private final int[] categoryColumn = new int[BLOCK_ROWS];
+    private final int[] brandColumn = new int[BLOCK_ROWS];
+
+    // Pending shelf block
+    private final List<String> newProducts = new ArrayList<>();
+    private final List<String> runShoppers = new ArrayList<>();
+    private final List<Integer> runLengths = new ArrayList<>();
+    private final int[] productColumn = new int[BLOCK_ROWS];
+    private final long[] scoreColumn = new long[BLOCK_ROWS];
+    private int blockRows;
+
+    private boolean shelvesStarted;
+    private boolean finished;
+    private long products;
+    private long shelfRows;
+
+    public ShelfSnapshotWriter(Path target, long asOfMillis) throws IOException {
+        this.target = target;
+        this.temp = target.resolveSibling(target.getFileName() + ".tmp");
+        this.checked = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16),
+                new CRC32C());
+        this.out = new DataOutputStream(checked);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(asOfMillis);
+    }
+
+    public void product(String productId, String category, String brand) throws IOException {
+        if (shelvesStarted) {
+            throw new IllegalStateException("Products must be written before shelf rows");
+        }
+        if (productOrdinals.putIfAbsent(productId, productOrdinals.size()) != null) {
+            return;
+        }
+        categoryColumn[blockRows] = ordinal(category, categoryOrdinals, newCategories);
+        brandColumn[blockRows] = ordinal(brand, brandOrdinals, newBrands);
+        blockProducts.add(productId);
+        products++;
+        if (++blockRows == BLOCK_ROWS) {
+            flushCatalogBlock();
+        }
+    }
+
+    public void shelfRow(String shopperId, String productId, BigDecimal score) throws IOException {
+        if (!shelvesStarted) {
+            flushCatalogBlock();
+            shelvesStarted = true;
+        }
+        Integer ordinal = productOrdinals.get(productId);
+        if (ordinal == null) {
+            ordinal = productOrdinals.size();
+            productOrdinals.put(productId, ordinal);
+            newProducts.add(productId);
+        }
+
+        int runs = runShoppers.size();
+        if (runs > 0 && runShoppers.get(runs - 1).equals(shopperId)) {
+            runLengths.set(runs - 1, runLengths.get(runs - 1) + 1);
+        } else {
+            runShoppers.add(shopperId);
+            runLengths.add(1);
+        }
+        productColumn[blockRows] = ordinal;
+        scoreColumn[blockRows] = encodeScore(score);
+        shelfRows++;
+        if (++blockRows == BLOCK_ROWS) {
+            flushShelfBlock();
+        }
+    }
+
+    /**
+     * Writes the end block and checksum and moves the file into place.
+     */
+    public void finish() throws IOException {
+        if (shelvesStarted) {
+            flushShelfBlock();
+        } else {
+            flushCatalogBlock();
+        }
+        block.clear();
+        block.writeVarLong(products);
+        block.writeVarLong(shelfRows);
+        writeBlock(END_BLOCK);
+
+        out.flush();
+        int crc = (int) checked.getChecksum().getValue();
+        out.writeInt(crc);
+        out.close();
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        finished = true;
+    }
+
+    public long products() {
+        return products;
+    }
+
+    public long shelfRows() {
+        return shelfRows;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            out.close();
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void flushCatalogBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        block.clear();
+        block.writeVarInt(newCategories.size());
+        newCategories.forEach(block::writeString);
+        block.writeVarInt(newBrands.size());
+        newBrands.forEach(block::writeString);
+        block.writeVarInt(blockRows);
+        blockProducts.forEach(block::writeString);
+        for (int i = 0; i < blockRows; i++) {
+            block.writeVarInt(categoryColumn[i]);
+        }
+        for (int i = 0; i < blockRows; i++) {
+            block.writeVarInt(brandColumn[i]);
+        }
+        writeBlock(CATALOG_BLOCK);
+        newCategories.clear();
+        newBrands.clear();
+        blockProducts.clear();
+        blockRows = 0;
+    }
+
+    private void flushShelfBlock() throws IOException {
+        if (blockRows == 0) {
+            return;
+        }
+        block.clear();
+        block.writeVarInt(newProducts.size());
+        newProducts.forEach(block::writeString);
+        block.writeVarInt(runShoppers.size());
+        for (int i = 0; i < runShoppers.size(); i++) {
+            block.writeString(runShoppers.get(i));
+            block.writeVarInt(runLengths.get(i));
+        }
+        for (int i = 0; i < blockRows; i++) {
+            block.writeVarInt(productColumn[i]);
+        }
+        for (int i = 0; i < blockRows; i++) {
+            block.writeVarLong(scoreColumn[i]);
+        }
+        writeBlock(SHELF_BLOCK);
+        newProducts.clear();
+        runShoppers.clear();
+        runLengths.clear();
+        blockRows = 0;
+    }
+
+    private void writeBlock(byte type) throws IOException {
+        out.writeByte(type);
+        out.writeInt(block.length());
+        out.write(block.bytes(), 0, block.length());
+    }
+
+    /**
+     * Dictionary code of a value, 0 for null; a value seen for the first time joins the block's
+     * dictionary additions.
+     */
+    private static int ordinal(String value, Map<String, Integer> ordinals, List<String> additions) {
+        if (value == null) {
+            return 0;
+        }
+        Integer ordinal = ordinals.get(value);
+        if (ordinal == null) {
+            ordinal = ordinals.size() + 1;
+            ordinals.put(value, ordinal);
+            additions.add(value);
+        }
+        return ordinal;
+    }
+
+    /**
+     * Zigzag-coded unscaled value at {@link ShelfSnapshotReader#SCORE_SCALE}, plus one; 0 is null.
+     */
+    private static long encodeScore(BigDecimal score) {
+        if (score == null) {
+            return 0;
+        }
+        long unscaled = score.setScale(SCORE_SCALE).unscaledValue().longValueExact();
+        if (unscaled == Long.MIN_VALUE) {
+            throw new ArithmeticException("Score out of range: " + score);
+        }
+        return ((unscaled << 1) ^ (unscaled >> 63)) + 1;
+    }
+}
@@ -0,0 +1,120 @@
+package com.assignment.personalized_app.snapshot;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Growable byte array holding one snapshot block, written and read with LEB128 varints and
+ * length-prefixed UTF-8 strings.
+ */
+final class SnapshotBuffer {
+
+    private byte[] bytes;
+    private int length;
+    private int position;
+
+    SnapshotBuffer(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    void clear() {
+        length = 0;
+        position = 0;
+    }
+
+    /**
+     * Makes room for {@code size} bytes to be filled in directly, then read from the start.
+     */
+    byte[] prepareRead(int size) {
+        ensureCapacity(size);
+        length = size;
+        position = 0;
+        return bytes;
+    }
+
+    boolean hasRemaining() {
+        return position < length;
+    }
+
+    /* ============================================================
+       WRITE
+       ============================================================ */
+
+    void writeVarLong(long value) {
+        ensureCapacity(length + 10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    void writeString(String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(utf8.length);
+        ensureCapacity(length + utf8.length);
+        System.arraycopy(utf8, 0, bytes, length, utf8.length);
+        length += utf8.length;
+    }
+
+    /* ============================================================
+       READ
+       ============================================================ */
+
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position == length) {
+                throw new EOFException("Truncated varint in snapshot block");
+            }
+            byte b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in snapshot block");
+    }
+
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value >>> 32 != 0) {
+            throw new IOException("Varint out of int range in snapshot block");
+        }
+        return (int) value;
+    }
+
+    String readString() throws IOException {
+        int size = readVarInt();
+        if (size > length - position) {
+            throw new EOFException("Truncated string in snapshot block");
+        }
+        String value = new String(bytes, position, size, StandardCharsets.UTF_8);
+        position += size;
+        return value;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+        }
+    }
+}
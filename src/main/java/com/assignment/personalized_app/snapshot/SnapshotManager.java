@@ -0,0 +1,273 @@
+package com.assignment.personalized_app.snapshot;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.SnapshotProperties;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Writes periodic shelf snapshots and restores the newest one at startup.
+ * <p>
+ * A snapshot holds product_metadata and every shard's shopper_product rows as of a database
+ * timestamp. At startup, before the in-memory catalog and product-to-shoppers index run their
+ * full loads, the newest intact snapshot is decoded into them and only rows whose updated_at is
+ * at or after the snapshot time (less {@code catch-up-overlap}) are read from the databases; the
+ * full loads are then skipped. A missing or corrupt snapshot falls back to the full loads.
+ * Replaying a row that the snapshot already holds is harmless, so the overlap only costs a few
+ * extra rows. Shelf rows deleted by retention since the snapshot are not caught up, so the index
+ * may still list them; that only widens invalidations until the next full load.
+ * Metric: {@code shelf.snapshot.age} (seconds since the newest snapshot written by this node).
+ */
+@Component
+public class SnapshotManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotManager.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("shelf-snapshot-(\\d+)\\.bin");
+
+    private static final String CATALOG_SQL = "SELECT product_id, category, brand FROM product_metadata";
+    private static final String SHELF_SQL = "SELECT shopper_id, product_id, relevancy_score FROM shopper_product";
+    private static final String CATALOG_CHANGES_SQL = CATALOG_SQL + " WHERE updated_at >= ?";
+    private static final String SHELF_CHANGES_SQL = "SELECT shopper_id, product_id FROM shopper_product WHERE updated_at >= ?";
+
+    private final JdbcTemplate catalogJdbc;
+    private final JdbcTemplate shelfJdbc;
+    private final ShardRouter shardRouter;
+    private final ProductCatalog productCatalog;
+    private final ProductShopperIndex productShopperIndex;
+    private final TaskScheduler taskScheduler;
+    private final SnapshotProperties properties;
+
+    private volatile long lastWrittenAsOf;
+
+    public SnapshotManager(DataSource dataSource,
+                           @Qualifier("catalogDataSource") Optional<DataSource> catalogDataSource,
+                           ShardRouter shardRouter,
+                           ProductCatalog productCatalog,
+                           ProductShopperIndex productShopperIndex,
+                           TaskScheduler taskScheduler,
+                           SnapshotProperties properties,
+                           MeterRegistry meterRegistry) {
+        this.catalogJdbc = new JdbcTemplate(catalogDataSource.orElse(dataSource));
+        this.catalogJdbc.setFetchSize(properties.getFetchSize());
+        this.shelfJdbc = new JdbcTemplate(dataSource);
+        this.shelfJdbc.setFetchSize(properties.getFetchSize());
+        this.shardRouter = shardRouter;
+        this.productCatalog = productCatalog;
+        this.productShopperIndex = productShopperIndex;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            Gauge.builder("shelf.snapshot.age", this,
+                            m -> m.lastWrittenAsOf == 0 ? Double.NaN : (System.currentTimeMillis() - m.lastWrittenAsOf) / 1000.0)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs before the catalog and index listeners, so that a restore can spare their full loads.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        restore();
+        taskScheduler.scheduleWithFixedDelay(this::writeQuietly,
+                Instant.now().plus(properties.getInitialDelay()), properties.getInterval());
+    }
+
+    /* ============================================================
+       RESTORE
+       ============================================================ */
+
+    /**
+     * Restores the catalog and index from the newest intact snapshot and catches up on changes.
+     *
+     * @return the snapshot used, or empty if none could be restored
+     */
+    public Optional<Path> restore() {
+        boolean catalog = productCatalog.isEnabled();
+        boolean index = productShopperIndex.isEnabled() && !productShopperIndex.isReady();
+        if (!catalog && !index) {
+            return Optional.empty();
+        }
+
+        for (Path file : snapshotsNewestFirst()) {
+            long started = System.currentTimeMillis();
+            Map<String, ProductCatalog.Entry> entries = new HashMap<>();
+            ShelfSnapshotReader.Summary summary;
+            try {
+                summary = ShelfSnapshotReader.read(file, new ShelfSnapshotReader.Visitor() {
+                    @Override
+                    public void product(String productId, String category, String brand) {
+                        if (catalog) {
+                            entries.put(productId, new ProductCatalog.Entry(category, brand));
+                        }
+                    }
+
+                    @Override
+                    public void shelf(String shopperId, String[] productIds, long[] scores, int count) {
+                        if (index) {
+                            productShopperIndex.addAll(shopperId, Arrays.asList(productIds).subList(0, count));
+                        }
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping unreadable shelf snapshot {}: {}", file, e.getMessage());
+                continue;
+            }
+            long loaded = System.currentTimeMillis();
+
+            Timestamp since = new Timestamp(summary.asOfMillis() - properties.getCatchUpOverlap().toMillis());
+            long[] caughtUp = new long[2];
+            if (catalog) {
+                catalogJdbc.query(CATALOG_CHANGES_SQL, rs -> {
+                    entries.put(rs.getString(1), new ProductCatalog.Entry(rs.getString(2), rs.getString(3)));
+                    caughtUp[0]++;
+                }, since);
+                productCatalog.restore(entries);
+            }
+            if (index) {
+                for (String shard : shards()) {
+                    shardRouter.inShard(shard, () -> {
+                        shelfJdbc.query(SHELF_CHANGES_SQL, rs -> {
+                            productShopperIndex.addAll(rs.getString(1), List.of(rs.getString(2)));
+                            caughtUp[1]++;
+                        }, since);
+                        return null;
+                    });
+                }
+                productShopperIndex.markRestored();
+            }
+
+            logger.info("Restored shelf snapshot {}, asOf={}, products={}, shelfRows={}, loadMs={}, "
+                            + "caughtUpProducts={}, caughtUpShelfRows={}, catchUpMs={}", file.getFileName(),
+                    Instant.ofEpochMilli(summary.asOfMillis()), summary.products(), summary.shelfRows(),
+                    loaded - started, caughtUp[0], caughtUp[1], System.currentTimeMillis() - loaded);
+            return Optional.of(file);
+        }
+        logger.info("No usable shelf snapshot in {}, loading from the database", properties.getDirectory());
+        return Optional.empty();
+    }
+
+    /* ============================================================
+       WRITE
+       ============================================================ */
+
+    /**
+     * Writes a snapshot of product_metadata and every shard's shelves, then prunes old ones.
+     */
+    public Path write() throws IOException {
+        long started = System.currentTimeMillis();
+        Path directory = Paths.get(properties.getDirectory());
+        Files.createDirectories(directory);
+
+        // Database time, so that the catch-up compares like with like
+        Timestamp asOf = catalogJdbc.queryForObject("SELECT CURRENT_TIMESTAMP(3)", Timestamp.class);
+        Path target = directory.resolve("shelf-snapshot-" + asOf.getTime() + ".bin");
+
+        try (ShelfSnapshotWriter writer = new ShelfSnapshotWriter(target, asOf.getTime())) {
+            try {
+                catalogJdbc.query(CATALOG_SQL, rs -> {
+                    try {
+                        writer.product(rs.getString(1), rs.getString(2), rs.getString(3));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                for (String shard : shards()) {
+                    shardRouter.inShard(shard, () -> {
+                        shelfJdbc.query(SHELF_SQL, rs -> {
+                            try {
+                                writer.shelfRow(rs.getString(1), rs.getString(2), rs.getBigDecimal(3));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                        return null;
+                    });
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+
+            lastWrittenAsOf = asOf.getTime();
+            logger.info("Wrote shelf snapshot {}, products={}, shelfRows={}, bytes={}, elapsedMs={}",
+                    target.getFileName(), writer.products(), writer.shelfRows(), Files.size(target),
+                    System.currentTimeMillis() - started);
+        }
+        prune();
+        return target;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void writeQuietly() {
+        try {
+            write();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Shelf snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private List<String> shards() {
+        return shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+    }
+
+    private List<Path> snapshotsNewestFirst() {
+        Path directory = Paths.get(properties.getDirectory());
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> FILE_NAME.matcher(f.getFileName().toString()).matches())
+                    .sorted(Comparator.comparingLong(SnapshotManager::asOfOf).reversed())
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Cannot list shelf snapshots in {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void prune() throws IOException {
+        List<Path> snapshots = snapshotsNewestFirst();
+        for (Path old : snapshots.subList(Math.min(Math.max(1, properties.getRetain()), snapshots.size()), snapshots.size())) {
+            Files.deleteIfExists(old);
+        }
+    }
+
+    private static long asOfOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : 0;
+    }
+}
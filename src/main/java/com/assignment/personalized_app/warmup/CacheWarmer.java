@@ -0,0 +1,156 @@
+package com.assignment.personalized_app.warmup;
+
+import com.assignment.personalized_app.config.MaterializationProperties;
+import com.assignment.personalized_app.config.WarmupProperties;
+import com.assignment.personalized_app.service.PageMaterializationService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Materializes the first pages of the hottest shoppers when the application starts, so that
+ * the first minutes of traffic do not all reach MySQL.
+ * <p>
+ * Shoppers come from {@link HotShopperTracker}, are split into chunks of {@code chunk-size},
+ * and each chunk is read with one multi-shopper query and rendered on the warm-up executor
+ * (see {@link PageMaterializationService#warm}). Runs after the other startup listeners, so the
+ * catalog is already loaded when shards need it.
+ * <p>
+ * As a health indicator in the readiness group, this reports OUT_OF_SERVICE until
+ * {@code coverage} of the shoppers have been processed or {@code deadline} has passed; warm-up
+ * then carries on in the background. Without warm-up or page materialization it is always UP.
+ * Metric: {@code shelf.warmup.warmed} (shoppers whose pages were stored).
+ */
+@Component
+public class CacheWarmer implements HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final PageMaterializationService pageMaterializationService;
+    private final HotShopperTracker hotShopperTracker;
+    private final ThreadPoolTaskExecutor executor;
+    private final WarmupProperties properties;
+    private final boolean active;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger warmed = new AtomicInteger();
+    private volatile int target;
+    private volatile long startedAt;
+    private volatile long deadlineAt;
+    private volatile boolean ready;
+
+    public CacheWarmer(PageMaterializationService pageMaterializationService,
+                       HotShopperTracker hotShopperTracker,
+                       @Qualifier("warmupExecutor") ThreadPoolTaskExecutor executor,
+                       WarmupProperties properties,
+                       MaterializationProperties materializationProperties,
+                       MeterRegistry meterRegistry) {
+        this.pageMaterializationService = pageMaterializationService;
+        this.hotShopperTracker = hotShopperTracker;
+        this.executor = executor;
+        this.properties = properties;
+        this.active = properties.isEnabled() && materializationProperties.isEnabled();
+        // Not ready until the warm-up has been planned, even before the application is ready
+        this.ready = !active;
+        this.deadlineAt = Long.MAX_VALUE;
+        if (properties.isEnabled()) {
+            Gauge.builder("shelf.warmup.warmed", warmed, AtomicInteger::get).register(meterRegistry);
+        }
+        if (properties.isEnabled() && !materializationProperties.isEnabled()) {
+            logger.warn("Cache warm-up needs personalized.materialization.enabled=true, skipping");
+        }
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!active) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<String> shoppers;
+        try {
+            shoppers = hotShopperTracker.hotShoppers();
+        } catch (RuntimeException e) {
+            logger.warn("Cannot determine hot shoppers, skipping warm-up: {}", e.getMessage());
+            ready = true;
+            return;
+        }
+        target = shoppers.size();
+        deadlineAt = now + properties.getDeadline().toMillis();
+        // Published last: coverage is only evaluated once the target is known
+        startedAt = now;
+        logger.info("Cache warm-up started, shoppers={}, chunkSize={}, threads={}",
+                target, properties.getChunkSize(), properties.getThreads());
+
+        int chunkSize = Math.max(1, properties.getChunkSize());
+        for (int from = 0; from < shoppers.size(); from += chunkSize) {
+            List<String> chunk = shoppers.subList(from, Math.min(from + chunkSize, shoppers.size()));
+            executor.execute(() -> warmChunk(chunk));
+        }
+        isReady();
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = isReady() ? Health.up() : Health.outOfService();
+        if (!active) {
+            return builder.build();
+        }
+        return builder
+                .withDetail("shoppers", target)
+                .withDetail("processed", processed.get())
+                .withDetail("warmed", warmed.get())
+                .build();
+    }
+
+    /**
+     * True once the coverage or the deadline has been reached; stays true from then on.
+     */
+    public boolean isReady() {
+        if (ready) {
+            return true;
+        }
+        if (startedAt == 0) {
+            return false;
+        }
+        boolean covered = processed.get() >= Math.ceil(target * properties.getCoverage());
+        if (covered || System.currentTimeMillis() >= deadlineAt) {
+            ready = true;
+            logger.info("Cache warm-up {}, processed={}/{}, warmed={}, elapsedMs={}",
+                    covered ? "reached coverage" : "passed deadline", processed.get(), target, warmed.get(),
+                    System.currentTimeMillis() - startedAt);
+        }
+        return ready;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void warmChunk(List<String> chunk) {
+        try {
+            warmed.addAndGet(pageMaterializationService.warm(chunk));
+        } catch (RuntimeException e) {
+            logger.warn("Warm-up chunk of {} shoppers failed: {}", chunk.size(), e.getMessage());
+        }
+        if (processed.addAndGet(chunk.size()) == target) {
+            logger.info("Cache warm-up finished, shoppers={}, warmed={}, elapsedMs={}",
+                    target, warmed.get(), System.currentTimeMillis() - startedAt);
+        }
+        isReady();
+    }
+}
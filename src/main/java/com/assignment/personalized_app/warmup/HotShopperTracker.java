@@ -0,0 +1,197 @@
+package com.assignment.personalized_app.warmup;
+
+import com.assignment.personalized_app.config.WarmupProperties;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts shelf reads per shopper and keeps the hottest shopperIds in a file, so that the next
+ * start knows whose pages to warm.
+ * <p>
+ * Counts are halved at every persist, so the file follows recent traffic. When fewer shoppers
+ * were read than the file holds, the remainder is kept from the previous list, so a quiet
+ * period does not wipe it. Without a file (first start), the shoppers with the most recently
+ * written shelves stand in.
+ */
+@Component
+public class HotShopperTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotShopperTracker.class);
+
+    private static final String RECENT_SHOPPERS_SQL = """
+            SELECT shopper_id FROM shopper_product
+            GROUP BY shopper_id
+            ORDER BY MAX(updated_at) DESC
+            LIMIT ?
+            """;
+
+    private final Map<String, LongAdder> reads = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final TaskScheduler taskScheduler;
+    private final WarmupProperties properties;
+
+    private volatile List<String> previous = List.of();
+
+    public HotShopperTracker(DataSource dataSource,
+                             ShardRouter shardRouter,
+                             TaskScheduler taskScheduler,
+                             WarmupProperties properties) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardRouter = shardRouter;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        taskScheduler.scheduleWithFixedDelay(this::persistQuietly,
+                Instant.now().plus(properties.getPersistInterval()), properties.getPersistInterval());
+    }
+
+    /**
+     * Counts one shelf read. Cheap enough for the request path: a map lookup and an increment.
+     */
+    public void recordRead(String shopperId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        LongAdder count = reads.get(shopperId);
+        if (count == null) {
+            if (reads.size() >= properties.getMaxTracked()) {
+                return;
+            }
+            count = reads.computeIfAbsent(shopperId, id -> new LongAdder());
+        }
+        count.increment();
+    }
+
+    /**
+     * Shoppers to warm, hottest first: the persisted list, or the shoppers with the most
+     * recently written shelves when there is none.
+     */
+    public List<String> hotShoppers() {
+        List<String> persisted = load();
+        previous = persisted;
+        if (!persisted.isEmpty()) {
+            return persisted;
+        }
+        return recentlyWrittenShoppers();
+    }
+
+    /**
+     * Writes the hottest shoppers to the file, then halves every count.
+     */
+    public synchronized void persist() throws IOException {
+        List<String> hottest = hottest();
+        Path file = Paths.get(properties.getHotShoppersFile());
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, hottest, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        previous = hottest;
+        decay();
+        logger.info("Persisted hot shoppers, file={}, shoppers={}", file, hottest.size());
+    }
+
+    @PreDestroy
+    public void onShutdown() {
+        if (properties.isEnabled() && !reads.isEmpty()) {
+            persistQuietly();
+        }
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void persistQuietly() {
+        try {
+            persist();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to persist hot shoppers: {}", e.getMessage());
+        }
+    }
+
+    private List<String> hottest() {
+        int limit = properties.getMaxShoppers();
+        LinkedHashSet<String> hottest = new LinkedHashSet<>();
+        reads.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().sum()))
+                .filter(entry -> entry.getValue() > 0)
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(entry -> hottest.add(entry.getKey()));
+        for (String shopperId : previous) {
+            if (hottest.size() >= limit) {
+                break;
+            }
+            hottest.add(shopperId);
+        }
+        return new ArrayList<>(hottest);
+    }
+
+    private void decay() {
+        reads.entrySet().removeIf(entry -> {
+            long half = entry.getValue().sumThenReset() / 2;
+            entry.getValue().add(half);
+            return half == 0;
+        });
+    }
+
+    private List<String> load() {
+        Path file = Paths.get(properties.getHotShoppersFile());
+        if (!Files.isRegularFile(file)) {
+            return List.of();
+        }
+        try {
+            return Files.readAllLines(file, StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .distinct()
+                    .limit(properties.getMaxShoppers())
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Cannot read hot shoppers from {}: {}", file, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private List<String> recentlyWrittenShoppers() {
+        List<String> shards = shardRouter.isEnabled() ? shardRouter.shardNames() : Collections.singletonList(null);
+        int perShard = (properties.getMaxShoppers() + shards.size() - 1) / shards.size();
+        List<String> shoppers = new ArrayList<>();
+        for (String shard : shards) {
+            shoppers.addAll(shardRouter.inShard(shard, () ->
+                    jdbcTemplate.queryForList(RECENT_SHOPPERS_SQL, String.class, perShard)));
+        }
+        return shoppers.size() > properties.getMaxShoppers()
+                ? shoppers.subList(0, properties.getMaxShoppers())
+                : shoppers;
+    }
+}
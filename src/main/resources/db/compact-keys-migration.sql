@@ -0,0 +1,52 @@
+-- Adds the compact shopper key and scaled score to an existing shopper_product table (MySQL 8).
+-- Run on the primary database and on every shard, in this order:
+--   1. Deploy the version that writes shopper_key and score_scaled (new and changed rows).
+--   2. Run this script. Each step is online; the backfill commits in small id ranges so that
+--      locks and replication lag stay short.
+--   3. Set personalized.storage.compact-keys=true.
+-- shopper_key must match CompactColumns.shopperKey: the first 60 bits of MD5(shopper_id).
+-- Scores of 922337203.6854775808 or more do not fit score_scaled and are left NULL.
+
+ALTER TABLE shopper_product
+    ADD COLUMN shopper_key BIGINT NULL,
+    ADD COLUMN score_scaled BIGINT NULL,
+    ALGORITHM = INSTANT;
+
+DELIMITER //
+CREATE PROCEDURE backfill_compact_keys(IN batch_size INT)
+BEGIN
+    DECLARE next_id BIGINT;
+    DECLARE max_id BIGINT;
+    SELECT COALESCE(MIN(id), 0), COALESCE(MAX(id), 0) INTO next_id, max_id FROM shopper_product;
+    WHILE next_id <= max_id DO
+        UPDATE shopper_product
+           SET shopper_key = CONV(LEFT(MD5(shopper_id), 15), 16, 10),
+               score_scaled = IF(ABS(relevancy_score) < 922337203.6854775808,
+                                 CAST(relevancy_score * 10000000000 AS SIGNED), NULL)
+         WHERE id >= next_id AND id < next_id + batch_size
+           AND (shopper_key IS NULL OR (score_scaled IS NULL AND relevancy_score IS NOT NULL));
+        COMMIT;
+        SET next_id = next_id + batch_size;
+    END WHILE;
+END //
+DELIMITER ;
+
+CALL backfill_compact_keys(20000);
+DROP PROCEDURE backfill_compact_keys;
+
+ALTER TABLE shopper_product
+    ADD INDEX idx_shopper_key_score (shopper_key, score_scaled DESC),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Shopper keys shared by more than one shopper. Reads still match shopper_id, so a shared key
+-- only makes the shared shoppers' unfiltered page totals count each other's items:
+-- SELECT shopper_key FROM shopper_product GROUP BY shopper_key HAVING COUNT(DISTINCT shopper_id) > 1;
+
+-- Index sizes before and after, in MB:
+-- SELECT index_name, ROUND(stat_value * @@innodb_page_size / 1024 / 1024) AS size_mb
+--   FROM mysql.innodb_index_stats
+--  WHERE table_name = 'shopper_product' AND stat_name = 'size';
+
+-- Once compact-keys has been enabled everywhere, idx_shopper_relevancy only serves the range
+-- export (GET /external/shelves/export); drop it if that export can afford a sort:
+-- ALTER TABLE shopper_product DROP INDEX idx_shopper_relevancy, ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,67 @@
+-- shopper_product on a shard. Same layout as the JPA mapping, minus the foreign key to
+-- product_metadata, which lives on the catalog database; product_id gets the index the
+-- foreign key would otherwise provide.
+CREATE TABLE IF NOT EXISTS shopper_product (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    shopper_id VARCHAR(255) NOT NULL,
+    product_id VARCHAR(255) NOT NULL,
+    relevancy_score DECIMAL(19,10),
+    shopper_key BIGINT,
+    score_scaled BIGINT,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (id),
+    CONSTRAINT uq_shopper_product UNIQUE (shopper_id, product_id),
+    INDEX idx_shopper_relevancy (shopper_id, relevancy_score DESC),
+    INDEX idx_shopper_key_score (shopper_key, score_scaled DESC),
+    INDEX idx_shopper_product_product (product_id),
+    INDEX idx_shopper_product_updated (updated_at)
+);
+
+-- Per-shopper facet counters, kept on the shard of the shopper they count.
+CREATE TABLE IF NOT EXISTS shopper_facet (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    shopper_id VARCHAR(255) NOT NULL,
+    facet_type VARCHAR(16) NOT NULL,
+    facet_value VARCHAR(255) NOT NULL,
+    product_count INT NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uq_shopper_facet UNIQUE (shopper_id, facet_type, facet_value)
+);
+
+-- Content hash of each shopper's last applied shelf, kept on the shard of the shopper it covers.
+CREATE TABLE IF NOT EXISTS shopper_shelf_digest (
+    shopper_id VARCHAR(255) NOT NULL,
+    shelf_hash VARBINARY(32) NOT NULL,
+    chunk_hashes VARBINARY(2048) NOT NULL,
+    item_count INT NOT NULL,
+    PRIMARY KEY (shopper_id)
+);
+
+-- Transactional outbox of shelf changes, written with the shelf rows of the shard it lives on.
+CREATE TABLE IF NOT EXISTS change_outbox (
+    seq BIGINT NOT NULL AUTO_INCREMENT,
+    change_type VARCHAR(32) NOT NULL,
+    shopper_id VARCHAR(255),
+    product_id VARCHAR(255),
+    payload MEDIUMTEXT NOT NULL,
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (seq),
+    INDEX idx_change_outbox_created (created_at)
+);
+
+-- Per-shopper shelf version, bumped with every shelf write on the shard and polled by other nodes.
+CREATE TABLE IF NOT EXISTS shelf_version (
+    shopper_id VARCHAR(255) NOT NULL,
+    version BIGINT NOT NULL,
+    writer VARCHAR(64) NOT NULL,
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (shopper_id),
+    INDEX idx_shelf_version_updated (updated_at)
+);
+
+-- When each shopper's shelf was last sent, including re-sends that changed nothing; ages shelves for retention.
+CREATE TABLE IF NOT EXISTS shelf_refresh (
+    shopper_id VARCHAR(255) NOT NULL,
+    refreshed_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3),
+    PRIMARY KEY (shopper_id)
+);
@@ -0,0 +1,142 @@
+package com.assignment.personalized_app.benchmark;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.assignment.personalized_app.logging.AccessLogContext;
+import com.assignment.personalized_app.logging.AccessLogFilter;
+import com.assignment.personalized_app.logging.CountingAsyncAppender;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput through {@link AccessLogFilter} with access logging off, written
+ * synchronously to a file (the appender setup logback.xml used to have), written through the
+ * non-blocking {@link CountingAsyncAppender}, and asynchronous at a 5% sample rate. Each request
+ * does a few microseconds of work and runs on 8 threads, so that appender contention shows.
+ * Dropped records of the async modes are printed after each trial. Run with:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      com.assignment.personalized_app.benchmark.AccessLogBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@Threads(8)
+@State(Scope.Benchmark)
+public class AccessLogBenchmark {
+
+    private static final String PRODUCTS = "/external/{shopperId}/products";
+
+    @Param({"disabled", "sync", "async", "async-sampled"})
+    public String logging;
+
+    private AccessLogFilter filter;
+    private Logger accessLogger;
+    private Appender<ILoggingEvent> appender;
+    private File file;
+
+    @State(Scope.Thread)
+    public static class Request {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/external/shopper-000042/products");
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain;
+
+        @Setup
+        public void setUp(Blackhole blackhole) {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, PRODUCTS);
+            request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("shopperId", "shopper-000042"));
+            chain = (req, res) -> {
+                Blackhole.consumeCPU(2_000);
+                AccessLogContext.rows(10);
+            };
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        accessLogger = context.getLogger("access");
+        accessLogger.detachAndStopAllAppenders();
+        accessLogger.setAdditive(false);
+        if (logging.equals("disabled")) {
+            return;
+        }
+
+        file = Files.createTempFile("access-benchmark", ".log").toFile();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%msg%n");
+        encoder.start();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setFile(file.getPath());
+        fileAppender.setEncoder(encoder);
+        fileAppender.setImmediateFlush(logging.equals("sync"));
+        fileAppender.start();
+
+        if (logging.equals("sync")) {
+            appender = fileAppender;
+        } else {
+            CountingAsyncAppender async = new CountingAsyncAppender();
+            async.setContext(context);
+            async.setQueueSize(16_384);
+            async.setDiscardingThreshold(0);
+            async.setNeverBlock(true);
+            async.addAppender(fileAppender);
+            async.start();
+            appender = async;
+        }
+        accessLogger.addAppender(appender);
+        double sampleRate = logging.equals("async-sampled") ? 0.05 : 1.0;
+        filter = new AccessLogFilter(sampleRate, Map.of(), Duration.ofSeconds(1), new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (appender instanceof CountingAsyncAppender async) {
+            System.out.printf("%n%s: dropped=%d%n", logging, async.getDroppedCount());
+        }
+        accessLogger.detachAndStopAllAppenders();
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public int request(Request request) throws Exception {
+        if (filter == null) {
+            request.chain.doFilter(request.request, request.response);
+        } else {
+            filter.doFilter(request.request, request.response, request.chain);
+        }
+        return request.response.getStatus();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AccessLogBenchmark.class.getSimpleName()).build()).run();
+    }
+}
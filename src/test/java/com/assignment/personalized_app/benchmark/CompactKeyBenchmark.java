@@ -0,0 +1,191 @@
+package com.assignment.personalized_app.benchmark;
+
+import com.assignment.personalized_app.entity.CompactColumns;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a shopper's top page through the original (shopper_id VARCHAR, relevancy_score DECIMAL)
+ * index against the compact (shopper_key BIGINT, score_scaled BIGINT) one, over identical rows.
+ * <p>
+ * Two tables are loaded with {@code rows} shelf rows, 100 per shopper, each carrying only the
+ * index it is measured through. On MySQL the on-disk data and index sizes of both are printed
+ * once per trial. The default is a 1M-row H2 table in MySQL mode; the 100M-row figures come from
+ * a MySQL run, where loading takes a while, so an already loaded pair of tables is reused:
+ * <pre>
+ * mvn -B test-compile
+ * java -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/bench -Dbenchmark.jdbc.user=root -Dbenchmark.jdbc.password=... \
+ *      -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      org.openjdk.jmh.Main CompactKeyBenchmark -p rows=100000000
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CompactKeyBenchmark {
+
+    private static final int SHELF_SIZE = 100;
+    private static final int PAGE_SIZE = 10;
+    private static final int BATCH = 10_000;
+
+    private static final String BY_ID_SQL = "SELECT product_id, relevancy_score FROM bench_shelf_by_id "
+            + "WHERE shopper_id = ? ORDER BY relevancy_score DESC LIMIT " + PAGE_SIZE;
+    private static final String BY_KEY_SQL = "SELECT product_id, score_scaled FROM bench_shelf_by_key "
+            + "WHERE shopper_key = ? AND shopper_id = ? ORDER BY score_scaled DESC LIMIT " + PAGE_SIZE;
+
+    @Param("1000000")
+    public long rows;
+
+    private Connection connection;
+    private PreparedStatement byId;
+    private PreparedStatement byKey;
+    private int shoppers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        String url = System.getProperty("benchmark.jdbc.url", "jdbc:h2:mem:compact-key;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        connection = DriverManager.getConnection(url,
+                System.getProperty("benchmark.jdbc.user", "sa"), System.getProperty("benchmark.jdbc.password", ""));
+        shoppers = (int) Math.max(1, rows / SHELF_SIZE);
+
+        if (count("bench_shelf_by_id") != rows || count("bench_shelf_by_key") != rows) {
+            load();
+        }
+        if (url.startsWith("jdbc:mysql:")) {
+            printSizes();
+        }
+        byId = connection.prepareStatement(BY_ID_SQL);
+        byKey = connection.prepareStatement(BY_KEY_SQL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long pageByShopperId() throws SQLException {
+        byId.setString(1, shopperId(ThreadLocalRandom.current().nextInt(shoppers)));
+        long sum = 0;
+        try (ResultSet rs = byId.executeQuery()) {
+            while (rs.next()) {
+                sum += rs.getString(1).length() + rs.getBigDecimal(2).signum();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long pageByShopperKey() throws SQLException {
+        String shopperId = shopperId(ThreadLocalRandom.current().nextInt(shoppers));
+        byKey.setLong(1, CompactColumns.shopperKey(shopperId));
+        byKey.setString(2, shopperId);
+        long sum = 0;
+        try (ResultSet rs = byKey.executeQuery()) {
+            while (rs.next()) {
+                // Converted back, as the service does before answering
+                sum += rs.getString(1).length() + CompactColumns.score(rs.getLong(2)).signum();
+            }
+        }
+        return sum;
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void load() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS bench_shelf_by_id");
+            statement.execute("DROP TABLE IF EXISTS bench_shelf_by_key");
+            statement.execute("CREATE TABLE bench_shelf_by_id (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "shopper_id VARCHAR(255) NOT NULL, product_id VARCHAR(255) NOT NULL, relevancy_score DECIMAL(19,10))");
+            statement.execute("CREATE TABLE bench_shelf_by_key (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "shopper_id VARCHAR(255) NOT NULL, product_id VARCHAR(255) NOT NULL, "
+                    + "shopper_key BIGINT NOT NULL, score_scaled BIGINT)");
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        Random random = new Random(42);
+        try (PreparedStatement insertById = connection.prepareStatement(
+                "INSERT INTO bench_shelf_by_id (shopper_id, product_id, relevancy_score) VALUES (?, ?, ?)");
+             PreparedStatement insertByKey = connection.prepareStatement(
+                     "INSERT INTO bench_shelf_by_key (shopper_id, product_id, shopper_key, score_scaled) VALUES (?, ?, ?, ?)")) {
+            for (long row = 0; row < rows; row++) {
+                String shopperId = shopperId((int) (row / SHELF_SIZE));
+                String productId = String.format("product-%07d", random.nextInt(1_000_000));
+                BigDecimal score = BigDecimal.valueOf(random.nextLong(10_000_000_000L), CompactColumns.SCORE_SCALE);
+
+                insertById.setString(1, shopperId);
+                insertById.setString(2, productId);
+                insertById.setBigDecimal(3, score);
+                insertById.addBatch();
+                insertByKey.setString(1, shopperId);
+                insertByKey.setString(2, productId);
+                insertByKey.setLong(3, CompactColumns.shopperKey(shopperId));
+                insertByKey.setLong(4, CompactColumns.scaledScore(score));
+                insertByKey.addBatch();
+                if ((row + 1) % BATCH == 0) {
+                    insertById.executeBatch();
+                    insertByKey.executeBatch();
+                    connection.commit();
+                }
+            }
+            insertById.executeBatch();
+            insertByKey.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        // Indexes built after the load, as the migration does
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX idx_bench_shopper_relevancy ON bench_shelf_by_id (shopper_id, relevancy_score DESC)");
+            statement.execute("CREATE INDEX idx_bench_shopper_key_score ON bench_shelf_by_key (shopper_key, score_scaled DESC)");
+        }
+    }
+
+    private long count(String table) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            return -1;
+        }
+    }
+
+    private void printSizes() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE bench_shelf_by_id, bench_shelf_by_key");
+            try (ResultSet rs = statement.executeQuery("SELECT index_name, table_name, "
+                    + "stat_value * @@innodb_page_size DIV 1048576 FROM mysql.innodb_index_stats "
+                    + "WHERE database_name = DATABASE() AND table_name LIKE 'bench_shelf_%' AND stat_name = 'size'")) {
+                System.out.printf("%nindex sizes (MB):%n");
+                while (rs.next()) {
+                    System.out.printf("  %s.%s = %d%n", rs.getString(2), rs.getString(1), rs.getLong(3));
+                }
+            }
+        }
+    }
+
+    private static String shopperId(int n) {
+        return String.format("shopper-%08d", n);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(CompactKeyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
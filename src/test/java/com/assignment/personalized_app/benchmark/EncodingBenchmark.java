@@ -0,0 +1,134 @@
+package com.assignment.personalized_app.benchmark;
+
+import com.assignment.personalized_app.dto.ItemDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.dto.ShopperShelfDTO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode cost and payload size per wire format for the two hot payloads:
+ * a 100-item products page (response) and a 10k-item shelf upload (request).
+ * <p>
+ * Payload sizes are printed once per trial. Run with:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      com.assignment.personalized_app.benchmark.EncodingBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EncodingBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private JavaType pageType;
+
+    private OperationResponse<PageResponseDTO<ShopperProductDTO>> page;
+    private ShopperShelfDTO shelf;
+
+    private byte[] encodedPage;
+    private byte[] encodedShelf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = switch (format) {
+            case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            default -> Jackson2ObjectMapperBuilder.json().build();
+        };
+        pageType = mapper.getTypeFactory().constructType(
+                new TypeReference<OperationResponse<PageResponseDTO<ShopperProductDTO>>>() { });
+
+        Random random = new Random(42);
+        page = new OperationResponse<>(true, "Products fetched successfully", buildPage(random, 100));
+        shelf = new ShopperShelfDTO("shopper-000001", buildShelf(random, 10_000));
+
+        encodedPage = mapper.writeValueAsBytes(page);
+        encodedShelf = mapper.writeValueAsBytes(shelf);
+
+        System.out.printf("%n[%s] page(100) = %d bytes, shelf(10k) = %d bytes%n",
+                format, encodedPage.length, encodedShelf.length);
+    }
+
+    @Benchmark
+    public byte[] encodePage100() throws Exception {
+        return mapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public Object decodePage100() throws Exception {
+        return mapper.readValue(encodedPage, pageType);
+    }
+
+    @Benchmark
+    public byte[] encodeShelf10k() throws Exception {
+        return mapper.writeValueAsBytes(shelf);
+    }
+
+    @Benchmark
+    public ShopperShelfDTO decodeShelf10k() throws Exception {
+        return mapper.readValue(encodedShelf, ShopperShelfDTO.class);
+    }
+
+    private static PageResponseDTO<ShopperProductDTO> buildPage(Random random, int size) {
+        List<ShopperProductDTO> content = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            content.add(ShopperProductDTO.builder()
+                    .productId("prod-" + (100_000 + i))
+                    .relevancyScore(score(random))
+                    .category("Category-" + (i % 12))
+                    .brand("Brand-" + (i % 40))
+                    .build());
+        }
+        return PageResponseDTO.<ShopperProductDTO>builder()
+                .content(content)
+                .currentPage(0)
+                .totalPages(100)
+                .totalItems(10_000)
+                .build();
+    }
+
+    private static List<ItemDTO> buildShelf(Random random, int size) {
+        List<ItemDTO> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new ItemDTO("prod-" + (100_000 + i), score(random)));
+        }
+        return items;
+    }
+
+    /** Scores as they come back from the DECIMAL(19,10) column. */
+    private static BigDecimal score(Random random) {
+        return BigDecimal.valueOf(random.nextDouble()).setScale(10, RoundingMode.HALF_UP);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EncodingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
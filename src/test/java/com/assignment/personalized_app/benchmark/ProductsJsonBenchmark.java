@@ -0,0 +1,108 @@
+package com.assignment.personalized_app.benchmark;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.encoding.ProductsPageJsonWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.StreamUtils;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a JSON products page to the response stream through Jackson (the current path)
+ * and through {@link ProductsPageJsonWriter}.
+ * <p>
+ * BigDecimal caches its {@code toString()}, which a page rendered twice from the same objects
+ * would hit. With {@code scores=fresh} every invocation first gives each product a new score
+ * object, as a database read does; that costs both paths the same {@code size} allocations.
+ * Run with {@code -prof gc} to compare allocation per operation:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      org.openjdk.jmh.Main ProductsJsonBenchmark -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductsJsonBenchmark {
+
+    @Param({"10", "100"})
+    private int size;
+
+    @Param({"fresh", "cached"})
+    private String scores;
+
+    private ObjectMapper mapper;
+    private OutputStream out;
+    private OperationResponse<PageResponseDTO<ShopperProductDTO>> page;
+    private long[] unscaled;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        // Jackson closes the target; the servlet path shields the response stream the same way
+        out = StreamUtils.nonClosing(OutputStream.nullOutputStream());
+
+        Random random = new Random(42);
+        List<ShopperProductDTO> content = new ArrayList<>(size);
+        unscaled = new long[size];
+        for (int i = 0; i < size; i++) {
+            // DECIMAL(19,10) scores in [0, 1)
+            unscaled[i] = (long) (random.nextDouble() * 10_000_000_000L);
+            content.add(ShopperProductDTO.builder()
+                    .productId("prod-" + (100_000 + i))
+                    .relevancyScore(BigDecimal.valueOf(unscaled[i], 10))
+                    .category("Category-" + (i % 12))
+                    .brand("Brand-" + (i % 40))
+                    .build());
+        }
+        page = new OperationResponse<>(true, "Products fetched successfully",
+                new PageResponseDTO<>(content, 0, 100, 10_000));
+
+        if (!Arrays.equals(mapper.writeValueAsBytes(page), ProductsPageJsonWriter.toBytes(page))) {
+            throw new IllegalStateException("ProductsPageJsonWriter output differs from Jackson's");
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void refreshScores() {
+        if (scores.equals("fresh")) {
+            List<ShopperProductDTO> content = page.getData().getContent();
+            for (int i = 0; i < size; i++) {
+                content.get(i).setRelevancyScore(BigDecimal.valueOf(unscaled[i], 10));
+            }
+        }
+    }
+
+    @Benchmark
+    public void jackson() throws Exception {
+        mapper.writeValue(out, page);
+    }
+
+    @Benchmark
+    public int direct() throws Exception {
+        return ProductsPageJsonWriter.write(page, out);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProductsJsonBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
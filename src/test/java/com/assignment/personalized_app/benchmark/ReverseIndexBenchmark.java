@@ -0,0 +1,115 @@
+package com.assignment.personalized_app.benchmark;
+
+import com.assignment.personalized_app.config.ReverseIndexProperties;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the shoppers affected by a catalog-wide rebrand of 10k products: through
+ * {@link ProductShopperIndex}, one lookup per changed product (what the metadata-change listener
+ * does) and one batched union, against scanning every shelf.
+ * <p>
+ * 1M products in 500 brands of 2000; each of 50k shoppers holds 100 products from 5 favourite
+ * brands. The rebrand covers 5 whole brands (10k products), so a few percent of shoppers are
+ * affected. Index size and affected shopper count are printed once per trial. Run with:
+ * <pre>
+ * mvn -B test-compile
+ * java -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      com.assignment.personalized_app.benchmark.ReverseIndexBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ReverseIndexBenchmark {
+
+    private static final int SHOPPERS = 50_000;
+    private static final int BRANDS = 500;
+    private static final int PRODUCTS_PER_BRAND = 2_000;
+    private static final int FAVOURITE_BRANDS = 5;
+    private static final int SHELF_SIZE = 100;
+    private static final int REBRANDED_BRANDS = 5;
+
+    private ProductShopperIndex index;
+    private Map<String, Set<String>> shelves;
+    private List<String> rebranded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ReverseIndexProperties properties = new ReverseIndexProperties();
+        properties.setEnabled(true);
+        index = new ProductShopperIndex(new DriverManagerDataSource(), new ShardRouter(Optional.empty()),
+                properties, new SimpleMeterRegistry());
+        shelves = new HashMap<>();
+
+        Random random = new Random(42);
+        for (int s = 0; s < SHOPPERS; s++) {
+            String shopperId = String.format("shopper-%06d", s);
+            int[] favourites = random.ints(FAVOURITE_BRANDS, 0, BRANDS).toArray();
+            Set<String> shelf = new HashSet<>();
+            while (shelf.size() < SHELF_SIZE) {
+                int brand = favourites[random.nextInt(FAVOURITE_BRANDS)];
+                shelf.add(productId(brand * PRODUCTS_PER_BRAND + random.nextInt(PRODUCTS_PER_BRAND)));
+            }
+            shelves.put(shopperId, shelf);
+            index.addAll(shopperId, shelf);
+        }
+
+        rebranded = new ArrayList<>();
+        for (int p = 0; p < REBRANDED_BRANDS * PRODUCTS_PER_BRAND; p++) {
+            rebranded.add(productId(p));
+        }
+
+        System.out.printf("%nindex: products=%d, shoppers=%d, bitmaps=%d KB, affected by rebrand=%d%n",
+                index.products(), index.shoppers(), index.sizeInBytes() / 1024, index.shoppersOf(rebranded).size());
+    }
+
+    @Benchmark
+    public int rebrandPerProductLookups() {
+        Set<String> affected = new HashSet<>();
+        for (String productId : rebranded) {
+            affected.addAll(index.shoppersOf(List.of(productId)));
+        }
+        return affected.size();
+    }
+
+    @Benchmark
+    public int rebrandBatchedLookup() {
+        return index.shoppersOf(rebranded).size();
+    }
+
+    @Benchmark
+    public int rebrandFullShelfScan() {
+        Set<String> changed = new HashSet<>(rebranded);
+        int affected = 0;
+        for (Set<String> shelf : shelves.values()) {
+            for (String productId : shelf) {
+                if (changed.contains(productId)) {
+                    affected++;
+                    break;
+                }
+            }
+        }
+        return affected;
+    }
+
+    private static String productId(int n) {
+        return String.format("product-%07d", n);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReverseIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
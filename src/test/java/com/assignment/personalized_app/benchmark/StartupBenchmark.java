@@ -0,0 +1,162 @@
+package com.assignment.personalized_app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time from launching a new instance to the first answered products request, for the default
+ * profile and for the fast-start profile (AOT-processed beans and the class-data-sharing archive
+ * built by {@code mvn -Pfast-start package}, lazy initialization, no schema update).
+ * <p>
+ * Each invocation starts the extracted application in {@code benchmark.app.dir} as a new JVM and
+ * polls GET /external/{shopperId}/products until it returns 200; the instance is stopped after
+ * the measurement. Both profiles run the same jar against the database given by the
+ * {@code benchmark.jdbc.*} properties; the default profile runs first and brings the schema up
+ * to date. Extra classpath entries (a JDBC driver the jar does not ship, say) go in
+ * {@code benchmark.classpath}. Run with:
+ * <pre>
+ * mvn -B -Pfast-start package
+ * mvn -B test-compile
+ * java -Dbenchmark.jdbc.url=jdbc:mysql://localhost:3306/personalized_db -Dbenchmark.jdbc.user=root -Dbenchmark.jdbc.password=... \
+ *      -cp "target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout)" \
+ *      org.openjdk.jmh.Main StartupBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+    private static final String MAIN_CLASS = "com.assignment.personalized_app.PersonalizedAppApplication";
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    @Param({"default", "fast-start"})
+    public String profile;
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private List<String> command;
+    private int port;
+    private Process process;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path appDir = Paths.get(System.getProperty("benchmark.app.dir", "target/fast-start")).toAbsolutePath();
+        Path jar;
+        try (Stream<Path> files = Files.list(appDir)) {
+            jar = files.filter(f -> f.getFileName().toString().endsWith(".jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("No application jar in " + appDir
+                            + "; build it with mvn -Pfast-start package"));
+        }
+
+        command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (profile.equals("fast-start")) {
+            command.add("-XX:SharedArchiveFile=" + appDir.resolve("application.jsa"));
+            command.add("-Xlog:cds=off");
+            command.add("-Dspring.aot.enabled=true");
+        }
+        String classpath = System.getProperty("benchmark.classpath");
+        command.add("-cp");
+        command.add(classpath == null ? jar.toString() : jar + File.pathSeparator + classpath);
+        command.add(MAIN_CLASS);
+        if (profile.equals("fast-start")) {
+            command.add("--spring.profiles.active=fast-start");
+        }
+        addArgument("benchmark.jdbc.url", "spring.datasource.url");
+        addArgument("benchmark.jdbc.user", "spring.datasource.username");
+        addArgument("benchmark.jdbc.password", "spring.datasource.password");
+        String extra = System.getProperty("benchmark.app.args");
+        if (extra != null) {
+            command.addAll(Arrays.asList(extra.trim().split("\\s+")));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void pickPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        if (process != null) {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+            process = null;
+        }
+    }
+
+    @Benchmark
+    public int timeToFirstRequest() throws Exception {
+        List<String> launch = new ArrayList<>(command);
+        launch.add("--server.port=" + port);
+        process = new ProcessBuilder(launch)
+                .directory(Paths.get(System.getProperty("benchmark.app.dir", "target/fast-start")).toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        HttpRequest request = HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/external/startup-benchmark/products"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue()
+                        + "; run it with " + String.join(" ", launch) + " to see why");
+            }
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return response.statusCode();
+                }
+                throw new IllegalStateException("First request answered " + response.statusCode());
+            } catch (IOException notListeningYet) {
+                Thread.sleep(10);
+            }
+        }
+        throw new IllegalStateException("No answer within " + TIMEOUT);
+    }
+
+    /**
+     * Passes a benchmark system property on to the application as a command-line property.
+     */
+    private void addArgument(String benchmarkProperty, String applicationProperty) {
+        String value = System.getProperty(benchmarkProperty);
+        if (value != null) {
+            command.add("--" + applicationProperty + "=" + value);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StartupBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
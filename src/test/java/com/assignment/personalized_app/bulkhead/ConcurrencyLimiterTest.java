@@ -0,0 +1,180 @@
+package com.assignment.personalized_app.bulkhead;
+
+import com.assignment.personalized_app.config.BulkheadProperties;
+import com.assignment.personalized_app.logging.AccessLogContext;
+import com.assignment.personalized_app.logging.DbTimeSessionListener;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void rejectsWhenTheQueueIsFullOrTheWaitRunsOut() throws Exception {
+        ConcurrencyLimiter limiter = newLimiter(settings(1, 1, Duration.ofMillis(50), false));
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        // Waits in the only queue slot and times out
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        CompletableFuture<Boolean> waiter = CompletableFuture.supplyAsync(() -> acquire(limiter));
+        Thread.sleep(10);
+        limiter.release(-1);
+        assertThat(waiter.get(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void adaptiveLimitFallsWhenLatencyRisesAndRecoversWhenItSettles() throws Exception {
+        BulkheadProperties.Bulkhead settings = settings(10, 0, Duration.ZERO, true);
+        settings.setMinLimit(2);
+        settings.setMaxLimit(11);
+        settings.setSampleWindow(10);
+        ConcurrencyLimiter limiter = newLimiter(settings);
+
+        runWindow(limiter, 10, 1_000_000);
+        assertThat(limiter.limit()).isEqualTo(11);
+
+        runWindow(limiter, 10, 5_000_000);
+        assertThat(limiter.limit()).isEqualTo(9);
+        runWindow(limiter, 9, 5_000_000);
+        runWindow(limiter, 1, 5_000_000);
+        assertThat(limiter.limit()).isEqualTo(8);
+
+        runWindow(limiter, 8, 1_000_000);
+        runWindow(limiter, 2, 1_000_000);
+        assertThat(limiter.limit()).isEqualTo(9);
+    }
+
+    @Test
+    void adaptiveLimitHoldsUnderAStableMixOfSmallAndLargeRequests() throws Exception {
+        BulkheadProperties.Bulkhead settings = settings(10, 0, Duration.ZERO, true);
+        settings.setMaxLimit(10);
+        settings.setSampleWindow(50);
+        ConcurrencyLimiter limiter = newLimiter(settings);
+        Random random = new Random(42);
+
+        // One request in four is a large write taking 20 times as long as the rest
+        for (int window = 0; window < 20; window++) {
+            for (int i = 0; i < 5; i++) {
+                for (int j = 0; j < 10; j++) {
+                    assertThat(limiter.tryAcquire()).isTrue();
+                }
+                for (int j = 0; j < 10; j++) {
+                    limiter.release(random.nextInt(4) == 0 ? 20_000_000 : 1_000_000);
+                }
+            }
+        }
+        assertThat(limiter.limit()).isEqualTo(10);
+
+        // A real slowdown of every request still lowers it
+        for (int i = 0; i < 5; i++) {
+            runWindow(limiter, 10, 5_000_000);
+        }
+        assertThat(limiter.limit()).isEqualTo(9);
+    }
+
+    @Test
+    void filterFeedsTheLimiterDatabaseTimeOnly() throws Exception {
+        ConcurrencyLimiter limiter = mock(ConcurrencyLimiter.class);
+        when(limiter.tryAcquire()).thenReturn(true);
+        BulkheadFilter filter = new BulkheadFilter("internal", limiter, Set.of(), Duration.ofSeconds(1), new ObjectMapper());
+        DbTimeSessionListener listener = new DbTimeSessionListener();
+
+        filter.doFilter(new MockHttpServletRequest("PUT", "/internal/shopper-products"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    listener.jdbcExecuteStatementStart();
+                    listener.jdbcExecuteStatementEnd();
+                    sleep(50);
+                });
+        ArgumentCaptor<Long> latency = ArgumentCaptor.forClass(Long.class);
+        verify(limiter).release(latency.capture());
+        assertThat(latency.getValue()).isBetween(0L, TimeUnit.MILLISECONDS.toNanos(50));
+
+        filter.doFilter(new MockHttpServletRequest("PUT", "/internal/shopper-products"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        verify(limiter).release(-1);
+        assertThat(AccessLogContext.current()).isNull();
+    }
+
+    @Test
+    void filterAnswers429WithRetryAfterAndSkipsExemptPaths() throws Exception {
+        ConcurrencyLimiter limiter = newLimiter(settings(1, 0, Duration.ZERO, false));
+        BulkheadFilter filter = new BulkheadFilter("internal", limiter, Set.of("/internal/shopper-products/bulk"),
+                Duration.ofMillis(1500), new ObjectMapper());
+        assertThat(limiter.tryAcquire()).isTrue();
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/internal/shopper-products"), rejected, new MockFilterChain());
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(rejected.getContentAsString()).contains("Too many internal requests");
+
+        MockHttpServletResponse exempt = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/internal/shopper-products/bulk"), exempt, new MockFilterChain());
+        assertThat(exempt.getStatus()).isEqualTo(200);
+
+        limiter.release(-1);
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/internal/shopper-products"), admitted, new MockFilterChain());
+        assertThat(admitted.getStatus()).isEqualTo(200);
+        assertThat(limiter.inFlight()).isZero();
+    }
+
+    /**
+     * Completes {@code requests} requests of the given latency, all admitted before any finishes.
+     */
+    private static void runWindow(ConcurrencyLimiter limiter, int requests, long latencyNanos) throws Exception {
+        for (int i = 0; i < requests; i++) {
+            assertThat(limiter.tryAcquire()).isTrue();
+        }
+        for (int i = 0; i < requests; i++) {
+            limiter.release(latencyNanos);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean acquire(ConcurrencyLimiter limiter) {
+        try {
+            return limiter.tryAcquire();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ConcurrencyLimiter newLimiter(BulkheadProperties.Bulkhead settings) {
+        return new ConcurrencyLimiter("test", settings, new SimpleMeterRegistry());
+    }
+
+    private static BulkheadProperties.Bulkhead settings(int limit, int queueLimit, Duration maxWait, boolean adaptive) {
+        BulkheadProperties.Bulkhead settings = new BulkheadProperties.Bulkhead();
+        settings.setLimit(limit);
+        settings.setMinLimit(1);
+        settings.setMaxLimit(limit);
+        settings.setQueueLimit(queueLimit);
+        settings.setMaxWait(maxWait);
+        settings.setAdaptive(adaptive);
+        return settings;
+    }
+}
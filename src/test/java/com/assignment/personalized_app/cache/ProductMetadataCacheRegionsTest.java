@@ -0,0 +1,102 @@
+package com.assignment.personalized_app.cache;
+
+import com.assignment.personalized_app.config.SecondLevelCacheConfig;
+import com.assignment.personalized_app.entity.ProductMetadata;
+import com.assignment.personalized_app.repository.ProductMetadataRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-metadata-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "personalized.product-metadata-cache.enabled=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SecondLevelCacheConfig.class, ProductMetadataCacheRegions.class})
+// Each repository call commits on its own, as the services' calls do
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductMetadataCacheRegionsTest {
+
+    @Autowired
+    private ProductMetadataRepository repository;
+
+    @Autowired
+    private ProductMetadataCacheRegions cacheRegions;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+        entityManagerFactory.getCache().evictAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void savedMetadataIsWrittenThroughAndReadFromTheCache() {
+        repository.save(new ProductMetadata("p1", "Shoes", "Acme", null, null));
+        assertThat(repository.findById("p1")).get().extracting(ProductMetadata::getCategory).isEqualTo("Shoes");
+
+        ProductMetadata updated = repository.findById("p1").orElseThrow();
+        updated.setCategory("Hats");
+        repository.save(updated);
+
+        assertThat(repository.findById("p1")).get().extracting(ProductMetadata::getCategory).isEqualTo("Hats");
+        // Three finds and the merge behind the second save
+        assertThat(statistics.getDomainDataRegionStatistics(ProductMetadataCacheRegions.ENTITY_REGION).getHitCount())
+                .isEqualTo(4);
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void existingIdsAreCachedUntilTheTableChanges() {
+        repository.save(new ProductMetadata("p1", "Shoes", "Acme", null, null));
+
+        assertThat(repository.findExistingProductIds(List.of("p1", "p2"))).get().asList().containsExactly("p1");
+        assertThat(repository.findExistingProductIds(List.of("p1", "p2"))).get().asList().containsExactly("p1");
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        // An insert through JPA invalidates the cached results over product_metadata
+        repository.save(new ProductMetadata("p2", "Hats", "Acme", null, null));
+        assertThat(repository.findExistingProductIds(List.of("p1", "p2"))).get().asList().containsExactlyInAnyOrder("p1", "p2");
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictDropsWhatJdbcWritesChanged() {
+        repository.save(new ProductMetadata("p1", "Shoes", "Acme", null, null));
+        repository.findExistingProductIds(List.of("p1", "p3"));
+
+        jdbcTemplate.update("UPDATE product_metadata SET category = 'Toys' WHERE product_id = 'p1'");
+        jdbcTemplate.update("INSERT INTO product_metadata (product_id, category, brand) VALUES ('p3', 'Toys', 'Zed')");
+        assertThat(repository.findById("p1")).get().extracting(ProductMetadata::getCategory).isEqualTo("Shoes");
+
+        cacheRegions.evict(List.of("p1", "p3"));
+
+        assertThat(entityManagerFactory.getCache().contains(ProductMetadata.class, "p1")).isFalse();
+        assertThat(repository.findById("p1")).get().extracting(ProductMetadata::getCategory).isEqualTo("Toys");
+        assertThat(repository.findExistingProductIds(List.of("p1", "p3"))).get().asList().containsExactlyInAnyOrder("p1", "p3");
+    }
+}
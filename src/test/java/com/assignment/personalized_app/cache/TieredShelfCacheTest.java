@@ -0,0 +1,105 @@
+package com.assignment.personalized_app.cache;
+
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TieredShelfCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void oneHitWonderScanDoesNotDisplaceHotOrWarmShoppers() {
+        TieredShelfCache cache = new TieredShelfCache(2, 4 * warmSize(), 1024, meterRegistry);
+        for (String shopperId : List.of("hot-1", "hot-2", "warm-1", "warm-2", "warm-3", "warm-4")) {
+            read(cache, shopperId, 5);
+        }
+        assertThat(cache.isHot("hot-1")).isTrue();
+        assertThat(cache.isHot("hot-2")).isTrue();
+        assertThat(cache.warmShoppers()).isEqualTo(4);
+
+        for (int i = 0; i < 1000; i++) {
+            read(cache, "crawled-" + i, 1);
+        }
+
+        assertThat(cache.hotShoppers()).isEqualTo(2);
+        assertThat(cache.isHot("hot-1") && cache.isHot("hot-2")).isTrue();
+        assertThat(List.of("warm-1", "warm-2", "warm-3", "warm-4")).allMatch(cache::isWarm);
+        assertThat(meterRegistry.get("shelf.cache.rejections").tag("tier", "warm").counter().count())
+                .isEqualTo(1000);
+    }
+
+    @Test
+    void frequentlyReadWarmShopperIsPromotedAndVictimDemoted() {
+        TieredShelfCache cache = new TieredShelfCache(1, 10 * warmSize(), 1024, meterRegistry);
+        read(cache, "first", 2);
+        read(cache, "second", 1);
+        assertThat(cache.isHot("first")).isTrue();
+        assertThat(cache.isWarm("second")).isTrue();
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(cache.get("second")).isEqualTo(shelf("second"));
+        }
+
+        assertThat(cache.isHot("second")).isTrue();
+        assertThat(cache.isWarm("first")).isTrue();
+        assertThat(cache.get("first")).isEqualTo(shelf("first"));
+        assertThat(meterRegistry.get("shelf.cache.promotions").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("shelf.cache.hit.ratio").tag("tier", "warm").gauge().value()).isPositive();
+        assertThat(meterRegistry.get("shelf.cache.bytes").tag("tier", "warm").gauge().value()).isPositive();
+    }
+
+    @Test
+    void loadStartedBeforeAnInvalidationIsDropped() {
+        TieredShelfCache cache = new TieredShelfCache(4, 10 * warmSize(), 1024, meterRegistry);
+        long stamp = cache.stamp("shopper");
+
+        cache.invalidate("shopper");
+
+        assertThat(cache.put("shopper", stamp, shelf("shopper"))).isFalse();
+        assertThat(cache.get("shopper")).isNull();
+        assertThat(cache.put("shopper", cache.stamp("shopper"), shelf("shopper"))).isTrue();
+        assertThat(cache.get("shopper")).isEqualTo(shelf("shopper"));
+    }
+
+    @Test
+    void sketchCountsAreHalvedAfterTheSampleSize() {
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 12; i++) {
+            sketch.increment("hot");
+        }
+        assertThat(sketch.frequency("hot")).isEqualTo(12);
+        assertThat(sketch.frequency("cold")).isLessThanOrEqualTo(1);
+
+        for (int i = 0; i < 200; i++) {
+            sketch.increment("other-" + i);
+        }
+        assertThat(sketch.frequency("hot")).isLessThan(12);
+    }
+
+    /**
+     * Misses, then loads the shelf, then reads it (times - 1) more times.
+     */
+    private static void read(TieredShelfCache cache, String shopperId, int times) {
+        if (cache.get(shopperId) == null) {
+            cache.put(shopperId, cache.stamp(shopperId), shelf(shopperId));
+        }
+        for (int i = 1; i < times; i++) {
+            cache.get(shopperId);
+        }
+    }
+
+    private static List<ShopperProductDTO> shelf(String shopperId) {
+        return List.of(new ShopperProductDTO(shopperId + "-p1", new BigDecimal("0.9000000000"), "Shoes", "Acme"),
+                new ShopperProductDTO(shopperId + "-p2", null, null, null));
+    }
+
+    private static long warmSize() {
+        return ShelfCodec.encode(shelf("warm-1")).length + 96;
+    }
+}
@@ -0,0 +1,93 @@
+package com.assignment.personalized_app.catalog;
+
+import com.assignment.personalized_app.catalog.CsvCatalogReader.Row;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvCatalogReaderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsHeaderQuotesAndCrlfAcrossWindows() throws IOException {
+        Path file = write("\uFEFFproductId,category,brand\r\n"
+                + "p1,Shoes,Acme\r\n"
+                + "\r\n"
+                + "\"p2\",\"Bags, Travel\",\"Say \"\"Hi\"\"\"\n"
+                + "p3,,Levi\"s\n"
+                + "p4,Shoes,Acme");
+
+        // A window of a few lines forces remapping mid-file
+        List<Row> rows = readAll(file, 0, 40);
+
+        assertThat(rows).extracting(Row::productId).containsExactly("p1", "p2", "p3", "p4");
+        assertThat(rows.get(0).category()).isEqualTo("Shoes");
+        assertThat(rows.get(1).category()).isEqualTo("Bags, Travel");
+        assertThat(rows.get(1).brand()).isEqualTo("Say \"Hi\"");
+        assertThat(rows.get(2).category()).isNull();
+        assertThat(rows.get(2).brand()).isEqualTo("Levi\"s");
+        assertThat(rows.get(3).endOffset()).isEqualTo(Files.size(file));
+        // Repeated values are decoded once
+        assertThat(rows.get(3).category()).isSameAs(rows.get(0).category());
+    }
+
+    @Test
+    void malformedLinesAreRejectedWithoutStoppingTheFile() throws IOException {
+        Path file = write("p1,Shoes\n,Shoes,Acme\np2,\"open,Acme\np3,Shoes,Acme\n");
+
+        List<Row> rows = readAll(file, 0, 1024);
+
+        assertThat(rows).extracting(Row::error).containsExactly(
+                "expected 3 fields, found 2", "empty productId", "unterminated quoted field", null);
+        assertThat(rows.get(3).productId()).isEqualTo("p3");
+    }
+
+    @Test
+    void resumesAfterTheLastReturnedLine() throws IOException {
+        Path file = write("productId,category,brand\np1,Shoes,Acme\np2,Bags,Acme\np3,Hats,Zed\n");
+
+        long offset;
+        try (CsvCatalogReader reader = new CsvCatalogReader(file, 0, 1024)) {
+            assertThat(reader.next().productId()).isEqualTo("p1");
+            offset = reader.offset();
+        }
+
+        assertThat(readAll(file, offset, 1024)).extracting(Row::productId).containsExactly("p2", "p3");
+    }
+
+    @Test
+    void lineLongerThanWindowFails() throws IOException {
+        Path file = write("p1,Shoes,Acme\np2,A very long category name,Acme\n");
+
+        try (CsvCatalogReader reader = new CsvCatalogReader(file, 0, 16)) {
+            assertThat(reader.next().productId()).isEqualTo("p1");
+            assertThatThrownBy(reader::next).isInstanceOf(IOException.class).hasMessageContaining("offset 14");
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.write(directory.resolve("catalog.csv"), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<Row> readAll(Path file, long offset, int windowSize) throws IOException {
+        List<Row> rows = new ArrayList<>();
+        try (CsvCatalogReader reader = new CsvCatalogReader(file, offset, windowSize)) {
+            Row row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,198 @@
+package com.assignment.personalized_app.coalescing;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private ExecutorService loaderPool;
+    private ExecutorService callers;
+    private SimpleMeterRegistry meterRegistry;
+    private SingleFlight<String, String> singleFlight;
+
+    @BeforeEach
+    void setUp() {
+        loaderPool = Executors.newFixedThreadPool(4);
+        callers = Executors.newCachedThreadPool();
+        meterRegistry = new SimpleMeterRegistry();
+        singleFlight = new SingleFlight<>("test", loaderPool, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        loaderPool.shutdownNow();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(callers.submit(() -> singleFlight.load("shopper1", () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "shelf";
+            }, TIMEOUT)));
+        }
+        awaitCount("test.loads", 1);
+        awaitCount("test.collapsed", 19);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("shelf");
+        }
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+    }
+
+    @Test
+    void finishedLoadIsNotReused() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+
+        singleFlight.load("shopper1", () -> "v" + loads.incrementAndGet(), TIMEOUT);
+        String second = singleFlight.load("shopper1", () -> "v" + loads.incrementAndGet(), TIMEOUT);
+
+        assertThat(second).isEqualTo("v2");
+    }
+
+    @Test
+    void failureIsSharedByAllWaiters() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<String> caller = () -> singleFlight.load("shopper1", () -> {
+            await(release);
+            throw new IllegalStateException("DB error");
+        }, TIMEOUT);
+
+        Future<String> first = callers.submit(caller);
+        awaitCount("test.loads", 1);
+        Future<String> second = callers.submit(caller);
+        awaitCount("test.collapsed", 1);
+        release.countDown();
+
+        for (Future<String> result : List.of(first, second)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("DB error");
+        }
+    }
+
+    @Test
+    void loadIsCancelledWhenAllWaitersTimeOut() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> singleFlight.load("shopper1", () -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "late";
+        }, Duration.ofMillis(50))).isInstanceOf(TimeoutException.class);
+
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(count("test.timeouts")).isEqualTo(1);
+        assertThat(count("test.cancelled")).isEqualTo(1);
+        assertThat(singleFlight.inFlight()).isZero();
+
+        // The next caller starts a fresh load
+        assertThat(singleFlight.load("shopper1", () -> "fresh", TIMEOUT)).isEqualTo("fresh");
+    }
+
+    @Test
+    void loadSurvivesWhileAnyWaiterRemains() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        Future<String> patient = callers.submit(() -> singleFlight.load("shopper1", () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "shelf";
+        }, TIMEOUT));
+        awaitCount("test.loads", 1);
+
+        assertThatThrownBy(() -> singleFlight.load("shopper1", () -> "unused", Duration.ofMillis(20)))
+                .isInstanceOf(TimeoutException.class);
+        release.countDown();
+
+        assertThat(patient.get(5, TimeUnit.SECONDS)).isEqualTo("shelf");
+        assertThat(count("test.cancelled")).isZero();
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    void forgottenLoadIsNotJoinedByLaterCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> stale = callers.submit(() -> singleFlight.load("shopper1", () -> {
+            await(release);
+            return "old";
+        }, TIMEOUT));
+        awaitCount("test.loads", 1);
+
+        singleFlight.forget(key -> key.equals("shopper1"));
+        String fresh = singleFlight.load("shopper1", () -> "new", TIMEOUT);
+        release.countDown();
+
+        assertThat(fresh).isEqualTo("new");
+        assertThat(stale.get(5, TimeUnit.SECONDS)).isEqualTo("old");
+        assertThat(count("test.collapsed")).isZero();
+    }
+
+    @Test
+    void loadsOnCallerThreadWhenLoaderPoolIsSaturated() throws Exception {
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<>());
+        SingleFlight<String, String> flight = new SingleFlight<>("saturated", saturated, new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            callers.submit(() -> flight.load("busy", () -> {
+                await(release);
+                return "busy";
+            }, TIMEOUT));
+            while (saturated.getActiveCount() == 0) {
+                Thread.sleep(5);
+            }
+
+            String caller = Thread.currentThread().getName();
+            assertThat(flight.load("other", () -> Thread.currentThread().getName(), TIMEOUT)).isEqualTo(caller);
+        } finally {
+            release.countDown();
+            saturated.shutdownNow();
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.counter(name).count();
+    }
+
+    private void awaitCount(String name, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(name) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(count(name)).isEqualTo(expected);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
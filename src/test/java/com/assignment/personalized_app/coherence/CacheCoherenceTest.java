@@ -0,0 +1,132 @@
+package com.assignment.personalized_app.coherence;
+
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.CoherenceProperties;
+import com.assignment.personalized_app.event.RemoteProductsChangedEvent;
+import com.assignment.personalized_app.event.RemoteShelvesChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.repository.ShelfVersionRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Two nodes sharing one database, as two instances on one machine would.
+ */
+class CacheCoherenceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher publisherA;
+    private ApplicationEventPublisher publisherB;
+    private ProductMetadataCacheRegions regionsB;
+    private CacheCoherence nodeA;
+    private CacheCoherence nodeB;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:coherence-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE shelf_version (shopper_id VARCHAR(255) PRIMARY KEY, version BIGINT NOT NULL, "
+                + "writer VARCHAR(64) NOT NULL, updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(255) PRIMARY KEY, category VARCHAR(255), "
+                + "brand VARCHAR(255), updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3))");
+
+        publisherA = mock(ApplicationEventPublisher.class);
+        publisherB = mock(ApplicationEventPublisher.class);
+        regionsB = mock(ProductMetadataCacheRegions.class);
+        nodeA = node(dataSource, "node-a", publisherA, mock(ProductMetadataCacheRegions.class));
+        nodeB = node(dataSource, "node-b", publisherB, regionsB);
+        nodeA.start();
+        nodeB.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void poll_InvalidatesShelvesWrittenByOtherNodesOnly() {
+        writeShelf("s1", "node-a");
+        writeShelf("s2", "node-b");
+
+        nodeA.poll();
+        nodeB.poll();
+
+        verify(publisherA).publishEvent(new RemoteShelvesChangedEvent(List.of("s2")));
+        verify(publisherB).publishEvent(new RemoteShelvesChangedEvent(List.of("s1")));
+    }
+
+    @Test
+    void poll_InvalidatesEachVersionOnce() {
+        writeShelf("s1", "node-a");
+        nodeB.poll();
+        // Re-read within the overlap window, but already handled
+        nodeB.poll();
+        verify(publisherB, times(1)).publishEvent(any(RemoteShelvesChangedEvent.class));
+
+        writeShelf("s1", "node-a");
+        nodeB.poll();
+        verify(publisherB, times(2)).publishEvent(new RemoteShelvesChangedEvent(List.of("s1")));
+    }
+
+    @Test
+    void poll_ReadsInBatchesUntilCaughtUp() {
+        for (int i = 0; i < 5; i++) {
+            writeShelf("s" + i, "node-a");
+        }
+
+        nodeB.poll();
+
+        verify(publisherB).publishEvent(new RemoteShelvesChangedEvent(List.of("s0", "s1", "s2", "s3", "s4")));
+    }
+
+    @Test
+    void poll_EvictsChangedProducts() {
+        jdbcTemplate.update("INSERT INTO product_metadata (product_id, category, brand) VALUES ('p1', 'Hats', 'Acme')");
+
+        nodeB.poll();
+        nodeB.poll();
+
+        verify(regionsB, times(1)).evict(List.of("p1"));
+        verify(publisherB, times(1)).publishEvent(new RemoteProductsChangedEvent(List.of("p1")));
+    }
+
+    private CacheCoherence node(DataSource dataSource, String nodeId, ApplicationEventPublisher publisher,
+                                ProductMetadataCacheRegions regions) {
+        CoherenceProperties properties = new CoherenceProperties();
+        properties.setEnabled(true);
+        properties.setNodeId(nodeId);
+        properties.setBatchSize(2);
+        return new CacheCoherence(dataSource, Optional.empty(), mock(ShelfVersionRepository.class),
+                new ShardRouter(Optional.empty()), mock(ProductCatalog.class), mock(ProductAttributeIndex.class),
+                mock(ProductShopperIndex.class),
+                regions, publisher, mock(TaskScheduler.class), properties, new SimpleMeterRegistry());
+    }
+
+    // What ShelfVersionRepository.bump does on MySQL
+    private void writeShelf(String shopperId, String writer) {
+        int updated = jdbcTemplate.update("UPDATE shelf_version SET version = version + 1, writer = ?, "
+                + "updated_at = CURRENT_TIMESTAMP(3) WHERE shopper_id = ?", writer, shopperId);
+        if (updated == 0) {
+            jdbcTemplate.update("INSERT INTO shelf_version (shopper_id, version, writer) VALUES (?, 1, ?)", shopperId, writer);
+        }
+    }
+}
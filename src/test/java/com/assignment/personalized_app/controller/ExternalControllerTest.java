@@ -1,14 +1,31 @@
 package com.assignment.personalized_app.controller;
 
+import com.assignment.personalized_app.config.EncodingConfig;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.service.FacetService;
+import com.assignment.personalized_app.service.PageMaterializationService;
+import com.assignment.personalized_app.service.ShelfExportService;
 import com.assignment.personalized_app.service.ShopperService;
+import com.assignment.personalized_app.warmup.HotShopperTracker;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -22,6 +39,18 @@ class ExternalControllerTest {
     @MockBean
     private ShopperService shopperService;
 
+    @MockBean
+    private ShelfExportService shelfExportService;
+
+    @MockBean
+    private PageMaterializationService pageMaterializationService;
+
+    @MockBean
+    private FacetService facetService;
+
+    @MockBean
+    private HotShopperTracker hotShopperTracker;
+
     @Test
     void testGetProductsByShopper_Defaults() throws Exception {
         // Mock service response with cast to ResponseEntity
@@ -49,4 +78,109 @@ class ExternalControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("mocked"));
     }
+
+    @Test
+    void testGetProductsByShopper_CborWhenAccepted() throws Exception {
+        PageResponseDTO<ShopperProductDTO> page = PageResponseDTO.<ShopperProductDTO>builder()
+                .content(List.of(new ShopperProductDTO("prod1", new BigDecimal("0.9500000000"), "Cat", "Brand")))
+                .currentPage(0)
+                .totalPages(1)
+                .totalItems(1)
+                .build();
+        Mockito.when(shopperService.getProductsByShopper(
+                        eq("shopper1"), isNull(), isNull(), eq(10), eq(0)))
+                .thenReturn((ResponseEntity) ResponseEntity.ok(
+                        new OperationResponse<>(true, "Products fetched successfully", page)));
+
+        MvcResult result = mockMvc.perform(get("/external/shopper1/products")
+                        .accept(EncodingConfig.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(EncodingConfig.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode body = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertThat(body.get("success").asBoolean()).isTrue();
+        JsonNode item = body.get("data").get("content").get(0);
+        assertThat(item.get("productId").asText()).isEqualTo("prod1");
+        assertThat(item.get("relevancyScore").decimalValue()).isEqualByComparingTo("0.95");
+    }
+
+    @Test
+    void testGetProductsByShopper_ServesMaterializedFirstPage() throws Exception {
+        byte[] materialized = "{\"success\":true}".getBytes(StandardCharsets.UTF_8);
+        Mockito.when(pageMaterializationService.findFirstPage("shopper1", "Electronics", 20))
+                .thenReturn(materialized);
+
+        mockMvc.perform(get("/external/shopper1/products")
+                        .param("category", "Electronics")
+                        .param("limit", "20"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(content().bytes(materialized));
+
+        Mockito.verifyNoInteractions(shopperService);
+    }
+
+    @Test
+    void testGetProductsByShopper_MaterializedPageSkippedForCbor() throws Exception {
+        Mockito.when(shopperService.getProductsByShopper(
+                        eq("shopper1"), isNull(), isNull(), eq(10), eq(0)))
+                .thenReturn((ResponseEntity) ResponseEntity.ok("mocked"));
+
+        mockMvc.perform(get("/external/shopper1/products")
+                        .accept(EncodingConfig.APPLICATION_CBOR))
+                .andExpect(status().isOk());
+
+        Mockito.verifyNoInteractions(pageMaterializationService);
+    }
+
+    @Test
+    void testGetProductsByShopper_MultiValueAndScoreFiltersUseFilteredRead() throws Exception {
+        Mockito.when(shopperService.getFilteredProducts(eq("shopper1"), eq(List.of("Shoes", "Bags")), eq(List.of("Acme")),
+                        eq(new BigDecimal("0.5")), isNull(), eq(10), eq(0)))
+                .thenReturn((ResponseEntity) ResponseEntity.ok("filtered"));
+
+        mockMvc.perform(get("/external/shopper1/products")
+                        .param("category", "Shoes", "Bags")
+                        .param("brand", "Acme")
+                        .param("minScore", "0.5"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("filtered"));
+
+        Mockito.verifyNoInteractions(pageMaterializationService);
+        Mockito.verify(shopperService, Mockito.never()).getProductsByShopper(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetProductsByShopper_CommaInASingleCategoryIsNotSplit() throws Exception {
+        Mockito.when(shopperService.getProductsByShopper(eq("shopper1"), eq("Shoes, Boots"), isNull(), eq(10), eq(0)))
+                .thenReturn((ResponseEntity) ResponseEntity.ok("mocked"));
+
+        mockMvc.perform(get("/external/shopper1/products")
+                        .param("category", "Shoes, Boots"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("mocked"));
+
+        Mockito.verify(shopperService, Mockito.never()).getFilteredProducts(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetFacets() throws Exception {
+        Mockito.when(facetService.getFacets("shopper1"))
+                .thenReturn((ResponseEntity) ResponseEntity.ok("facets"));
+
+        mockMvc.perform(get("/external/shopper1/facets"))
+                .andExpect(status().isOk())
+                .andExpect(content().string("facets"));
+    }
+
+    @Test
+    void testExportShelves_InvalidRange() throws Exception {
+        mockMvc.perform(get("/external/shelves/export")
+                        .param("fromShopperId", "shopper9")
+                        .param("toShopperId", "shopper1"))
+                .andExpect(status().isBadRequest());
+
+        Mockito.verifyNoInteractions(shelfExportService);
+    }
 }
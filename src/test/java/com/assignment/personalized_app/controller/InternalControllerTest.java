@@ -1,17 +1,23 @@
 package com.assignment.personalized_app.controller;
 
+import com.assignment.personalized_app.dto.IngestionSummaryDTO;
 import com.assignment.personalized_app.dto.OperationResponse;
 import com.assignment.personalized_app.dto.ProductMetadataDTO;
 import com.assignment.personalized_app.dto.ShopperShelfDTO;
 import com.assignment.personalized_app.dto.ItemDTO;
+import com.assignment.personalized_app.service.CatalogImportService;
 import com.assignment.personalized_app.service.ProductService;
+import com.assignment.personalized_app.service.ShelfIngestionService;
 import com.assignment.personalized_app.service.ShopperService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.Map;
 
@@ -29,6 +35,12 @@ class InternalControllerTest {
     @Mock
     private ProductService productService;
 
+    @Mock
+    private ShelfIngestionService shelfIngestionService;
+
+    @Mock
+    private CatalogImportService catalogImportService;
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -156,4 +168,60 @@ class InternalControllerTest {
         assertThat(result.getBody()).isInstanceOf(Map.class);
         assertThat(((Map<?, ?>) result.getBody()).get("message")).isEqualTo("Failed to replace shopper shelf");
     }
+
+    /* =========================
+       Bulk Ingestion Tests
+       ========================= */
+
+    @Test
+    void bulkUpdateShopperProducts_Success() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        OperationResponse<IngestionSummaryDTO> response =
+                new OperationResponse<>(true, "Ingested 0 shelves", new IngestionSummaryDTO());
+
+        when(shelfIngestionService.ingest(body)).thenReturn(response);
+
+        ResponseEntity<?> result = internalController.bulkUpdateShopperProducts(body);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(result.getBody()).isEqualTo(response);
+    }
+
+    @Test
+    void bulkUpdateShopperProducts_Malformed() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+        OperationResponse<IngestionSummaryDTO> response =
+                new OperationResponse<>(false, "Malformed NDJSON after 0 shelves", new IngestionSummaryDTO());
+
+        when(shelfIngestionService.ingest(body)).thenReturn(response);
+
+        ResponseEntity<?> result = internalController.bulkUpdateShopperProducts(body);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(result.getBody()).isEqualTo(response);
+    }
+
+    @Test
+    void bulkUpdateShopperProducts_Rejected() {
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+
+        when(shelfIngestionService.ingest(body)).thenThrow(new TaskRejectedException("pool exhausted"));
+
+        ResponseEntity<?> result = internalController.bulkUpdateShopperProducts(body);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void importProductMetadata_Started() {
+        OperationResponse<String> response = new OperationResponse<>(true, "Catalog import started", null);
+
+        when(catalogImportService.startImport("catalog.csv", true))
+                .thenReturn((ResponseEntity) ResponseEntity.status(HttpStatus.ACCEPTED).body(response));
+
+        ResponseEntity<?> result = internalController.importProductMetadata("catalog.csv", true);
+
+        assertThat(result.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(result.getBody()).isEqualTo(response);
+    }
 }
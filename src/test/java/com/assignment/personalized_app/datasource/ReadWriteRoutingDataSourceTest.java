@@ -0,0 +1,184 @@
+package com.assignment.personalized_app.datasource;
+
+import com.assignment.personalized_app.config.DataSourceRoutingProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uses separate embedded databases as primary and replicas; each one holds a single row
+ * naming itself, so a query shows which instance served it.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+
+    private EmbeddedDatabase primary;
+    private EmbeddedDatabase replicaA;
+    private EmbeddedDatabase replicaB;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replicaA = database("replica-a");
+        replicaB = database("replica-b");
+    }
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    void readOnlyTransactionGoesToReplica_WritesToPrimary() {
+        Routing routing = routing(ReplicaSelection.ROUND_ROBIN, Map.of("replica-a", replicaA));
+
+        assertThat(routing.read()).isEqualTo("replica-a");
+        assertThat(routing.write()).isEqualTo("primary");
+        assertThat(routing.jdbc.queryForObject("SELECT name FROM whoami", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    void roundRobinAlternatesReplicas() {
+        Routing routing = routing(ReplicaSelection.ROUND_ROBIN, orderedReplicas());
+
+        assertThat(List.of(routing.read(), routing.read(), routing.read(), routing.read()))
+                .containsExactly("replica-a", "replica-b", "replica-a", "replica-b");
+    }
+
+    @Test
+    void leastLoadedAvoidsBusyReplica() throws Exception {
+        ReadWriteRoutingDataSource router =
+                new ReadWriteRoutingDataSource(primary, orderedReplicas(), ReplicaSelection.LEAST_LOADED);
+        Routing routing = new Routing(router);
+
+        // Hold a connection on whichever replica is picked first
+        String busy = routing.readOnly.execute(status -> {
+            String name = routing.jdbc.queryForObject("SELECT name FROM whoami", String.class);
+            assertThat(router.activeReplicaConnections().get(name)).isEqualTo(1);
+            // A nested read on a different thread must pick the idle replica
+            String[] other = new String[1];
+            Thread reader = new Thread(() -> other[0] = routing.read());
+            reader.start();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            assertThat(other[0]).isNotEqualTo(name);
+            return name;
+        });
+
+        assertThat(busy).startsWith("replica-");
+        assertThat(router.activeReplicaConnections().values()).containsOnly(0);
+    }
+
+    @Test
+    void pinnedReadStaysOnPrimary() {
+        Routing routing = routing(ReplicaSelection.ROUND_ROBIN, Map.of("replica-a", replicaA));
+
+        assertThat(RoutingContext.onPrimary(routing::read)).isEqualTo("primary");
+        assertThat(RoutingContext.isPrimaryPinned()).isFalse();
+        assertThat(routing.read()).isEqualTo("replica-a");
+    }
+
+    @Test
+    void readYourWritesWindowPinsShopperAfterCommit() {
+        Routing routing = routing(ReplicaSelection.ROUND_ROBIN, Map.of("replica-a", replicaA));
+        DataSourceRoutingProperties properties = new DataSourceRoutingProperties();
+        properties.setEnabled(true);
+        properties.setReadYourWritesWindow(Duration.ofMinutes(1));
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(properties);
+
+        routing.readWrite.executeWithoutResult(status -> {
+            tracker.recordWrite("shopper1");
+            // Window only opens once the write has committed
+            assertThat(tracker.requiresPrimary("shopper1")).isFalse();
+        });
+
+        assertThat(tracker.read("shopper1", routing::read)).isEqualTo("primary");
+        assertThat(tracker.read("shopper2", routing::read)).isEqualTo("replica-a");
+    }
+
+    @Test
+    void readYourWritesDisabledWhenRoutingDisabled() {
+        DataSourceRoutingProperties properties = new DataSourceRoutingProperties();
+        properties.setReadYourWritesWindow(Duration.ofMinutes(1));
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(properties);
+
+        tracker.recordWrite("shopper1");
+
+        assertThat(tracker.isEnabled()).isFalse();
+        assertThat(tracker.requiresPrimary("shopper1")).isFalse();
+    }
+
+    private Map<String, DataSource> orderedReplicas() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-a", replicaA);
+        replicas.put("replica-b", replicaB);
+        return replicas;
+    }
+
+    private Routing routing(ReplicaSelection selection, Map<String, ? extends DataSource> replicas) {
+        return new Routing(new ReadWriteRoutingDataSource(primary, new LinkedHashMap<String, DataSource>(replicas), selection));
+    }
+
+    private EmbeddedDatabase database(String name) {
+        EmbeddedDatabase db = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbc = new JdbcTemplate(db);
+        jdbc.execute("CREATE TABLE whoami (name VARCHAR(32))");
+        jdbc.update("INSERT INTO whoami VALUES (?)", name);
+        databases.add(db);
+        return db;
+    }
+
+    /**
+     * Router wired the way DataSourceRoutingConfig wires it: behind a lazy proxy,
+     * driven by a transaction manager.
+     */
+    private static final class Routing {
+
+        private final JdbcTemplate jdbc;
+        private final TransactionTemplate readOnly;
+        private final TransactionTemplate readWrite;
+
+        Routing(ReadWriteRoutingDataSource router) {
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(router);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.readOnly = new TransactionTemplate(transactionManager);
+            this.readOnly.setReadOnly(true);
+            this.readWrite = new TransactionTemplate(transactionManager);
+        }
+
+        String read() {
+            return readOnly.execute(status -> jdbc.queryForObject("SELECT name FROM whoami", String.class));
+        }
+
+        String write() {
+            return readWrite.execute(status -> {
+                jdbc.update("UPDATE whoami SET name = name");
+                return jdbc.queryForObject("SELECT name FROM whoami", String.class);
+            });
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.assignment.personalized_app.digest;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShelfDigestTest {
+
+    @Test
+    void digestIgnoresOrderAndTrailingZeros() {
+        Map<String, BigDecimal> shelf = new LinkedHashMap<>();
+        shelf.put("p1", new BigDecimal("0.5"));
+        shelf.put("p2", new BigDecimal("2"));
+        Map<String, BigDecimal> resent = new TreeMap<>(Map.of("p2", new BigDecimal("2.000"), "p1", new BigDecimal("0.50")));
+
+        ShelfDigest digest = ShelfDigest.of(shelf, 4);
+
+        assertThat(digest.matches(ShelfDigest.of(resent, 4).shelfHash())).isTrue();
+        assertThat(digest.changedChunks(ShelfDigest.of(resent, 4).chunkHashes()).isEmpty()).isTrue();
+        assertThat(digest.matches(ShelfDigest.of(Map.of("p1", new BigDecimal("0.5")), 4).shelfHash())).isFalse();
+    }
+
+    @Test
+    void scoresBeyondTheScaledRangeAreDigestedToo() {
+        ShelfDigest digest = ShelfDigest.of(Map.of("p1", new BigDecimal("999999999.5")), 4);
+
+        assertThat(digest.matches(ShelfDigest.of(Map.of("p1", new BigDecimal("999999999.50")), 4).shelfHash())).isTrue();
+        assertThat(digest.matches(ShelfDigest.of(Map.of("p1", new BigDecimal("999999999.4")), 4).shelfHash())).isFalse();
+    }
+
+    @Test
+    void changedChunksAreTheChunksOfChangedProducts() {
+        Map<String, BigDecimal> shelf = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            shelf.put("product-" + i, BigDecimal.valueOf(i));
+        }
+        ShelfDigest before = ShelfDigest.of(shelf, 8);
+
+        shelf.put("product-42", BigDecimal.ONE);
+        shelf.put("product-new", BigDecimal.TEN);
+        ShelfDigest after = ShelfDigest.of(shelf, 8);
+
+        assertThat(after.matches(before.shelfHash())).isFalse();
+        assertThat(after.changedChunks(before.chunkHashes()).stream().boxed())
+                .containsExactlyInAnyOrder(ShelfDigest.chunkOf("product-42", 8), ShelfDigest.chunkOf("product-new", 8));
+        // Hashes stored with another chunk count cannot be compared chunk by chunk
+        assertThat(after.changedChunks(ShelfDigest.of(shelf, 4).chunkHashes()).cardinality()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.assignment.personalized_app.encoding;
+
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductsPageJsonWriterTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void writesTheSameBytesAsJacksonForEveryScoreShape() throws Exception {
+        List<ShopperProductDTO> content = new ArrayList<>();
+        String[] scores = {"0", "0.0000000000", "0E-10", "0.2500000000", "1", "-1.5", "123456789.0123456789",
+                "0.000001", "0.0000001", "0.00000012345", "1E+3", "-4.2E-9", "99999999.9999999999",
+                "9223372036854775807", "-9223372036854775808", "12345678901234567890.5", "7E+2147483647"};
+        for (String score : scores) {
+            content.add(product("p-" + score, new BigDecimal(score), "Cat", "Brand"));
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            BigDecimal score = BigDecimal.valueOf(random.nextLong() >> random.nextInt(64), random.nextInt(40) - 10);
+            content.add(product("r" + i, score, "c", "b"));
+        }
+        content.add(product("null-score", null, null, null));
+
+        assertSameAsJackson(new OperationResponse<>(true, "Products fetched successfully",
+                new PageResponseDTO<>(content, 3, 12, 1_234_567_890_123L)));
+    }
+
+    @Test
+    void escapesStringsAsJackson() throws Exception {
+        String awkward = "quote\" backslash\\ slash/ \b\f\n\r\t \u0000\u001f\u007f é € 😀 ünïcödé";
+        assertSameAsJackson(new OperationResponse<>(false, awkward,
+                new PageResponseDTO<>(List.of(product(awkward, BigDecimal.ONE, awkward, awkward)), 0, 1, 1)));
+        assertSameAsJackson(new OperationResponse<>(true, null, new PageResponseDTO<>(List.of(), -1, 0, 0)));
+        assertSameAsJackson(new OperationResponse<>(true, "empty", new PageResponseDTO<>(null, 0, 0, 0)));
+    }
+
+    @Test
+    void converterHandsOtherResponsesToJackson() throws Exception {
+        MappingJackson2HttpMessageConverter jackson = new MappingJackson2HttpMessageConverter(objectMapper);
+        ProductsPageHttpMessageConverter converter = new ProductsPageHttpMessageConverter(jackson);
+        OperationResponse<?> failure = new OperationResponse<>(false, "Failed", Map.of());
+        OperationResponse<?> page = new OperationResponse<>(true, "ok",
+                new PageResponseDTO<>(List.of(product("p1", new BigDecimal("0.5"), "c", "b")), 0, 1, 1));
+
+        assertThat(converter.canWrite(OperationResponse.class, MediaType.APPLICATION_JSON)).isTrue();
+        assertThat(converter.canWrite(OperationResponse.class, MediaType.APPLICATION_CBOR)).isFalse();
+        assertThat(converter.canWrite(String.class, MediaType.APPLICATION_JSON)).isFalse();
+
+        MockHttpOutputMessage written = new MockHttpOutputMessage();
+        converter.write(failure, MediaType.APPLICATION_JSON, written);
+        assertThat(written.getBodyAsString()).isEqualTo(objectMapper.writeValueAsString(failure));
+
+        written = new MockHttpOutputMessage();
+        converter.write(page, MediaType.APPLICATION_JSON, written);
+        assertThat(written.getBodyAsBytes()).isEqualTo(objectMapper.writeValueAsBytes(page));
+        assertThat(written.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(written.getHeaders().getContentLength()).isEqualTo(written.getBodyAsBytes().length);
+    }
+
+    /* ============================================================
+       HELPER METHODS
+       ============================================================ */
+
+    private void assertSameAsJackson(OperationResponse<?> response) throws Exception {
+        assertThat(ProductsPageJsonWriter.supports(response)).isTrue();
+        assertThat(new String(ProductsPageJsonWriter.toBytes(response), StandardCharsets.UTF_8))
+                .isEqualTo(objectMapper.writeValueAsString(response));
+    }
+
+    private static ShopperProductDTO product(String productId, BigDecimal score, String category, String brand) {
+        return new ShopperProductDTO(productId, score, category, brand);
+    }
+}
@@ -0,0 +1,49 @@
+package com.assignment.personalized_app.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompactColumnsTest {
+
+    @Test
+    void shopperKeyIsTheSqlExpressionOverMd5() {
+        // MD5("abc") = 900150983cd24fb0d6963f7d28e17f72; CONV(LEFT(MD5('abc'), 15), 16, 10)
+        assertThat(CompactColumns.shopperKey("abc")).isEqualTo(Long.parseLong("900150983cd24fb", 16));
+        assertThat(CompactColumns.shopperKey("abc")).isPositive();
+        assertThat(CompactColumns.shopperKey(null)).isNull();
+    }
+
+    @Test
+    void scaledScoresSortLikeTheDecimalsAndRoundTrip() {
+        BigDecimal low = new BigDecimal("-0.0000000001");
+        BigDecimal high = new BigDecimal("0.5");
+        BigDecimal max = new BigDecimal("922337203.6854775807");
+
+        assertThat(CompactColumns.scaledScore(low)).isLessThan(CompactColumns.scaledScore(BigDecimal.ZERO));
+        assertThat(CompactColumns.scaledScore(high)).isEqualTo(5_000_000_000L);
+        assertThat(CompactColumns.score(CompactColumns.scaledScore(max))).isEqualByComparingTo(max);
+        // Rounded to the column's scale, as MySQL would
+        assertThat(CompactColumns.scaledScore(new BigDecimal("0.12345678905"))).isEqualTo(1_234_567_891L);
+        assertThatThrownBy(() -> CompactColumns.scaledScore(new BigDecimal("922337203.6854775808")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void scoresThatDoNotFitLeaveTheScaledScoreEmpty() {
+        BigDecimal tooHigh = new BigDecimal("922337203.6854775808");
+
+        assertThat(CompactColumns.fits(new BigDecimal("922337203.6854775807"))).isTrue();
+        assertThat(CompactColumns.fits(new BigDecimal("-922337203.6854775808"))).isTrue();
+        assertThat(CompactColumns.fits(tooHigh)).isFalse();
+        assertThat(CompactColumns.fits(null)).isTrue();
+
+        ShopperProduct row = ShopperProduct.builder().shopperId("abc").relevancyScore(tooHigh).build();
+        row.deriveCompactColumns();
+        assertThat(row.getShopperKey()).isEqualTo(CompactColumns.shopperKey("abc"));
+        assertThat(row.getScoreScaled()).isNull();
+    }
+}
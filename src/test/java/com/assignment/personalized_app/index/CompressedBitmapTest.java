@@ -0,0 +1,84 @@
+package com.assignment.personalized_app.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedBitmapTest {
+
+    @Test
+    void addRemoveAndContainsAcrossChunks() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+
+        assertThat(bitmap.add(5)).isTrue();
+        assertThat(bitmap.add(5)).isFalse();
+        assertThat(bitmap.add(70_000)).isTrue();
+        assertThat(bitmap.add(1)).isTrue();
+
+        assertThat(bitmap.contains(5)).isTrue();
+        assertThat(bitmap.contains(70_000)).isTrue();
+        assertThat(bitmap.contains(6)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(3);
+        assertThat(values(bitmap)).containsExactly(1, 5, 70_000);
+
+        assertThat(bitmap.remove(70_000)).isTrue();
+        assertThat(bitmap.remove(70_000)).isFalse();
+        assertThat(values(bitmap)).containsExactly(1, 5);
+    }
+
+    @Test
+    void denseChunkSwitchesToBitmapAndBack() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < CompressedBitmap.ARRAY_MAX + 10; i++) {
+            bitmap.add(i * 3);
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(CompressedBitmap.ARRAY_MAX + 10);
+        assertThat(bitmap.contains(300)).isTrue();
+        assertThat(bitmap.contains(301)).isFalse();
+
+        for (int i = 0; i < 20; i++) {
+            bitmap.remove(i * 3);
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(CompressedBitmap.ARRAY_MAX - 10);
+        assertThat(bitmap.contains(60)).isTrue();
+        assertThat(bitmap.contains(57)).isFalse();
+    }
+
+    @Test
+    void matchesReferenceSetUnderRandomOperations() {
+        Random random = new Random(7);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> reference = new TreeSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(300_000);
+            if (random.nextInt(4) == 0) {
+                assertThat(bitmap.remove(value)).isEqualTo(reference.remove(value));
+            } else {
+                assertThat(bitmap.add(value)).isEqualTo(reference.add(value));
+            }
+        }
+
+        assertThat(values(bitmap)).containsExactlyElementsOf(reference);
+        BitSet union = new BitSet();
+        bitmap.orInto(union);
+        assertThat(union.cardinality()).isEqualTo(reference.size());
+    }
+
+    @Test
+    void rejectsNegativeValues() {
+        assertThatThrownBy(() -> new CompressedBitmap().add(-1)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<Integer> values(CompressedBitmap bitmap) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        return values;
+    }
+}
@@ -0,0 +1,92 @@
+package com.assignment.personalized_app.index;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.AttributeIndexProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductAttributeIndexTest {
+
+    private static final List<String> SHELF = List.of("p1", "p2", "p3", "p4");
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ProductAttributeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(64), category VARCHAR(64), brand VARCHAR(64))");
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('p1', 'Shoes', 'Acme'), ('p2', 'Bags', 'Acme'), "
+                + "('p3', 'Shoes', 'Zed'), ('p4', 'Hats', 'Zed')");
+
+        AttributeIndexProperties properties = new AttributeIndexProperties();
+        properties.setEnabled(true);
+        index = new ProductAttributeIndex(database, Optional.empty(), properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void filtersByAnyCategoryAndAnyBrand() {
+        assertThat(index.isReady()).isFalse();
+
+        index.onApplicationReady();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.products()).isEqualTo(4);
+        assertThat(matching(Set.of("Shoes", "Bags"), Set.of())).containsExactly("p1", "p2", "p3");
+        assertThat(matching(Set.of("Shoes", "Hats"), Set.of("Zed"))).containsExactly("p3", "p4");
+        assertThat(matching(Set.of(), Set.of("Acme"))).containsExactly("p1", "p2");
+        assertThat(matching(Set.of("Unknown"), Set.of())).isEmpty();
+        assertThat(matching(Set.of(), Set.of())).containsExactlyElementsOf(SHELF);
+    }
+
+    @Test
+    void metadataWritesMoveProductsBetweenBitmaps() {
+        index.onApplicationReady();
+
+        index.put("p1", "Bags", "Zed");
+        index.put("p5", "Shoes", "Acme");
+
+        assertThat(matching(Set.of("Shoes"), Set.of())).containsExactly("p3");
+        assertThat(matching(Set.of("Bags"), Set.of("Zed"))).containsExactly("p1");
+        assertThat(index.filter(Set.of("Shoes"), Set.of("Acme"), List.of("p5")).test("p5")).isTrue();
+        assertThat(index.lookup(List.of("p1", "p6")))
+                .containsExactlyEntriesOf(Map.of("p1", new ProductCatalog.Entry("Bags", "Zed")));
+    }
+
+    @Test
+    void productsMissingFromTheIndexAreLookedUpWhenRead() {
+        index.onApplicationReady();
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('p6', 'Hats', 'Acme')");
+
+        assertThat(index.filter(Set.of("Hats"), Set.of(), List.of("p4", "p6")).test("p6")).isTrue();
+        assertThat(index.products()).isEqualTo(5);
+    }
+
+    private List<String> matching(Set<String> categories, Set<String> brands) {
+        ProductAttributeIndex.Filter filter = index.filter(categories, brands, SHELF);
+        return SHELF.stream().filter(filter::test).toList();
+    }
+}
@@ -0,0 +1,79 @@
+package com.assignment.personalized_app.index;
+
+import com.assignment.personalized_app.config.ReverseIndexProperties;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProductShopperIndexTest {
+
+    private EmbeddedDatabase database;
+    private ProductShopperIndex index;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE shopper_product (shopper_id VARCHAR(64), product_id VARCHAR(64))");
+        jdbcTemplate.update("INSERT INTO shopper_product VALUES ('s1', 'p1'), ('s1', 'p2'), ('s2', 'p2')");
+
+        ReverseIndexProperties properties = new ReverseIndexProperties();
+        properties.setEnabled(true);
+        index = new ProductShopperIndex(database, new ShardRouter(Optional.empty()), properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void loadsExistingShelvesWhenReady() {
+        assertThat(index.isReady()).isFalse();
+
+        index.onApplicationReady();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.shoppersOf(List.of("p1"))).containsExactly("s1");
+        assertThat(index.shoppersOf(List.of("p2"))).containsExactlyInAnyOrder("s1", "s2");
+        assertThat(index.shoppersOf(List.of("p3"))).isEmpty();
+    }
+
+    @Test
+    void shelfWritesKeepIndexCurrent() {
+        index.onApplicationReady();
+
+        index.addAll("s3", List.of("p1", "p3"));
+        index.removeAll("s1", List.of("p1"));
+
+        assertThat(index.shoppersOf(List.of("p1"))).containsExactly("s3");
+        assertThat(index.shoppersOf(List.of("p1", "p2", "p3"))).containsExactlyInAnyOrder("s1", "s2", "s3");
+        assertThat(index.shoppers()).isEqualTo(3);
+    }
+
+    @Test
+    void disabledIndexIgnoresWrites() {
+        ProductShopperIndex disabled = new ProductShopperIndex(
+                database, new ShardRouter(Optional.empty()), new ReverseIndexProperties(), new SimpleMeterRegistry());
+
+        disabled.onApplicationReady();
+        disabled.addAll("s1", List.of("p1"));
+
+        assertThat(disabled.isReady()).isFalse();
+        assertThat(disabled.products()).isZero();
+    }
+}
@@ -0,0 +1,162 @@
+package com.assignment.personalized_app.logging;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.assignment.personalized_app.coalescing.ShelfReadCoalescer;
+import com.assignment.personalized_app.coalescing.ShelfReadCoalescer.ShelfPageKey;
+import com.assignment.personalized_app.config.CoalescingProperties;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogFilterTest {
+
+    private static final String PRODUCTS = "/external/{shopperId}/products";
+
+    private final Logger accessLogger = (Logger) LoggerFactory.getLogger("access");
+    private final ListAppender<ILoggingEvent> records = new ListAppender<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        records.start();
+        accessLogger.addAppender(records);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accessLogger.detachAppender(records);
+    }
+
+    @Test
+    void recordsEndpointShopperRowsAndDbTime() throws Exception {
+        AccessLogFilter filter = new AccessLogFilter(1.0, Map.of(), Duration.ofSeconds(1), meterRegistry);
+
+        filter.doFilter(productsRequest("shopper-\"1\""), new MockHttpServletResponse(), (request, response) -> {
+            AccessLogContext.rows(10);
+            AccessLogContext.statement(2_500_000);
+        });
+
+        JsonNode record = new ObjectMapper().readTree(records.list.get(0).getFormattedMessage());
+        assertThat(record.get("method").asText()).isEqualTo("GET");
+        assertThat(record.get("endpoint").asText()).isEqualTo(PRODUCTS);
+        assertThat(record.get("status").asInt()).isEqualTo(200);
+        assertThat(record.get("shopperId").asText()).isEqualTo("shopper-\"1\"");
+        assertThat(record.get("rows").asInt()).isEqualTo(10);
+        assertThat(record.get("dbStatements").asInt()).isEqualTo(1);
+        assertThat(record.get("dbMs").asDouble()).isEqualTo(2.5);
+        assertThat(record.get("latencyMs").asDouble()).isPositive();
+        assertThat(record.get("sampleRate").asDouble()).isEqualTo(1.0);
+
+        // Outside a logged request the context is a no-op
+        AccessLogContext.rows(5);
+    }
+
+    @Test
+    void recordsDbTimeOfCoalescedLoadsRunOnLoaderThreads() throws Exception {
+        AccessLogFilter filter = new AccessLogFilter(1.0, Map.of(), Duration.ofSeconds(1), meterRegistry);
+        CoalescingProperties properties = new CoalescingProperties();
+        properties.setEnabled(true);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("shelf-read-");
+        executor.initialize();
+        ShelfReadCoalescer coalescer = new ShelfReadCoalescer(properties, executor, meterRegistry);
+        DbTimeSessionListener listener = new DbTimeSessionListener();
+        Set<String> loaderThreads = new HashSet<>();
+
+        try {
+            filter.doFilter(productsRequest("s1"), new MockHttpServletResponse(), (request, response) -> {
+                try {
+                    coalescer.read(new ShelfPageKey("s1", null, null, 0, 10), () -> {
+                        loaderThreads.add(Thread.currentThread().getName());
+                        listener.jdbcExecuteStatementStart();
+                        sleep(5);
+                        listener.jdbcExecuteStatementEnd();
+                        AccessLogContext.rows(3);
+                        return new PageResponseDTO<>(List.of(), 0, 1, 3);
+                    });
+                } catch (TimeoutException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(loaderThreads).singleElement().asString().startsWith("shelf-read-");
+        JsonNode record = new ObjectMapper().readTree(records.list.get(0).getFormattedMessage());
+        assertThat(record.get("rows").asInt()).isEqualTo(3);
+        assertThat(record.get("dbStatements").asInt()).isEqualTo(1);
+        assertThat(record.get("dbMs").asDouble()).isGreaterThanOrEqualTo(5.0);
+    }
+
+    @Test
+    void recordsAsyncRequestsWhenTheirResponseCompletes() throws Exception {
+        AccessLogFilter filter = new AccessLogFilter(1.0, Map.of(), Duration.ofSeconds(1), meterRegistry);
+        MockHttpServletRequest request = productsRequest("s1");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertThat(records.list).isEmpty();
+
+        sleep(20);
+        response.setStatus(304);
+        request.getAsyncContext().complete();
+
+        JsonNode record = new ObjectMapper().readTree(records.list.get(0).getFormattedMessage());
+        assertThat(record.get("status").asInt()).isEqualTo(304);
+        assertThat(record.get("latencyMs").asDouble()).isGreaterThanOrEqualTo(20.0);
+    }
+
+    @Test
+    void sampledOutRequestsAreSkippedUnlessFailedOrSlow() throws Exception {
+        AccessLogFilter filter = new AccessLogFilter(1.0, Map.of(PRODUCTS, 0.0), Duration.ofMillis(50), meterRegistry);
+
+        filter.doFilter(productsRequest("s1"), new MockHttpServletResponse(), (request, response) -> { });
+        assertThat(records.list).isEmpty();
+        assertThat(meterRegistry.get("access.log.skipped").counter().count()).isEqualTo(1);
+
+        filter.doFilter(productsRequest("s1"), new MockHttpServletResponse(),
+                (request, response) -> ((MockHttpServletResponse) response).setStatus(503));
+        filter.doFilter(productsRequest("s1"), new MockHttpServletResponse(), (request, response) -> sleep(60));
+
+        assertThat(records.list).hasSize(2);
+        assertThat(records.list.get(0).getFormattedMessage()).contains("\"status\":503");
+        assertThat(meterRegistry.get("access.log.records").counter().count()).isEqualTo(2);
+    }
+
+    private static MockHttpServletRequest productsRequest(String shopperId) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/external/" + shopperId + "/products");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, PRODUCTS);
+        request.setAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE, Map.of("shopperId", shopperId));
+        return request;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
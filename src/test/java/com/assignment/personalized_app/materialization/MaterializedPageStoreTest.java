@@ -0,0 +1,95 @@
+package com.assignment.personalized_app.materialization;
+
+import com.assignment.personalized_app.materialization.MaterializedPageStore.PageView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaterializedPageStoreTest {
+
+    private static final PageView FIRST_PAGE = new PageView(null, 10);
+
+    private SimpleMeterRegistry meterRegistry;
+    private MaterializedPageStore store;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        store = new MaterializedPageStore(10_000, meterRegistry);
+    }
+
+    @Test
+    void publishedPageIsServedUntilInvalidated() {
+        Object token = store.invalidate("shopper1");
+        assertThat(store.publish("shopper1", token, Map.of(FIRST_PAGE, page(100)))).isTrue();
+
+        assertThat(store.get("shopper1", FIRST_PAGE)).hasSize(100);
+        assertThat(store.get("shopper1", new PageView("Electronics", 10))).isNull();
+
+        store.invalidate("shopper1");
+        assertThat(store.get("shopper1", FIRST_PAGE)).isNull();
+        assertThat(store.bytes()).isZero();
+        assertThat(meterRegistry.counter("shelf.materialized.hits").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("shelf.materialized.misses").count()).isEqualTo(2);
+    }
+
+    @Test
+    void supersededRebuildIsNotPublished() {
+        Object stale = store.invalidate("shopper1");
+        Object fresh = store.invalidate("shopper1");
+
+        assertThat(store.isCurrent("shopper1", stale)).isFalse();
+        assertThat(store.publish("shopper1", stale, Map.of(FIRST_PAGE, page(100)))).isFalse();
+        assertThat(store.get("shopper1", FIRST_PAGE)).isNull();
+
+        assertThat(store.publish("shopper1", fresh, Map.of(FIRST_PAGE, page(50)))).isTrue();
+        assertThat(store.get("shopper1", FIRST_PAGE)).hasSize(50);
+    }
+
+    @Test
+    void abandonedRebuildCannotPublish() {
+        Object token = store.invalidate("shopper1");
+        store.abandon("shopper1", token);
+
+        assertThat(store.publish("shopper1", token, Map.of(FIRST_PAGE, page(100)))).isFalse();
+        assertThat(store.shoppers()).isZero();
+    }
+
+    @Test
+    void leastRecentlyReadShoppersAreEvictedOverLimit() {
+        for (int i = 0; i < 4; i++) {
+            materialize("shopper" + i, 2_000);
+        }
+        // Reading shopper0 last makes it the most recently used
+        store.get("shopper0", FIRST_PAGE);
+
+        materialize("shopper4", 2_000);
+        materialize("shopper5", 2_000);
+
+        assertThat(store.bytes()).isLessThanOrEqualTo(10_000);
+        assertThat(store.get("shopper0", FIRST_PAGE)).isNotNull();
+        assertThat(store.get("shopper5", FIRST_PAGE)).isNotNull();
+        assertThat(meterRegistry.counter("shelf.materialized.evictions").count()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void shelfLargerThanLimitIsNotStored() {
+        Object token = store.invalidate("shopper1");
+
+        assertThat(store.publish("shopper1", token, Map.of(FIRST_PAGE, page(20_000)))).isFalse();
+        assertThat(store.bytes()).isZero();
+    }
+
+    private void materialize(String shopperId, int size) {
+        Object token = store.invalidate(shopperId);
+        assertThat(store.publish(shopperId, token, Map.of(FIRST_PAGE, page(size)))).isTrue();
+    }
+
+    private static byte[] page(int size) {
+        return new byte[size];
+    }
+}
@@ -0,0 +1,129 @@
+package com.assignment.personalized_app.outbox;
+
+import com.assignment.personalized_app.config.ChangeFeedProperties;
+import com.assignment.personalized_app.dto.ChangeBatchDTO;
+import com.assignment.personalized_app.dto.ChangeRecordDTO;
+import com.assignment.personalized_app.entity.ChangeType;
+import com.assignment.personalized_app.repository.ChangeRecordRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class ChangeFeedTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ThreadPoolTaskScheduler scheduler;
+    private ChangeFeedProperties properties;
+    private ChangeFeed changeFeed;
+    private ChangeOutbox changeOutbox;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:change-feed-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE change_outbox (seq BIGINT AUTO_INCREMENT PRIMARY KEY, change_type VARCHAR(32), "
+                + "shopper_id VARCHAR(255), product_id VARCHAR(255), payload MEDIUMTEXT, "
+                + "created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3))");
+
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        properties = new ChangeFeedProperties();
+        properties.setEnabled(true);
+        properties.setPollInterval(Duration.ofMillis(50));
+        changeFeed = new ChangeFeed(dataSource, new ShardRouter(Optional.empty()), scheduler, properties);
+        changeOutbox = new ChangeOutbox(mock(ChangeRecordRepository.class), changeFeed, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void read_ReturnsRecordsAfterSeqInOrder() {
+        insert(1, "SHELF_CREATED", "s1", "{\"scores\":{\"p1\":0.1234567891,\"p2\":2}}", "2020-01-01 00:00:00");
+        changeOutbox.recordProducts(jdbcTemplate, List.of(
+                new ChangeOutbox.ProductChange("p3", ChangeType.PRODUCT_CREATED, "Toys", "Zed")));
+
+        ChangeBatchDTO all = changeFeed.read(null, 0, 10);
+        assertThat(all.getChanges()).extracting(ChangeRecordDTO::getSeq).containsExactly(1L, 2L);
+        assertThat(all.getNextSeq()).isEqualTo(2);
+        ChangeRecordDTO shelf = all.getChanges().get(0);
+        assertThat(shelf.getShopperId()).isEqualTo("s1");
+        assertThat(shelf.getScores()).containsExactlyInAnyOrderEntriesOf(
+                Map.of("p1", new BigDecimal("0.1234567891"), "p2", new BigDecimal("2")));
+        ChangeRecordDTO product = all.getChanges().get(1);
+        assertThat(product.getType()).isEqualTo("PRODUCT_CREATED");
+        assertThat(product.getCategory()).isEqualTo("Toys");
+        assertThat(product.getScores()).isNull();
+
+        ChangeBatchDTO rest = changeFeed.read(null, 1, 10);
+        assertThat(rest.getChanges()).extracting(ChangeRecordDTO::getSeq).containsExactly(2L);
+        assertThat(changeFeed.read(null, 2, 10).getChanges()).isEmpty();
+        assertThat(changeFeed.read(null, 2, 10).getNextSeq()).isEqualTo(2);
+    }
+
+    @Test
+    void read_StopsBeforeARecentGap() {
+        insert(1, "SHELF_UPDATED", "s1", "{\"scores\":{\"p1\":1}}", "2020-01-01 00:00:00");
+        // seq 2 is taken by a transaction that has not committed yet
+        jdbcTemplate.update("INSERT INTO change_outbox (seq, change_type, shopper_id, payload) VALUES (3, 'SHELF_UPDATED', 's2', '{}')");
+
+        assertThat(changeFeed.read(null, 0, 10).getChanges()).extracting(ChangeRecordDTO::getSeq).containsExactly(1L);
+
+        // Once the gap is older than gap-timeout it is taken to be a rollback
+        jdbcTemplate.update("UPDATE change_outbox SET created_at = TIMESTAMP '2020-01-01 00:00:01' WHERE seq = 3");
+        assertThat(changeFeed.read(null, 0, 10).getChanges()).extracting(ChangeRecordDTO::getSeq).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void poll_WaitsForNextCommit() throws Exception {
+        changeFeed.onApplicationReady();
+        CompletableFuture<ChangeBatchDTO> pending = changeFeed.poll(null, 0, 10, Duration.ofSeconds(10));
+        assertThat(pending).isNotDone();
+
+        changeOutbox.recordProducts(jdbcTemplate, List.of(
+                new ChangeOutbox.ProductChange("p1", ChangeType.PRODUCT_UPDATED, "Hats", "Acme")));
+
+        ChangeBatchDTO batch = pending.get(5, TimeUnit.SECONDS);
+        assertThat(batch.getChanges()).extracting(ChangeRecordDTO::getProductId).containsExactly("p1");
+    }
+
+    @Test
+    void poll_AnswersEmptyBatchAfterWait() throws Exception {
+        changeFeed.onApplicationReady();
+        ChangeBatchDTO batch = changeFeed.poll(null, 7, 10, Duration.ofMillis(100)).get(5, TimeUnit.SECONDS);
+
+        assertThat(batch.getChanges()).isEmpty();
+        assertThat(batch.getNextSeq()).isEqualTo(7);
+    }
+
+    @Test
+    void read_RejectsUnknownShard() {
+        assertThatThrownBy(() -> changeFeed.read("shard-9", 0, 10)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void insert(long seq, String type, String shopperId, String payload, String createdAt) {
+        jdbcTemplate.update("INSERT INTO change_outbox (seq, change_type, shopper_id, payload, created_at) "
+                + "VALUES (?, ?, ?, ?, TIMESTAMP '" + createdAt + "')", seq, type, shopperId, payload);
+    }
+}
@@ -0,0 +1,160 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.cache.ProductMetadataCacheRegions;
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.CatalogImportProperties;
+import com.assignment.personalized_app.dto.CatalogImportStatusDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.entity.ChangeType;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CatalogImportServiceImplTest {
+
+    @TempDir
+    Path directory;
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private ProductMetadataCacheRegions cacheRegions;
+    private ChangeOutbox changeOutbox;
+    private ThreadPoolTaskExecutor executor;
+    private CatalogImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode for ON DUPLICATE KEY UPDATE
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:catalog-import-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(255) PRIMARY KEY, category VARCHAR(255), brand VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('p1', 'Shoes', 'Acme'), ('p2', 'Bags', 'Acme')");
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+
+        CatalogImportProperties properties = new CatalogImportProperties();
+        properties.setDirectory(directory.toString());
+        properties.setBatchSize(2);
+        properties.setQueueDepth(1);
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        cacheRegions = mock(ProductMetadataCacheRegions.class);
+        changeOutbox = mock(ChangeOutbox.class);
+        importService = new CatalogImportServiceImpl(dataSource, Optional.empty(), mock(ProductCatalog.class),
+                mock(ProductAttributeIndex.class), cacheRegions, changeOutbox, eventPublisher, executor, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void import_UpsertsNewAndChangedRowsOnly() throws Exception {
+        write("catalog.csv", "productId,category,brand\np1,Shoes,Acme\np2,Hats,Acme\np3,Toys,Zed\nbroken line\n");
+
+        ResponseEntity<?> started = importService.startImport("catalog.csv", true);
+        assertThat(started.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+
+        CatalogImportStatusDTO status = awaitFinished();
+        assertThat(status.getState()).isEqualTo("COMPLETED");
+        assertThat(status.getInsertedRows()).isEqualTo(1);
+        assertThat(status.getUpdatedRows()).isEqualTo(1);
+        assertThat(status.getUnchangedRows()).isEqualTo(1);
+        assertThat(status.getRejectedRows()).isEqualTo(1);
+        assertThat(status.getRejects()).containsExactly("offset 64: expected 3 fields, found 1");
+        assertThat(status.getCommittedOffset()).isEqualTo(status.getFileBytes());
+
+        assertThat(categoryOf("p2")).isEqualTo("Hats");
+        assertThat(categoryOf("p3")).isEqualTo("Toys");
+        verify(eventPublisher).publishEvent(new ProductMetadataChangedEvent("p2", "Bags", "Acme", "Hats", "Acme"));
+        verify(eventPublisher, times(1)).publishEvent(any(Object.class));
+        // JDBC upserts bypass Hibernate, so their second-level cache entries are evicted
+        verify(cacheRegions).evict(List.of("p2"));
+        verify(cacheRegions).evict(List.of("p3"));
+        verify(changeOutbox).recordProducts(any(JdbcTemplate.class),
+                eq(List.of(new ChangeOutbox.ProductChange("p2", ChangeType.PRODUCT_UPDATED, "Hats", "Acme"))));
+        verify(changeOutbox).recordProducts(any(JdbcTemplate.class),
+                eq(List.of(new ChangeOutbox.ProductChange("p3", ChangeType.PRODUCT_CREATED, "Toys", "Zed"))));
+
+        // A completed, unchanged file is not imported again
+        assertThat(importService.startImport("catalog.csv", true).getStatusCode()).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void import_ResumesAfterCommittedOffset() throws Exception {
+        Path file = write("catalog.csv", "p3,Toys,Zed\np4,Toys,Zed\np5,Toys,Zed\n");
+        // An earlier run committed the first two lines and then stopped
+        jdbcTemplate.execute("CREATE TABLE catalog_import_checkpoint (source VARCHAR(512) PRIMARY KEY, file_size BIGINT, "
+                + "last_modified BIGINT, committed_offset BIGINT, imported_rows BIGINT, completed BOOLEAN)");
+        jdbcTemplate.update("INSERT INTO catalog_import_checkpoint VALUES ('catalog.csv', ?, ?, 24, 2, FALSE)",
+                Files.size(file), Files.getLastModifiedTime(file).toMillis());
+
+        importService.startImport("catalog.csv", true);
+        CatalogImportStatusDTO status = awaitFinished();
+
+        assertThat(status.getStartOffset()).isEqualTo(24);
+        assertThat(status.getInsertedRows()).isEqualTo(1);
+        assertThat(categoryOf("p5")).isEqualTo("Toys");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product_metadata WHERE product_id IN ('p3', 'p4')",
+                Integer.class)).isZero();
+        assertThat(jdbcTemplate.queryForObject("SELECT imported_rows FROM catalog_import_checkpoint", Long.class))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void import_RejectsFilesOutsideTheDirectory() {
+        ResponseEntity<?> response = importService.startImport("../etc/passwd", true);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(importService.getStatus().getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String categoryOf(String productId) {
+        return jdbcTemplate.queryForObject("SELECT category FROM product_metadata WHERE product_id = ?",
+                String.class, productId);
+    }
+
+    private CatalogImportStatusDTO awaitFinished() throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            OperationResponse<?> body = (OperationResponse<?>) importService.getStatus().getBody();
+            CatalogImportStatusDTO status = (CatalogImportStatusDTO) body.getData();
+            if (!"RUNNING".equals(status.getState())) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Catalog import did not finish");
+    }
+}
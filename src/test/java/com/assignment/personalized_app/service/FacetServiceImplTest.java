@@ -0,0 +1,143 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.DataSourceRoutingProperties;
+import com.assignment.personalized_app.config.FacetProperties;
+import com.assignment.personalized_app.datasource.ReadYourWritesTracker;
+import com.assignment.personalized_app.dto.FacetCountDTO;
+import com.assignment.personalized_app.dto.FacetsDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.repository.ProductMetadataRepository;
+import com.assignment.personalized_app.repository.ShopperFacetRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class FacetServiceImplTest {
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ShopperFacetRepository shopperFacetRepository;
+    private ProductMetadataRepository productMetadataRepository;
+    private FacetProperties properties;
+    private FacetServiceImpl facetService;
+
+    @BeforeEach
+    void setUp() {
+        // MySQL mode for ON DUPLICATE KEY UPDATE
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:facets-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(255) PRIMARY KEY, category VARCHAR(255), brand VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE shopper_product (id BIGINT AUTO_INCREMENT PRIMARY KEY, shopper_id VARCHAR(255) NOT NULL, "
+                + "product_id VARCHAR(255) NOT NULL, relevancy_score DECIMAL(19,10))");
+        jdbcTemplate.execute("CREATE TABLE shopper_facet (id BIGINT AUTO_INCREMENT PRIMARY KEY, shopper_id VARCHAR(255) NOT NULL, "
+                + "facet_type VARCHAR(16) NOT NULL, facet_value VARCHAR(255) NOT NULL, product_count INT NOT NULL, "
+                + "CONSTRAINT uq_shopper_facet UNIQUE (shopper_id, facet_type, facet_value))");
+
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('prod1', 'Cat', 'BrandA'), ('prod2', 'Cat', 'BrandB'), ('prod3', 'Other', 'BrandA')");
+        jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score) VALUES "
+                + "('shopper1', 'prod1', 0.5), ('shopper1', 'prod2', 0.9), ('shopper1', 'prod3', 0.1), ('shopper2', 'prod1', 0.7)");
+
+        shopperFacetRepository = mock(ShopperFacetRepository.class);
+        productMetadataRepository = mock(ProductMetadataRepository.class);
+        properties = new FacetProperties();
+        properties.setEnabled(true);
+        properties.setReconcileBatchSize(1);
+        facetService = new FacetServiceImpl(shopperFacetRepository, productMetadataRepository,
+                mock(ProductCatalog.class), new ShardRouter(Optional.empty()),
+                new ReadYourWritesTracker(new DataSourceRoutingProperties()), dataSource,
+                mock(TaskScheduler.class), properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void reconcile_FillsMissingCountersOnce() {
+        assertThat(facetService.reconcile()).isEqualTo(2);
+
+        assertThat(count("shopper1", "CATEGORY", "Cat")).isEqualTo(2);
+        assertThat(count("shopper1", "CATEGORY", "Other")).isEqualTo(1);
+        assertThat(count("shopper1", "BRAND", "BrandA")).isEqualTo(2);
+        assertThat(count("shopper2", "BRAND", "BrandA")).isEqualTo(1);
+        assertThat(facetService.reconcile()).isZero();
+    }
+
+    @Test
+    void reconcile_RepairsDriftedCounters() {
+        facetService.reconcile();
+        jdbcTemplate.update("UPDATE shopper_facet SET product_count = 7 WHERE shopper_id = 'shopper2' AND facet_value = 'Cat'");
+        jdbcTemplate.update("INSERT INTO shopper_facet (shopper_id, facet_type, facet_value, product_count) VALUES ('ghost', 'BRAND', 'X', 1)");
+
+        assertThat(facetService.reconcile()).isEqualTo(2);
+        assertThat(count("shopper2", "CATEGORY", "Cat")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM shopper_facet WHERE shopper_id = 'ghost'", Integer.class)).isZero();
+    }
+
+    @Test
+    void onProductChanged_MovesCountForEveryHolder() {
+        facetService.reconcile();
+        jdbcTemplate.update("UPDATE product_metadata SET category = 'New' WHERE product_id = 'prod1'");
+
+        facetService.onProductChanged(new ProductMetadataChangedEvent("prod1", "Cat", "BrandA", "New", "BrandA"));
+
+        assertThat(count("shopper1", "CATEGORY", "Cat")).isEqualTo(1);
+        assertThat(count("shopper1", "CATEGORY", "New")).isEqualTo(1);
+        assertThat(count("shopper2", "CATEGORY", "New")).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM shopper_facet WHERE shopper_id = 'shopper2' AND facet_value = 'Cat'", Integer.class)).isZero();
+        assertThat(count("shopper1", "BRAND", "BrandA")).isEqualTo(2);
+        // Incremental result matches a full recount
+        assertThat(facetService.reconcile()).isZero();
+    }
+
+    @Test
+    void recordAdded_AdjustsOneCounterPerValue() {
+        when(productMetadataRepository.findCategoryAndBrand(anyList())).thenReturn(List.of(
+                new Object[]{"prod1", "Cat", "BrandA"},
+                new Object[]{"prod2", "Cat", "BrandB"}));
+
+        facetService.recordAdded("shopper3", List.of("prod1", "prod2"));
+
+        verify(shopperFacetRepository).adjust("shopper3", "CATEGORY", "Cat", 2);
+        verify(shopperFacetRepository).adjust("shopper3", "BRAND", "BrandA", 1);
+        verify(shopperFacetRepository).adjust("shopper3", "BRAND", "BrandB", 1);
+        verifyNoMoreInteractions(shopperFacetRepository);
+    }
+
+    @Test
+    void getFacets_ComputedFromShelfWhenDisabled() {
+        properties.setEnabled(false);
+
+        ResponseEntity<?> response = facetService.getFacets("shopper1");
+
+        FacetsDTO facets = (FacetsDTO) ((OperationResponse<?>) response.getBody()).getData();
+        assertThat(facets.getCategories()).containsExactly(new FacetCountDTO("Cat", 2), new FacetCountDTO("Other", 1));
+        assertThat(facets.getBrands()).containsExactly(new FacetCountDTO("BrandA", 2), new FacetCountDTO("BrandB", 1));
+        verifyNoInteractions(shopperFacetRepository);
+    }
+
+    private int count(String shopperId, String type, String value) {
+        return jdbcTemplate.queryForObject(
+                "SELECT product_count FROM shopper_facet WHERE shopper_id = ? AND facet_type = ? AND facet_value = ?",
+                Integer.class, shopperId, type, value);
+    }
+}
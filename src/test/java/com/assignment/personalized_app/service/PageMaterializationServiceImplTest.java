@@ -0,0 +1,64 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.MaterializationProperties;
+import com.assignment.personalized_app.datasource.RoutingContext;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PageMaterializationServiceImplTest {
+
+    private ShopperService shopperService;
+    private PageMaterializationServiceImpl materializationService;
+
+    @BeforeEach
+    void setUp() {
+        shopperService = mock(ShopperService.class);
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any(Runnable.class));
+
+        MaterializationProperties properties = new MaterializationProperties();
+        properties.setEnabled(true);
+        properties.setPageSizes(List.of(10));
+        properties.setTopCategories(0);
+        materializationService = new PageMaterializationServiceImpl(shopperService, new ObjectMapper(), executor,
+                properties, mock(ProductShopperIndex.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void rebuildReadsTheShelfFromThePrimaryOnItsOwnThread() {
+        List<ShopperProductDTO> shelf = List.of(new ShopperProductDTO("prod1", BigDecimal.ONE, "Shoes", "Acme"));
+        AtomicBoolean pinned = new AtomicBoolean();
+        when(shopperService.getRankedShelves(List.of("shopper1"))).thenAnswer(invocation -> {
+            pinned.set(RoutingContext.isPrimaryPinned());
+            return Map.of("shopper1", shelf);
+        });
+        when(shopperService.getFirstPage(shelf, null, 10)).thenReturn(new OperationResponse<>(true, "ok",
+                PageResponseDTO.<ShopperProductDTO>builder().content(shelf).totalItems(1).totalPages(1).build()));
+
+        materializationService.onShelfChanged(new ShelfChangedEvent("shopper1"));
+
+        assertThat(pinned).isTrue();
+        assertThat(materializationService.findFirstPage("shopper1", null, 10)).isNotNull();
+        verify(shopperService, never()).getProductsByShopper(any(), any(), any(), any(), any());
+    }
+}
@@ -1,14 +1,22 @@
 package com.assignment.personalized_app.service;
 
+import com.assignment.personalized_app.catalog.ProductCatalog;
 import com.assignment.personalized_app.dto.OperationResponse;
 import com.assignment.personalized_app.dto.ProductMetadataDTO;
+import com.assignment.personalized_app.entity.ChangeType;
 import com.assignment.personalized_app.entity.ProductMetadata;
+import com.assignment.personalized_app.event.ProductMetadataChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
 import com.assignment.personalized_app.repository.ProductMetadataRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Optional;
 
@@ -23,6 +31,21 @@ class ProductServiceImplTest {
     @Mock
     private ProductMetadataRepository productMetadataRepository;
 
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductAttributeIndex productAttributeIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ChangeOutbox changeOutbox;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -59,6 +82,8 @@ class ProductServiceImplTest {
 
         verify(productMetadataRepository, times(1)).existsById("prod1");
         verify(productMetadataRepository, times(1)).save(any(ProductMetadata.class));
+        verify(changeOutbox).recordProduct("prod1", ChangeType.PRODUCT_CREATED, "Electronics", "Sony");
+        verify(productAttributeIndex).put("prod1", "Electronics", "Sony");
     }
 
     @Test
@@ -125,6 +150,32 @@ class ProductServiceImplTest {
 
         verify(productMetadataRepository, times(1)).findById("prod1");
         verify(productMetadataRepository, times(1)).save(existingProduct);
+        verify(eventPublisher).publishEvent(
+                new ProductMetadataChangedEvent("prod1", "OldCategory", "OldBrand", "Electronics", "Sony"));
+        verify(changeOutbox).recordProduct("prod1", ChangeType.PRODUCT_UPDATED, "Electronics", "Sony");
+        verify(productAttributeIndex).put("prod1", "Electronics", "Sony");
+    }
+
+    @Test
+    void updateMetadata_UnchangedPublishesNoEvent() {
+        ProductMetadataDTO dto = new ProductMetadataDTO();
+        dto.setProductId("prod1");
+        dto.setCategory("Electronics");
+        dto.setBrand("Sony");
+
+        ProductMetadata existingProduct = new ProductMetadata();
+        existingProduct.setProductId("prod1");
+        existingProduct.setCategory("Electronics");
+        existingProduct.setBrand("Sony");
+
+        when(productMetadataRepository.findById("prod1")).thenReturn(Optional.of(existingProduct));
+        when(productMetadataRepository.save(existingProduct)).thenReturn(existingProduct);
+
+        ResponseEntity<?> responseEntity = productService.updateMetadata(dto);
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        verify(changeOutbox, never()).recordProduct(any(), any(), any(), any());
     }
 
     @Test
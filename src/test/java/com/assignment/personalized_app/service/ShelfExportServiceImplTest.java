@@ -0,0 +1,106 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.ExportProperties;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ShelfExportServiceImplTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ShelfExportServiceImpl shelfExportService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(255) PRIMARY KEY, category VARCHAR(255), brand VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE shopper_product (id BIGINT AUTO_INCREMENT PRIMARY KEY, shopper_id VARCHAR(255) NOT NULL, "
+                + "product_id VARCHAR(255) NOT NULL, relevancy_score DECIMAL(19,10))");
+
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('prod1', 'Cat', 'BrandA'), ('prod2', 'Cat', 'BrandB'), ('prod3', 'Other', 'BrandA')");
+        jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score) VALUES "
+                + "('shopper1', 'prod1', 0.5), ('shopper1', 'prod2', 0.9), ('shopper1', 'prod3', 0.1), "
+                + "('shopper2', 'prod1', 0.7), ('shopper3', 'prod2', 0.3)");
+
+        ExportProperties properties = new ExportProperties();
+        properties.setFetchSize(2);
+        shelfExportService = new ShelfExportServiceImpl(jdbcTemplate, objectMapper, properties,
+                database, new ShardRouter(Optional.empty()),
+                mock(ProductCatalog.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void exportShelf_WritesRankedNdjson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = shelfExportService.exportShelf("shopper1", out);
+
+        List<JsonNode> lines = parse(out);
+        assertThat(rows).isEqualTo(3);
+        assertThat(lines).extracting(n -> n.get("productId").asText())
+                .containsExactly("prod2", "prod1", "prod3");
+        assertThat(lines.get(0).get("category").asText()).isEqualTo("Cat");
+        assertThat(lines.get(0).get("relevancyScore").decimalValue()).isEqualByComparingTo("0.9");
+    }
+
+    @Test
+    void exportShelves_RangeIsHalfOpen() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = shelfExportService.exportShelves("shopper1", "shopper3", out);
+
+        List<JsonNode> lines = parse(out);
+        assertThat(rows).isEqualTo(4);
+        assertThat(lines).extracting(n -> n.get("shopperId").asText())
+                .containsExactly("shopper1", "shopper1", "shopper1", "shopper2");
+    }
+
+    @Test
+    void exportShelf_UnknownShopperWritesNothing() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = shelfExportService.exportShelf("nobody", out);
+
+        assertThat(rows).isZero();
+        assertThat(out.size()).isZero();
+    }
+
+    private List<JsonNode> parse(ByteArrayOutputStream out) throws Exception {
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertThat(body).endsWith("\n");
+        return body.lines().map(line -> {
+            try {
+                return objectMapper.readTree(line);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList();
+    }
+}
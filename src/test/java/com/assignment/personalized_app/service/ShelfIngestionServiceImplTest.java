@@ -0,0 +1,131 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.IngestionProperties;
+import com.assignment.personalized_app.dto.IngestionSummaryDTO;
+import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.ShopperShelfDTO;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class ShelfIngestionServiceImplTest {
+
+    @Mock
+    private ShopperService shopperService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolTaskExecutor executor;
+    private ShelfIngestionServiceImpl ingestionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenAnswer(i -> new SimpleTransactionStatus());
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.initialize();
+
+        IngestionProperties properties = new IngestionProperties();
+        properties.setBatchSize(2);
+        properties.setQueueDepth(1);
+
+        ingestionService = new ShelfIngestionServiceImpl(shopperService,
+                new TransactionTemplate(transactionManager), new ObjectMapper(), executor, properties,
+                new ShardRouter(Optional.empty()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void ingest_AllShelvesSucceed() {
+        when(shopperService.updateShelf(any())).thenReturn((OperationResponse) new OperationResponse<>(true, "ok",
+                Map.of("insertedProductIds", List.of("p1"), "updatedProductIds", List.of(), "notSavedProductIds", List.of())));
+
+        OperationResponse<IngestionSummaryDTO> response = ingestionService.ingest(body(
+                shelf("s1"), shelf("s2"), shelf("s3"), shelf("s4"), shelf("s5")));
+
+        IngestionSummaryDTO summary = response.getData();
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(summary.getTotalShelves()).isEqualTo(5);
+        assertThat(summary.getSucceededShelves()).isEqualTo(5);
+        assertThat(summary.getInsertedItems()).isEqualTo(5);
+        assertThat(summary.getBatches()).isEqualTo(3);
+        assertThat(summary.getFailures()).isEmpty();
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void ingest_RejectedShelfIsReportedPerShopper() {
+        when(shopperService.updateShelf(any())).thenReturn((OperationResponse) new OperationResponse<>(true, "ok", Map.of()));
+        when(shopperService.updateShelf(argThat(dto -> "s2".equals(dto.getShopperId()))))
+                .thenReturn((OperationResponse) new OperationResponse<>(false, "Shelf payload is empty", Map.of()));
+
+        OperationResponse<IngestionSummaryDTO> response = ingestionService.ingest(body(shelf("s1"), shelf("s2")));
+
+        IngestionSummaryDTO summary = response.getData();
+        assertThat(summary.getSucceededShelves()).isEqualTo(1);
+        assertThat(summary.getFailedShelves()).isEqualTo(1);
+        assertThat(summary.getFailures()).containsEntry("s2", "Shelf payload is empty");
+    }
+
+    @Test
+    void ingest_FailedBatchIsRetriedShelfByShelf() {
+        when(shopperService.updateShelf(any())).thenReturn((OperationResponse) new OperationResponse<>(true, "ok", Map.of()));
+        when(shopperService.updateShelf(argThat(dto -> "s2".equals(dto.getShopperId()))))
+                .thenThrow(new RuntimeException("deadlock"));
+
+        OperationResponse<IngestionSummaryDTO> response = ingestionService.ingest(body(shelf("s1"), shelf("s2")));
+
+        IngestionSummaryDTO summary = response.getData();
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(summary.getSucceededShelves()).isEqualTo(1);
+        assertThat(summary.getFailures()).containsKey("s2");
+        // batch transaction rolled back, then s1 and s2 retried in their own transactions
+        verify(transactionManager, times(2)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void ingest_MalformedLineStopsParsing() {
+        when(shopperService.updateShelf(any())).thenReturn((OperationResponse) new OperationResponse<>(true, "ok", Map.of()));
+
+        OperationResponse<IngestionSummaryDTO> response = ingestionService.ingest(body(shelf("s1"), "{not json"));
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getMessage()).contains("Malformed NDJSON after 1 shelves");
+        assertThat(response.getData().getSucceededShelves()).isEqualTo(1);
+    }
+
+    private String shelf(String shopperId) {
+        return "{\"shopperId\":\"" + shopperId + "\",\"shelf\":[{\"productId\":\"p1\",\"relevancyScore\":0.5}]}";
+    }
+
+    private ByteArrayInputStream body(String... lines) {
+        return new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,109 @@
+package com.assignment.personalized_app.service;
+
+import com.assignment.personalized_app.config.RetentionProperties;
+import com.assignment.personalized_app.dto.RetentionReportDTO;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ShelfRetentionServiceImplTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ShopperService shopperService;
+    private RetentionProperties properties;
+    private ShelfRetentionServiceImpl retentionService;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:retention-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE shopper_product (id BIGINT AUTO_INCREMENT PRIMARY KEY, shopper_id VARCHAR(255), "
+                + "product_id VARCHAR(255), relevancy_score DECIMAL(19,10), updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE shelf_refresh (shopper_id VARCHAR(255) PRIMARY KEY, "
+                + "refreshed_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3))");
+
+        shopperService = mock(ShopperService.class);
+        when(shopperService.pruneShelf(any(), any(), any())).thenReturn(1);
+        properties = new RetentionProperties();
+        properties.setBatchSize(2);
+        properties.setPause(Duration.ZERO);
+        retentionService = new ShelfRetentionServiceImpl(shopperService, new ShardRouter(Optional.empty()),
+                dataSource, mock(TaskScheduler.class), properties, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void run_PrunesOnlyShoppersPastALimit() {
+        insert("stale", "p1", "0.9", "2020-01-01 00:00:00");
+        insert("stale", "p2", "0.8", "2020-01-02 00:00:00");
+        insert("mixed", "p1", "0.9", "2020-01-01 00:00:00");
+        insert("mixed", "p2", "0.01", null);
+        insert("fresh", "p1", "0.9", null);
+        properties.setMaxShelfAge(Duration.ofDays(30));
+        properties.setScoreFloor(new BigDecimal("0.05"));
+
+        RetentionReportDTO report = retentionService.run();
+
+        verify(shopperService).pruneShelf(eq("stale"), any(Instant.class), eq(new BigDecimal("0.05")));
+        verify(shopperService).pruneShelf(eq("mixed"), any(Instant.class), eq(new BigDecimal("0.05")));
+        verify(shopperService, never()).pruneShelf(eq("fresh"), any(), any());
+        assertThat(report.getShoppersScanned()).isEqualTo(3);
+        assertThat(report.getShelvesDeleted()).isEqualTo(1);
+        assertThat(report.getItemsDeleted()).isEqualTo(2);
+    }
+
+    @Test
+    void run_KeepsOldShelvesThatWereSentRecently() {
+        insert("resent", "p1", "0.9", "2020-01-01 00:00:00");
+        insert("stale", "p1", "0.9", "2020-01-01 00:00:00");
+        jdbcTemplate.update("INSERT INTO shelf_refresh (shopper_id) VALUES ('resent')");
+        jdbcTemplate.update("INSERT INTO shelf_refresh (shopper_id, refreshed_at) VALUES ('stale', TIMESTAMP '2020-01-01 00:00:00')");
+        properties.setMaxShelfAge(Duration.ofDays(30));
+
+        retentionService.run();
+
+        verify(shopperService).pruneShelf(eq("stale"), any(Instant.class), any());
+        verify(shopperService, never()).pruneShelf(eq("resent"), any(), any());
+    }
+
+    @Test
+    void run_DoesNothingWithoutLimits() {
+        insert("stale", "p1", "0.0", "2020-01-01 00:00:00");
+
+        RetentionReportDTO report = retentionService.run();
+
+        verifyNoInteractions(shopperService);
+        assertThat(report.getShoppersScanned()).isZero();
+    }
+
+    private void insert(String shopperId, String productId, String score, String updatedAt) {
+        if (updatedAt == null) {
+            jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score) VALUES (?, ?, ?)",
+                    shopperId, productId, new BigDecimal(score));
+        } else {
+            jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score, updated_at) "
+                    + "VALUES (?, ?, ?, TIMESTAMP '" + updatedAt + "')", shopperId, productId, new BigDecimal(score));
+        }
+    }
+}
@@ -1,27 +1,59 @@
 package com.assignment.personalized_app.service;
 
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.coalescing.ShelfReadCoalescer;
+import com.assignment.personalized_app.coherence.CacheCoherence;
+import com.assignment.personalized_app.config.CoalescingProperties;
+import com.assignment.personalized_app.config.DataSourceRoutingProperties;
+import com.assignment.personalized_app.config.ShelfDigestProperties;
+import com.assignment.personalized_app.config.StorageProperties;
+import com.assignment.personalized_app.datasource.ReadYourWritesTracker;
+import com.assignment.personalized_app.datasource.RoutingContext;
+import com.assignment.personalized_app.digest.ShelfDigest;
 import com.assignment.personalized_app.dto.ItemDTO;
 import com.assignment.personalized_app.dto.OperationResponse;
+import com.assignment.personalized_app.dto.PageResponseDTO;
+import com.assignment.personalized_app.dto.ShopperProductDTO;
 import com.assignment.personalized_app.dto.ShopperShelfDTO;
+import com.assignment.personalized_app.entity.CompactColumns;
+import com.assignment.personalized_app.entity.ChangeType;
 import com.assignment.personalized_app.entity.ProductMetadata;
 import com.assignment.personalized_app.entity.ShopperProduct;
+import com.assignment.personalized_app.entity.ShopperShelfDigest;
+import com.assignment.personalized_app.event.ShelfChangedEvent;
+import com.assignment.personalized_app.index.ProductAttributeIndex;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.outbox.ChangeOutbox;
 import com.assignment.personalized_app.repository.ProductMetadataRepository;
+import com.assignment.personalized_app.repository.ShelfRefreshRepository;
 import com.assignment.personalized_app.repository.ShopperProductRepository;
+import com.assignment.personalized_app.repository.ShopperShelfDigestRepository;
+import com.assignment.personalized_app.sharding.ShardRouter;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.util.List;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -36,6 +68,53 @@ class ShopperServiceImplTest {
     @Mock
     private EntityManager entityManager;
 
+    @Spy
+    private ReadYourWritesTracker readYourWritesTracker =
+            new ReadYourWritesTracker(new DataSourceRoutingProperties());
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(Optional.empty());
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Spy
+    private ShelfReadCoalescer shelfReadCoalescer =
+            new ShelfReadCoalescer(disabledCoalescing(), null, new SimpleMeterRegistry());
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ProductShopperIndex productShopperIndex;
+
+    @Mock
+    private FacetService facetService;
+
+    @Spy
+    private StorageProperties storageProperties = new StorageProperties();
+
+    @Mock
+    private ShopperShelfDigestRepository shelfDigestRepository;
+
+    @Spy
+    private ShelfDigestProperties shelfDigestProperties = new ShelfDigestProperties();
+
+    @Mock
+    private ShelfCacheService shelfCacheService;
+
+    @Mock
+    private ChangeOutbox changeOutbox;
+
+    @Mock
+    private CacheCoherence cacheCoherence;
+
+    @Mock
+    private ProductAttributeIndex productAttributeIndex;
+
+    @Mock
+    private ShelfRefreshRepository shelfRefreshRepository;
+
     @InjectMocks
     private ShopperServiceImpl shopperService;
 
@@ -97,6 +176,22 @@ class ShopperServiceImplTest {
         assertTrue(response.isSuccess());
     }
 
+    @Test
+    void testSaveShelf_CompactKeysRefuseScoresTheKeyIndexCannotHold() {
+        storageProperties.setCompactKeys(true);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+
+        OperationResponse<?> response = shopperService.saveShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod1", BigDecimal.ONE), new ItemDTO("prod2", new BigDecimal("999999999")))));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).isEqualTo(Map.of(
+                "shopperId", "shopper1", "totalItems", 1, "notSavedProductIds", List.of("prod2")));
+        verify(productMetadataRepository).findExistingProductIds(List.of("prod1"));
+    }
+
     /* ===========================================
        updateShelf() Tests
        =========================================== */
@@ -121,6 +216,211 @@ class ShopperServiceImplTest {
         assertThat(response.getMessage()).contains("Shelf payload is empty");
     }
 
+    @Test
+    void testUpdateShelf_UnchangedShelfIsAcknowledgedWithoutDiffing() {
+        shelfDigestProperties.setEnabled(true);
+        storedDigest("shopper1", Map.of("prod1", new BigDecimal("0.5"), "prod2", BigDecimal.ONE));
+
+        // Same shelf, other order and scale
+        ShopperShelfDTO dto = new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod2", new BigDecimal("1.00")), new ItemDTO("prod1", new BigDecimal("0.50"))));
+        OperationResponse<?> response = shopperService.updateShelf(dto);
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getMessage()).isEqualTo("Shelf unchanged for shopperId=shopper1");
+        // Still counts as sent for retention
+        verify(shelfRefreshRepository).touch("shopper1");
+        verifyNoInteractions(productMetadataRepository, productCatalog);
+        verify(shopperProductRepository, never()).findExistingForShopper(any(), any());
+        verify(shelfDigestRepository, never()).upsert(any(), any(), any(), anyInt());
+    }
+
+    @Test
+    void testUpdateShelf_OnlyChangedChunksAreValidatedAndDiffed() {
+        shelfDigestProperties.setEnabled(true);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        Map<String, BigDecimal> shelf = new HashMap<>();
+        for (int i = 0; i < 64; i++) {
+            shelf.put("prod" + i, BigDecimal.valueOf(i));
+        }
+        storedDigest("shopper1", shelf);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        when(shopperProductRepository.findExistingForShopper(eq("shopper1"), anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.<List<String>>getArgument(1).stream()
+                        .map(id -> new Object[]{id, BigDecimal.valueOf(Integer.parseInt(id.substring(4)))})
+                        .toList()));
+
+        shelf.put("prod7", new BigDecimal("7.5"));
+        List<ItemDTO> items = shelf.entrySet().stream().map(e -> new ItemDTO(e.getKey(), e.getValue())).toList();
+        OperationResponse<?> response = shopperService.updateShelf(new ShopperShelfDTO("shopper1", items));
+
+        int chunk = ShelfDigest.chunkOf("prod7", shelfDigestProperties.getChunks());
+        Set<String> chunkProducts = new HashSet<>();
+        shelf.keySet().stream().filter(id -> ShelfDigest.chunkOf(id, shelfDigestProperties.getChunks()) == chunk)
+                .forEach(chunkProducts::add);
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).isEqualTo(Map.of(
+                "insertedProductIds", List.of(), "updatedProductIds", List.of("prod7"), "notSavedProductIds", List.of()));
+        ArgumentCaptor<List<String>> validated = ArgumentCaptor.forClass(List.class);
+        verify(productMetadataRepository).findExistingProductIds(validated.capture());
+        assertThat(validated.getValue()).containsExactlyInAnyOrderElementsOf(chunkProducts).hasSizeLessThan(shelf.size());
+        byte[] appliedHash = ShelfDigest.of(shelf, shelfDigestProperties.getChunks()).shelfHash();
+        verify(shelfDigestRepository).upsert(eq("shopper1"), aryEq(appliedHash), any(), eq(64));
+    }
+
+    @Test
+    void testUpdateShelf_CompactKeysRefuseScoresTheKeyIndexCannotHold() {
+        storageProperties.setCompactKeys(true);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+
+        OperationResponse<?> response = shopperService.updateShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod1", BigDecimal.ONE), new ItemDTO("prod2", new BigDecimal("999999999")))));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).isEqualTo(Map.of(
+                "insertedProductIds", List.of("prod1"), "updatedProductIds", List.of(), "notSavedProductIds", List.of("prod2")));
+
+        response = shopperService.updateShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod2", new BigDecimal("999999999")))));
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getMessage()).isEqualTo("No valid products found for shopperId=shopper1");
+    }
+
+    @Test
+    void testUpdateShelf_CapEvictsItemsBelowTheCut() {
+        storageProperties.setMaxItemsPerShopper(2);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        when(shopperProductRepository.lockShelf("shopper1")).thenReturn(List.of(
+                new Object[]{"prod1", new BigDecimal("0.9"), null},
+                new Object[]{"prod2", new BigDecimal("0.2"), null}));
+
+        OperationResponse<?> response = shopperService.updateShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod3", new BigDecimal("0.5")),
+                new ItemDTO("prod4", new BigDecimal("0.1")),
+                new ItemDTO("prod5", new BigDecimal("0.05")))));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).isEqualTo(Map.of(
+                "insertedProductIds", List.of("prod3"), "updatedProductIds", List.of(), "notSavedProductIds", List.of(),
+                "evictedProductIds", List.of("prod2"), "overCapCount", 2));
+        verify(productMetadataRepository).findExistingProductIds(
+                argThat(ids -> new HashSet<>(ids).equals(Set.of("prod3", "prod4", "prod5"))));
+        verify(shopperProductRepository).deleteItems("shopper1", Set.of("prod2"));
+        verify(changeOutbox).recordShelf("shopper1", ChangeType.SHELF_ITEMS_DELETED, Map.of("prod2", new BigDecimal("0.2")));
+        verify(productShopperIndex).removeAll("shopper1", Set.of("prod2"));
+        verify(facetService).recordRemoved("shopper1", Set.of("prod2"));
+        verify(eventPublisher).publishEvent(new ShelfChangedEvent("shopper1"));
+    }
+
+    @Test
+    void testUpdateShelf_CapPlacesAreTakenByValidItemsOnly() {
+        storageProperties.setMaxItemsPerShopper(2);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.<List<String>>getArgument(0).stream()
+                        .filter(id -> !id.equals("unknown"))
+                        .toList()));
+
+        OperationResponse<?> response = shopperService.updateShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("unknown", new BigDecimal("0.99")),
+                new ItemDTO("prod3", new BigDecimal("0.5")),
+                new ItemDTO("prod4", new BigDecimal("0.1")),
+                new ItemDTO("prod5", new BigDecimal("0.05")))));
+
+        assertThat(response.isSuccess()).isTrue();
+        Map<Object, Object> data = Map.copyOf((Map<?, ?>) response.getData());
+        assertThat(data).containsEntry("notSavedProductIds", List.of("unknown")).containsEntry("overCapCount", 1);
+        List<Object> inserted = List.copyOf((List<?>) data.get("insertedProductIds"));
+        assertThat(inserted).containsExactlyInAnyOrder("prod3", "prod4");
+    }
+
+    @Test
+    void testSaveShelf_CapKeepsHighestScoringItems() {
+        storageProperties.setMaxItemsPerShopper(1);
+        ReflectionTestUtils.setField(shopperService, "entityManager", entityManager);
+        when(productMetadataRepository.findExistingProductIds(anyList()))
+                .thenAnswer(invocation -> Optional.of(invocation.getArgument(0)));
+        when(shopperProductRepository.findByShopperId("shopper1")).thenReturn(List.of());
+
+        OperationResponse<?> response = shopperService.saveShelf(new ShopperShelfDTO("shopper1", List.of(
+                new ItemDTO("prod1", new BigDecimal("0.1")),
+                new ItemDTO("prod2", new BigDecimal("0.7")))));
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(response.getData()).isEqualTo(Map.of("shopperId", "shopper1", "totalItems", 1, "overCapCount", 1));
+        verify(productShopperIndex).addAll("shopper1", Set.of("prod2"));
+    }
+
+    /* ===========================================
+       pruneShelf() Tests
+       =========================================== */
+
+    @Test
+    void testPruneShelf_DeletesItemsBelowFloorFromFreshShelf() {
+        Instant now = Instant.now();
+        when(shopperProductRepository.lockShelf("shopper1")).thenReturn(List.of(
+                new Object[]{"prod1", new BigDecimal("0.9"), Timestamp.from(now.minus(Duration.ofDays(40)))},
+                new Object[]{"prod2", new BigDecimal("0.01"), Timestamp.from(now)}));
+
+        int deleted = shopperService.pruneShelf("shopper1", now.minus(Duration.ofDays(30)), new BigDecimal("0.05"));
+
+        assertThat(deleted).isEqualTo(1);
+        verify(shopperProductRepository).deleteItems("shopper1", Set.of("prod2"));
+        verify(shelfDigestRepository).deleteById("shopper1");
+        verify(changeOutbox).recordShelf("shopper1", ChangeType.SHELF_ITEMS_DELETED, Map.of("prod2", new BigDecimal("0.01")));
+        verify(productShopperIndex).removeAll("shopper1", Set.of("prod2"));
+        verify(facetService).recordRemoved("shopper1", Set.of("prod2"));
+        verify(cacheCoherence).recordShelfWrite("shopper1");
+        verify(eventPublisher).publishEvent(new ShelfChangedEvent("shopper1"));
+    }
+
+    @Test
+    void testPruneShelf_DeletesWholeExpiredShelf() {
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        when(shopperProductRepository.lockShelf("shopper1")).thenReturn(List.of(
+                new Object[]{"prod1", new BigDecimal("0.9"), Timestamp.from(old)},
+                new Object[]{"prod2", new BigDecimal("0.5"), Timestamp.from(old)}));
+
+        int deleted = shopperService.pruneShelf("shopper1", Instant.now().minus(Duration.ofDays(30)), null);
+
+        assertThat(deleted).isEqualTo(2);
+        verify(shopperProductRepository).deleteItems("shopper1", Set.of("prod1", "prod2"));
+        verify(shelfRefreshRepository).deleteById("shopper1");
+    }
+
+    @Test
+    void testPruneShelf_KeepsOldShelfThatWasSentRecently() {
+        Instant old = Instant.now().minus(Duration.ofDays(40));
+        when(shelfRefreshRepository.lockRefreshedAt("shopper1")).thenReturn(List.of(Timestamp.from(Instant.now())));
+        when(shopperProductRepository.lockShelf("shopper1")).thenReturn(List.<Object[]>of(
+                new Object[]{"prod1", new BigDecimal("0.9"), Timestamp.from(old)}));
+
+        int deleted = shopperService.pruneShelf("shopper1", Instant.now().minus(Duration.ofDays(30)), null);
+
+        assertThat(deleted).isZero();
+        verify(shopperProductRepository, never()).deleteItems(any(), any());
+        verify(shelfRefreshRepository, never()).deleteById(any());
+    }
+
+    @Test
+    void testPruneShelf_KeepsShelfWithinLimits() {
+        when(shopperProductRepository.lockShelf("shopper1")).thenReturn(List.<Object[]>of(
+                new Object[]{"prod1", new BigDecimal("0.9"), Timestamp.from(Instant.now())}));
+
+        int deleted = shopperService.pruneShelf("shopper1", Instant.now().minus(Duration.ofDays(30)), new BigDecimal("0.05"));
+
+        assertThat(deleted).isZero();
+        verify(shopperProductRepository, never()).deleteItems(any(), any());
+        verifyNoInteractions(eventPublisher);
+    }
+
     /* ===========================================
        getProductsByShopper() Tests
        =========================================== */
@@ -164,4 +464,171 @@ class ShopperServiceImplTest {
         assertThat(response.isSuccess()).isFalse();
         assertThat(response.getMessage()).contains("Failed to fetch products");
     }
+
+    @Test
+    void testGetProductsByShopper_CompactKeysReadThroughTheKeyIndex() {
+        storageProperties.setCompactKeys(true);
+        when(shopperProductRepository.findByShopperKeyWithFilters(
+                eq(CompactColumns.shopperKey("shopper1")), eq("shopper1"), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(Page.empty());
+
+        ResponseEntity<?> responseEntity =
+                shopperService.getProductsByShopper("shopper1", null, null, 10, 0);
+
+        assertThat(((OperationResponse<?>) responseEntity.getBody()).isSuccess()).isTrue();
+        verify(shopperProductRepository, never()).findByShopperWithFilters(any(), any(), any(), any());
+    }
+
+    @Test
+    void testGetProductsByShopper_CacheMissLoadsTheShelfFromThePrimary() {
+        AtomicBoolean pinned = new AtomicBoolean();
+        when(shelfCacheService.isEnabled()).thenReturn(true);
+        when(shelfCacheService.getShelf(eq("shopper1"), any())).thenAnswer(invocation ->
+                invocation.<Supplier<List<ShopperProductDTO>>>getArgument(1).get());
+        when(shopperProductRepository.findShelvesWithProducts(List.of("shopper1"))).thenAnswer(invocation -> {
+            // Outside the read-your-writes window, so only the loader itself can pin the primary
+            pinned.set(RoutingContext.isPrimaryPinned());
+            return List.of();
+        });
+
+        shopperService.getProductsByShopper("shopper1", null, null, 10, 0);
+        assertThat(pinned).isTrue();
+
+        pinned.set(false);
+        shopperService.getFilteredProducts("shopper1", List.of("Shoes", "Bags"), null, null, null, 10, 0);
+        assertThat(pinned).isTrue();
+    }
+
+    @Test
+    void testGetProductsByShopper_CachedShelfIsPagedAndFilteredInMemory() {
+        List<ShopperProductDTO> shelf = List.of(
+                new ShopperProductDTO("prod1", BigDecimal.TEN, "Shoes", "Acme"),
+                new ShopperProductDTO("prod2", BigDecimal.ONE, "Bags", "Acme"),
+                new ShopperProductDTO("prod3", BigDecimal.ZERO, "Shoes", "Zed"),
+                new ShopperProductDTO("prod4", BigDecimal.ZERO, "Shoes", "Acme"));
+        when(shelfCacheService.isEnabled()).thenReturn(true);
+        when(shelfCacheService.getShelf(eq("shopper1"), any())).thenReturn(shelf);
+
+        ResponseEntity<?> responseEntity =
+                shopperService.getProductsByShopper("shopper1", "Shoes", "Acme", 1, 1);
+
+        PageResponseDTO<?> page = (PageResponseDTO<?>) ((OperationResponse<?>) responseEntity.getBody()).getData();
+        List<Object> content = List.copyOf(page.getContent());
+        assertThat(content).containsExactly(shelf.get(3));
+        assertThat(page.getTotalItems()).isEqualTo(2);
+        assertThat(page.getTotalPages()).isEqualTo(2);
+        assertThat(page.getCurrentPage()).isEqualTo(1);
+        verifyNoInteractions(shopperProductRepository);
+    }
+
+    @Test
+    void testGetFilteredProducts_IndexFiltersRankedRowsAndEnrichesOnlyThePage() {
+        when(shopperProductRepository.findAllRankedProductIds("shopper1")).thenReturn(List.of(
+                new Object[]{"prod1", new BigDecimal("0.9")},
+                new Object[]{"prod2", new BigDecimal("0.8")},
+                new Object[]{"prod3", new BigDecimal("0.5")},
+                new Object[]{"prod4", new BigDecimal("0.1")}));
+        ProductAttributeIndex.Filter filter = mock(ProductAttributeIndex.Filter.class);
+        when(filter.test(anyString())).thenAnswer(invocation -> !"prod2".equals(invocation.getArgument(0)));
+        when(productAttributeIndex.isEnabled()).thenReturn(true);
+        when(productAttributeIndex.isReady()).thenReturn(true);
+        when(productAttributeIndex.filter(Set.of("Shoes", "Bags"), Set.of(), List.of("prod1", "prod2", "prod3")))
+                .thenReturn(filter);
+        when(productAttributeIndex.lookup(List.of("prod3")))
+                .thenReturn(Map.of("prod3", new ProductCatalog.Entry("Bags", "Zed")));
+
+        ResponseEntity<?> responseEntity = shopperService.getFilteredProducts(
+                "shopper1", List.of("Shoes", "Bags", " "), null, new BigDecimal("0.5"), null, 1, 1);
+
+        PageResponseDTO<?> page = (PageResponseDTO<?>) ((OperationResponse<?>) responseEntity.getBody()).getData();
+        List<Object> content = List.copyOf(page.getContent());
+        assertThat(content).containsExactly(new ShopperProductDTO("prod3", new BigDecimal("0.5"), "Bags", "Zed"));
+        assertThat(page.getTotalItems()).isEqualTo(2);
+        verify(productAttributeIndex, never()).lookup(List.of("prod1"));
+        verifyNoInteractions(productCatalog);
+    }
+
+    @Test
+    void testGetFilteredProducts_LargeShelfIsFilteredInChunksKeepingOnlyThePage() {
+        List<Object[]> ranked = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            ranked.add(new Object[]{"prod" + i, BigDecimal.valueOf(2500 - i)});
+        }
+        when(shopperProductRepository.findAllRankedProductIds("shopper1")).thenReturn(ranked);
+        ProductAttributeIndex.Filter filter = mock(ProductAttributeIndex.Filter.class);
+        when(filter.test(anyString())).thenAnswer(invocation ->
+                Integer.parseInt(invocation.<String>getArgument(0).substring(4)) % 2 == 0);
+        when(productAttributeIndex.isEnabled()).thenReturn(true);
+        when(productAttributeIndex.isReady()).thenReturn(true);
+        when(productAttributeIndex.filter(any(), any(), any())).thenReturn(filter);
+
+        ResponseEntity<?> responseEntity = shopperService.getFilteredProducts(
+                "shopper1", List.of("Shoes", "Bags"), null, null, null, 10, 60);
+
+        PageResponseDTO<?> page = (PageResponseDTO<?>) ((OperationResponse<?>) responseEntity.getBody()).getData();
+        assertThat(page.getContent()).hasSize(10);
+        assertThat(((ShopperProductDTO) page.getContent().get(0)).getProductId()).isEqualTo("prod1200");
+        assertThat(page.getTotalItems()).isEqualTo(1250);
+        assertThat(page.getTotalPages()).isEqualTo(125);
+        ArgumentCaptor<List<String>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(productAttributeIndex, times(3)).filter(any(), any(), chunks.capture());
+        assertThat(chunks.getAllValues()).extracting(List::size).containsExactly(1000, 1000, 500);
+    }
+
+    @Test
+    void testGetFilteredProducts_FallsBackToCatalogUntilIndexIsReady() {
+        when(shopperProductRepository.findAllRankedProductIds("shopper1")).thenReturn(List.of(
+                new Object[]{"prod1", BigDecimal.TEN},
+                new Object[]{"prod2", BigDecimal.ONE}));
+        when(productCatalog.lookup(anyCollection())).thenReturn(Map.of(
+                "prod1", new ProductCatalog.Entry("Shoes", "Acme"),
+                "prod2", new ProductCatalog.Entry("Shoes", "Zed")));
+
+        ResponseEntity<?> responseEntity = shopperService.getFilteredProducts(
+                "shopper1", List.of(), List.of("Zed", "Other"), null, null, 10, 0);
+
+        PageResponseDTO<?> page = (PageResponseDTO<?>) ((OperationResponse<?>) responseEntity.getBody()).getData();
+        List<Object> content = List.copyOf(page.getContent());
+        assertThat(content).containsExactly(new ShopperProductDTO("prod2", BigDecimal.ONE, "Shoes", "Zed"));
+        verify(productAttributeIndex, never()).filter(any(), any(), any());
+    }
+
+    @Test
+    void testGetFilteredProducts_RejectsInvertedScoreRange() {
+        ResponseEntity<?> responseEntity = shopperService.getFilteredProducts(
+                "shopper1", null, null, BigDecimal.ONE, BigDecimal.ZERO, 10, 0);
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        verifyNoInteractions(shopperProductRepository);
+    }
+
+    @Test
+    void testGetFirstPage_MatchesQueryPathBody() {
+        ProductMetadata shoes = ProductMetadata.builder().productId("prod1").category("Shoes").brand("Acme").build();
+        ProductMetadata bags = ProductMetadata.builder().productId("prod2").category("Bags").brand("Acme").build();
+        ShopperProduct first = ShopperProduct.builder().shopperId("shopper1").product(shoes).relevancyScore(BigDecimal.TEN).build();
+        ShopperProduct second = ShopperProduct.builder().shopperId("shopper1").product(bags).relevancyScore(BigDecimal.ONE).build();
+        when(shopperProductRepository.findShelvesWithProducts(List.of("shopper1", "shopper2")))
+                .thenReturn(List.of(first, second));
+        when(shopperProductRepository.findByShopperWithFilters(eq("shopper1"), eq("Bags"), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(second), PageRequest.of(0, 10), 1));
+
+        var shelves = shopperService.getRankedShelves(List.of("shopper1", "shopper2"));
+
+        assertThat(shelves).containsOnlyKeys("shopper1");
+        assertThat(shopperService.getFirstPage(shelves.get("shopper1"), "Bags", 10))
+                .isEqualTo(shopperService.getProductsByShopper("shopper1", "Bags", null, 10, 0).getBody());
+    }
+
+    private void storedDigest(String shopperId, Map<String, BigDecimal> shelf) {
+        ShelfDigest digest = ShelfDigest.of(shelf, shelfDigestProperties.getChunks());
+        when(shelfDigestRepository.findById(shopperId)).thenReturn(Optional.of(new ShopperShelfDigest(
+                shopperId, digest.shelfHash(), digest.chunkHashes(), digest.itemCount())));
+    }
+
+    private static CoalescingProperties disabledCoalescing() {
+        CoalescingProperties properties = new CoalescingProperties();
+        properties.setEnabled(false);
+        return properties;
+    }
 }
@@ -0,0 +1,251 @@
+package com.assignment.personalized_app.sharding;
+
+import com.assignment.personalized_app.dto.RebalanceReportDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs a catalog database and three shards as separate embedded databases, each holding
+ * a row naming itself, so a query shows which instance served it.
+ */
+class ShardingTest {
+
+    private static final List<String> SHARDS = List.of("shard-0", "shard-1", "shard-2");
+
+    private final List<EmbeddedDatabase> databases = new ArrayList<>();
+    private final Map<String, DataSource> shards = new LinkedHashMap<>();
+
+    private EmbeddedDatabase catalog;
+    private ShardMap shardMap;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setUp() {
+        catalog = database("catalog");
+        SHARDS.forEach(name -> shards.put(name, database(name)));
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("schema-shard.sql"));
+        shards.values().forEach(schema::execute);
+
+        shardMap = new ShardMap(new JdbcTemplate(catalog), 64, SHARDS);
+        shardMap.initialize();
+
+        // Wired the way ShardingConfig wires it: router behind a lazy proxy, driven by a transaction manager
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new ShardRoutingDataSource(catalog, shards));
+        jdbc = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterEach
+    void tearDown() {
+        databases.forEach(EmbeddedDatabase::shutdown);
+    }
+
+    @Test
+    void bucketHashIsStable() {
+        assertThat(ShardHash.murmur3(new byte[0])).isZero();
+        assertThat(ShardHash.murmur3("hello".getBytes())).isEqualTo(0x248bfa47);
+        assertThat(ShardHash.bucketOf("shopper1", 1024)).isEqualTo(ShardHash.bucketOf("shopper1", 1024));
+        assertThat(ShardHash.bucketOf("shopper1", 1024)).isBetween(0, 1023);
+    }
+
+    @Test
+    void shardMapIsSeededRoundRobinAndSharedBetweenNodes() {
+        assertThat(shardMap.bucketsPerShard()).containsExactly(
+                Map.entry("shard-0", 22), Map.entry("shard-1", 21), Map.entry("shard-2", 21));
+
+        shardMap.assign(5, "shard-0");
+
+        // A second node reading the same table sees the change
+        ShardMap otherNode = new ShardMap(new JdbcTemplate(catalog), 64, SHARDS);
+        otherNode.initialize();
+        assertThat(otherNode.shardOfBucket(5)).isEqualTo("shard-0");
+        assertThat(otherNode.bucketsPerShard().get("shard-0")).isEqualTo(23);
+    }
+
+    @Test
+    void shardMapRejectsDifferentBucketCount() {
+        ShardMap resized = new ShardMap(new JdbcTemplate(catalog), 128, SHARDS);
+
+        assertThatThrownBy(resized::initialize)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("64 buckets");
+    }
+
+    @Test
+    void routesToSelectedShard_CatalogByDefault() {
+        assertThat(whoami()).isEqualTo("catalog");
+        assertThat(ShardContext.inShard("shard-1", this::whoami)).isEqualTo("shard-1");
+        assertThat(ShardContext.currentShard()).isNull();
+    }
+
+    @Test
+    void transactionIsPinnedToOneShard() {
+        String served = transaction.execute(status -> {
+            ShardContext.bindToTransaction("shard-2");
+            ShardContext.bindToTransaction("shard-2");
+
+            assertThatThrownBy(() -> ShardContext.bindToTransaction("shard-0"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("bound to shard shard-2");
+            assertThatThrownBy(() -> ShardContext.inShard("shard-1", this::whoami))
+                    .isInstanceOf(IllegalStateException.class);
+            return whoami();
+        });
+
+        assertThat(served).isEqualTo("shard-2");
+        assertThat(ShardContext.currentShard()).isNull();
+        assertThat(ShardContext.pinnedShard()).isNull();
+        assertThat(whoami()).isEqualTo("catalog");
+    }
+
+    @Test
+    void requiresNewTransactionStartsUnpinned() {
+        TransactionTemplate requiresNew = new TransactionTemplate(transaction.getTransactionManager());
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        List<String> served = transaction.execute(status -> {
+            ShardContext.bindToTransaction("shard-1");
+            String outer = whoami();
+            String inner = requiresNew.execute(s -> whoami());
+            return List.of(outer, inner, whoami(), ShardContext.pinnedShard());
+        });
+
+        assertThat(served).containsExactly("shard-1", "catalog", "shard-1", "shard-1");
+    }
+
+    @Test
+    void routerRefusesWritesWhileBucketMigrates() {
+        ShardRouter router = new ShardRouter(Optional.of(shardMap));
+        int bucket = shardMap.bucketOf("shopper1");
+        shardMap.setMigrating(bucket, true);
+
+        Boolean writable = transaction.execute(status -> router.bindForWrite("shopper1"));
+
+        assertThat(writable).isFalse();
+        assertThat(shardMap.migratingBuckets()).containsExactly(bucket);
+    }
+
+    @Test
+    void groupsItemsByOwningShard() {
+        ShardRouter router = new ShardRouter(Optional.of(shardMap));
+        List<String> shoppers = List.of("s1", "s2", "s3", "s4", "s5", "s6", "s7", "s8");
+
+        Collection<List<String>> groups = router.groupByShard(shoppers, id -> id);
+
+        assertThat(groups.stream().mapToInt(List::size).sum()).isEqualTo(shoppers.size());
+        groups.forEach(group -> assertThat(group.stream().map(router::shardOf).distinct()).hasSize(1));
+    }
+
+    @Test
+    void rebalancerMovesBucketAndCleansUpSource() {
+        ShardRouter router = new ShardRouter(Optional.of(shardMap));
+        List<String> shoppers = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String shopperId = "shopper-" + i;
+            shoppers.add(shopperId);
+            insertShelf(router.shardOf(shopperId), shopperId);
+        }
+
+        int bucket = shardMap.bucketOf("shopper-7");
+        String source = shardMap.shardOfBucket(bucket);
+        String target = SHARDS.stream().filter(s -> !s.equals(source)).findFirst().orElseThrow();
+        List<String> moved = shoppers.stream().filter(id -> shardMap.bucketOf(id) == bucket).toList();
+
+        RebalanceReportDTO report = new ShardRebalancer(shardMap, shards, 2, Duration.ZERO).moveBucket(bucket, target);
+
+        assertThat(report.getShoppersMoved()).isEqualTo(moved.size());
+        assertThat(report.getRowsCopied()).isEqualTo(moved.size() * 3L);
+        assertThat(report.getRowsDeleted()).isEqualTo(moved.size() * 3L);
+        assertThat(shardMap.shardOfBucket(bucket)).isEqualTo(target);
+        assertThat(shardMap.migratingBuckets()).isEmpty();
+
+        for (String shopperId : moved) {
+            assertThat(countRows(target, shopperId)).isEqualTo(3);
+            assertThat(countRows(source, shopperId)).isZero();
+            assertThat(router.shardOf(shopperId)).isEqualTo(target);
+            // Moving is not a write: row ages, refresh times and shelf versions arrive unchanged
+            assertThat(ShardContext.inShard(target, () -> jdbc.queryForObject(
+                    "SELECT MAX(updated_at) FROM shopper_product WHERE shopper_id = ?", Timestamp.class, shopperId)))
+                    .isEqualTo(Timestamp.valueOf("2020-01-01 00:00:00"));
+            assertThat(ShardContext.inShard(target, () -> jdbc.queryForObject(
+                    "SELECT version FROM shelf_version WHERE shopper_id = ?", Long.class, shopperId))).isEqualTo(4L);
+            assertThat(ShardContext.inShard(target, () -> jdbc.queryForObject(
+                    "SELECT refreshed_at FROM shelf_refresh WHERE shopper_id = ?", Timestamp.class, shopperId)))
+                    .isEqualTo(Timestamp.valueOf("2020-02-01 00:00:00"));
+            assertThat(ShardContext.inShard(source, () -> jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM shelf_version WHERE shopper_id = ?", Integer.class, shopperId))).isZero();
+            assertThat(ShardContext.inShard(source, () -> jdbc.queryForObject(
+                    "SELECT COUNT(*) FROM shelf_refresh WHERE shopper_id = ?", Integer.class, shopperId))).isZero();
+        }
+        // Shoppers in other buckets are untouched
+        shoppers.stream().filter(id -> !moved.contains(id)).forEach(id ->
+                assertThat(countRows(router.shardOf(id), id)).isEqualTo(3));
+    }
+
+    @Test
+    void rebalancerRejectsMoveToCurrentShard() {
+        ShardRebalancer rebalancer = new ShardRebalancer(shardMap, shards, 10, Duration.ZERO);
+
+        assertThatThrownBy(() -> rebalancer.moveBucket(0, shardMap.shardOfBucket(0)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> rebalancer.moveBucket(0, "shard-9"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String whoami() {
+        return jdbc.queryForObject("SELECT name FROM whoami", String.class);
+    }
+
+    private void insertShelf(String shard, String shopperId) {
+        ShardContext.inShard(shard, () -> transaction.execute(status -> {
+            ShardContext.bindToTransaction(shard);
+            for (int p = 0; p < 3; p++) {
+                jdbc.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score, updated_at) "
+                        + "VALUES (?, ?, ?, TIMESTAMP '2020-01-01 00:00:00')", shopperId, "prod" + p, 0.1 * p);
+            }
+            jdbc.update("INSERT INTO shelf_version (shopper_id, version, writer) VALUES (?, 4, 'node-a')", shopperId);
+            jdbc.update("INSERT INTO shelf_refresh (shopper_id, refreshed_at) VALUES (?, TIMESTAMP '2020-02-01 00:00:00')",
+                    shopperId);
+            return null;
+        }));
+    }
+
+    private int countRows(String shard, String shopperId) {
+        return ShardContext.inShard(shard, () -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM shopper_product WHERE shopper_id = ?", Integer.class, shopperId));
+    }
+
+    private EmbeddedDatabase database(String name) {
+        EmbeddedDatabase db = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate template = new JdbcTemplate(db);
+        template.execute("SET MODE MySQL");
+        template.execute("CREATE TABLE whoami (name VARCHAR(32))");
+        template.update("INSERT INTO whoami VALUES (?)", name);
+        databases.add(db);
+        return db;
+    }
+}
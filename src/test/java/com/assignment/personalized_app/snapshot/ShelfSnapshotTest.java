@@ -0,0 +1,124 @@
+package com.assignment.personalized_app.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ShelfSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsCatalogAndShelves() throws IOException {
+        Path file = directory.resolve("shelf-snapshot-1000.bin");
+        try (ShelfSnapshotWriter writer = new ShelfSnapshotWriter(file, 1000)) {
+            writer.product("p1", "Shoes", "Acme");
+            writer.product("p2", null, "Acme");
+            writer.shelfRow("s1", "p1", new BigDecimal("0.5"));
+            writer.shelfRow("s1", "p2", null);
+            // p3 was created after the catalog was read
+            writer.shelfRow("s2", "p3", new BigDecimal("-12.0000000001"));
+            writer.finish();
+        }
+
+        List<String> products = new ArrayList<>();
+        List<String> shelves = new ArrayList<>();
+        ShelfSnapshotReader.Summary summary = ShelfSnapshotReader.read(file, new ShelfSnapshotReader.Visitor() {
+            @Override
+            public void product(String productId, String category, String brand) {
+                products.add(productId + "/" + category + "/" + brand);
+            }
+
+            @Override
+            public void shelf(String shopperId, String[] productIds, long[] scores, int count) {
+                for (int i = 0; i < count; i++) {
+                    shelves.add(shopperId + "/" + productIds[i] + "/" + ShelfSnapshotReader.toScore(scores[i]));
+                }
+            }
+        });
+
+        assertThat(summary).isEqualTo(new ShelfSnapshotReader.Summary(1000, 2, 3));
+        assertThat(products).containsExactly("p1/Shoes/Acme", "p2/null/Acme");
+        assertThat(shelves).containsExactly("s1/p1/0.5000000000", "s1/p2/null", "s2/p3/-12.0000000001");
+        assertThat(directory.toFile().list()).containsExactly(file.getFileName().toString());
+    }
+
+    @Test
+    void manyBlocksRoundTrip() throws IOException {
+        Path file = directory.resolve("shelf-snapshot-1.bin");
+        int rows = ShelfSnapshotWriter.BLOCK_ROWS * 2 + 7;
+        try (ShelfSnapshotWriter writer = new ShelfSnapshotWriter(file, 1)) {
+            for (int i = 0; i < rows; i++) {
+                writer.product("p" + i, "c" + (i % 10), "b" + (i % 3));
+            }
+            for (int i = 0; i < rows; i++) {
+                writer.shelfRow("s" + (i / 100), "p" + (rows - 1 - i), BigDecimal.valueOf(i, 2));
+            }
+            writer.finish();
+        }
+
+        long[] checked = new long[2];
+        ShelfSnapshotReader.read(file, new ShelfSnapshotReader.Visitor() {
+            @Override
+            public void product(String productId, String category, String brand) {
+                int i = Integer.parseInt(productId.substring(1));
+                assertThat(category).isEqualTo("c" + (i % 10));
+                assertThat(brand).isEqualTo("b" + (i % 3));
+                checked[0]++;
+            }
+
+            @Override
+            public void shelf(String shopperId, String[] productIds, long[] scores, int count) {
+                for (int i = 0; i < count; i++) {
+                    long row = checked[1]++;
+                    assertThat(shopperId).isEqualTo("s" + (row / 100));
+                    assertThat(productIds[i]).isEqualTo("p" + (rows - 1 - row));
+                    assertThat(ShelfSnapshotReader.toScore(scores[i])).isEqualByComparingTo(BigDecimal.valueOf(row, 2));
+                }
+            }
+        });
+        assertThat(checked).containsExactly(rows, rows);
+    }
+
+    @Test
+    void corruptedSnapshotIsRejectedBeforeDecoding() throws IOException {
+        Path file = directory.resolve("shelf-snapshot-1.bin");
+        try (ShelfSnapshotWriter writer = new ShelfSnapshotWriter(file, 1)) {
+            writer.product("p1", "Shoes", "Acme");
+            writer.shelfRow("s1", "p1", BigDecimal.ONE);
+            writer.finish();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        List<String> seen = new ArrayList<>();
+        assertThatThrownBy(() -> ShelfSnapshotReader.read(file, new ShelfSnapshotReader.Visitor() {
+            @Override
+            public void product(String productId, String category, String brand) {
+                seen.add(productId);
+            }
+        })).isInstanceOf(IOException.class).hasMessageContaining("checksum");
+        assertThat(seen).isEmpty();
+    }
+
+    @Test
+    void unfinishedSnapshotLeavesNoFile() throws IOException {
+        Path file = directory.resolve("shelf-snapshot-1.bin");
+        try (ShelfSnapshotWriter writer = new ShelfSnapshotWriter(file, 1)) {
+            writer.product("p1", "Shoes", "Acme");
+        }
+
+        assertThat(directory.toFile().list()).isEmpty();
+    }
+}
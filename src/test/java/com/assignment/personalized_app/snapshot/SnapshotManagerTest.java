@@ -0,0 +1,125 @@
+package com.assignment.personalized_app.snapshot;
+
+import com.assignment.personalized_app.catalog.ProductCatalog;
+import com.assignment.personalized_app.config.CatalogProperties;
+import com.assignment.personalized_app.config.ReverseIndexProperties;
+import com.assignment.personalized_app.config.ShardingProperties;
+import com.assignment.personalized_app.config.SnapshotProperties;
+import com.assignment.personalized_app.index.ProductShopperIndex;
+import com.assignment.personalized_app.sharding.ShardRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SnapshotManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private SnapshotProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:snapshot-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product_metadata (product_id VARCHAR(255) PRIMARY KEY, category VARCHAR(255), "
+                + "brand VARCHAR(255), updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))");
+        jdbcTemplate.execute("CREATE TABLE shopper_product (id BIGINT AUTO_INCREMENT PRIMARY KEY, shopper_id VARCHAR(255), "
+                + "product_id VARCHAR(255), relevancy_score DECIMAL(19,10), "
+                + "updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3))");
+        // Rows written long before the snapshot
+        jdbcTemplate.update("INSERT INTO product_metadata VALUES ('p1', 'Shoes', 'Acme', TIMESTAMP '2020-01-01 00:00:00'), "
+                + "('p2', 'Bags', 'Acme', TIMESTAMP '2020-01-01 00:00:00')");
+        jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score, updated_at) VALUES "
+                + "('s1', 'p1', 0.5, TIMESTAMP '2020-01-01 00:00:00'), ('s2', 'p2', 0.9, TIMESTAMP '2020-01-01 00:00:00')");
+
+        properties = new SnapshotProperties();
+        properties.setEnabled(true);
+        properties.setDirectory(directory.toString());
+        properties.setCatchUpOverlap(Duration.ofSeconds(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    @Test
+    void restoreLoadsSnapshotThenCatchesUpOnLaterChanges() throws Exception {
+        Path written = newManager(newCatalog(), newIndex()).write();
+
+        // Only visible through the snapshot: the database no longer holds it
+        jdbcTemplate.update("DELETE FROM shopper_product WHERE shopper_id = 's2'");
+        // Changed after the snapshot
+        jdbcTemplate.update("UPDATE product_metadata SET category = 'Hats' WHERE product_id = 'p1'");
+        jdbcTemplate.update("INSERT INTO product_metadata (product_id, category, brand) VALUES ('p3', 'Toys', 'Zed')");
+        jdbcTemplate.update("INSERT INTO shopper_product (shopper_id, product_id, relevancy_score) VALUES ('s3', 'p3', 0.1)");
+
+        ProductCatalog catalog = newCatalog();
+        ProductShopperIndex index = newIndex();
+        assertThat(newManager(catalog, index).restore()).contains(written);
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.shoppersOf(List.of("p2"))).containsExactly("s2");
+        assertThat(index.shoppersOf(List.of("p3"))).containsExactly("s3");
+        assertThat(catalog.get("p1").category()).isEqualTo("Hats");
+        assertThat(catalog.get("p3").category()).isEqualTo("Toys");
+        assertThat(catalog.size()).isEqualTo(3);
+    }
+
+    @Test
+    void retainsOnlyTheNewestSnapshots() throws Exception {
+        properties.setRetain(1);
+        SnapshotManager manager = newManager(newCatalog(), newIndex());
+
+        manager.write();
+        Thread.sleep(5);
+        Path newest = manager.write();
+
+        assertThat(directory.toFile().list()).containsExactly(newest.getFileName().toString());
+    }
+
+    @Test
+    void missingSnapshotLeavesTheFullLoadToTheIndex() {
+        ProductShopperIndex index = newIndex();
+
+        assertThat(newManager(newCatalog(), index).restore()).isEmpty();
+        assertThat(index.isReady()).isFalse();
+    }
+
+    private SnapshotManager newManager(ProductCatalog catalog, ProductShopperIndex index) {
+        return new SnapshotManager(dataSource, Optional.empty(), new ShardRouter(Optional.empty()), catalog, index,
+                mock(TaskScheduler.class), properties, new SimpleMeterRegistry());
+    }
+
+    private ProductCatalog newCatalog() {
+        CatalogProperties catalogProperties = new CatalogProperties();
+        catalogProperties.setInMemory(true);
+        return new ProductCatalog(dataSource, Optional.empty(), mock(TaskScheduler.class), catalogProperties,
+                new ShardingProperties());
+    }
+
+    private ProductShopperIndex newIndex() {
+        ReverseIndexProperties indexProperties = new ReverseIndexProperties();
+        indexProperties.setEnabled(true);
+        return new ProductShopperIndex(dataSource, new ShardRouter(Optional.empty()), indexProperties,
+                new SimpleMeterRegistry());
+    }
+}
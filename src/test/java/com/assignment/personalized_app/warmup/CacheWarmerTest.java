@@ -0,0 +1,131 @@
+package com.assignment.personalized_app.warmup;
+
+import com.assignment.personalized_app.config.MaterializationProperties;
+import com.assignment.personalized_app.config.WarmupProperties;
+import com.assignment.personalized_app.service.PageMaterializationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CacheWarmerTest {
+
+    @TempDir
+    Path directory;
+
+    private PageMaterializationService pageMaterializationService;
+    private HotShopperTracker hotShopperTracker;
+    private ThreadPoolTaskExecutor executor;
+    private WarmupProperties properties;
+    private MaterializationProperties materializationProperties;
+
+    @BeforeEach
+    void setUp() {
+        pageMaterializationService = mock(PageMaterializationService.class);
+        hotShopperTracker = mock(HotShopperTracker.class);
+        properties = new WarmupProperties();
+        properties.setEnabled(true);
+        properties.setChunkSize(2);
+        properties.setThreads(2);
+        properties.setCoverage(1.0);
+        materializationProperties = new MaterializationProperties();
+        materializationProperties.setEnabled(true);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void reportsReadyOnceEveryChunkIsWarmed() throws Exception {
+        when(hotShopperTracker.hotShoppers()).thenReturn(List.of("s1", "s2", "s3", "s4", "s5"));
+        when(pageMaterializationService.warm(anyList())).thenAnswer(call -> ((List<?>) call.getArgument(0)).size());
+        CacheWarmer warmer = newWarmer();
+
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        warmer.onApplicationReady();
+        awaitReady(warmer);
+
+        verify(pageMaterializationService).warm(List.of("s1", "s2"));
+        verify(pageMaterializationService).warm(List.of("s3", "s4"));
+        verify(pageMaterializationService).warm(List.of("s5"));
+        assertThat(warmer.health().getDetails()).containsEntry("warmed", 5);
+    }
+
+    @Test
+    void reportsReadyAtTheDeadlineWhileChunksAreStillRunning() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(hotShopperTracker.hotShoppers()).thenReturn(List.of("s1", "s2", "s3"));
+        when(pageMaterializationService.warm(anyList())).thenAnswer(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 0;
+        });
+        properties.setDeadline(Duration.ofMillis(50));
+        CacheWarmer warmer = newWarmer();
+
+        warmer.onApplicationReady();
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        awaitReady(warmer);
+        assertThat(warmer.health().getDetails()).containsEntry("processed", 0);
+        release.countDown();
+    }
+
+    @Test
+    void alwaysReadyWithoutPageMaterialization() {
+        materializationProperties.setEnabled(false);
+        CacheWarmer warmer = newWarmer();
+
+        warmer.onApplicationReady();
+
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.UP);
+        verifyNoInteractions(hotShopperTracker, pageMaterializationService);
+    }
+
+    @Test
+    void trackerPersistsHottestFirstAndKeepsThePreviousListBehind() throws Exception {
+        Path file = directory.resolve("hot-shoppers.txt");
+        Files.write(file, List.of("old1", "s2", "old2"));
+        properties.setHotShoppersFile(file.toString());
+        properties.setMaxShoppers(4);
+        HotShopperTracker tracker = new HotShopperTracker(mock(DataSource.class), null, null, properties);
+
+        assertThat(tracker.hotShoppers()).containsExactly("old1", "s2", "old2");
+        tracker.recordRead("s1");
+        tracker.recordRead("s2");
+        tracker.recordRead("s2");
+        tracker.persist();
+
+        assertThat(Files.readAllLines(file)).containsExactly("s2", "s1", "old1", "old2");
+    }
+
+    private CacheWarmer newWarmer() {
+        return new CacheWarmer(pageMaterializationService, hotShopperTracker, executor, properties,
+                materializationProperties, new SimpleMeterRegistry());
+    }
+
+    private static void awaitReady(CacheWarmer warmer) throws InterruptedException {
+        for (int i = 0; i < 100 && warmer.health().getStatus() != Status.UP; i++) {
+            Thread.sleep(20);
+        }
+        assertThat(warmer.health().getStatus()).isEqualTo(Status.UP);
+    }
+}